@@ -24,6 +24,13 @@ import aQute.lib.io.IO;
 public class Decoder implements Closeable {
 	final JSONCodec		codec;
 	Reader				reader;
+	/*
+	 * The reader is read in chunks, reading single characters from a reader
+	 * is expensive since most readers synchronize on every read
+	 */
+	char[]				buffer;
+	int					position;
+	int					limit;
 	int					current;
 	MessageDigest		digest;
 	Map<String, Object>	extra;
@@ -69,6 +76,7 @@ public class Decoder implements Closeable {
 
 	public Decoder from(Reader in) throws Exception {
 		reader = in;
+		position = limit = 0;
 		read();
 		return this;
 	}
@@ -139,7 +147,11 @@ public class Decoder implements Closeable {
 	}
 
 	int read() throws Exception {
-		current = reader.read();
+		if (position < limit) {
+			current = buffer[position++];
+		} else {
+			current = fill();
+		}
 		if (digest != null) {
 			digest.update((byte) (current / 256));
 			digest.update((byte) (current % 256));
@@ -147,6 +159,20 @@ public class Decoder implements Closeable {
 		return current;
 	}
 
+	private int fill() throws IOException {
+		if (buffer == null)
+			buffer = new char[4096];
+		int n;
+		while ((n = reader.read(buffer, 0, buffer.length)) == 0) {}
+		if (n < 0) {
+			position = limit = 0;
+			return -1;
+		}
+		position = 1;
+		limit = n;
+		return buffer[0];
+	}
+
 	int current() {
 		return current;
 	}
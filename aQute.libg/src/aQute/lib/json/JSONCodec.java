@@ -18,8 +18,8 @@ import java.util.Hashtable;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
-import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
 /**
@@ -51,23 +51,37 @@ import java.util.regex.Pattern;
  * Will now use hex for encoding byte arrays
  */
 public class JSONCodec {
-	final static String								START_CHARACTERS	= "[{\"-0123456789tfn";
+	final static String											START_CHARACTERS	= "[{\"-0123456789tfn";
 
 	// Handlers
-	private final static WeakHashMap<Type, Handler>	handlers			= new WeakHashMap<>();
-	private static StringHandler					sh					= new StringHandler();
-	private static BooleanHandler					bh					= new BooleanHandler();
-	private static CharacterHandler					ch					= new CharacterHandler();
-	private static CollectionHandler				dch					= new CollectionHandler(ArrayList.class,
-		Object.class);
-	private static SpecialHandler					sph					= new SpecialHandler(Pattern.class, null, null);
-	private static DateHandler						sdh					= new DateHandler();
-	private static FileHandler						fh					= new FileHandler();
-	private static ByteArrayHandler					byteh				= new ByteArrayHandler();
-	private static UUIDHandler						uuidh				= new UUIDHandler();
-
-	boolean											ignorenull;
-	Map<Type, Handler>								localHandlers		= new ConcurrentHashMap<>();
+	/*
+	 * The handler of a class is kept with the class so the cache does not keep
+	 * classes, and their class loaders, alive. The handlers of generic types
+	 * are cached per codec.
+	 */
+	private final static ClassValue<AtomicReference<Handler>>	classHandlers		= new ClassHandlers();
+	private static StringHandler								sh					= new StringHandler();
+	private static BooleanHandler								bh					= new BooleanHandler();
+	private static CharacterHandler								ch					= new CharacterHandler();
+	private static CollectionHandler							dch					= new CollectionHandler(
+		ArrayList.class, Object.class);
+	private static SpecialHandler								sph					= new SpecialHandler(
+		Pattern.class, null, null);
+	private static DateHandler									sdh					= new DateHandler();
+	private static FileHandler									fh					= new FileHandler();
+	private static ByteArrayHandler								byteh				= new ByteArrayHandler();
+	private static UUIDHandler									uuidh				= new UUIDHandler();
+
+	boolean														ignorenull;
+	Map<Type, Handler>											localHandlers		= new ConcurrentHashMap<>();
+	private final Map<Type, Handler>							typeHandlers		= new ConcurrentHashMap<>();
+
+	private final static class ClassHandlers extends ClassValue<AtomicReference<Handler>> {
+		@Override
+		protected AtomicReference<Handler> computeValue(Class<?> type) {
+			return new AtomicReference<>();
+		}
+	}
 
 	/**
 	 * Create a new Encoder with the state and appropriate API.
@@ -112,6 +126,17 @@ public class JSONCodec {
 		h.encode(app, object, visited);
 	}
 
+	/*
+	 * Encode with a handler that the caller already found for the type.
+	 */
+	void encodeWith(Encoder app, Object object, Handler h, Map<Object, Type> visited) throws Exception {
+		if (object == null) {
+			app.append("null");
+			return;
+		}
+		h.encode(app, object, visited);
+	}
+
 	/**
 	 * This method figures out which handler should handle the type specific
 	 * stuff. It returns a handler for each type. If no appropriate handler
@@ -160,10 +185,8 @@ public class JSONCodec {
 				return byteh;
 		}
 
-		synchronized (handlers) {
-			h = handlers.get(type);
-		}
-
+		h = (type instanceof Class) ? classHandlers.get((Class<?>) type)
+			.get() : typeHandlers.get(type);
 		if (h != null)
 			return h;
 
@@ -252,17 +275,26 @@ public class JSONCodec {
 			} else
 				throw new IllegalArgumentException("Found a parameterized type that is not a map or collection");
 		}
-		synchronized (handlers) {
-			// We might actually have duplicates
-			// but who cares? They should be identical
-			handlers.put(type, h);
+		// We might actually have duplicates
+		// but who cares? They should be identical
+		if (type instanceof Class) {
+			AtomicReference<Handler> ref = classHandlers.get((Class<?>) type);
+			return ref.compareAndSet(null, h) ? h : ref.get();
 		}
-		return h;
+		Handler previous = typeHandlers.putIfAbsent(type, h);
+		return previous != null ? previous : h;
 	}
 
 	Object decode(Type type, Decoder isr) throws Exception {
+		return decode(type, null, isr);
+	}
+
+	/*
+	 * Decode with a handler that the caller already found for the type or
+	 * null if the handler must be looked up.
+	 */
+	Object decode(Type type, Handler h, Decoder isr) throws Exception {
 		int c = isr.skipWs();
-		Handler h;
 
 		if (type == null || type == Object.class) {
 
@@ -311,7 +343,8 @@ public class JSONCodec {
 			}
 		}
 
-		h = getHandler(type, null);
+		if (h == null)
+			h = getHandler(type, null);
 
 		switch (c) {
 			case '{' :
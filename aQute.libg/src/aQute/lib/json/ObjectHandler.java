@@ -1,21 +1,43 @@
 package aQute.lib.json;
 
+import static java.lang.invoke.MethodHandles.publicLookup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class ObjectHandler extends Handler {
+	private final static MethodType		GETTER	= MethodType.methodType(Object.class, Object.class);
+	private final static MethodType		SETTER	= MethodType.methodType(void.class, Object.class, Object.class);
+	private final static MethodType		FACTORY	= MethodType.methodType(Object.class);
+
 	@SuppressWarnings("rawtypes")
-	final Class		rawClass;
-	final Field		fields[];
-	final Type		types[];
-	final Object	defaults[];
-	final Field		extra;
+	final Class							rawClass;
+	final Field							fields[];
+	final Type							types[];
+	final Object						defaults[];
+	final Field							extra;
+	/*
+	 * The accessors are looked up once per class. A null accessor means that
+	 * the field cannot be accessed and the error is reported when it is used.
+	 */
+	private final MethodHandle			getters[];
+	private final MethodHandle			setters[];
+	private final MethodHandle			factory;
+	private final Map<String, Integer>	index;
+	/*
+	 * The handlers of the field types, resolved when first used
+	 */
+	private final Handler				handlers[];
 
 	ObjectHandler(JSONCodec codec, Class<?> c) throws Exception {
 		rawClass = c;
@@ -35,24 +57,48 @@ public class ObjectHandler extends Handler {
 
 		types = new Type[this.fields.length];
 		defaults = new Object[this.fields.length];
+		getters = new MethodHandle[this.fields.length];
+		setters = new MethodHandle[this.fields.length];
+		handlers = new Handler[this.fields.length];
+		index = new HashMap<>(this.fields.length * 2);
 
 		Field x = null;
 		for (int i = 0; i < this.fields.length; i++) {
-			if (this.fields[i].getName()
+			Field f = this.fields[i];
+			if (f.getName()
 				.equals("__extra"))
-				x = this.fields[i];
-			types[i] = this.fields[i].getGenericType();
+				x = f;
+			types[i] = f.getGenericType();
+			index.put(f.getName(), i);
+			try {
+				getters[i] = publicLookup().unreflectGetter(f)
+					.asType(GETTER);
+				if (!Modifier.isFinal(f.getModifiers()))
+					setters[i] = publicLookup().unreflectSetter(f)
+						.asType(SETTER);
+			} catch (Exception e) {
+				// Reported when used
+			}
 		}
 		if (x != null && Map.class.isAssignableFrom(x.getType()))
 			extra = x;
 		else
 			extra = null;
 
+		MethodHandle constructor = null;
+		try {
+			constructor = publicLookup().findConstructor(c, MethodType.methodType(void.class))
+				.asType(FACTORY);
+		} catch (Exception e) {
+			// Reported when used
+		}
+		factory = constructor;
+
 		try {
-			Object template = newInstance(c);
+			Object template = newInstance();
 
 			for (int i = 0; i < this.fields.length; i++) {
-				defaults[i] = getField(this.fields[i], template);
+				defaults[i] = get(i, template);
 			}
 		} catch (Exception e) {
 			// Ignore
@@ -70,7 +116,7 @@ public class ObjectHandler extends Handler {
 					.startsWith("__"))
 					continue;
 
-				Object value = getField(fields[i], object);
+				Object value = get(i, object);
 				if (!app.writeDefaults) {
 					if (value == defaults[i])
 						continue;
@@ -85,7 +131,12 @@ public class ObjectHandler extends Handler {
 				}
 				StringHandler.string(app, fields[i].getName());
 				app.append(":");
-				app.encode(value, types[i], visited);
+				Handler h = handler(app.codec, i);
+				if (h != null) {
+					app.codec.encodeWith(app, value, h, visited);
+				} else {
+					app.encode(value, types[i], visited);
+				}
 				del = ",";
 			} catch (Exception e) {
 				throw new IllegalArgumentException(fields[i].getName() + ":", e);
@@ -97,8 +148,7 @@ public class ObjectHandler extends Handler {
 	@Override
 	public Object decodeObject(Decoder r) throws Exception {
 		assert r.current() == '{';
-		@SuppressWarnings("unchecked")
-		Object targetObject = newInstance(rawClass);
+		Object targetObject = newInstance();
 
 		int c = r.next();
 		while (JSONCodec.START_CHARACTERS.indexOf(c) >= 0) {
@@ -115,15 +165,15 @@ public class ObjectHandler extends Handler {
 
 			// Get value
 
-			Field f = getField(key);
-			if (f != null) {
+			Integer i = index.get(key);
+			if (i != null) {
 				// We have a field and thus a type
-				Object value = r.codec.decode(f.getGenericType(), r);
+				Object value = r.codec.decode(types[i], handler(r.codec, i), r);
 				if (value != null || !r.codec.ignorenull) {
-					if (Modifier.isFinal(f.getModifiers()))
-						throw new IllegalArgumentException("Field " + f + " is final");
+					if (Modifier.isFinal(fields[i].getModifiers()))
+						throw new IllegalArgumentException("Field " + fields[i] + " is final");
 
-					setField(f, targetObject, value);
+					set(i, targetObject, value);
 				}
 			} else {
 				// No field, but may extra is defined
@@ -164,15 +214,60 @@ public class ObjectHandler extends Handler {
 		return targetObject;
 	}
 
-	private Field getField(String key) {
-		for (Field field : fields) {
-			int n = key.compareTo(field.getName());
-			if (n == 0)
-				return field;
-			if (n < 0)
-				return null;
+	/*
+	 * Answer the handler for a field. The handler of a class type does not
+	 * depend on the value, so it is kept unless the codec has its own
+	 * handlers. Otherwise null is returned and the codec finds the handler.
+	 */
+	private Handler handler(JSONCodec codec, int i) throws Exception {
+		Type type = types[i];
+		if (!(type instanceof Class) || type == Object.class || !codec.localHandlers.isEmpty()) {
+			return null;
+		}
+		Handler h = handlers[i];
+		if (h == null) {
+			handlers[i] = h = codec.getHandler(type, null);
+		}
+		return h;
+	}
+
+	private Object newInstance() throws Exception {
+		if (factory == null)
+			return newInstance(rawClass);
+		try {
+			return factory.invokeExact();
+		} catch (Error | Exception e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	private Object get(int i, Object targetObject) throws Exception {
+		MethodHandle getter = getters[i];
+		if (getter == null)
+			return getField(fields[i], targetObject);
+		try {
+			return getter.invokeExact(targetObject);
+		} catch (Error | Exception e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
 		}
-		return null;
 	}
 
+	private void set(int i, Object targetObject, Object value) throws Exception {
+		MethodHandle setter = setters[i];
+		if (setter == null) {
+			setField(fields[i], targetObject, value);
+			return;
+		}
+		try {
+			setter.invokeExact(targetObject, value);
+		} catch (Error | Exception e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
 }
@@ -466,12 +466,11 @@ public class Tag {
 		pw.print('<');
 		pw.print(name);
 
-		for (String key : attributes.keySet()) {
-			String value = escape(attributes.get(key));
+		for (Entry<String, String> entry : attributes.entrySet()) {
 			pw.print(' ');
-			pw.print(key);
+			pw.print(entry.getKey());
 			pw.print("=\"");
-			pw.print(value);
+			escape(entry.getValue(), pw);
 			pw.print('"');
 		}
 
@@ -502,7 +501,7 @@ public class Tag {
 						pw.write(s, begin, s.length() - begin);
 						pw.write("]]>");
 					} else {
-						pw.print(escape(s));
+						escape(s, pw);
 					}
 				}
 				last = c;
@@ -548,12 +547,48 @@ public class Tag {
 		return sb.toString();
 	}
 
+	/**
+	 * Escape a string while writing it, only the runs of characters between
+	 * the entities are copied.
+	 */
+	private static void escape(String s, PrintWriter pw) {
+		int begin = 0;
+		for (int i = 0, length = s.length(); i < length; i++) {
+			String entity;
+			switch (s.charAt(i)) {
+				case '<' :
+					entity = "&lt;";
+					break;
+				case '>' :
+					entity = "&gt;";
+					break;
+				case '\"' :
+					entity = "&quot;";
+					break;
+				case '&' :
+					entity = "&amp;";
+					break;
+				default :
+					continue;
+			}
+			pw.write(s, begin, i - begin);
+			pw.write(entity);
+			begin = i + 1;
+		}
+		pw.write(s, begin, s.length() - begin);
+	}
+
+	private final static String SPACES = "                                ";
+
 	/**
 	 * Make spaces.
 	 */
 	void spaces(PrintWriter pw, int n) {
-		while (n-- > 0)
-			pw.print(' ');
+		for (; n > SPACES.length(); n -= SPACES.length()) {
+			pw.write(SPACES);
+		}
+		if (n > 0)
+			pw.write(SPACES, 0, n);
 	}
 
 	/**
@@ -16,6 +16,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -28,6 +29,9 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.Test;
@@ -1228,4 +1232,54 @@ public class JSONTest {
 			.toString();
 		assertEquals("{'foo':'bar'}".replace('\'', '"'), s);
 	}
+
+	public static class Entry {
+		public String		name;
+		public int			count;
+		public List<Entry>	children;
+	}
+
+	/**
+	 * Decode objects that are larger than the read buffer from several threads
+	 * with a shared codec
+	 */
+	@Test
+	public void testConcurrentDecode() throws Exception {
+		JSONCodec codec = new JSONCodec();
+		Entry root = new Entry();
+		root.name = "root";
+		root.children = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			Entry e = new Entry();
+			e.name = "entry-" + i;
+			e.count = i;
+			root.children.add(e);
+		}
+		String s = codec.enc()
+			.put(root)
+			.toString();
+		assertTrue(s.length() > 8192);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Entry>> futures = new ArrayList<>();
+			for (int i = 0; i < 16; i++) {
+				futures.add(executor.submit(() -> new JSONCodec().dec()
+					.from(new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8)))
+					.get(Entry.class)));
+			}
+			for (Future<Entry> future : futures) {
+				Entry e = future.get();
+				assertEquals("root", e.name);
+				assertEquals(1000, e.children.size());
+				assertEquals("entry-999", e.children.get(999).name);
+				assertEquals(999, e.children.get(999).count);
+				assertEquals(s, codec.enc()
+					.put(e)
+					.toString());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
 }
@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -232,4 +233,27 @@ public class TagTest {
 		}
 		assertThat(w.toString()).contains("<test date=\"" + Tag.DATE_TIME_FORMATTER.format(now.toInstant()) + "\"");
 	}
+
+	@Test
+	public void testPrintEscapes() {
+		Tag root = new Tag("root");
+		root.addAttribute("a", "<x & \"y\">");
+		Tag deep = new Tag(new Tag(new Tag(root, "one"), "two"), "three", "a<b");
+		for (int i = 0; i < 20; i++) {
+			deep = new Tag(deep, "level");
+		}
+		new Tag(root, "plain", "text");
+
+		StringWriter sw = new StringWriter();
+		try (PrintWriter pw = new PrintWriter(sw)) {
+			root.print(0, pw);
+		}
+		String xml = sw.toString();
+		assertThat(xml).startsWith("<root a=\"&lt;x &amp; &quot;y&quot;&gt;\">\n")
+			.contains("\n      <three>a&lt;b")
+			.contains("\n" + String.join("", Collections.nCopies(46, " ")) + "<level/>\n")
+			.contains("  <plain>text</plain>\n")
+			.endsWith("</root>\n");
+	}
 }
+
@@ -0,0 +1,53 @@
+package aQute.bnd.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aQute.bnd.osgi.Analyzer;
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.Jar;
+import aQute.bnd.osgi.Packages;
+
+/**
+ * Analyze a synthetic jar, from opening the file to the calculated exports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzerBenchmark {
+	@Param({
+		"100", "1000"
+	})
+	int		classes;
+
+	File	file;
+
+	@Setup
+	public void setup() throws Exception {
+		file = Fixtures.jarFile(classes);
+	}
+
+	@Benchmark
+	public Packages analyze() throws Exception {
+		try (Jar jar = new Jar(file); Analyzer analyzer = new Analyzer(jar)) {
+			analyzer.setProperty(Constants.EXPORT_PACKAGE, "bench.*");
+			analyzer.analyze();
+			return analyzer.getExports();
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package aQute.bnd.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import aQute.lib.converter.TypeReference;
+import aQute.lib.io.IO;
+import aQute.lib.json.JSONCodec;
+
+/**
+ * Compares the JMH results of a run with the results of a baseline run, for
+ * example the results saved for the previous release, and reports the change
+ * of every benchmark.
+ * <p>
+ * A change is only reported as a regression or an improvement when it is
+ * larger than the threshold and the error intervals of the two scores do not
+ * overlap. For the throughput mode a higher score is better, for the other
+ * modes a lower score is better.
+ *
+ * <pre>
+ * BenchmarkReport [-t threshold%] [-o report] [--fail] current.json [baseline.json]
+ * </pre>
+ */
+public class BenchmarkReport {
+	final static JSONCodec	codec				= new JSONCodec();
+	final static double		DEFAULT_THRESHOLD	= 5.0;
+
+	/**
+	 * The part of a JMH JSON result that is used in the report
+	 */
+	public static class Result {
+		public String				benchmark;
+		public String				mode;
+		public Map<String, String>	params;
+		public Metric				primaryMetric;
+
+		String key() {
+			String name = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+			if (params == null || params.isEmpty()) {
+				return name;
+			}
+			return name + " " + new TreeMap<>(params).entrySet()
+				.stream()
+				.map(e -> e.getKey() + "=" + e.getValue())
+				.collect(Collectors.joining(","));
+		}
+	}
+
+	public static class Metric {
+		public double	score;
+		public double	scoreError;
+		public String	scoreUnit;
+	}
+
+	enum Verdict {
+		NEW(""),
+		SAME(""),
+		IMPROVED("improved"),
+		REGRESSED("REGRESSION");
+
+		final String label;
+
+		Verdict(String label) {
+			this.label = label;
+		}
+	}
+
+	final double				threshold;
+	final Map<String, Result>	current;
+	final Map<String, Result>	baseline;
+
+	public BenchmarkReport(List<Result> current, List<Result> baseline, double threshold) {
+		this.current = index(current);
+		this.baseline = index(baseline);
+		this.threshold = threshold;
+	}
+
+	public static void main(String[] args) throws Exception {
+		double threshold = DEFAULT_THRESHOLD;
+		File output = null;
+		boolean fail = false;
+		List<File> files = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "-t" :
+					threshold = Double.parseDouble(args[++i]);
+					break;
+				case "-o" :
+					output = new File(args[++i]);
+					break;
+				case "--fail" :
+					fail = true;
+					break;
+				default :
+					files.add(new File(args[i]));
+					break;
+			}
+		}
+		if (files.isEmpty()) {
+			System.err.println(
+				"usage: BenchmarkReport [-t threshold%] [-o report] [--fail] current.json [baseline.json]");
+			System.exit(2);
+			return;
+		}
+
+		List<Result> current = read(files.get(0));
+		List<Result> baseline = new ArrayList<>();
+		if (files.size() > 1) {
+			File file = files.get(1);
+			if (file.isFile()) {
+				baseline = read(file);
+			} else {
+				System.err.printf("No baseline results at %s, only the current results are reported%n", file);
+			}
+		}
+
+		BenchmarkReport report = new BenchmarkReport(current, baseline, threshold);
+		String text = report.toString();
+		System.out.print(text);
+		if (output != null) {
+			IO.mkdirs(output.getParentFile());
+			IO.store(text, output, UTF_8.name());
+		}
+		if (fail && report.regressions() > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Read the results of a JMH run in the JSON format.
+	 */
+	public static List<Result> read(File file) throws Exception {
+		return codec.dec()
+			.from(file)
+			.get(new TypeReference<List<Result>>() {});
+	}
+
+	static Map<String, Result> index(List<Result> results) {
+		Map<String, Result> map = new LinkedHashMap<>();
+		for (Result result : results) {
+			map.put(result.key(), result);
+		}
+		return map;
+	}
+
+	/**
+	 * Answer the number of benchmarks that regressed against the baseline.
+	 */
+	public int regressions() {
+		return (int) current.entrySet()
+			.stream()
+			.filter(e -> verdict(baseline.get(e.getKey()), e.getValue()) == Verdict.REGRESSED)
+			.count();
+	}
+
+	Verdict verdict(Result base, Result now) {
+		if (base == null) {
+			return Verdict.NEW;
+		}
+		double change = change(base, now);
+		if (Double.isNaN(change) || Math.abs(change) < threshold) {
+			return Verdict.SAME;
+		}
+		Metric b = base.primaryMetric;
+		Metric n = now.primaryMetric;
+		double be = Double.isNaN(b.scoreError) ? 0 : b.scoreError;
+		double ne = Double.isNaN(n.scoreError) ? 0 : n.scoreError;
+		boolean overlap = (b.score - be <= n.score + ne) && (n.score - ne <= b.score + be);
+		if (overlap) {
+			return Verdict.SAME;
+		}
+		boolean better = "thrpt".equals(now.mode) ? n.score > b.score : n.score < b.score;
+		return better ? Verdict.IMPROVED : Verdict.REGRESSED;
+	}
+
+	/**
+	 * The change of the score in percent of the baseline score
+	 */
+	static double change(Result base, Result now) {
+		double b = base.primaryMetric.score;
+		if (b == 0) {
+			return Double.NaN;
+		}
+		return (now.primaryMetric.score - b) * 100 / b;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		try (Formatter f = new Formatter(sb)) {
+			int width = Stream.concat(current.keySet()
+				.stream(),
+				baseline.keySet()
+					.stream())
+				.mapToInt(String::length)
+				.max()
+				.orElse(10);
+			String format = "%-" + width + "s  %-5s  %-8s  %22s  %22s  %8s  %s%n";
+			f.format(format, "Benchmark", "Mode", "Unit", "Baseline", "Current", "Change", "");
+			int regressed = 0;
+			int improved = 0;
+			for (Map.Entry<String, Result> entry : current.entrySet()) {
+				Result now = entry.getValue();
+				Result base = baseline.get(entry.getKey());
+				Verdict verdict = verdict(base, now);
+				if (verdict == Verdict.REGRESSED) {
+					regressed++;
+				} else if (verdict == Verdict.IMPROVED) {
+					improved++;
+				}
+				f.format(format, entry.getKey(), now.mode, now.primaryMetric.scoreUnit,
+					(base == null) ? "-" : score(base.primaryMetric), score(now.primaryMetric),
+					(base == null) ? "new" : String.format("%+.1f%%", change(base, now)), verdict.label);
+			}
+			for (Map.Entry<String, Result> entry : baseline.entrySet()) {
+				if (!current.containsKey(entry.getKey())) {
+					Result base = entry.getValue();
+					f.format(format, entry.getKey(), base.mode, base.primaryMetric.scoreUnit, score(base.primaryMetric),
+						"-", "removed", "");
+				}
+			}
+			f.format("%n%d benchmarks, %d regressions, %d improvements, threshold %.1f%%%n", current.size(), regressed,
+				improved, threshold);
+		}
+		return sb.toString();
+	}
+
+	static String score(Metric metric) {
+		if (Double.isNaN(metric.scoreError)) {
+			return String.format("%.3f", metric.score);
+		}
+		return String.format("%.3f +- %.3f", metric.score, metric.scoreError);
+	}
+}
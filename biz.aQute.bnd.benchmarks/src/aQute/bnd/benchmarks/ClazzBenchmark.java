@@ -0,0 +1,60 @@
+package aQute.bnd.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import aQute.bnd.osgi.Analyzer;
+import aQute.bnd.osgi.Clazz;
+import aQute.bnd.osgi.EmbeddedResource;
+import aQute.bnd.osgi.Resource;
+
+/**
+ * Parse the class files of a synthetic jar. The descriptors of the analyzer
+ * are shared between the invocations like they are in a build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClazzBenchmark {
+	static final int	CLASSES	= 100;
+
+	Analyzer			analyzer;
+	Resource[]			resources;
+
+	@Setup
+	public void setup() throws Exception {
+		analyzer = new Analyzer();
+		resources = new Resource[CLASSES];
+		for (int i = 0; i < CLASSES; i++) {
+			resources[i] = new EmbeddedResource(Fixtures.classFile(i, CLASSES), 0L);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		analyzer.close();
+	}
+
+	@Benchmark
+	public void parseClassFile(Blackhole blackhole) throws Exception {
+		for (int i = 0; i < CLASSES; i++) {
+			Clazz clazz = new Clazz(analyzer, Fixtures.className(i) + ".class", resources[i]);
+			blackhole.consume(clazz.parseClassFile());
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package aQute.bnd.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Version;
+
+import aQute.bnd.osgi.resource.ResourceUtils;
+
+/**
+ * Match the filter of a package requirement against the attributes of a
+ * package capability, the inner loop of the resolver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterBenchmark {
+	static final String					FILTER	= "(&(osgi.wiring.package=bench.b1)(version>=1.0.0)(!(version>=2.0.0)))";
+
+	Predicate<Map<String, Object>>		filter;
+	Map<String, Object>					matching;
+	Map<String, Object>					other;
+
+	@Setup
+	public void setup() {
+		filter = ResourceUtils.filterPredicate(FILTER);
+		matching = attributes("bench.b1", "1.2.3");
+		other = attributes("bench.b1", "2.0.0");
+	}
+
+	static Map<String, Object> attributes(String name, String version) {
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put("osgi.wiring.package", name);
+		attributes.put("version", Version.parseVersion(version));
+		attributes.put("bundle-symbolic-name", name);
+		attributes.put("bundle-version", Version.parseVersion(version));
+		return attributes;
+	}
+
+	@Benchmark
+	public boolean matches() {
+		return filter.test(matching);
+	}
+
+	@Benchmark
+	public boolean matchesNot() {
+		return filter.test(other);
+	}
+}
@@ -0,0 +1,244 @@
+package aQute.bnd.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import org.osgi.resource.Resource;
+
+import aQute.bnd.classfile.Attribute;
+import aQute.bnd.classfile.ExceptionsAttribute;
+import aQute.bnd.classfile.FieldInfo;
+import aQute.bnd.classfile.MethodInfo;
+import aQute.bnd.classfile.SignatureAttribute;
+import aQute.bnd.classfile.builder.ClassFileBuilder;
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.Domain;
+import aQute.bnd.osgi.EmbeddedResource;
+import aQute.bnd.osgi.Jar;
+import aQute.bnd.osgi.repository.XMLResourceGenerator;
+import aQute.bnd.osgi.resource.ResourceBuilder;
+
+/**
+ * Generates the synthetic inputs of the benchmarks. The fixtures only depend
+ * on their size parameters so every run, and every release, measures the same
+ * work. Nothing is read from the network or from the workspace.
+ */
+public final class Fixtures {
+	/** The bsn of the framework in the synthetic repository */
+	public static final String	FRAMEWORK				= "bench.framework";
+
+	static final int			ACC_PUBLIC				= 0x0001;
+	static final int			ACC_PRIVATE				= 0x0002;
+	static final int			ACC_SUPER				= 0x0020;
+	static final int			ACC_ABSTRACT			= 0x0400;
+	static final int			JAVA_8					= 52;
+	static final int			CLASSES_PER_PACKAGE		= 20;
+	static final long			LAST_MODIFIED			= 1_600_000_000_000L;
+
+	private Fixtures() {}
+
+	/**
+	 * The package of the synthetic class with the given index.
+	 */
+	public static String packageName(int index) {
+		return "bench.p" + (index / CLASSES_PER_PACKAGE);
+	}
+
+	/**
+	 * The binary name of the synthetic class with the given index.
+	 */
+	public static String className(int index) {
+		return packageName(index).replace('.', '/') + "/C" + index;
+	}
+
+	/**
+	 * Answer the class file of a synthetic class. The class has fields and
+	 * methods whose descriptors and signatures refer to the classes that
+	 * follow it, so the classes are spread over packages that use each
+	 * other like the packages of a real bundle.
+	 */
+	public static byte[] classFile(int index, int classes) throws IOException {
+		String next = className((index + 1) % classes);
+		String other = className((index + CLASSES_PER_PACKAGE) % classes);
+
+		ClassFileBuilder builder = new ClassFileBuilder(ACC_PUBLIC | ACC_SUPER | ACC_ABSTRACT, JAVA_8, 0,
+			className(index), "java/lang/Object", "java/io/Serializable");
+		builder.attributes(new SignatureAttribute("<T:L" + next + ";>Ljava/lang/Object;Ljava/io/Serializable;"));
+		for (int f = 0; f < 4; f++) {
+			builder.fields(new FieldInfo(ACC_PRIVATE, "field" + f, "L" + ((f % 2 == 0) ? next : other) + ";",
+				new Attribute[0]));
+		}
+		builder.fields(new FieldInfo(ACC_PRIVATE, "list", "Ljava/util/List;", new Attribute[] {
+			new SignatureAttribute("Ljava/util/List<L" + other + ";>;")
+		}));
+		for (int m = 0; m < 6; m++) {
+			builder.methods(new MethodInfo(ACC_PUBLIC | ACC_ABSTRACT, "method" + m,
+				"(L" + next + ";Ljava/lang/String;I)L" + other + ";", new Attribute[] {
+					new ExceptionsAttribute(new String[] {
+						"java/io/IOException"
+					})
+				}));
+		}
+
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		builder.build()
+			.write(new DataOutputStream(bout));
+		return bout.toByteArray();
+	}
+
+	/**
+	 * Answer a jar with the given number of synthetic classes, a few text
+	 * resources and a manifest.
+	 */
+	public static Jar jar(int classes) throws IOException {
+		Jar jar = new Jar("bench");
+		for (int i = 0; i < classes; i++) {
+			jar.putResource(className(i) + ".class", new EmbeddedResource(classFile(i, classes), LAST_MODIFIED));
+		}
+		for (int i = 0; i < classes; i += CLASSES_PER_PACKAGE) {
+			StringBuilder sb = new StringBuilder();
+			for (int line = 0; line < 100; line++) {
+				sb.append("key")
+					.append(line)
+					.append(" = The value of line ")
+					.append(line)
+					.append(" of the messages of ")
+					.append(packageName(i))
+					.append('\n');
+			}
+			jar.putResource(packageName(i).replace('.', '/') + "/messages.properties",
+				new EmbeddedResource(sb.toString(), LAST_MODIFIED));
+		}
+		Manifest manifest = new Manifest();
+		Attributes main = manifest.getMainAttributes();
+		main.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		main.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+		main.putValue(Constants.BUNDLE_SYMBOLICNAME, "bench");
+		main.putValue(Constants.BUNDLE_VERSION, "1.0.0");
+		jar.setManifest(manifest);
+		return jar;
+	}
+
+	/**
+	 * Write the synthetic jar with the given number of classes to a
+	 * temporary file. The file is deleted on exit.
+	 */
+	public static File jarFile(int classes) throws Exception {
+		File file = File.createTempFile("bench", ".jar");
+		file.deleteOnExit();
+		try (Jar jar = jar(classes)) {
+			jar.write(file);
+		}
+		return file;
+	}
+
+	/**
+	 * Answer the resources of a synthetic repository. Bundle {@code i}
+	 * exports a package that is imported by bundle {@code i+1}, so resolving
+	 * the last bundle pulls in all of them. Every bundle also imports the
+	 * framework package and requires Java 8.
+	 */
+	public static List<Resource> resources(int bundles) throws Exception {
+		List<Resource> resources = new ArrayList<>(bundles + 1);
+		resources.add(resource(FRAMEWORK, "org.osgi.framework;version=1.8", null));
+		for (int i = 0; i < bundles; i++) {
+			String exports = "bench.b" + i + ";version=1.0.0,bench.b" + i + ".api;version=1.0.0";
+			String imports = "org.osgi.framework;version=\"[1.8,2)\"";
+			if (i > 0) {
+				imports += ",bench.b" + (i - 1) + ";version=\"[1,2)\"";
+			}
+			resources.add(resource(bsn(i), exports, imports));
+		}
+		return resources;
+	}
+
+	/**
+	 * The bsn of the bundle with the given index in the synthetic repository.
+	 */
+	public static String bsn(int index) {
+		return "bench.b" + index;
+	}
+
+	private static Resource resource(String bsn, String exports, String imports) throws Exception {
+		Manifest manifest = new Manifest();
+		Attributes main = manifest.getMainAttributes();
+		main.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		main.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+		main.putValue(Constants.BUNDLE_SYMBOLICNAME, bsn);
+		main.putValue(Constants.BUNDLE_VERSION, "1.0.0");
+		main.putValue(Constants.EXPORT_PACKAGE, exports);
+		if (imports != null) {
+			main.putValue(Constants.IMPORT_PACKAGE, imports);
+			main.putValue(Constants.REQUIRE_CAPABILITY,
+				"osgi.ee;filter:=\"(&(osgi.ee=JavaSE)(version=1.8))\"");
+		}
+		ResourceBuilder builder = new ResourceBuilder();
+		builder.addManifest(Domain.domain(manifest));
+		return builder.build();
+	}
+
+	/**
+	 * Answer the XML index of a synthetic repository with the given number of
+	 * bundles.
+	 */
+	public static byte[] index(int bundles) throws Exception {
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		new XMLResourceGenerator().name("bench")
+			.resources(resources(bundles))
+			.save(bout);
+		return bout.toByteArray();
+	}
+
+	/**
+	 * Answer an Import-Package like header with the given number of clauses
+	 * with a mix of attributes, directives and quoted values.
+	 */
+	public static String header(int clauses) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < clauses; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append("bench.p")
+				.append(i)
+				.append(".impl;version=\"[1.")
+				.append(i % 10)
+				.append(",2)\"");
+			if (i % 3 == 0) {
+				sb.append(";resolution:=optional");
+			}
+			if (i % 5 == 0) {
+				sb.append(";bundle-symbolic-name=bench.b")
+					.append(i)
+					.append(";x-note='a, b; c'");
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Answer the properties of a processor with nested macros, like the
+	 * properties of a typical bnd workspace.
+	 */
+	public static Map<String, String> properties() {
+		Map<String, String> properties = new LinkedHashMap<>();
+		properties.put("base.version", "6.2.0");
+		properties.put("Bundle-Version", "${base.version}.SNAPSHOT");
+		properties.put("packages", "bench.a,bench.b,bench.c,bench.d,bench.e");
+		properties.put("exported", "${map;export;${packages}}");
+		properties.put("export", "${1};version=${versionmask;==;${base.version}}");
+		properties.put("upper", "${toupper;${replace;${packages};\\.;_}}");
+		properties.put("list", "${sort;${uniq;${packages},${packages}}}");
+		properties.put("total", "${sum;1,2,3,4,5,6,7,8,9}");
+		return Collections.unmodifiableMap(properties);
+	}
+}
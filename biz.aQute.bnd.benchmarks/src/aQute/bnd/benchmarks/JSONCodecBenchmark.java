@@ -0,0 +1,82 @@
+package aQute.bnd.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aQute.lib.converter.TypeReference;
+import aQute.lib.json.JSONCodec;
+
+/**
+ * Encode and decode a list of objects like the DTOs bnd exchanges as JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JSONCodecBenchmark {
+	static final int				ENTRIES	= 100;
+	static final JSONCodec			codec	= new JSONCodec();
+
+	public static class Entry {
+		public String				bsn;
+		public String				version;
+		public long					size;
+		public boolean				bundle;
+		public List<String>			packages;
+		public Map<String, String>	attributes;
+	}
+
+	List<Entry>						entries;
+	String							json;
+
+	@Setup
+	public void setup() throws Exception {
+		entries = new ArrayList<>(ENTRIES);
+		for (int i = 0; i < ENTRIES; i++) {
+			Entry entry = new Entry();
+			entry.bsn = Fixtures.bsn(i);
+			entry.version = "1." + i + ".0";
+			entry.size = 1000L * i;
+			entry.bundle = (i % 2) == 0;
+			entry.packages = new ArrayList<>();
+			for (int p = 0; p < 5; p++) {
+				entry.packages.add(entry.bsn + ".p" + p);
+			}
+			entry.attributes = new LinkedHashMap<>();
+			entry.attributes.put("description", "The \"synthetic\" bundle " + i + "\n");
+			entry.attributes.put("license", "Apache-2.0");
+			entries.add(entry);
+		}
+		json = encode();
+	}
+
+	@Benchmark
+	public String encode() throws Exception {
+		return codec.enc()
+			.put(entries)
+			.toString();
+	}
+
+	@Benchmark
+	public List<Entry> decode() throws Exception {
+		return codec.dec()
+			.from(json)
+			.get(new TypeReference<List<Entry>>() {});
+	}
+}
@@ -0,0 +1,59 @@
+package aQute.bnd.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aQute.bnd.osgi.Jar;
+import aQute.lib.io.IO;
+
+/**
+ * Write a synthetic jar, serially and in the reproducible mode that
+ * compresses the entries concurrently.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JarBenchmark {
+	@Param({
+		"1000"
+	})
+	int		classes;
+
+	@Param({
+		"false", "true"
+	})
+	boolean	reproducible;
+
+	Jar		jar;
+
+	@Setup
+	public void setup() throws Exception {
+		jar = Fixtures.jar(classes);
+		jar.setReproducible(reproducible);
+	}
+
+	@TearDown
+	public void tearDown() {
+		jar.close();
+	}
+
+	@Benchmark
+	public void write() throws Exception {
+		jar.write(IO.nullStream);
+	}
+}
@@ -0,0 +1,68 @@
+package aQute.bnd.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aQute.launchpad.Launchpad;
+import aQute.launchpad.LaunchpadBuilder;
+
+/**
+ * The number of launchpads that a test can create and close, with a new
+ * framework for each launchpad and with a pooled framework that is reset when
+ * the launchpad is closed. Each launchpad installs and starts a bundle and
+ * registers a service, like a small test. The framework is found through the
+ * remote workspace of the Gradle build that runs the benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LaunchpadBenchmark {
+	@Param({
+		"false", "true"
+	})
+	boolean				pooled;
+
+	LaunchpadBuilder	builder;
+
+	public static class SomeService {}
+
+	@Setup
+	public void setup() throws Exception {
+		builder = new LaunchpadBuilder().runfw("org.apache.felix.framework")
+			.notestbundle();
+		if (pooled) {
+			builder.pooled();
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		builder.close();
+	}
+
+	@Benchmark
+	public long createAndClose() throws Exception {
+		try (Launchpad fw = builder.create()) {
+			long id = fw.bundle()
+				.start()
+				.getBundleId();
+			fw.register(SomeService.class, new SomeService());
+			return id;
+		}
+	}
+}
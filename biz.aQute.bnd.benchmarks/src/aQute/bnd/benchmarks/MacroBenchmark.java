@@ -0,0 +1,52 @@
+package aQute.bnd.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aQute.bnd.osgi.Macro;
+import aQute.bnd.osgi.Processor;
+
+/**
+ * Expand a line with nested macros against the properties of a processor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MacroBenchmark {
+	static final String	LINE	= "${Bundle-Version} ${exported} ${upper} ${list} ${total} ${if;${packages};yes;no}";
+
+	Processor			processor;
+	Macro				macro;
+
+	@Setup
+	public void setup() {
+		processor = new Processor();
+		Fixtures.properties()
+			.forEach(processor::setProperty);
+		macro = processor.getReplacer();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		processor.close();
+	}
+
+	@Benchmark
+	public String process() {
+		return macro.process(LINE);
+	}
+}
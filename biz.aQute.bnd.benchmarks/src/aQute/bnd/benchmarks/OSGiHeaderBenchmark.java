@@ -0,0 +1,46 @@
+package aQute.bnd.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aQute.bnd.header.OSGiHeader;
+import aQute.bnd.header.Parameters;
+
+/**
+ * Parse an Import-Package like header.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OSGiHeaderBenchmark {
+	@Param({
+		"10", "200"
+	})
+	int		clauses;
+
+	String	header;
+
+	@Setup
+	public void setup() {
+		header = Fixtures.header(clauses);
+	}
+
+	@Benchmark
+	public Parameters parseHeader() {
+		return OSGiHeader.parseHeader(header);
+	}
+}
@@ -0,0 +1,74 @@
+package aQute.bnd.benchmarks;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.resource.Resource;
+import org.osgi.resource.Wire;
+
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.Processor;
+import aQute.bnd.osgi.repository.ResourcesRepository;
+import aQute.lib.io.IO;
+import biz.aQute.resolve.BndResolver;
+import biz.aQute.resolve.ResolveProcess;
+import biz.aQute.resolve.ResolverLogger;
+
+/**
+ * Resolve the last bundle of a synthetic repository, which requires all the
+ * other bundles, with the {@link ResolveProcess} of a bndrun.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResolveBenchmark {
+	@Param({
+		"50", "250"
+	})
+	int				bundles;
+
+	Processor		model;
+	ResolverLogger	logger;
+
+	@Setup
+	public void setup() throws Exception {
+		model = new Processor();
+		model.setProperty(Constants.RUNFW, Fixtures.FRAMEWORK);
+		model.setProperty(Constants.RUNEE, "JavaSE-1.8");
+		model.setProperty(Constants.RUNREQUIRES,
+			"osgi.identity;filter:='(osgi.identity=" + Fixtures.bsn(bundles - 1) + ")'");
+		model.addBasicPlugin(new ResourcesRepository(Fixtures.resources(bundles)));
+		logger = new ResolverLogger(0, new PrintStream(IO.nullStream));
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		logger.close();
+		model.close();
+	}
+
+	@Benchmark
+	public Map<Resource, List<Wire>> resolve() throws Exception {
+		ResolveProcess process = new ResolveProcess();
+		return process.resolveRequired(model, null, model, new BndResolver(logger), Collections.emptyList(),
+			logger);
+	}
+}
@@ -0,0 +1,53 @@
+package aQute.bnd.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.resource.Resource;
+
+import aQute.bnd.osgi.repository.XMLResourceParser;
+
+/**
+ * Parse the XML index of a synthetic repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XMLResourceParserBenchmark {
+	static final URI	BASE	= URI.create("file:/bench/index.xml");
+
+	@Param({
+		"100", "1000"
+	})
+	int					resources;
+
+	byte[]				index;
+
+	@Setup
+	public void setup() throws Exception {
+		index = Fixtures.index(resources);
+	}
+
+	@Benchmark
+	public List<Resource> parse() throws Exception {
+		try (XMLResourceParser parser = new XMLResourceParser(new ByteArrayInputStream(index), "bench", BASE)) {
+			return parser.parse();
+		}
+	}
+}
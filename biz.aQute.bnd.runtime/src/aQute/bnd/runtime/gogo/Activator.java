@@ -38,6 +38,7 @@ public class Activator implements BundleActivator {
 		register(Core.class);
 		register(View.class);
 		register(Log.class);
+		register(Metrics.class);
 	}
 
 	private void registerConverter(BundleContext context) {
@@ -0,0 +1,117 @@
+package aQute.bnd.runtime.gogo;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A Java Flight Recorder event type that is defined at runtime with the
+ * {@code jdk.jfr.EventFactory}. This bundle is compiled for Java 8 so the JFR
+ * API is only accessed reflectively. When the VM has no JFR, or the event is
+ * not enabled in a recording, committing an event does nothing.
+ */
+class FlightRecorderEvent {
+	final static String	CATEGORY	= "bnd";
+
+	final Object		factory;
+	final Object		eventType;
+	final Method		isEnabled;
+	final Method		newEvent;
+	final Method		set;
+	final Method		commit;
+
+	/**
+	 * Define an event type. The fields are pairs of a name and a type, a
+	 * field named {@code elapsed} is marked as a timespan in nanoseconds.
+	 */
+	FlightRecorderEvent(String name, String label, Object... fields) {
+		Object factory = null;
+		Object eventType = null;
+		Method isEnabled = null;
+		Method newEvent = null;
+		Method set = null;
+		Method commit = null;
+		try {
+			ClassLoader loader = ClassLoader.getSystemClassLoader();
+			Class<?> annotationElementClass = loader.loadClass("jdk.jfr.AnnotationElement");
+			Class<?> valueDescriptorClass = loader.loadClass("jdk.jfr.ValueDescriptor");
+			Class<?> eventFactoryClass = loader.loadClass("jdk.jfr.EventFactory");
+			Class<?> eventTypeClass = loader.loadClass("jdk.jfr.EventType");
+			Class<?> eventClass = loader.loadClass("jdk.jfr.Event");
+			Constructor<?> annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+			Constructor<?> valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class,
+				List.class);
+
+			List<Object> annotations = new ArrayList<>();
+			annotations.add(annotationElement.newInstance(annotation(loader, "jdk.jfr.Name"), "aQute.bnd." + name));
+			annotations.add(annotationElement.newInstance(annotation(loader, "jdk.jfr.Label"), label));
+			annotations.add(annotationElement.newInstance(annotation(loader, "jdk.jfr.Category"), new String[] {
+				CATEGORY
+			}));
+
+			List<Object> descriptors = new ArrayList<>();
+			for (int i = 0; i < fields.length; i += 2) {
+				String field = (String) fields[i];
+				List<Object> fieldAnnotations = "elapsed".equals(field)
+					? Collections.singletonList(
+						annotationElement.newInstance(annotation(loader, "jdk.jfr.Timespan"), "NANOSECONDS"))
+					: Collections.emptyList();
+				descriptors.add(valueDescriptor.newInstance(fields[i + 1], field, fieldAnnotations));
+			}
+
+			factory = eventFactoryClass.getMethod("create", List.class, List.class)
+				.invoke(null, annotations, descriptors);
+			eventType = eventFactoryClass.getMethod("getEventType")
+				.invoke(factory);
+			isEnabled = eventTypeClass.getMethod("isEnabled");
+			newEvent = eventFactoryClass.getMethod("newEvent");
+			set = eventClass.getMethod("set", int.class, Object.class);
+			commit = eventClass.getMethod("commit");
+		} catch (Throwable e) {
+			// no JFR in this VM
+			factory = null;
+		}
+		this.factory = factory;
+		this.eventType = eventType;
+		this.isEnabled = isEnabled;
+		this.newEvent = newEvent;
+		this.set = set;
+		this.commit = commit;
+	}
+
+	boolean isEnabled() {
+		if (factory == null)
+			return false;
+		try {
+			return (Boolean) isEnabled.invoke(eventType);
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Commit an event with the values of the fields in the order they were
+	 * defined.
+	 */
+	void commit(Object... values) {
+		if (!isEnabled())
+			return;
+		try {
+			Object event = newEvent.invoke(factory);
+			for (int i = 0; i < values.length; i++) {
+				set.invoke(event, i, values[i]);
+			}
+			commit.invoke(event);
+		} catch (Exception e) {
+			// ignore, metrics must never fail the caller
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Class<? extends Annotation> annotation(ClassLoader loader, String name) throws Exception {
+		return (Class<? extends Annotation>) loader.loadClass(name);
+	}
+}
@@ -0,0 +1,103 @@
+package aQute.bnd.runtime.gogo;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free histogram of durations in nanoseconds. The values are recorded
+ * in buckets that split every power of 2 in 4 sub buckets so a percentile is
+ * accurate within 25%. Recording a value is a few atomic increments and never
+ * blocks.
+ */
+class Histogram {
+	final static int			SUB_BUCKETS	= 4;
+	final static int			BUCKETS		= 64 * SUB_BUCKETS;
+
+	final AtomicLongArray		buckets		= new AtomicLongArray(BUCKETS);
+	final LongAdder				count		= new LongAdder();
+	final LongAdder				sum			= new LongAdder();
+	final AtomicLong			max			= new AtomicLong();
+
+	void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		buckets.incrementAndGet(index(nanos));
+		count.increment();
+		sum.add(nanos);
+		long m = max.get();
+		while (nanos > m && !max.compareAndSet(m, nanos))
+			m = max.get();
+	}
+
+	long count() {
+		return count.sum();
+	}
+
+	long mean() {
+		long n = count.sum();
+		return n == 0 ? 0 : sum.sum() / n;
+	}
+
+	long max() {
+		return max.get();
+	}
+
+	/**
+	 * Answer the upper bound of the bucket that holds the given percentile,
+	 * limited by the maximum recorded value.
+	 *
+	 * @param percentile a number between 0 and 100
+	 */
+	long percentile(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += snapshot[i] = buckets.get(i);
+		}
+		if (total == 0)
+			return 0;
+
+		long rank = (long) Math.ceil(total * percentile / 100D);
+		if (rank < 1)
+			rank = 1;
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank)
+				return Math.min(highest(i), max.get());
+		}
+		return max.get();
+	}
+
+	void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+
+	static int index(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+		return (exponent - 1) * SUB_BUCKETS + sub;
+	}
+
+	static long lowest(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int exponent = index / SUB_BUCKETS + 1;
+		int sub = index % SUB_BUCKETS;
+		return (long) (SUB_BUCKETS + sub) << (exponent - 2);
+	}
+
+	static long highest(int index) {
+		if (index >= index(Long.MAX_VALUE))
+			return Long.MAX_VALUE;
+		return lowest(index + 1) - 1;
+	}
+}
@@ -0,0 +1,330 @@
+package aQute.bnd.runtime.gogo;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.apache.felix.service.command.Descriptor;
+import org.apache.felix.service.command.Parameter;
+import org.osgi.dto.DTO;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.SynchronousBundleListener;
+
+import aQute.lib.dtoformatter.DTOFormatter;
+
+/**
+ * Continuously records the timing of the runtime so slow starting bundles and
+ * components can be found without attaching a profiler. The listeners only
+ * take a timestamp and update lock free histograms. The same measurements are
+ * committed as Java Flight Recorder events when a recording is active.
+ * <p>
+ * The component latency is the time between the start of the bundle of a
+ * component, its STARTING event, and SCR registering the service of the
+ * component. This includes the services that SCR registers before the bundle
+ * is STARTED, like those of a lazily activated bundle. Only the first
+ * registration of a component after each start of its bundle is measured, a
+ * component that is registered again when its references or configuration
+ * change is not. Components without a service and the components of bundles
+ * that were already started are not measured. The dispatch delay is the time
+ * between the synchronous and the asynchronous delivery of a bundle event.
+ */
+public class Metrics implements Closeable {
+	final static String							COMPONENT_NAME		= "component.name";
+	final static int							MAX_PENDING			= 10_000;
+
+	final BundleContext							context;
+	final Histogram								componentLatency	= new Histogram();
+	final Histogram								bundleStart			= new Histogram();
+	final Histogram								serviceLifetime		= new Histogram();
+	final Histogram								dispatchDelay		= new Histogram();
+	final LongAdder								registered			= new LongAdder();
+	final LongAdder								modified			= new LongAdder();
+	final LongAdder								unregistered		= new LongAdder();
+
+	final Map<Long, Long>						starting			= new ConcurrentHashMap<>();
+	final Map<Long, Start>						starts				= new ConcurrentHashMap<>();
+	final Map<Long, Long>						registrations		= new ConcurrentHashMap<>();
+	final Map<BundleEvent, Long>				pending				= new ConcurrentHashMap<>();
+	final Map<String, TimingDTO>				components			= new ConcurrentHashMap<>();
+	final Map<Long, TimingDTO>					bundles				= new ConcurrentHashMap<>();
+
+	final FlightRecorderEvent					componentEvent		= new FlightRecorderEvent("ComponentStart",
+		"Component Start", "component", String.class, "bundleId", long.class, "elapsed", long.class);
+	final FlightRecorderEvent					bundleEvent			= new FlightRecorderEvent("BundleStart",
+		"Bundle Start", "bundle", String.class, "bundleId", long.class, "elapsed", long.class);
+	final FlightRecorderEvent					serviceEvent		= new FlightRecorderEvent("ServiceLifetime",
+		"Service Lifetime", "objectClass", String.class, "serviceId", long.class, "elapsed", long.class);
+	final FlightRecorderEvent					dispatchEvent		= new FlightRecorderEvent("EventDispatch",
+		"Bundle Event Dispatch", "bundleId", long.class, "type", int.class, "elapsed", long.class);
+
+	final SynchronousBundleListener				synchronous			= this::synchronous;
+	final BundleListener						asynchronous		= this::asynchronous;
+	final ServiceListener						services			= this::serviceChanged;
+
+	/**
+	 * A start of a bundle and the components that were measured since.
+	 */
+	final static class Start {
+		final long			begin;
+		final Set<Object>	measured	= ConcurrentHashMap.newKeySet();
+
+		Start(long begin) {
+			this.begin = begin;
+		}
+	}
+
+	public static class MetricsDTO extends DTO {
+		public long				servicesRegistered;
+		public long				servicesModified;
+		public long				servicesUnregistered;
+		public List<MetricDTO>	histograms	= new ArrayList<>();
+	}
+
+	public static class MetricDTO extends DTO {
+		public String	name;
+		public long		count;
+		public double	mean;
+		public double	p50;
+		public double	p90;
+		public double	p99;
+		public double	max;
+	}
+
+	public static class TimingDTO extends DTO {
+		public String	name;
+		public long		bundle;
+		public double	ms;
+	}
+
+	public Metrics(BundleContext context, DTOFormatter formatter) {
+		this.context = context;
+		dtos(formatter);
+		context.addBundleListener(synchronous);
+		context.addBundleListener(asynchronous);
+		context.addServiceListener(services);
+	}
+
+	@Override
+	public void close() {
+		context.removeServiceListener(services);
+		context.removeBundleListener(asynchronous);
+		context.removeBundleListener(synchronous);
+		pending.clear();
+	}
+
+	@Descriptor("Show the service churn and the histograms of the component latency, bundle start time, service lifetime and bundle event dispatch delay in milliseconds")
+	public MetricsDTO metrics() {
+		MetricsDTO dto = new MetricsDTO();
+		dto.servicesRegistered = registered.sum();
+		dto.servicesModified = modified.sum();
+		dto.servicesUnregistered = unregistered.sum();
+		dto.histograms.add(metric("component latency", componentLatency));
+		dto.histograms.add(metric("bundle start", bundleStart));
+		dto.histograms.add(metric("service lifetime", serviceLifetime));
+		dto.histograms.add(metric("dispatch delay", dispatchDelay));
+		return dto;
+	}
+
+	@Descriptor("Show the components that took the longest from the start of their bundle until their service was first registered")
+	public List<TimingDTO> slowcomponents(@Descriptor("The number of components to show") @Parameter(names = {
+		"-n", "--number"
+	}, absentValue = "10") int n) {
+		return slowest(components.values(), n);
+	}
+
+	@Descriptor("Show the bundles that took the longest to start")
+	public List<TimingDTO> slowbundles(@Descriptor("The number of bundles to show") @Parameter(names = {
+		"-n", "--number"
+	}, absentValue = "10") int n) {
+		return slowest(bundles.values(), n);
+	}
+
+	@Descriptor("Clear the recorded metrics")
+	public void resetmetrics() {
+		componentLatency.reset();
+		bundleStart.reset();
+		serviceLifetime.reset();
+		dispatchDelay.reset();
+		registered.reset();
+		modified.reset();
+		unregistered.reset();
+		components.clear();
+		bundles.clear();
+	}
+
+	void synchronous(BundleEvent event) {
+		long now = System.nanoTime();
+		if (isDispatched(event) && (pending.size() < MAX_PENDING))
+			pending.put(event, now);
+
+		Bundle bundle = event.getBundle();
+		long id = bundle.getBundleId();
+		switch (event.getType()) {
+			case BundleEvent.STARTING :
+				starting.put(id, now);
+				starts.put(id, new Start(now));
+				break;
+
+			case BundleEvent.STARTED :
+				Long begin = starting.remove(id);
+				if (begin != null) {
+					long duration = now - begin;
+					bundleStart.record(duration);
+					bundles.put(id, timing(bundle.getSymbolicName(), id, duration));
+					bundleEvent.commit(bundle.getSymbolicName(), id, duration);
+				}
+				break;
+
+			case BundleEvent.STOPPED :
+			case BundleEvent.UNINSTALLED :
+				starting.remove(id);
+				starts.remove(id);
+				break;
+
+			default :
+				break;
+		}
+	}
+
+	/**
+	 * The STARTING, STOPPING and LAZY_ACTIVATION events are only delivered to
+	 * the synchronous listeners.
+	 */
+	private static boolean isDispatched(BundleEvent event) {
+		switch (event.getType()) {
+			case BundleEvent.STARTING :
+			case BundleEvent.STOPPING :
+			case BundleEvent.LAZY_ACTIVATION :
+				return false;
+			default :
+				return true;
+		}
+	}
+
+	void asynchronous(BundleEvent event) {
+		Long dispatched = pending.remove(event);
+		if (dispatched != null) {
+			long delay = System.nanoTime() - dispatched;
+			dispatchDelay.record(delay);
+			dispatchEvent.commit(event.getBundle()
+				.getBundleId(), event.getType(), delay);
+		}
+	}
+
+	void serviceChanged(ServiceEvent event) {
+		long now = System.nanoTime();
+		ServiceReference<?> reference = event.getServiceReference();
+		Long serviceId = (Long) reference.getProperty(Constants.SERVICE_ID);
+		switch (event.getType()) {
+			case ServiceEvent.REGISTERED :
+				registered.increment();
+				registrations.put(serviceId, now);
+				Object name = reference.getProperty(COMPONENT_NAME);
+				Bundle bundle = reference.getBundle();
+				if (name != null && bundle != null) {
+					long id = bundle.getBundleId();
+					Start start = starts.get(id);
+					if (start != null && start.measured.add(name)) {
+						long duration = now - start.begin;
+						componentLatency.record(duration);
+						components.put(name + "@" + id, timing(name.toString(), id, duration));
+						componentEvent.commit(name.toString(), id, duration);
+					}
+				}
+				break;
+
+			case ServiceEvent.MODIFIED :
+				modified.increment();
+				break;
+
+			case ServiceEvent.UNREGISTERING :
+				unregistered.increment();
+				Long begin = registrations.remove(serviceId);
+				if (begin != null) {
+					long duration = now - begin;
+					serviceLifetime.record(duration);
+					if (serviceEvent.isEnabled()) {
+						String[] objectClass = (String[]) reference.getProperty(Constants.OBJECTCLASS);
+						serviceEvent.commit(String.join(",", objectClass), serviceId, duration);
+					}
+				}
+				break;
+
+			default :
+				break;
+		}
+	}
+
+	static List<TimingDTO> slowest(Iterable<TimingDTO> timings, int n) {
+		List<TimingDTO> list = new ArrayList<>();
+		timings.forEach(list::add);
+		return list.stream()
+			.sorted(Comparator.comparingDouble((TimingDTO t) -> t.ms)
+				.reversed())
+			.limit(Math.max(0, n))
+			.collect(Collectors.toList());
+	}
+
+	static MetricDTO metric(String name, Histogram histogram) {
+		MetricDTO dto = new MetricDTO();
+		dto.name = name;
+		dto.count = histogram.count();
+		dto.mean = ms(histogram.mean());
+		dto.p50 = ms(histogram.percentile(50));
+		dto.p90 = ms(histogram.percentile(90));
+		dto.p99 = ms(histogram.percentile(99));
+		dto.max = ms(histogram.max());
+		return dto;
+	}
+
+	static TimingDTO timing(String name, long bundle, long nanos) {
+		TimingDTO dto = new TimingDTO();
+		dto.name = name;
+		dto.bundle = bundle;
+		dto.ms = ms(nanos);
+		return dto;
+	}
+
+	static double ms(long nanos) {
+		return Math.round(nanos / 1000D) / 1000D;
+	}
+
+	void dtos(DTOFormatter formatter) {
+		formatter.build(MetricsDTO.class)
+			.inspect()
+			.fields("*")
+			.line()
+			.fields("*")
+			.part()
+			.as(m -> "metrics");
+
+		formatter.build(MetricDTO.class)
+			.inspect()
+			.fields("*")
+			.line()
+			.fields("*")
+			.part()
+			.as(m -> m.name);
+
+		formatter.build(TimingDTO.class)
+			.inspect()
+			.fields("*")
+			.line()
+			.fields("*")
+			.part()
+			.as(t -> String.format("[%s] %s %sms", t.bundle, t.name, t.ms));
+	}
+}
@@ -0,0 +1,98 @@
+package aQute.bnd.runtime.gogo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Hashtable;
+
+import org.junit.jupiter.api.Test;
+import org.osgi.framework.Bundle;
+
+import aQute.bnd.runtime.gogo.Metrics.MetricsDTO;
+import aQute.launchpad.Launchpad;
+import aQute.launchpad.LaunchpadBuilder;
+import aQute.lib.dtoformatter.DTOFormatter;
+
+public class MetricsTest {
+	static final String org_apache_felix_framework = "org.apache.felix.framework;version='[5.6.10,5.6.11)'";
+
+	@Test
+	public void testHistogramBuckets() {
+		for (long v = 0; v < 100_000; v++) {
+			int index = Histogram.index(v);
+			assertThat(v).isBetween(Histogram.lowest(index), Histogram.highest(index));
+		}
+		assertThat(Histogram.highest(Histogram.index(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+	}
+
+	@Test
+	public void testHistogram() {
+		Histogram histogram = new Histogram();
+		assertThat(histogram.percentile(50)).isZero();
+
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i * 1_000_000L);
+		}
+		assertThat(histogram.count()).isEqualTo(100);
+		assertThat(histogram.mean()).isEqualTo(50_500_000L);
+		assertThat(histogram.max()).isEqualTo(100_000_000L);
+		assertThat(histogram.percentile(50)).isBetween(50_000_000L, 62_500_000L);
+		assertThat(histogram.percentile(100)).isEqualTo(100_000_000L);
+
+		histogram.reset();
+		assertThat(histogram.count()).isZero();
+		assertThat(histogram.max()).isZero();
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		try (Launchpad fw = new LaunchpadBuilder().runfw(org_apache_felix_framework)
+			.create()) {
+			try (Metrics metrics = new Metrics(fw.getBundleContext(), new DTOFormatter())) {
+				fw.bundle()
+					.start();
+				fw.register(String.class, "foo");
+
+				assertThat(metrics.slowbundles(10)).hasSize(1);
+				// only the events delivered asynchronously are pending
+				for (int i = 0; (i < 100) && !metrics.pending.isEmpty(); i++) {
+					Thread.sleep(50L);
+				}
+				assertThat(metrics.pending).isEmpty();
+				MetricsDTO dto = metrics.metrics();
+				assertThat(dto.servicesRegistered).isGreaterThanOrEqualTo(1);
+				assertThat(dto.histograms).hasSize(4);
+
+				metrics.resetmetrics();
+				assertThat(metrics.slowbundles(10)).isEmpty();
+				assertThat(metrics.metrics().servicesRegistered).isZero();
+			}
+		}
+	}
+
+	@Test
+	public void testComponentLatencyIsMeasuredOncePerStart() throws Exception {
+		try (Launchpad fw = new LaunchpadBuilder().runfw(org_apache_felix_framework)
+			.create()) {
+			try (Metrics metrics = new Metrics(fw.getBundleContext(), new DTOFormatter())) {
+				Bundle bundle = fw.bundle()
+					.start();
+				Hashtable<String, Object> properties = new Hashtable<>();
+				properties.put(Metrics.COMPONENT_NAME, "component");
+				for (int i = 0; i < 3; i++) {
+					bundle.getBundleContext()
+						.registerService(String.class, "foo", properties)
+						.unregister();
+				}
+				assertThat(metrics.componentLatency.count()).isEqualTo(1);
+				assertThat(metrics.slowcomponents(10)).hasSize(1);
+
+				bundle.stop();
+				bundle.start();
+				bundle.getBundleContext()
+					.registerService(String.class, "foo", properties)
+					.unregister();
+				assertThat(metrics.componentLatency.count()).isEqualTo(2);
+			}
+		}
+	}
+}
@@ -17,19 +17,41 @@ public interface Attribute {
 	int attribute_length();
 
 	static Attribute[] readAttributes(DataInput in, ConstantPool constant_pool) throws IOException {
+		return readAttributes(in, constant_pool, false);
+	}
+
+	/**
+	 * Read the attributes.
+	 *
+	 * @param in The input.
+	 * @param constant_pool The constant pool of the class file.
+	 * @param lazy If {@code true}, the attributes for which
+	 *            {@link DeferredAttribute#isDeferred(String)} answers
+	 *            {@code true} are read as a {@link DeferredAttribute}.
+	 * @return The attributes.
+	 * @throws IOException If the attributes cannot be read.
+	 */
+	static Attribute[] readAttributes(DataInput in, ConstantPool constant_pool, boolean lazy) throws IOException {
 		int attributes_count = in.readUnsignedShort();
 		Attribute[] attributes = new Attribute[attributes_count];
 		for (int i = 0; i < attributes_count; i++) {
-			attributes[i] = readAttribute(in, constant_pool);
+			attributes[i] = readAttribute(in, constant_pool, lazy);
 		}
 
 		return attributes;
 	}
 
 	static Attribute readAttribute(DataInput in, ConstantPool constant_pool) throws IOException {
+		return readAttribute(in, constant_pool, false);
+	}
+
+	static Attribute readAttribute(DataInput in, ConstantPool constant_pool, boolean lazy) throws IOException {
 		int attribute_name_index = in.readUnsignedShort();
 		int attribute_length = in.readInt();
 		String attribute_name = constant_pool.utf8(attribute_name_index);
+		if (lazy && DeferredAttribute.isDeferred(attribute_name)) {
+			return DeferredAttribute.read(in, attribute_name, attribute_length);
+		}
 		in = LimitedDataInput.wrap(in, attribute_length);
 		switch (attribute_name) {
 			case AnnotationDefaultAttribute.NAME : {
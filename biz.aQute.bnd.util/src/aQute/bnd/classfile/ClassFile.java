@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.function.UnaryOperator;
 
 import aQute.lib.io.ByteBufferDataInput;
 import aQute.lib.io.ByteBufferDataOutput;
@@ -64,6 +65,42 @@ public class ClassFile extends ElementInfo {
 	}
 
 	public static ClassFile parseClassFile(DataInput in) throws IOException {
+		return parseClassFile(in, false);
+	}
+
+	/**
+	 * Parse a class file.
+	 *
+	 * @param in The input.
+	 * @param lazy If {@code true}, the class file is parsed lazily.
+	 * @return The class file.
+	 * @throws IOException If the class file cannot be parsed.
+	 * @see #parseClassFile(DataInput, boolean, UnaryOperator)
+	 */
+	public static ClassFile parseClassFile(DataInput in, boolean lazy) throws IOException {
+		return parseClassFile(in, lazy, String::intern);
+	}
+
+	/**
+	 * Parse a class file.
+	 * <p>
+	 * When parsed lazily, the constant pool is a {@link CompactConstantPool}
+	 * which only creates an entry when it is accessed. The {@code Code}
+	 * attributes of the methods and the attributes which only describe the
+	 * byte code are not parsed. They are read as a {@link DeferredAttribute}
+	 * which can be parsed when needed. When the input is a
+	 * {@link ByteBufferDataInput}, the deferred attributes are slices of the
+	 * input and are not copied.
+	 *
+	 * @param in The input.
+	 * @param lazy If {@code true}, the class file is parsed lazily.
+	 * @param intern The function called with each UTF8 constant decoded by a
+	 *            lazily parsed constant pool.
+	 * @return The class file.
+	 * @throws IOException If the class file cannot be parsed.
+	 */
+	public static ClassFile parseClassFile(DataInput in, boolean lazy, UnaryOperator<String> intern)
+		throws IOException {
 		int magic = in.readInt();
 		if (magic != 0xCAFEBABE) {
 			throw new IOException("Not a valid class file (no CAFEBABE header)");
@@ -72,7 +109,7 @@ public class ClassFile extends ElementInfo {
 		int minor_version = in.readUnsignedShort();
 		int major_version = in.readUnsignedShort();
 
-		ConstantPool constant_pool = ConstantPool.read(in);
+		ConstantPool constant_pool = lazy ? CompactConstantPool.read(in, intern) : ConstantPool.read(in);
 
 		int access_flags = in.readUnsignedShort();
 
@@ -98,7 +135,7 @@ public class ClassFile extends ElementInfo {
 		int methods_count = in.readUnsignedShort();
 		MethodInfo[] methods = new MethodInfo[methods_count];
 		for (int i = 0; i < methods_count; i++) {
-			methods[i] = MethodInfo.read(in, constant_pool);
+			methods[i] = MethodInfo.read(in, constant_pool, lazy);
 		}
 
 		Attribute[] attributes = Attribute.readAttributes(in, constant_pool);
@@ -36,6 +36,10 @@ public class CodeAttribute implements Attribute {
 	}
 
 	public static CodeAttribute read(DataInput in, ConstantPool constant_pool) throws IOException {
+		return read(in, constant_pool, false);
+	}
+
+	public static CodeAttribute read(DataInput in, ConstantPool constant_pool, boolean lazy) throws IOException {
 		int max_stack = in.readUnsignedShort();
 		int max_locals = in.readUnsignedShort();
 		int code_length = in.readInt();
@@ -45,7 +49,7 @@ public class CodeAttribute implements Attribute {
 		for (int i = 0; i < exception_table_length; i++) {
 			exception_table[i] = ExceptionHandler.read(in, constant_pool);
 		}
-		Attribute[] attributes = Attribute.readAttributes(in, constant_pool);
+		Attribute[] attributes = Attribute.readAttributes(in, constant_pool, lazy);
 		return new CodeAttribute(max_stack, max_locals, code, exception_table, attributes);
 	}
 
@@ -0,0 +1,298 @@
+package aQute.bnd.classfile;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.util.Objects.requireNonNull;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+import aQute.lib.io.ByteBufferDataInput;
+import aQute.lib.io.IO;
+
+/**
+ * A constant pool which keeps the tags and the offsets of the entries in
+ * arrays over a copy of the bytes of the constant pool.
+ * <p>
+ * An entry is only created when it is first accessed with
+ * {@link #entry(int)}. The methods which answer a name or a descriptor read
+ * the indexes from the bytes and so only create the UTF8 entries. A UTF8
+ * entry is decoded when first accessed and then passed to the intern
+ * function.
+ */
+public class CompactConstantPool extends ConstantPool {
+	private final byte[]				bytes;
+	private final byte[]				tags;
+	private final int[]					offsets;
+	private final UnaryOperator<String>	intern;
+
+	CompactConstantPool(byte[] bytes, byte[] tags, int[] offsets, UnaryOperator<String> intern) {
+		super(new Object[tags.length]);
+		this.bytes = bytes;
+		this.tags = tags;
+		this.offsets = offsets;
+		this.intern = intern;
+	}
+
+	public static CompactConstantPool read(DataInput in) throws IOException {
+		return read(in, String::intern);
+	}
+
+	/**
+	 * Read a constant pool.
+	 *
+	 * @param in The input.
+	 * @param intern The function called with each decoded UTF8 entry. The
+	 *            answer is kept as the entry.
+	 * @return The constant pool.
+	 * @throws IOException If the constant pool cannot be read.
+	 */
+	public static CompactConstantPool read(DataInput in, UnaryOperator<String> intern) throws IOException {
+		requireNonNull(intern);
+		int constant_pool_count = in.readUnsignedShort();
+		byte[] tags = new byte[constant_pool_count];
+		int[] offsets = new int[constant_pool_count];
+		byte[] bytes = new byte[Math.max(constant_pool_count * 8, 16)];
+		int length = 0;
+		for (int index = 1; index < constant_pool_count; index++) {
+			int tag = in.readUnsignedByte();
+			tags[index] = (byte) tag;
+			offsets[index] = length;
+			int info_length;
+			switch (tag) {
+				case CONSTANT_Utf8 : {
+					// keep the length before the bytes
+					int utf8_length = in.readUnsignedShort();
+					bytes = ensureCapacity(bytes, length + Short.BYTES);
+					bytes[length++] = (byte) (utf8_length >>> 8);
+					bytes[length++] = (byte) utf8_length;
+					info_length = utf8_length;
+					break;
+				}
+				case CONSTANT_Class :
+				case CONSTANT_String :
+				case CONSTANT_MethodType :
+				case CONSTANT_Module :
+				case CONSTANT_Package : {
+					info_length = Short.BYTES;
+					break;
+				}
+				case CONSTANT_MethodHandle : {
+					info_length = Byte.BYTES + Short.BYTES;
+					break;
+				}
+				case CONSTANT_Integer :
+				case CONSTANT_Float :
+				case CONSTANT_Fieldref :
+				case CONSTANT_Methodref :
+				case CONSTANT_InterfaceMethodref :
+				case CONSTANT_NameAndType :
+				case CONSTANT_Dynamic :
+				case CONSTANT_InvokeDynamic : {
+					info_length = 2 * Short.BYTES;
+					break;
+				}
+				case CONSTANT_Long :
+				case CONSTANT_Double : {
+					info_length = Long.BYTES;
+					break;
+				}
+				default : {
+					throw new IOException("Unrecognized constant pool tag value " + tag + " at index " + index);
+				}
+			}
+			bytes = ensureCapacity(bytes, length + info_length);
+			in.readFully(bytes, length, info_length);
+			length += info_length;
+			if ((tag == CONSTANT_Long) || (tag == CONSTANT_Double)) {
+				// For some insane optimization reason, the Long(5) and
+				// Double(6) entries take two slots in the constant pool.
+				// See 4.4.5
+				index++;
+			}
+		}
+		return new CompactConstantPool(bytes, tags, offsets, intern);
+	}
+
+	private static byte[] ensureCapacity(byte[] bytes, int capacity) {
+		if (capacity <= bytes.length) {
+			return bytes;
+		}
+		return Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T entry(int index) {
+		Object entry = pool[index];
+		if ((entry == null) && (tags[index] != 0)) {
+			pool[index] = entry = decode(index);
+		}
+		return (T) entry;
+	}
+
+	@Override
+	public int tag(int index) {
+		return tags[index];
+	}
+
+	@Override
+	public String className(int class_info_index) {
+		if (tags[class_info_index] != CONSTANT_Class) {
+			return super.className(class_info_index);
+		}
+		return utf8(u2(offsets[class_info_index]));
+	}
+
+	@Override
+	public String moduleName(int module_info_index) {
+		if (tags[module_info_index] != CONSTANT_Module) {
+			return super.moduleName(module_info_index);
+		}
+		return utf8(u2(offsets[module_info_index]));
+	}
+
+	@Override
+	public String packageName(int package_info_index) {
+		if (tags[package_info_index] != CONSTANT_Package) {
+			return super.packageName(package_info_index);
+		}
+		return utf8(u2(offsets[package_info_index]));
+	}
+
+	@Override
+	public String string(int string_info_index) {
+		if (tags[string_info_index] != CONSTANT_String) {
+			return super.string(string_info_index);
+		}
+		return utf8(u2(offsets[string_info_index]));
+	}
+
+	@Override
+	public String refClassName(int ref_info_index) {
+		if (!isRef(tags[ref_info_index])) {
+			return super.refClassName(ref_info_index);
+		}
+		return className(u2(offsets[ref_info_index]));
+	}
+
+	@Override
+	public int refNameAndTypeIndex(int ref_info_index) {
+		if (!isRef(tags[ref_info_index])) {
+			return super.refNameAndTypeIndex(ref_info_index);
+		}
+		return u2(offsets[ref_info_index] + Short.BYTES);
+	}
+
+	@Override
+	public String nameAndTypeName(int name_and_type_index) {
+		if (tags[name_and_type_index] != CONSTANT_NameAndType) {
+			return super.nameAndTypeName(name_and_type_index);
+		}
+		return utf8(u2(offsets[name_and_type_index]));
+	}
+
+	@Override
+	public String descriptor(int index) {
+		switch (tags[index]) {
+			case CONSTANT_NameAndType :
+				return utf8(u2(offsets[index] + Short.BYTES));
+			case CONSTANT_MethodType :
+				return utf8(u2(offsets[index]));
+			default :
+				return super.descriptor(index);
+		}
+	}
+
+	@Override
+	public String toString() {
+		for (int index = 1, len = size(); index < len; index++) {
+			entry(index);
+		}
+		return super.toString();
+	}
+
+	private static boolean isRef(int tag) {
+		switch (tag) {
+			case CONSTANT_Fieldref :
+			case CONSTANT_Methodref :
+			case CONSTANT_InterfaceMethodref :
+				return true;
+			default :
+				return false;
+		}
+	}
+
+	private Object decode(int index) {
+		int offset = offsets[index];
+		switch (tags[index]) {
+			case CONSTANT_Utf8 :
+				return intern.apply(decodeUtf8(offset));
+			case CONSTANT_Integer :
+				return Integer.valueOf(s4(offset));
+			case CONSTANT_Float :
+				return Float.valueOf(Float.intBitsToFloat(s4(offset)));
+			case CONSTANT_Long :
+				return Long.valueOf(s8(offset));
+			case CONSTANT_Double :
+				return Double.valueOf(Double.longBitsToDouble(s8(offset)));
+			case CONSTANT_Class :
+				return new ClassInfo(u2(offset));
+			case CONSTANT_String :
+				return new StringInfo(u2(offset));
+			case CONSTANT_Fieldref :
+				return new FieldrefInfo(u2(offset), u2(offset + Short.BYTES));
+			case CONSTANT_Methodref :
+				return new MethodrefInfo(u2(offset), u2(offset + Short.BYTES));
+			case CONSTANT_InterfaceMethodref :
+				return new InterfaceMethodrefInfo(u2(offset), u2(offset + Short.BYTES));
+			case CONSTANT_NameAndType :
+				return new NameAndTypeInfo(u2(offset), u2(offset + Short.BYTES));
+			case CONSTANT_MethodHandle :
+				return new MethodHandleInfo(Byte.toUnsignedInt(bytes[offset]), u2(offset + Byte.BYTES));
+			case CONSTANT_MethodType :
+				return new MethodTypeInfo(u2(offset));
+			case CONSTANT_Dynamic :
+				return new DynamicInfo(u2(offset), u2(offset + Short.BYTES));
+			case CONSTANT_InvokeDynamic :
+				return new InvokeDynamicInfo(u2(offset), u2(offset + Short.BYTES));
+			case CONSTANT_Module :
+				return new ModuleInfo(u2(offset));
+			case CONSTANT_Package :
+				return new PackageInfo(u2(offset));
+			default :
+				return null;
+		}
+	}
+
+	private String decodeUtf8(int offset) {
+		int utf8_length = u2(offset);
+		int start = offset + Short.BYTES;
+		int end = start + utf8_length;
+		for (int i = start; i < end; i++) {
+			if (bytes[i] <= 0) {
+				// not plain ascii, so use the modified UTF-8 decoder
+				try {
+					return IO.readUTF(ByteBufferDataInput.wrap(bytes, offset, end - offset));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+		return new String(bytes, start, utf8_length, ISO_8859_1);
+	}
+
+	private int u2(int offset) {
+		return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+	}
+
+	private int s4(int offset) {
+		return (u2(offset) << 16) | u2(offset + Short.BYTES);
+	}
+
+	private long s8(int offset) {
+		return (((long) s4(offset)) << 32) | (s4(offset + Integer.BYTES) & 0xFFFF_FFFFL);
+	}
+}
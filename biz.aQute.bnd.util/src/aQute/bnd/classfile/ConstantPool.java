@@ -88,6 +88,55 @@ public class ConstantPool {
 		return utf8(stringInfo.string_index);
 	}
 
+	/**
+	 * Answer the class name of a field, method or interface method reference.
+	 *
+	 * @param ref_info_index The index of the reference.
+	 * @return The class name.
+	 */
+	public String refClassName(int ref_info_index) {
+		AbstractRefInfo refInfo = entry(ref_info_index);
+		return className(refInfo.class_index);
+	}
+
+	/**
+	 * Answer the name and type index of a field, method or interface method
+	 * reference.
+	 *
+	 * @param ref_info_index The index of the reference.
+	 * @return The index of the name and type.
+	 */
+	public int refNameAndTypeIndex(int ref_info_index) {
+		AbstractRefInfo refInfo = entry(ref_info_index);
+		return refInfo.name_and_type_index;
+	}
+
+	/**
+	 * Answer the name of a name and type.
+	 *
+	 * @param name_and_type_index The index of the name and type.
+	 * @return The name.
+	 */
+	public String nameAndTypeName(int name_and_type_index) {
+		NameAndTypeInfo nameAndTypeInfo = entry(name_and_type_index);
+		return utf8(nameAndTypeInfo.name_index);
+	}
+
+	/**
+	 * Answer the descriptor of a name and type or a method type.
+	 *
+	 * @param index The index of the name and type or method type.
+	 * @return The descriptor.
+	 */
+	public String descriptor(int index) {
+		Object entry = entry(index);
+		if (entry instanceof MethodTypeInfo) {
+			return utf8(((MethodTypeInfo) entry).descriptor_index);
+		}
+		NameAndTypeInfo nameAndTypeInfo = (NameAndTypeInfo) entry;
+		return utf8(nameAndTypeInfo.descriptor_index);
+	}
+
 	@Override
 	public String toString() {
 		return Arrays.toString(pool);
@@ -0,0 +1,116 @@
+package aQute.bnd.classfile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import aQute.lib.io.ByteBufferDataInput;
+import aQute.lib.io.IO;
+
+/**
+ * An attribute whose value has not been parsed.
+ * <p>
+ * When a class file is parsed lazily, the {@code Code} attribute and the
+ * attributes which only describe the byte code are recorded as a slice of the
+ * class file. They can be parsed with {@link #parse(ConstantPool)} when
+ * needed.
+ */
+public class DeferredAttribute implements Attribute {
+	public final String		name;
+	public final ByteBuffer	value;
+
+	public DeferredAttribute(String name, ByteBuffer value) {
+		this.name = name;
+		this.value = value;
+	}
+
+	@Override
+	public String name() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return name() + " (" + value.limit() + " bytes)";
+	}
+
+	/**
+	 * Answer if an attribute is deferred when a class file is parsed lazily.
+	 *
+	 * @param name The name of the attribute.
+	 * @return {@code true} if the attribute is deferred.
+	 */
+	public static boolean isDeferred(String name) {
+		switch (name) {
+			case CodeAttribute.NAME :
+			case LineNumberTableAttribute.NAME :
+			case LocalVariableTableAttribute.NAME :
+			case LocalVariableTypeTableAttribute.NAME :
+			case StackMapTableAttribute.NAME :
+				return true;
+			default :
+				return false;
+		}
+	}
+
+	public static DeferredAttribute read(DataInput in, String name, int attribute_length) throws IOException {
+		if (attribute_length < 0) {
+			throw new IOException("attribute length > 2Gb");
+		}
+		ByteBuffer value = ClassFile.slice(in, attribute_length);
+		return new DeferredAttribute(name, value);
+	}
+
+	/**
+	 * Parse the value of this attribute.
+	 * <p>
+	 * The attributes of a {@code Code} attribute are parsed lazily.
+	 *
+	 * @param constant_pool The constant pool of the class file.
+	 * @return The parsed attribute.
+	 * @throws IOException If the value cannot be parsed.
+	 */
+	public Attribute parse(ConstantPool constant_pool) throws IOException {
+		ByteBuffer duplicate = value.duplicate();
+		duplicate.rewind();
+		DataInput in = ByteBufferDataInput.wrap(duplicate);
+		switch (name) {
+			case CodeAttribute.NAME : {
+				return CodeAttribute.read(in, constant_pool, true);
+			}
+			case LineNumberTableAttribute.NAME : {
+				return LineNumberTableAttribute.read(in, constant_pool);
+			}
+			case LocalVariableTableAttribute.NAME : {
+				return LocalVariableTableAttribute.read(in, constant_pool);
+			}
+			case LocalVariableTypeTableAttribute.NAME : {
+				return LocalVariableTypeTableAttribute.read(in, constant_pool);
+			}
+			case StackMapTableAttribute.NAME : {
+				return StackMapTableAttribute.read(in, constant_pool);
+			}
+			default : {
+				return new UnrecognizedAttribute(name, duplicate);
+			}
+		}
+	}
+
+	@Override
+	public void write(DataOutput out, ConstantPool constant_pool) throws IOException {
+		int attribute_name_index = constant_pool.utf8Info(name());
+		int attribute_length = attribute_length();
+		out.writeShort(attribute_name_index);
+		out.writeInt(attribute_length);
+		ByteBuffer duplicate = value.duplicate();
+		duplicate.rewind();
+		IO.copy(duplicate, out);
+	}
+
+	@Override
+	public int attribute_length() {
+		int attribute_length = value.limit();
+		return attribute_length;
+	}
+}
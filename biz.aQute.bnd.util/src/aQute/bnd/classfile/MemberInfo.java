@@ -37,10 +37,15 @@ public abstract class MemberInfo extends ElementInfo {
 
 	static <M extends MemberInfo> M read(DataInput in, ConstantPool constant_pool, Constructor<M> constructor)
 		throws IOException {
+		return read(in, constant_pool, constructor, false);
+	}
+
+	static <M extends MemberInfo> M read(DataInput in, ConstantPool constant_pool, Constructor<M> constructor,
+		boolean lazy) throws IOException {
 		int access_flags = in.readUnsignedShort();
 		int name_index = in.readUnsignedShort();
 		int descriptor_index = in.readUnsignedShort();
-		Attribute[] attributes = Attribute.readAttributes(in, constant_pool);
+		Attribute[] attributes = Attribute.readAttributes(in, constant_pool, lazy);
 
 		return constructor.init(access_flags, constant_pool.utf8(name_index), constant_pool.utf8(descriptor_index),
 			attributes);
@@ -18,4 +18,8 @@ public class MethodInfo extends MemberInfo {
 	public static MethodInfo read(DataInput in, ConstantPool constant_pool) throws IOException {
 		return read(in, constant_pool, MethodInfo::new);
 	}
+
+	public static MethodInfo read(DataInput in, ConstantPool constant_pool, boolean lazy) throws IOException {
+		return read(in, constant_pool, MethodInfo::new, lazy);
+	}
 }
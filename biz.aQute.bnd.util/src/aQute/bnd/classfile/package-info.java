@@ -1,7 +1,7 @@
 /**
  * This package provides an object model and parser for Java class files.
  */
-@Version("1." + ClassFile.MAJOR_VERSION + "0.0")
+@Version("1." + ClassFile.MAJOR_VERSION + "1.0")
 package aQute.bnd.classfile;
 
 import org.osgi.annotation.versioning.Version;
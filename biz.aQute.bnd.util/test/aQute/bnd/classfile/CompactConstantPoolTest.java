@@ -0,0 +1,100 @@
+package aQute.bnd.classfile;
+
+import static aQute.bnd.classfile.ConstantPool.CONSTANT_Class;
+import static aQute.bnd.classfile.ConstantPool.CONSTANT_Fieldref;
+import static aQute.bnd.classfile.ConstantPool.CONSTANT_InterfaceMethodref;
+import static aQute.bnd.classfile.ConstantPool.CONSTANT_MethodType;
+import static aQute.bnd.classfile.ConstantPool.CONSTANT_Methodref;
+import static aQute.bnd.classfile.ConstantPool.CONSTANT_NameAndType;
+import static aQute.bnd.classfile.ConstantPool.CONSTANT_String;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import aQute.lib.io.ByteBufferDataInput;
+import aQute.lib.io.ByteBufferDataOutput;
+import aQute.lib.io.IO;
+
+public class CompactConstantPoolTest {
+
+	@Test
+	public void testEntries() throws Exception {
+		for (String name : new String[] {
+			"record/MinMax.class", "sealed/Expr.class", "sealed/PlusExpr.class"
+		}) {
+			ByteBuffer bb = IO.read(new File("testresources", name).toPath());
+			ClassFile eager = ClassFile.parseClassFile(ByteBufferDataInput.wrap(bb.duplicate()));
+			ClassFile lazy = ClassFile.parseClassFile(ByteBufferDataInput.wrap(bb.duplicate()), true);
+			ConstantPool expected = eager.constant_pool;
+			ConstantPool actual = lazy.constant_pool;
+
+			assertThat(actual).isInstanceOf(CompactConstantPool.class);
+			assertThat(actual.size()).isEqualTo(expected.size());
+			for (int index = 1; index < expected.size(); index++) {
+				assertThat(actual.tag(index)).as("tag %s", index)
+					.isEqualTo(expected.tag(index));
+				switch (expected.tag(index)) {
+					case CONSTANT_Class :
+						assertThat(actual.className(index)).isEqualTo(expected.className(index));
+						break;
+					case CONSTANT_String :
+						assertThat(actual.string(index)).isEqualTo(expected.string(index));
+						break;
+					case CONSTANT_Fieldref :
+					case CONSTANT_Methodref :
+					case CONSTANT_InterfaceMethodref :
+						assertThat(actual.refClassName(index)).isEqualTo(expected.refClassName(index));
+						assertThat(actual.refNameAndTypeIndex(index)).isEqualTo(expected.refNameAndTypeIndex(index));
+						break;
+					case CONSTANT_NameAndType :
+						assertThat(actual.nameAndTypeName(index)).isEqualTo(expected.nameAndTypeName(index));
+						assertThat(actual.descriptor(index)).isEqualTo(expected.descriptor(index));
+						break;
+					case CONSTANT_MethodType :
+						assertThat(actual.descriptor(index)).isEqualTo(expected.descriptor(index));
+						break;
+					default :
+						break;
+				}
+				Object entry = actual.entry(index);
+				assertThat(entry).as("entry %s", index)
+					.usingRecursiveComparison()
+					.isEqualTo(expected.entry(index));
+				assertThat(actual.<Object> entry(index)).isSameAs(entry);
+			}
+			assertThat(actual).hasToString(expected.toString());
+
+			ByteBufferDataOutput out = new ByteBufferDataOutput();
+			lazy.write(out);
+			assertThat(out.toByteBuffer()).isEqualTo(bb);
+		}
+	}
+
+	@Test
+	public void testIntern() throws Exception {
+		ByteBuffer bb = IO.read(new File("testresources/record/MinMax.class").toPath());
+		List<String> interned = new ArrayList<>();
+		ClassFile lazy = ClassFile.parseClassFile(ByteBufferDataInput.wrap(bb), true, s -> {
+			interned.add(s);
+			return s;
+		});
+
+		// Only the utf8 constants which are used are decoded
+		assertThat(interned).contains("MinMax", "java/lang/Record")
+			.doesNotContain("LineNumberTable")
+			.hasSizeLessThan(lazy.constant_pool.size());
+
+		// Each constant is decoded once
+		lazy.constant_pool.toString();
+		int decoded = interned.size();
+		lazy.constant_pool.toString();
+		assertThat(interned).hasSize(decoded)
+			.contains("LineNumberTable")
+			.doesNotHaveDuplicates();
+	}
+}
@@ -0,0 +1,71 @@
+package aQute.bnd.classfile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import aQute.lib.io.ByteBufferDataInput;
+import aQute.lib.io.ByteBufferDataOutput;
+import aQute.lib.io.IO;
+
+public class DeferredAttributeTest {
+
+	@Test
+	public void testLazy() throws Exception {
+		ByteBuffer bb = IO.read(new File("testresources/record/MinMax.class").toPath());
+		ClassFile eager = ClassFile.parseClassFile(ByteBufferDataInput.wrap(bb.duplicate()));
+		ClassFile lazy = ClassFile.parseClassFile(ByteBufferDataInput.wrap(bb.duplicate()), true);
+
+		assertThat(lazy.methods).hasSameSizeAs(eager.methods);
+		for (int i = 0; i < lazy.methods.length; i++) {
+			MethodInfo method = lazy.methods[i];
+			CodeAttribute expected = code(eager.methods[i]);
+			Attribute attribute = Arrays.stream(method.attributes)
+				.filter(a -> a.name()
+					.equals(CodeAttribute.NAME))
+				.findFirst()
+				.orElse(null);
+			if (expected == null) {
+				assertThat(attribute).isNull();
+				continue;
+			}
+			assertThat(attribute).isInstanceOf(DeferredAttribute.class);
+			assertThat(attribute.attribute_length()).isEqualTo(expected.attribute_length());
+
+			CodeAttribute code = (CodeAttribute) ((DeferredAttribute) attribute).parse(lazy.constant_pool);
+			assertThat(code.max_stack).isEqualTo(expected.max_stack);
+			assertThat(code.max_locals).isEqualTo(expected.max_locals);
+			assertThat(code.code).isEqualTo(expected.code);
+			assertThat(code.attributes).hasSameSizeAs(expected.attributes)
+				.allMatch(a -> DeferredAttribute.isDeferred(a.name()) == (a instanceof DeferredAttribute));
+			for (int j = 0; j < code.attributes.length; j++) {
+				Attribute nested = code.attributes[j];
+				if (nested instanceof DeferredAttribute) {
+					nested = ((DeferredAttribute) nested).parse(lazy.constant_pool);
+				}
+				assertThat(nested).usingRecursiveComparison()
+					.isEqualTo(expected.attributes[j]);
+			}
+		}
+
+		assertThat(write(lazy)).isEqualTo(write(eager));
+	}
+
+	private static CodeAttribute code(MethodInfo method) {
+		return Arrays.stream(method.attributes)
+			.filter(CodeAttribute.class::isInstance)
+			.map(CodeAttribute.class::cast)
+			.findFirst()
+			.orElse(null);
+	}
+
+	private static ByteBuffer write(ClassFile classFile) throws Exception {
+		ByteBufferDataOutput out = new ByteBufferDataOutput();
+		classFile.write(out);
+		return out.toByteBuffer();
+	}
+}
@@ -41,6 +41,9 @@ public class IndexCommand extends Processor {
 
 		@Description("The name of the index (default: name of the output file directory)")
 		String name();
+
+		@Description("Reuse the entries of the existing repository index file for the files which did not change")
+		boolean incremental();
 	}
 
 	public void _index(indexOptions opts) throws Exception {
@@ -86,11 +89,14 @@ public class IndexCommand extends Processor {
 			return;
 		}
 
-		new SimpleIndexer().reporter(bnd)
+		SimpleIndexer indexer = new SimpleIndexer().reporter(bnd)
 			.files(files)
 			.base(base)
 			.name(name)
-			.compress(compress)
-			.index(repositoryFile);
+			.compress(compress);
+		if (opts.incremental()) {
+			indexer.previous(repositoryFile);
+		}
+		indexer.index(repositoryFile);
 	}
 }
@@ -6,6 +6,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
@@ -39,7 +40,6 @@ import aQute.lib.strings.Strings;
 import biz.aQute.resolve.Bndrun;
 import biz.aQute.resolve.ResolutionCallback;
 import biz.aQute.resolve.ResolverValidator;
-import biz.aQute.resolve.ResolverValidator.Resolution;
 import biz.aQute.resolve.RunResolution;
 
 public class ResolveCommand extends Processor {
@@ -123,6 +123,12 @@ public class ResolveCommand extends Processor {
 
 		@Description("Include all output details")
 		boolean all();
+
+		@Description("The number of resources resolved concurrently, default is the number of available processors")
+		int parallel();
+
+		@Description("The maximum time in milliseconds to resolve a single resource, default is no limit")
+		long timeout();
 	}
 
 	@Description("Resolve a repository index against a base to determine if the index is 'complete'")
@@ -159,11 +165,14 @@ public class ResolveCommand extends Processor {
 			validator.use(bnd);
 			validator.addRepository(index.toURI());
 			validator.setSystem(system.build());
+			if (options.parallel() > 0) {
+				validator.setParallel(options.parallel());
+			}
+			validator.setTimeout(options.timeout(), TimeUnit.MILLISECONDS);
 
-			List<Resolution> result = validator.validate();
 			Set<Requirement> done = new HashSet<>();
 
-			for (Resolution res : result) {
+			validator.validate(res -> {
 				if (options.all()) {
 					bnd.out.format("%s %-60s %s%n", res.succeeded ? "OK" : "**", res.resource,
 						res.message == null ? "" : res.message);
@@ -188,7 +197,7 @@ public class ResolveCommand extends Processor {
 						}
 					}
 				}
-			}
+			});
 
 			bnd.getInfo(validator);
 		}
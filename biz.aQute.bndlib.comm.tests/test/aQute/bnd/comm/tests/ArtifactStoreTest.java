@@ -0,0 +1,106 @@
+package aQute.bnd.comm.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+
+import org.junit.jupiter.api.Test;
+
+import aQute.bnd.http.ArtifactStore;
+import aQute.bnd.http.HttpClient;
+import aQute.bnd.http.URLCache;
+import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
+import aQute.lib.io.IO;
+import aQute.libg.cryptography.SHA256;
+
+public class ArtifactStoreTest {
+
+	@InjectTemporaryDirectory
+	File tmp;
+
+	@Test
+	public void testSharedBetweenCaches() throws Exception {
+		ArtifactStore store = new ArtifactStore(IO.getFile(tmp, "store"), ArtifactStore.DEFAULT_MAX_SIZE);
+		URLCache a = new URLCache(IO.getFile(tmp, "a"));
+		a.setArtifactStore(store);
+		URLCache b = new URLCache(IO.getFile(tmp, "b"));
+		b.setArtifactStore(store);
+
+		byte[] content = "content".getBytes(StandardCharsets.UTF_8);
+		URI ua = new URI("http://a.example.com/foo.jar");
+		URI ub = new URI("http://b.example.com/foo.jar");
+		try (URLCache.Info info = a.get(ua)) {
+			info.update(new ByteArrayInputStream(content), "a", 1_000_000L);
+		}
+		try (URLCache.Info info = b.get(ub)) {
+			info.update(new ByteArrayInputStream(content), "b", 2_000_000L);
+			assertThat(info.getModified()).isEqualTo(2_000_000L);
+		}
+
+		File fa = a.getCacheFileFor(ua);
+		File fb = b.getCacheFileFor(ub);
+		assertThat(Files.isSameFile(fa.toPath(), fb.toPath())).isTrue();
+
+		String sha = SHA256.digest(content)
+			.asHex();
+		assertThat(store.get(sha)).isNotNull();
+
+		File restored = IO.getFile(tmp, "c/foo.jar");
+		assertThat(store.restore(sha, restored)).isTrue();
+		assertThat(IO.collect(restored)).isEqualTo("content");
+
+		// an update replaces the link and does not change the shared content
+		try (URLCache.Info info = a.get(ua)) {
+			info.update(new ByteArrayInputStream("changed".getBytes(StandardCharsets.UTF_8)), "a2", 0L);
+		}
+		assertThat(IO.collect(fa)).isEqualTo("changed");
+		assertThat(IO.collect(fb)).isEqualTo("content");
+		assertThat(IO.collect(store.get(sha))).isEqualTo("content");
+	}
+
+	@Test
+	public void testLinkedFilesAreReadOnly() throws Exception {
+		File file = IO.getFile(tmp, "file");
+		IO.store("content", file);
+		assumeTrue(Files.getFileAttributeView(file.toPath(), PosixFileAttributeView.class) != null);
+		ArtifactStore store = new ArtifactStore(IO.getFile(tmp, "store"), ArtifactStore.DEFAULT_MAX_SIZE);
+		String sha = SHA256.digest(file)
+			.asHex();
+		assertThat(store.link(file, sha)).isTrue();
+
+		assertThat(Files.getPosixFilePermissions(file.toPath())).doesNotContain(PosixFilePermission.OWNER_WRITE,
+			PosixFilePermission.GROUP_WRITE, PosixFilePermission.OTHERS_WRITE);
+		assertThat(Files.getPosixFilePermissions(store.get(sha)
+			.toPath())).doesNotContain(PosixFilePermission.OWNER_WRITE);
+	}
+
+	@Test
+	public void testNotSharedByDefault() throws Exception {
+		assumeTrue(System.getProperty(ArtifactStore.ARTIFACTS_DIR_SYSTEM_PROP) == null);
+		try (HttpClient client = new HttpClient()) {
+			assertThat(client.getArtifactStore()).isNull();
+		}
+	}
+
+	@Test
+	public void testGarbageCollection() throws Exception {
+		ArtifactStore store = new ArtifactStore(IO.getFile(tmp, "store"), 10L);
+		File file = IO.getFile(tmp, "file");
+		IO.store("0123456789abcdef", file);
+		String sha = SHA256.digest(file)
+			.asHex();
+		assertThat(store.link(file, sha)).isTrue();
+		assertThat(store.get(sha)).isNotNull();
+
+		assertThat(store.gc(true)).isEqualTo(16L);
+		assertThat(store.get(sha)).isNull();
+		assertThat(IO.collect(file)).isEqualTo("0123456789abcdef");
+	}
+}
@@ -0,0 +1,91 @@
+package aQute.bnd.build;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+
+import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
+import aQute.lib.collections.Iterables;
+import aQute.lib.io.IO;
+
+public class ClassIndexTableTest {
+
+	@Test
+	public void testPersistent(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		File dir = new File(tmp, "classindex");
+		File jar = new File(tmp, "asm.jar");
+		IO.copy(IO.getFile("jar/asm.jar"), jar);
+
+		try (ClassIndexTable table = new ClassIndexTable(dir)) {
+			assertThat(table.contains(jar, "org/objectweb/asm/ClassWriter.class")).isTrue();
+			assertThat(table.contains(jar, "org/objectweb/asm/Foo.class")).isFalse();
+		}
+		assertThat(IO.listFiles(dir)).hasSize(1);
+
+		try (ClassIndexTable table = new ClassIndexTable(dir); ZipFile zip = new ZipFile(jar)) {
+			for (ZipEntry entry : Iterables.iterable(zip.entries())) {
+				assertThat(table.contains(jar, entry.getName())).as(entry.getName())
+					.isEqualTo(entry.getName()
+						.endsWith(".class"));
+			}
+			assertThat(table.contains(jar, "org/objectweb/asm/Foo.class")).isFalse();
+		}
+		// nothing new was indexed
+		assertThat(IO.listFiles(dir)).hasSize(1);
+	}
+
+	@Test
+	public void testChangedBundle(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		File dir = new File(tmp, "classindex");
+		File jar = new File(tmp, "bundle.jar");
+		IO.copy(IO.getFile("jar/asm.jar"), jar);
+
+		try (ClassIndexTable table = new ClassIndexTable(dir)) {
+			assertThat(table.contains(jar, "org/objectweb/asm/ClassWriter.class")).isTrue();
+		}
+
+		IO.copy(IO.getFile("jar/osgi.jar"), jar);
+		jar.setLastModified(jar.lastModified() + 2000L);
+		try (ClassIndexTable table = new ClassIndexTable(dir)) {
+			assertThat(table.contains(jar, "org/objectweb/asm/ClassWriter.class")).isFalse();
+			assertThat(table.contains(jar, "org/osgi/framework/Bundle.class")).isTrue();
+		}
+	}
+
+	@Test
+	public void testConcurrentWriters(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		File dir = new File(tmp, "classindex");
+		File asm = new File(tmp, "asm.jar");
+		File osgi = new File(tmp, "osgi.jar");
+		IO.copy(IO.getFile("jar/asm.jar"), asm);
+		IO.copy(IO.getFile("jar/osgi.jar"), osgi);
+		IO.mkdirs(dir);
+		File writing = IO.getFile(dir, "classindex-1234.tmp");
+		IO.store("being written", writing);
+		File stale = IO.getFile(dir, "classindex-5678.tmp");
+		IO.store("left behind", stale);
+		stale.setLastModified(System.currentTimeMillis() - 3_600_000L);
+
+		try (ClassIndexTable a = new ClassIndexTable(dir); ClassIndexTable b = new ClassIndexTable(dir)) {
+			assertThat(a.contains(asm, "org/objectweb/asm/ClassWriter.class")).isTrue();
+			assertThat(b.contains(osgi, "org/osgi/framework/Bundle.class")).isTrue();
+			a.flush();
+			b.flush();
+			// both generations exist, the other writer's files are kept
+			assertThat(IO.listFiles(dir, (d, name) -> name.endsWith(".db"))).hasSize(2);
+			assertThat(writing).isFile();
+			assertThat(stale).doesNotExist();
+		}
+
+		try (ClassIndexTable table = new ClassIndexTable(dir)) {
+			assertThat(table.contains(osgi, "org/osgi/framework/Bundle.class")).isTrue();
+		}
+	}
+}
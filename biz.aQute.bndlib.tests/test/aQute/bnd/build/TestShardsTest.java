@@ -0,0 +1,84 @@
+package aQute.bnd.build;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
+import aQute.lib.io.IO;
+import aQute.lib.utf8properties.UTF8Properties;
+
+public class TestShardsTest {
+	@InjectTemporaryDirectory
+	File tmp;
+
+	@Test
+	public void testClasses() {
+		Map<String, List<String>> classes = TestShards.classes(Arrays.asList("a.A:one", "b.B", "a.A:two"));
+		assertThat(classes).containsOnlyKeys("a.A", "b.B");
+		assertThat(classes.get("a.A")).containsExactly("a.A:one", "a.A:two");
+		assertThat(classes.get("b.B")).containsExactly("b.B");
+	}
+
+	@Test
+	public void testBalance() {
+		Properties durations = new UTF8Properties();
+		durations.setProperty("a.A", "9000");
+		durations.setProperty("b.B", "5000");
+		durations.setProperty("c.C", "4000");
+		durations.setProperty("d.D", "1000");
+
+		List<List<String>> partition = TestShards.balance(Arrays.asList("d.D", "c.C", "b.B", "a.A"), durations, 2);
+		assertThat(partition).containsExactly(Arrays.asList("a.A", "d.D"), Arrays.asList("b.B", "c.C"));
+
+		// no more shards than classes
+		assertThat(TestShards.balance(Arrays.asList("a.A", "b.B"), durations, 4)).hasSize(2);
+
+		// unknown classes take the average duration
+		partition = TestShards.balance(Arrays.asList("b.B", "c.C", "x.X"), durations, 2);
+		assertThat(partition).containsExactly(Arrays.asList("b.B"), Arrays.asList("x.X", "c.C"));
+	}
+
+	@Test
+	public void testMerge() throws Exception {
+		File shard0 = new File(tmp, "0/test-reports");
+		File shard1 = new File(tmp, "1/test-reports");
+		IO.mkdirs(shard0);
+		IO.mkdirs(shard1);
+		IO.store("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<testsuite name=\"test.run\" tests=\"2\" failures=\"1\" errors=\"0\" time=\"1.500\">"
+			+ "<properties><property name=\"p\" value=\"0\"/></properties>"
+			+ "<testcase classname=\"a.A\" name=\"one\" time=\"1.000\"><failure type=\"x\"/></testcase>"
+			+ "<testcase classname=\"a.A\" name=\"two\" time=\"0.250\"/>" + "</testsuite>",
+			IO.getFile(shard0, "TEST-test-reports.xml"));
+		IO.store("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<testsuite name=\"test.run\" tests=\"1\" failures=\"0\" errors=\"1\" time=\"2.000\">"
+			+ "<properties><property name=\"p\" value=\"1\"/></properties>"
+			+ "<testcase classname=\"b.B\" name=\"three\" time=\"2.000\"><error type=\"y\"/></testcase>"
+			+ "</testsuite>", IO.getFile(shard1, "TEST-test-reports.xml"));
+
+		File reports = new File(tmp, "test-reports");
+		TestShards.merge(Arrays.asList(shard0, shard1), reports);
+		assertThat(IO.listFiles(reports)).hasSize(1);
+		String merged = IO.collect(new File(reports, "TEST-test-reports.xml"));
+		assertThat(merged).contains("tests=\"3\"", "failures=\"1\"", "errors=\"1\"", "time=\"3.500\"", "name=\"one\"",
+			"name=\"two\"", "name=\"three\"");
+		assertThat(merged).containsOnlyOnce("<properties>");
+
+		File cache = new File(tmp, "cache/durations.properties");
+		Properties durations = new UTF8Properties();
+		durations.setProperty("c.C", "42");
+		TestShards.save(cache, durations, reports);
+		UTF8Properties saved = new UTF8Properties();
+		saved.load(cache, null);
+		assertThat(saved).containsEntry("a.A", "1250")
+			.containsEntry("b.B", "2000")
+			.containsEntry("c.C", "42");
+	}
+}
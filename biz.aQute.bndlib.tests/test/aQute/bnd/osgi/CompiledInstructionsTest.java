@@ -0,0 +1,74 @@
+package aQute.bnd.osgi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class CompiledInstructionsTest {
+
+	@Test
+	public void testFirstMatchWins() {
+		Instructions instructions = new Instructions(
+			"!com.acme.internal.*, com.acme.api, com.acme.*, com.{foo,bar}.*, *.impl, com.acme.api.spi, *");
+		CompiledInstructions compiled = new CompiledInstructions(instructions);
+
+		List<String> values = Arrays.asList("com.acme", "com.acme.internal", "com.acme.internal.x", "com.acme.api",
+			"com.acme.api.spi", "com.acmex", "com.foo", "com.bar.x", "org.impl", "org.impl.x", "", ".", "com.acme.");
+		for (String value : values) {
+			assertThat(compiled.matcher(value)).as(value)
+				.isSameAs(instructions.matcher(value));
+		}
+
+		assertThat(compiled.matcher("com.acme.api")
+			.getInput()).isEqualTo("com.acme.api");
+		assertThat(compiled.matcher("com.acme.internal.x")
+			.isNegated()).isTrue();
+		assertThat(compiled.matcher("com.acmex")
+			.getInput()).isEqualTo("*");
+		assertThat(compiled.matcher("org.impl")
+			.getInput()).isEqualTo("*.impl");
+	}
+
+	@Test
+	public void testPatternBeforeTrie() {
+		Instructions instructions = new Instructions("com.a*, com.acme.*, com.acme");
+		CompiledInstructions compiled = new CompiledInstructions(instructions);
+		assertThat(compiled.matcher("com.acme")
+			.getInput()).isEqualTo("com.a*");
+		assertThat(compiled.matcher("com.acme.foo")
+			.getInput()).isEqualTo("com.a*");
+		assertThat(compiled.matcher("org.acme")).isNull();
+	}
+
+	@Test
+	public void testCaseInsensitive() {
+		Instructions instructions = new Instructions("com.ACME.*:i, COM.FOO:i, com.bar");
+		CompiledInstructions compiled = new CompiledInstructions(instructions);
+		assertThat(compiled.matcher("com.acme.x")
+			.getInput()).isEqualTo("com.ACME.*:i");
+		assertThat(compiled.matcher("com.foo")
+			.getInput()).isEqualTo("COM.FOO:i");
+		assertThat(compiled.matcher("COM.BAR")).isNull();
+	}
+
+	@Test
+	public void testAccept() {
+		Instructions instructions = new Instructions("com.acme.*;from:=a.jar, com.acme.*, *");
+		CompiledInstructions compiled = new CompiledInstructions(instructions);
+		assertThat(compiled.indexOf("com.acme.x", i -> true)).isEqualTo(0);
+		assertThat(compiled.indexOf("com.acme.x", i -> compiled.attrs(i)
+			.get(Constants.FROM_DIRECTIVE) == null)).isEqualTo(1);
+		assertThat(compiled.indexOf("com.acme.x", i -> i > 1)).isEqualTo(2);
+		assertThat(compiled.indexOf("com.acme.x", i -> false)).isEqualTo(-1);
+	}
+
+	@Test
+	public void testSelectKeepsInstructionOrder() {
+		Instructions instructions = new Instructions("c, !b, a.*, *");
+		assertThat(instructions.select(Arrays.asList("a.x", "b", "c", "d", "a"), false)).containsExactly("c",
+			"a.x", "a", "d");
+	}
+}
@@ -0,0 +1,151 @@
+package aQute.bnd.osgi.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.osgi.resource.Resource;
+
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.Jar;
+import aQute.bnd.osgi.resource.ResourceUtils;
+import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
+import aQute.lib.io.IO;
+
+public class SimpleIndexerTest {
+	@InjectTemporaryDirectory
+	File						tmp;
+
+	private final List<File>	files	= new ArrayList<>();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		IO.mkdirs(new File(tmp, "bundles"));
+		for (String name : new String[] {
+			"ds.jar", "osgi.core.jar", "jsr311-api-1.1.1.jar", "servlet-api.jar", "asm.jar"
+		}) {
+			File file = new File(tmp, "bundles/" + name);
+			IO.copy(IO.getFile("jar/" + name), file);
+			files.add(file);
+		}
+	}
+
+	@Test
+	public void testParallel() throws Exception {
+		File sequential = new File(tmp, "sequential.xml");
+		indexer().parallel(1)
+			.index(sequential);
+		File parallel = new File(tmp, "parallel.xml");
+		indexer().parallel(4)
+			.index(parallel);
+
+		assertThat(IO.collect(parallel)).isEqualTo(IO.collect(sequential));
+		List<Resource> resources = XMLResourceParser.getResources(parallel);
+		assertThat(resources).hasSize(4);
+		assertThat(resources).extracting(r -> ResourceUtils.getContentCapability(r)
+			.url()
+			.toString())
+			.allMatch(url -> url.endsWith(".jar"));
+	}
+
+	@Test
+	public void testIncremental() throws Exception {
+		File index = new File(tmp, "index.xml");
+		List<File> analyzed = new ArrayList<>();
+		indexer().analyzer((file, rb) -> analyzed.add(file))
+			.index(index);
+		assertThat(analyzed).hasSize(4);
+		String full = IO.collect(index);
+
+		// unchanged files are reused
+		analyzed.clear();
+		index.setLastModified(System.currentTimeMillis() + 10_000L);
+		indexer().analyzer((file, rb) -> analyzed.add(file))
+			.previous(index)
+			.index(index);
+		assertThat(analyzed).isEmpty();
+		assertThat(IO.collect(index)).isEqualTo(full);
+
+		// touched files with the same content are reused
+		File touched = files.get(0);
+		touched.setLastModified(index.lastModified() + 10_000L);
+		indexer().analyzer((file, rb) -> analyzed.add(file))
+			.previous(index)
+			.index(index);
+		assertThat(analyzed).isEmpty();
+		assertThat(IO.collect(index)).isEqualTo(full);
+
+		// changed files are indexed again
+		File changed = files.get(1);
+		IO.copy(IO.getFile("jar/osgi.core-4.3.0.jar"), changed);
+		changed.setLastModified(index.lastModified() + 10_000L);
+		indexer().analyzer((file, rb) -> analyzed.add(file))
+			.previous(index)
+			.index(index);
+		assertThat(analyzed).containsExactly(changed);
+
+		File expected = new File(tmp, "expected.xml");
+		indexer().index(expected);
+		assertThat(IO.collect(index)).isEqualTo(IO.collect(expected));
+	}
+
+	@Test
+	public void testReplacedWithOlderFileOfSameSize() throws Exception {
+		File replaced = new File(tmp, "bundles/replaced.jar");
+		bundle(replaced, "1.0.0");
+		files.add(replaced);
+		File index = new File(tmp, "index.xml");
+		indexer().index(index);
+
+		// a file of the same size which is older than the index is indexed
+		// again when its content changed
+		bundle(replaced, "2.0.0");
+		replaced.setLastModified(index.lastModified() - 10_000L);
+		List<File> analyzed = new ArrayList<>();
+		indexer().analyzer((file, rb) -> analyzed.add(file))
+			.previous(index)
+			.index(index);
+		assertThat(analyzed).containsExactly(replaced);
+
+		File expected = new File(tmp, "expected.xml");
+		indexer().index(expected);
+		assertThat(IO.collect(index)).isEqualTo(IO.collect(expected))
+			.contains("2.0.0");
+	}
+
+	@Test
+	public void testMissingPrevious() throws Exception {
+		File index = new File(tmp, "index.xml");
+		indexer().previous(new File(tmp, "missing.xml"))
+			.index(index);
+		assertThat(XMLResourceParser.getResources(index)).hasSize(4);
+	}
+
+	private static void bundle(File file, String version) throws Exception {
+		Manifest manifest = new Manifest();
+		Attributes main = manifest.getMainAttributes();
+		main.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		main.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+		main.putValue(Constants.BUNDLE_SYMBOLICNAME, "replaced");
+		main.putValue(Constants.BUNDLE_VERSION, version);
+		try (Jar jar = new Jar("replaced")) {
+			jar.setManifest(manifest);
+			jar.setCompression(Jar.Compression.STORE);
+			jar.setReproducible(true);
+			jar.write(file);
+		}
+	}
+
+	private SimpleIndexer indexer() {
+		return new SimpleIndexer().files(files)
+			.base(tmp.toURI())
+			.name("test")
+			.increment(1L);
+	}
+}
@@ -1,13 +1,20 @@
 package test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
 import aQute.bnd.header.Attrs;
+import aQute.bnd.header.Attrs.Type;
+import aQute.bnd.header.Parameters;
 import aQute.bnd.version.Version;
 
 public class AttrsTest {
@@ -65,4 +72,47 @@ public class AttrsTest {
 		assertEquals("version:Version=\"1.2.3\";versions:List<Version>=\"1.2.3,2.1.0\"", attr.toString());
 	}
 
+	@Test
+	public void testCompact() {
+		Parameters parameters = new Parameters("a;b;version:Version=1.2;x:List<Long>='1,2';y=z;resolution:=optional");
+		Attrs attr = parameters.get("a");
+		assertTrue(attr.isCompact());
+		assertSame(attr, parameters.get("b"));
+		assertEquals(4, attr.size());
+		assertEquals("z", attr.get("y"));
+		assertEquals(new Version("1.2.0"), attr.getTyped(Attrs.VERSION, "version"));
+		assertEquals(Arrays.asList(1L, 2L), attr.getTyped(Attrs.LIST_LONG, "x"));
+		assertEquals("version:Version=\"1.2\";x:List<Long>=\"1,2\";y=z;resolution:=optional", attr.toString());
+
+		// the typed lists are copies
+		attr.getTyped(Attrs.LIST_LONG, "x")
+			.clear();
+		assertEquals(Arrays.asList(1L, 2L), attr.getTyped(Attrs.LIST_LONG, "x"));
+	}
+
+	@Test
+	public void testCompactCopyOnWrite() {
+		Attrs attr = new Parameters("a;t:Long=5;y=z").get("a");
+		Attrs copy = new Attrs(attr);
+		assertFalse(copy.isCompact());
+		assertEquals(Type.LONG, copy.getType("t"));
+
+		for (Map.Entry<String, String> e : attr.entrySet()) {
+			e.setValue(e.getValue() + "0");
+		}
+		assertFalse(attr.isCompact());
+		assertEquals(Long.valueOf(50L), attr.getTyped("t"));
+		assertEquals("z0", attr.get("y"));
+		assertEquals("5", copy.get("t"));
+
+		Attrs other = new Parameters("a;t:Long=5;y=z").get("a");
+		other.keySet()
+			.removeIf("y"::equals);
+		assertFalse(other.containsKey("y"));
+		assertEquals(Type.LONG, other.getType("t"));
+
+		Attrs invalid = new Parameters("a;t:Long=x").get("a");
+		assertThrows(NumberFormatException.class, () -> invalid.getTyped("t"));
+	}
+
 }
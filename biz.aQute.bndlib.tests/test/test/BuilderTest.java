@@ -9,6 +9,8 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -26,6 +28,8 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.jar.Attributes;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
@@ -41,6 +45,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.ArgumentsProvider;
 import org.junit.jupiter.params.provider.ArgumentsSource;
+import org.osgi.util.promise.PromiseFactory;
 
 import aQute.bnd.header.Attrs;
 import aQute.bnd.header.OSGiHeader;
@@ -3549,4 +3554,45 @@ public class BuilderTest {
 		}
 	}
 
+	/**
+	 * A reproducible build must result in the same bytes independent of the
+	 * number of threads used to compress the entries and render the XML.
+	 */
+	@Test
+	public void testReproducibleWithDifferentThreadCounts() throws Exception {
+		byte[] serial = buildReproducible(1);
+		byte[] parallel = buildReproducible(4);
+		assertThat(parallel).isEqualTo(serial);
+		assertThat(buildReproducible(4)).isEqualTo(parallel);
+
+		try (Jar jar = new Jar("test", new ByteArrayInputStream(serial))) {
+			assertThat(jar.getResources()).containsKey("test/component/DSAnnotationTest.class");
+			assertThat(jar.getResources()
+				.keySet()).anyMatch(path -> path.startsWith("OSGI-INF/") && path.endsWith(".xml"));
+		}
+	}
+
+	private static byte[] buildReproducible(int threads) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try (Builder b = new Builder()) {
+			Jar dot = new Jar("dot");
+			dot.setReproducible(true);
+			dot.setPromiseFactory(new PromiseFactory(executor));
+			b.setJar(dot);
+			b.addClasspath(IO.getFile("bin_test"));
+			b.addClasspath(IO.getFile("jar/osgi.jar"));
+			b.setProperty(Constants.REPRODUCIBLE, "true");
+			b.setProperty(Constants.INCLUDEPACKAGE, "test.component.*,test.metatype.*");
+			b.setProperty(Constants.DSANNOTATIONS, "*");
+			b.setProperty(Constants.METATYPE_ANNOTATIONS, "*");
+			b.setProperty(Constants.INCLUDERESOURCE, "testresources/ws/cnf/build.bnd");
+			Jar jar = b.build();
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			jar.write(out);
+			return out.toByteArray();
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 }
@@ -1,5 +1,6 @@
 package test;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.data.Offset.strictOffset;
@@ -14,11 +15,20 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.jar.Attributes;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.jupiter.api.Test;
 
@@ -28,8 +38,13 @@ import aQute.bnd.osgi.EmbeddedResource;
 import aQute.bnd.osgi.FileResource;
 import aQute.bnd.osgi.Jar;
 import aQute.bnd.osgi.Resource;
+import aQute.bnd.osgi.Verifier;
 import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
+import aQute.lib.base64.Base64;
+import aQute.lib.collections.Iterables;
 import aQute.lib.io.IO;
+import aQute.libg.cryptography.MD5;
+import aQute.libg.cryptography.SHA1;
 import aQute.libg.cryptography.SHA256;
 
 public class JarTest {
@@ -166,6 +181,103 @@ public class JarTest {
 		}
 	}
 
+	@Test
+	public void testCopyRawEntries(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		File file = IO.getFile("jar/asm.jar");
+		for (Jar.Compression compression : Jar.Compression.values()) {
+			File out = new File(tmp, compression + ".jar");
+			try (Jar source = new Jar(file); Jar jar = new Jar("copy")) {
+				jar.addAll(source);
+				jar.putResource("a/b.txt", new EmbeddedResource("ab", 0L));
+				jar.setCompression(compression);
+				jar.write(out);
+			}
+
+			try (ZipFile source = new ZipFile(file); ZipFile copy = new ZipFile(out)) {
+				assertThat(copy.getEntry("a/b.txt")).isNotNull();
+				assertEquals("ab", IO.collect(copy.getInputStream(copy.getEntry("a/b.txt"))));
+				for (ZipEntry entry : Iterables.iterable(source.entries())) {
+					if (entry.isDirectory() || entry.getName()
+						.equals("META-INF/MANIFEST.MF")) {
+						continue;
+					}
+					ZipEntry copied = copy.getEntry(entry.getName());
+					assertThat(copied).as(entry.getName())
+						.isNotNull();
+					assertEquals(entry.getCrc(), copied.getCrc());
+					assertEquals(entry.getSize(), copied.getSize());
+					if (compression == Jar.Compression.DEFLATE) {
+						// copied without inflating and deflating
+						assertEquals(entry.getCompressedSize(), copied.getCompressedSize());
+					} else {
+						assertEquals(ZipEntry.STORED, copied.getMethod());
+					}
+					assertThat(IO.read(copy.getInputStream(copied))).as(entry.getName())
+						.isEqualTo(IO.read(source.getInputStream(entry)));
+				}
+			}
+
+			try (JarInputStream jin = new JarInputStream(IO.stream(out))) {
+				assertNotNull(jin.getManifest());
+			}
+		}
+	}
+
+	@Test
+	public void testCopyRawEntriesOfReplacedFile(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		File original = IO.getFile("jar/asm.jar");
+		File file = new File(tmp, "source.jar");
+		IO.copy(original, file);
+		File replacement = new File(tmp, "replacement.jar");
+		IO.copy(IO.getFile("testresources/bnd.jar"), replacement);
+		File out = new File(tmp, "copy.jar");
+		try (Jar source = new Jar(file); Jar jar = new Jar("copy")) {
+			jar.addAll(source);
+			Files.move(replacement.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			jar.write(out);
+		}
+
+		try (ZipFile source = new ZipFile(original); ZipFile copy = new ZipFile(out)) {
+			for (ZipEntry entry : Iterables.iterable(source.entries())) {
+				if (entry.isDirectory() || entry.getName()
+					.equals("META-INF/MANIFEST.MF")) {
+					continue;
+				}
+				ZipEntry copied = copy.getEntry(entry.getName());
+				assertThat(copied).as(entry.getName())
+					.isNotNull();
+				assertEquals(entry.getCrc(), copied.getCrc());
+				assertThat(IO.read(copy.getInputStream(copied))).as(entry.getName())
+					.isEqualTo(IO.read(source.getInputStream(entry)));
+			}
+		}
+	}
+
+	@Test
+	public void testFromBuffer() throws Exception {
+		File file = IO.getFile("jar/asm.jar");
+		try (Jar expected = new Jar(file); Jar jar = Jar.fromBuffer("asm", IO.read(file.toPath()))) {
+			assertThat(jar.getResources()
+				.keySet()).containsExactlyElementsOf(expected.getResources()
+					.keySet());
+			assertEquals(expected.getManifest()
+				.getMainAttributes(),
+				jar.getManifest()
+					.getMainAttributes());
+			for (String name : expected.getResources()
+				.keySet()) {
+				Resource resource = jar.getResource(name);
+				assertThat(IO.read(resource.openInputStream())).as(name)
+					.isEqualTo(IO.read(expected.getResource(name)
+						.openInputStream()));
+				assertEquals(expected.getResource(name)
+					.lastModified(), resource.lastModified(), name);
+			}
+		}
+	}
+
 	@Test
 	public void testNoManifest() throws Exception {
 		try (Jar jar = new Jar("dot")) {
@@ -338,4 +450,167 @@ public class JarTest {
 			assertThat(jar.exists("ok.txt")).isTrue();
 		}
 	}
+
+	@Test
+	public void testCalcChecksums() throws Exception {
+		try (Jar jar = new Jar("test")) {
+			for (int i = 0; i < 100; i++) {
+				jar.putResource("a/" + i + ".txt", new EmbeddedResource("content " + i, 0L));
+			}
+			jar.calcChecksums(new String[] {
+				"SHA1", "MD5", "SHA-256"
+			});
+			Attributes attributes = jar.getManifest()
+				.getAttributes("a/42.txt");
+			assertThat(attributes.getValue("SHA1-Digest"))
+				.isEqualTo(Base64.encodeBase64(SHA1.digest("content 42".getBytes(UTF_8))
+					.digest()));
+			assertThat(attributes.getValue("MD5-Digest"))
+				.isEqualTo(Base64.encodeBase64(MD5.digest("content 42".getBytes(UTF_8))
+					.digest()));
+			assertThat(attributes.getValue("SHA-256-Digest"))
+				.isEqualTo(Base64.encodeBase64(SHA256.digest("content 42".getBytes(UTF_8))
+					.digest()));
+
+			try (Verifier verifier = new Verifier(jar)) {
+				verifier.verifyChecksums(true);
+				assertThat(verifier.check()).isTrue();
+			}
+
+			byte[] digest = jar.getTimelessDigest();
+			assertThat(jar.getTimelessDigest()).isEqualTo(digest);
+
+			// a replaced resource is digested again
+			jar.putResource("a/42.txt", new EmbeddedResource("changed", 0L));
+			assertThat(jar.getTimelessDigest()).isNotEqualTo(digest);
+			try (Verifier verifier = new Verifier(jar)) {
+				verifier.verifyChecksums(true);
+				assertThat(verifier.getErrors()).hasSize(1)
+					.allMatch(e -> e.startsWith("Checksum mismatch a/42.txt"));
+			}
+
+			jar.calcChecksums(new String[] {
+				"SHA1"
+			});
+			assertThat(jar.getManifest()
+				.getAttributes("a/42.txt")
+				.getValue("SHA1-Digest"))
+					.isEqualTo(Base64.encodeBase64(SHA1.digest("changed".getBytes(UTF_8))
+						.digest()));
+		}
+	}
+
+	@Test
+	public void testMemoryBudget() throws Exception {
+		assertMemoryBudget(ZipEntry.DEFLATED);
+	}
+
+	@Test
+	public void testMemoryBudgetStored() throws Exception {
+		assertMemoryBudget(ZipEntry.STORED);
+	}
+
+	@Test
+	public void testMemoryBudgetLargeEntry() throws Exception {
+		byte[] data = new byte[100_000];
+		new Random(42L).nextBytes(data);
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		try (ZipOutputStream zout = new ZipOutputStream(bout)) {
+			zout.putNextEntry(new ZipEntry("large"));
+			zout.write(data);
+			zout.closeEntry();
+		}
+
+		try (Jar jar = Jar.fromInputStream("test", new ByteArrayInputStream(bout.toByteArray()), 10_000)) {
+			Resource resource = jar.getResource("large");
+			ByteBuffer bb = resource.buffer();
+			assertThat(bb.isDirect()).isTrue();
+			assertThat(resource.size()).isEqualTo(data.length);
+			byte[] read = new byte[bb.remaining()];
+			bb.get(read);
+			assertThat(read).isEqualTo(data);
+		}
+	}
+
+	@Test
+	public void testMemoryBudgetAddAllThenClose() throws Exception {
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		try (ZipOutputStream zout = new ZipOutputStream(bout)) {
+			for (int i = 0; i < 10; i++) {
+				byte[] data = new byte[1000];
+				Arrays.fill(data, (byte) i);
+				zout.putNextEntry(new ZipEntry("e/" + i));
+				zout.write(data);
+				zout.closeEntry();
+			}
+		}
+
+		try (Jar target = new Jar("target")) {
+			try (Jar source = Jar.fromInputStream("source", new ByteArrayInputStream(bout.toByteArray()), 2500)) {
+				// read one spilled resource before the source is closed
+				assertThat(source.getResource("e/9")
+					.buffer()
+					.isDirect()).isTrue();
+				target.addAll(source);
+			}
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			target.write(out);
+			try (Jar copy = new Jar("copy", new ByteArrayInputStream(out.toByteArray()))) {
+				for (int i = 0; i < 10; i++) {
+					ByteBuffer bb = copy.getResource("e/" + i)
+						.buffer();
+					assertThat(bb.remaining()).isEqualTo(1000);
+					assertThat(bb.get(999)).isEqualTo((byte) i);
+				}
+			}
+		}
+	}
+
+	private void assertMemoryBudget(int method) throws Exception {
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		try (ZipOutputStream zout = new ZipOutputStream(bout)) {
+			for (int i = 0; i < 10; i++) {
+				byte[] data = new byte[1000];
+				Arrays.fill(data, (byte) i);
+				ZipEntry entry = new ZipEntry("e/" + i);
+				entry.setMethod(method);
+				if (method == ZipEntry.STORED) {
+					CRC32 crc = new CRC32();
+					crc.update(data);
+					entry.setCrc(crc.getValue());
+					entry.setSize(data.length);
+					entry.setCompressedSize(data.length);
+				}
+				zout.putNextEntry(entry);
+				zout.write(data);
+				zout.closeEntry();
+			}
+		}
+
+		try (Jar jar = Jar.fromInputStream("test", new ByteArrayInputStream(bout.toByteArray()), 2500)) {
+			int spilled = 0;
+			for (int i = 0; i < 10; i++) {
+				Resource resource = jar.getResource("e/" + i);
+				ByteBuffer bb = resource.buffer();
+				assertThat(resource.size()).isEqualTo(1000);
+				assertThat(bb.remaining()).isEqualTo(1000);
+				assertThat(bb.get(999)).isEqualTo((byte) i);
+				if (bb.isDirect()) {
+					spilled++;
+				}
+			}
+			assertThat(spilled).isEqualTo(8);
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			jar.write(out);
+			try (Jar copy = new Jar("copy", new ByteArrayInputStream(out.toByteArray()))) {
+				assertThat(copy.getResources()).containsKeys("e/0", "e/9");
+				assertThat(copy.getResource("e/9")
+					.buffer()
+					.get(0)).isEqualTo((byte) 9);
+			}
+		}
+	}
 }
+
@@ -1,12 +1,15 @@
 package test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -16,7 +19,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.Manifest;
 import java.util.regex.Pattern;
 
@@ -555,6 +561,60 @@ public class ProjectTest {
 		assertEquals(1, bundles.size());
 	}
 
+	@Test
+	public void testRepositoryVersionsRefreshedOnRelease() throws Exception {
+		Workspace ws = getWorkspace(IO.getFile("testresources/ws"));
+		Project project = ws.getProject("p1");
+		Container before = project.getBundle("org.apache.felix.configadmin", "latest", Strategy.HIGHEST, null);
+		assertEquals(Container.TYPE.REPO, before.getType());
+		assertEquals(before.getFile(), project.getBundle("org.apache.felix.configadmin", "latest", Strategy.HIGHEST, null)
+			.getFile());
+
+		RepositoryPlugin release = ws.getRepository("Release");
+		try (Builder b = new Builder()) {
+			b.setBundleSymbolicName("org.apache.felix.configadmin");
+			b.setBundleVersion("99.0.0");
+			b.setProperty("-resourceonly", "true");
+			b.setProperty("-includeresource", "a.txt;literal=a");
+			Jar jar = b.build();
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			jar.write(out);
+			release.put(new ByteArrayInputStream(out.toByteArray()), new RepositoryPlugin.PutOptions());
+		}
+
+		Container after = project.getBundle("org.apache.felix.configadmin", "latest", Strategy.HIGHEST, null);
+		assertEquals(Container.TYPE.REPO, after.getType());
+		assertEquals("99.0.0", after.getVersion());
+	}
+
+	@Test
+	public void testPathsFetchedConcurrently() throws Exception {
+		Workspace ws = getWorkspace(IO.getFile("testresources/ws"));
+		CountDownLatch fetching = new CountDownLatch(3);
+		FileRepo slow = new FileRepo("slow", ws.getFile("cnf/repo"), false) {
+			@Override
+			public File get(String bsn, Version version, Map<String, String> properties,
+				DownloadListener... listeners) throws Exception {
+				// Only returns when all bundles are fetched at the same time
+				fetching.countDown();
+				if (!fetching.await(10, TimeUnit.SECONDS))
+					return null;
+				return super.get(bsn, version, properties, listeners);
+			}
+		};
+		ws.addBasicPlugin(slow);
+		Project project = ws.getProject("p1");
+		project.setProperty(Constants.BUILDPATH,
+			"org.apache.felix.configadmin;version='[1.0,1.1)';repo=slow,osgi.core;version=4.2.1;repo=slow");
+		project.setProperty(Constants.TESTPATH, "org.apache.felix.configadmin;version='[1.1,2)';repo=slow");
+
+		assertThat(project.getBuildpath()).extracting(Container::getBundleSymbolicName, Container::getVersion)
+			.containsExactly(tuple("org.apache.felix.configadmin", "1.0.1"), tuple("osgi.core", "4.2.1"));
+		assertThat(project.getTestpath()).extracting(Container::getBundleSymbolicName, Container::getVersion)
+			.containsExactly(tuple("org.apache.felix.configadmin", "1.1.0"));
+		assertTrue(project.check());
+	}
+
 	/**
 	 * Check if the getSubBuilders properly predicts the output.
 	 */
@@ -302,4 +302,71 @@ public class WorkspaceTest {
 			assertEquals(version, w.getProperty("javac.target"));
 		}
 	}
+
+	@Test
+	public void testAffectedProjects() throws Exception {
+		IO.mkdirs(IO.getFile(testDir, "cnf/includes"));
+		IO.mkdirs(IO.getFile(testDir, "p1"));
+		IO.mkdirs(IO.getFile(testDir, "p2"));
+		IO.mkdirs(IO.getFile(testDir, "p3"));
+		IO.store("", IO.getFile(testDir, "cnf/build.bnd"));
+		IO.store("shared: true\n", IO.getFile(testDir, "cnf/includes/shared.bnd"));
+		IO.store("-include: ${workspace}/cnf/includes/shared.bnd\n" //
+			+ "-buildpath: org.example.a;version=latest\n", IO.getFile(testDir, "p1/bnd.bnd"));
+		IO.store("-testpath: org.example.b;version=latest,org.example.b;version=1.0\n" //
+			+ "lib: ${repo;org.example.c;latest}\n", IO.getFile(testDir, "p2/bnd.bnd"));
+		IO.store("", IO.getFile(testDir, "p3/bnd.bnd"));
+		IO.store("Bundle-Version: 1\n", IO.getFile(testDir, "p3/sub.bnd"));
+		try (Workspace ws = new Workspace(testDir)) {
+			Project p1 = ws.getProject("p1");
+			Project p2 = ws.getProject("p2");
+			Project p3 = ws.getProject("p3");
+
+			assertThat(ws.getAffectedProjects(Collections.singleton(IO.getFile(testDir, "cnf/includes/shared.bnd"))))
+				.containsExactly(p1);
+			assertThat(ws.getAffectedProjects(Collections.singleton(IO.getFile(testDir, "p3/sub.bnd"))))
+				.containsExactly(p3);
+			assertThat(ws.getAffectedProjects(Collections.singleton(IO.getFile(testDir, "cnf/build.bnd"))))
+				.containsExactlyInAnyOrder(p1, p2, p3);
+			assertThat(ws.getAffectedProjects(Collections.singleton(IO.getFile(testDir, "cnf/ext/repos.bnd"))))
+				.containsExactlyInAnyOrder(p1, p2, p3);
+			assertThat(ws.getAffectedProjects(Collections.singleton(IO.getFile(testDir, "p1/src/Foo.java"))))
+				.isEmpty();
+
+			assertThat(ws.getAffectedProjectsByBsn(Collections.singleton("org.example.a"))).containsExactly(p1);
+			assertThat(ws.getAffectedProjectsByBsn(Collections.singleton("org.example.b"))).containsExactly(p2);
+			assertThat(ws.getAffectedProjectsByBsn(Collections.singleton("org.example.c"))).containsExactly(p2);
+			assertThat(ws.getAffectedProjectsByBsn(Collections.singleton("org.example"))).isEmpty();
+		}
+	}
+
+	@Test
+	public void testAffectedProjectsByBsnThatCannotBeDecided() throws Exception {
+		IO.mkdirs(IO.getFile(testDir, "cnf"));
+		IO.mkdirs(IO.getFile(testDir, "p1"));
+		IO.mkdirs(IO.getFile(testDir, "p2"));
+		IO.mkdirs(IO.getFile(testDir, "p3"));
+		IO.mkdirs(IO.getFile(testDir, "p4"));
+		IO.store("shared: ${repo;org.example.shared;latest}\n", IO.getFile(testDir, "cnf/build.bnd"));
+		IO.store("-buildpath: lib/foo.jar;version=file\n", IO.getFile(testDir, "p1/bnd.bnd"));
+		IO.store("-buildpath: ${repo;org.example.a;latest}\n", IO.getFile(testDir, "p2/bnd.bnd"));
+		IO.store("-includeresource: @${repo;org.example.b;latest}\n", IO.getFile(testDir, "p3/bnd.bnd"));
+		IO.store("dep: org.example.c\n" //
+			+ "-includeresource: ${repo;${dep};latest}\n", IO.getFile(testDir, "p4/bnd.bnd"));
+		try (Workspace ws = new Workspace(testDir)) {
+			Project p1 = ws.getProject("p1");
+			Project p2 = ws.getProject("p2");
+			Project p3 = ws.getProject("p3");
+			Project p4 = ws.getProject("p4");
+
+			assertThat(ws.getAffectedProjectsByBsn(Collections.singleton("org.example.shared")))
+				.containsExactlyInAnyOrder(p1, p2, p3, p4);
+			assertThat(ws.getAffectedProjectsByBsn(Collections.singleton("org.example.a")))
+				.containsExactlyInAnyOrder(p1, p2, p4);
+			assertThat(ws.getAffectedProjectsByBsn(Collections.singleton("org.example.b")))
+				.containsExactlyInAnyOrder(p1, p3, p4);
+			assertThat(ws.getAffectedProjectsByBsn(Collections.singleton("org.example.c")))
+				.containsExactlyInAnyOrder(p1, p4);
+		}
+	}
 }
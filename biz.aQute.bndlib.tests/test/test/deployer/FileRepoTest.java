@@ -34,6 +34,7 @@ import aQute.bnd.service.RepositoryPlugin.PutResult;
 import aQute.bnd.service.repository.SearchableRepository.ResourceDescriptor;
 import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
 import aQute.bnd.version.Version;
+import aQute.bnd.version.VersionRange;
 import aQute.lib.deployer.FileRepo;
 import aQute.lib.io.IO;
 import aQute.libg.cryptography.SHA1;
@@ -185,6 +186,90 @@ public class FileRepoTest {
 		assertThat(list).isEmpty();
 	}
 
+	@Test
+	public void testVersionsFollowChanges() throws Exception {
+		File root = IO.getFile(tmp, "versions");
+		FileRepo repo = new FileRepo("versions", root, true);
+		try {
+			PutResult r = repo.put(IO.stream(IO.getFile("jar/osgi.jar")), null);
+			assertThat(repo.versions("osgi")).containsExactly(new Version("4.0.0"));
+			assertThat(repo.list(null)).containsExactly("osgi");
+
+			// external changes
+			File file = new File(r.artifact);
+			IO.copy(file, new File(file.getParentFile(), "osgi-4.5.0.jar"));
+			IO.copy(file, new File(file.getParentFile(), "osgi-5.1.0.jar"));
+			IO.mkdirs(new File(root, "other"));
+			IO.copy(file, new File(root, "other/other-1.0.0.jar"));
+			long deadline = System.currentTimeMillis() + 10_000L;
+			while ((repo.versions("osgi")
+				.size() != 3
+				|| repo.list(null)
+					.size() != 2)
+				&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(10L);
+			}
+			assertThat(repo.versions("osgi")).containsExactly(new Version("4.0.0"), new Version("4.5.0"),
+				new Version("5.1.0"));
+			assertThat(repo.list(null)).containsExactly("osgi", "other");
+			assertThat(repo.versions("other")).containsExactly(new Version("1.0.0"));
+
+			assertThat(repo.versions("osgi", new VersionRange("[4.1,5)"))).containsExactly(new Version("4.5.0"));
+			assertThat(repo.versions("osgi", new VersionRange("4.5"))).containsExactly(new Version("4.5.0"),
+				new Version("5.1.0"));
+			assertThat(repo.versions("osgi", new VersionRange("(4.0,4.5)"))).isEmpty();
+
+			// refresh rescans
+			IO.delete(new File(root, "other"));
+			repo.refresh();
+			assertThat(repo.list(null)).containsExactly("osgi");
+			assertThat(repo.versions("other")).isEmpty();
+		} finally {
+			repo.close();
+		}
+	}
+
+	@Test
+	public void testExternalChangesSeenImmediately() throws Exception {
+		File root = IO.getFile(tmp, "immediate");
+		FileRepo repo = new FileRepo("immediate", root, true);
+		try {
+			PutResult r = repo.put(IO.stream(IO.getFile("jar/osgi.jar")), null);
+			assertThat(repo.versions("osgi")).containsExactly(new Version("4.0.0"));
+			assertThat(repo.versions("missing")).isEmpty();
+			assertThatThrownBy(() -> repo.versions("missing")
+				.add(new Version("1.0.0"))).isInstanceOf(UnsupportedOperationException.class);
+
+			// no waiting for the watch service
+			File dir = new File(r.artifact).getParentFile();
+			IO.copy(new File(r.artifact), new File(dir, "osgi-4.5.0.jar"));
+			dir.setLastModified(dir.lastModified() + 2000L);
+			assertThat(repo.versions("osgi")).containsExactly(new Version("4.0.0"), new Version("4.5.0"));
+
+			IO.delete(new File(dir, "osgi-4.5.0.jar"));
+			dir.setLastModified(dir.lastModified() + 2000L);
+			assertThat(repo.versions("osgi")).containsExactly(new Version("4.0.0"));
+		} finally {
+			repo.close();
+		}
+	}
+
+	@Test
+	public void testWatcherRunsOnDaemonThread() throws Exception {
+		File root = IO.getFile(tmp, "watcher");
+		FileRepo repo = new FileRepo("watcher", root, true);
+		try {
+			repo.put(IO.stream(IO.getFile("jar/osgi.jar")), null);
+			assertThat(repo.versions("osgi")).containsExactly(new Version("4.0.0"));
+			assertThat(Thread.getAllStackTraces()
+				.keySet()).filteredOn(t -> t.getName()
+					.equals("Bnd-FileRepoWatcher"))
+					.allMatch(Thread::isDaemon);
+		} finally {
+			repo.close();
+		}
+	}
+
 	@Test
 	public void testBundleNotModifiedOnPut() throws Exception {
 		MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
@@ -0,0 +1,548 @@
+package aQute.bnd.build;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import aQute.lib.collections.Iterables;
+import aQute.lib.io.IO;
+import aQute.lib.io.IOConstants;
+
+/**
+ * A persistent table of the class files contained in the bundles of a
+ * workspace.
+ * <p>
+ * The table is a file in the workspace cache that holds, sorted on the path
+ * of the bundle file, the sorted names of the class entries in each bundle.
+ * It is memory mapped, so a lookup is a binary search that does not need to
+ * read the table into the heap or open the bundle. Each bundle is recorded
+ * with the last modified time and length of its file. When the file changes
+ * the bundle is indexed again.
+ * <p>
+ * Bundles that are indexed are kept in memory until the table is flushed.
+ * Flushing writes a new generation of the table file, so readers of an older
+ * generation, possibly in another process, are not disturbed. A generation is
+ * named after the time it was written and a unique id, so writers in different
+ * processes never replace each other's files.
+ */
+final class ClassIndexTable implements Closeable {
+	private final static int					MAGIC			= 0x42434931;	// BCI1
+	private final static String					PREFIX			= "classindex-";
+	private final static String					SUFFIX			= ".db";
+	private final static String					TMP				= ".tmp";
+	private final static long					STALE			= TimeUnit.MINUTES.toMillis(10);
+	private final static int					HEADER			= 12;
+	private final static int					BUNDLE_RECORD	= 32;
+	private final static int					CLASS_RECORD	= 8;
+	private final static Comparator<byte[]>		ORDER			= ClassIndexTable::compare;
+	private final static Comparator<File>		GENERATIONS		= Comparator
+		.comparingLong(ClassIndexTable::generation)
+		.thenComparing(File::getName);
+
+	private final File							dir;
+	private final ConcurrentMap<String, Bundle>	added			= new ConcurrentHashMap<>();
+	private final Set<String>					written			= ConcurrentHashMap.newKeySet();
+	private volatile Table						table;
+	private boolean								closed;
+
+	ClassIndexTable(File dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * Answer if the bundle contains the given class entry. If the bundle is
+	 * not in the table, or has changed since it was indexed, it is indexed
+	 * first.
+	 *
+	 * @param file the bundle, a jar file or a directory
+	 * @param path the path of the class entry, for example
+	 *            {@code org/osgi/framework/Bundle.class}
+	 * @return {@code true} if the bundle contains the class entry
+	 */
+	boolean contains(File file, String path) throws IOException {
+		if (!file.isFile()) {
+			return IO.getFile(file, path)
+				.isFile();
+		}
+		String key = IO.absolutePath(file);
+		long lastModified = file.lastModified();
+		long length = file.length();
+		byte[] name = path.getBytes(UTF_8);
+
+		Bundle bundle = added.get(key);
+		if (bundle != null && bundle.isCurrent(lastModified, length)) {
+			return bundle.contains(name);
+		}
+
+		Table t = table();
+		if (t != null) {
+			int index = t.find(key.getBytes(UTF_8));
+			if (index >= 0 && t.lastModified(index) == lastModified && t.length(index) == length) {
+				return t.contains(index, name);
+			}
+		}
+
+		bundle = Bundle.read(key, file, lastModified, length);
+		added.put(key, bundle);
+		return bundle.contains(name);
+	}
+
+	/**
+	 * Write the bundles indexed since the last flush to a new generation of
+	 * the table. Bundles whose file has disappeared or changed are removed from
+	 * the table.
+	 */
+	synchronized void flush() throws IOException {
+		if (closed) {
+			return;
+		}
+		Table t = table();
+		List<Entry> entries = new ArrayList<>();
+		boolean changed = !added.isEmpty();
+		if (t != null) {
+			for (int i = 0; i < t.bundles; i++) {
+				String key = t.key(i);
+				if (added.containsKey(key)) {
+					continue;
+				}
+				File file = new File(key);
+				if (file.lastModified() != t.lastModified(i) || file.length() != t.length(i)) {
+					changed = true;
+					continue;
+				}
+				entries.add(new TableEntry(t, i));
+			}
+		}
+		if (!changed) {
+			return;
+		}
+		Map<String, Bundle> flushed = new ConcurrentHashMap<>(added);
+		for (Bundle bundle : flushed.values()) {
+			entries.add(bundle);
+		}
+		entries.sort((a, b) -> compare(a.key(), b.key()));
+
+		IO.mkdirs(dir);
+		File tmp = File.createTempFile(PREFIX, TMP, dir);
+		try {
+			write(tmp, entries);
+			String id = tmp.getName()
+				.substring(PREFIX.length(), tmp.getName()
+					.length() - TMP.length());
+			File target = new File(dir, PREFIX + Long.toString(System.currentTimeMillis()) + "-" + id + SUFFIX);
+			// fails instead of replacing if the target exists
+			Files.move(tmp.toPath(), target.toPath());
+			written.add(target.getName());
+			Table next = Table.open(target);
+			if (next != null) {
+				table = next;
+				flushed.forEach(added::remove);
+				purge(target);
+			}
+		} finally {
+			IO.delete(tmp);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			closed = true;
+			table = null;
+			added.clear();
+		}
+	}
+
+	private Table table() {
+		Table t = table;
+		if (t == null) {
+			synchronized (this) {
+				t = table;
+				if (t == null && !closed) {
+					table = t = Table.open(newest());
+				}
+			}
+		}
+		return t;
+	}
+
+	private File newest() {
+		return IO.listFiles(dir, (d, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+			.stream()
+			.max(GENERATIONS)
+			.orElse(null);
+	}
+
+	/*
+	 * Older generations written by this table are deleted when possible. Files
+	 * of other processes, older generations or temporary files that are still
+	 * being written, are only deleted once they are stale. On some platforms a
+	 * mapped file cannot be deleted until it is unmapped, these will be deleted
+	 * by a later flush.
+	 */
+	private void purge(File current) {
+		long stale = System.currentTimeMillis() - STALE;
+		for (File file : IO.listFiles(dir, (d, name) -> name.startsWith(PREFIX))) {
+			String name = file.getName();
+			if (name.endsWith(SUFFIX)) {
+				if (GENERATIONS.compare(file, current) >= 0
+					|| (!written.contains(name) && file.lastModified() >= stale)) {
+					continue;
+				}
+			} else if (file.lastModified() >= stale) {
+				continue;
+			}
+			try {
+				Files.deleteIfExists(file.toPath());
+				written.remove(name);
+			} catch (IOException e) {
+				// in use
+			}
+		}
+	}
+
+	private static long generation(File file) {
+		String name = file.getName();
+		int end = name.indexOf('-', PREFIX.length());
+		try {
+			return Long.parseLong(name.substring(PREFIX.length(), (end < 0) ? name.length() - SUFFIX.length() : end));
+		} catch (RuntimeException e) {
+			return -1L;
+		}
+	}
+
+	private static void write(File file, List<Entry> entries) throws IOException {
+		int classes = 0;
+		for (Entry entry : entries) {
+			classes += entry.size();
+		}
+		try (DataOutputStream out = new DataOutputStream(
+			new BufferedOutputStream(IO.outputStream(file), IOConstants.PAGE_SIZE * 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(entries.size());
+			out.writeInt(classes);
+			int offset = 0;
+			int first = 0;
+			for (Entry entry : entries) {
+				int length = entry.key().length;
+				out.writeInt(offset);
+				out.writeInt(length);
+				out.writeLong(entry.lastModified());
+				out.writeLong(entry.length());
+				out.writeInt(first);
+				out.writeInt(entry.size());
+				offset += length;
+				first += entry.size();
+			}
+			for (Entry entry : entries) {
+				for (int i = 0; i < entry.size(); i++) {
+					int length = entry.nameLength(i);
+					out.writeInt(offset);
+					out.writeInt(length);
+					offset += length;
+				}
+			}
+			for (Entry entry : entries) {
+				out.write(entry.key());
+			}
+			for (Entry entry : entries) {
+				for (int i = 0; i < entry.size(); i++) {
+					entry.writeName(i, out);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Unsigned lexicographic order of UTF-8 bytes
+	 */
+	static int compare(byte[] a, byte[] b) {
+		int n = Math.min(a.length, b.length);
+		for (int i = 0; i < n; i++) {
+			int d = Byte.toUnsignedInt(a[i]) - Byte.toUnsignedInt(b[i]);
+			if (d != 0) {
+				return d;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	static int compare(ByteBuffer bb, int offset, int length, byte[] b) {
+		int n = Math.min(length, b.length);
+		for (int i = 0; i < n; i++) {
+			int d = Byte.toUnsignedInt(bb.get(offset + i)) - Byte.toUnsignedInt(b[i]);
+			if (d != 0) {
+				return d;
+			}
+		}
+		return length - b.length;
+	}
+
+	interface Entry {
+		byte[] key();
+
+		long lastModified();
+
+		long length();
+
+		int size();
+
+		int nameLength(int index);
+
+		void writeName(int index, OutputStream out) throws IOException;
+	}
+
+	/*
+	 * A bundle indexed since the last flush
+	 */
+	final static class Bundle implements Entry {
+		private final byte[]	key;
+		private final long		lastModified;
+		private final long		length;
+		private final byte[][]	names;
+
+		Bundle(String key, long lastModified, long length, byte[][] names) {
+			this.key = key.getBytes(UTF_8);
+			this.lastModified = lastModified;
+			this.length = length;
+			this.names = names;
+		}
+
+		static Bundle read(String key, File file, long lastModified, long length) throws IOException {
+			List<byte[]> names = new ArrayList<>();
+			try (ZipFile zip = new ZipFile(file)) {
+				for (ZipEntry entry : Iterables.iterable(zip.entries())) {
+					String name = entry.getName();
+					if (!entry.isDirectory() && name.endsWith(".class")) {
+						names.add(name.getBytes(UTF_8));
+					}
+				}
+			}
+			byte[][] sorted = names.toArray(new byte[0][]);
+			Arrays.sort(sorted, ORDER);
+			return new Bundle(key, lastModified, length, sorted);
+		}
+
+		boolean isCurrent(long lastModified, long length) {
+			return this.lastModified == lastModified && this.length == length;
+		}
+
+		boolean contains(byte[] name) {
+			return Arrays.binarySearch(names, name, ORDER) >= 0;
+		}
+
+		@Override
+		public byte[] key() {
+			return key;
+		}
+
+		@Override
+		public long lastModified() {
+			return lastModified;
+		}
+
+		@Override
+		public long length() {
+			return length;
+		}
+
+		@Override
+		public int size() {
+			return names.length;
+		}
+
+		@Override
+		public int nameLength(int index) {
+			return names[index].length;
+		}
+
+		@Override
+		public void writeName(int index, OutputStream out) throws IOException {
+			out.write(names[index]);
+		}
+	}
+
+	/*
+	 * A bundle in the current generation of the table
+	 */
+	final static class TableEntry implements Entry {
+		private final Table	table;
+		private final int	index;
+		private final int	first;
+		private final int	size;
+
+		TableEntry(Table table, int index) {
+			this.table = table;
+			this.index = index;
+			this.first = table.first(index);
+			this.size = table.size(index);
+		}
+
+		@Override
+		public byte[] key() {
+			return table.bytes(table.bundleRecord(index));
+		}
+
+		@Override
+		public long lastModified() {
+			return table.lastModified(index);
+		}
+
+		@Override
+		public long length() {
+			return table.length(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public int nameLength(int i) {
+			return table.buffer.getInt(table.classRecord(first + i) + 4);
+		}
+
+		@Override
+		public void writeName(int i, OutputStream out) throws IOException {
+			out.write(table.bytes(table.classRecord(first + i)));
+		}
+	}
+
+	/*
+	 * A mapped generation of the table. Only absolute reads are used on the
+	 * buffer so it can be shared between threads.
+	 */
+	final static class Table {
+		final ByteBuffer	buffer;
+		final int			bundles;
+		final int			classes;
+		final int			pool;
+
+		private Table(ByteBuffer buffer, int bundles, int classes) {
+			this.buffer = buffer;
+			this.bundles = bundles;
+			this.classes = classes;
+			this.pool = HEADER + bundles * BUNDLE_RECORD + classes * CLASS_RECORD;
+		}
+
+		static Table open(File file) {
+			if (file == null) {
+				return null;
+			}
+			Path path = file.toPath();
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				long size = channel.size();
+				if (size < HEADER || size > Integer.MAX_VALUE) {
+					return null;
+				}
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+				int bundles = buffer.getInt(4);
+				int classes = buffer.getInt(8);
+				if (buffer.getInt(0) != MAGIC || bundles < 0 || classes < 0
+					|| HEADER + (long) bundles * BUNDLE_RECORD + (long) classes * CLASS_RECORD > size) {
+					return null;
+				}
+				return new Table(buffer, bundles, classes);
+			} catch (IOException e) {
+				return null;
+			}
+		}
+
+		int find(byte[] key) {
+			int low = 0;
+			int high = bundles - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int record = bundleRecord(mid);
+				int cmp = compare(buffer, pool + buffer.getInt(record), buffer.getInt(record + 4), key);
+				if (cmp < 0) {
+					low = mid + 1;
+				} else if (cmp > 0) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -1;
+		}
+
+		boolean contains(int index, byte[] name) {
+			int low = first(index);
+			int high = low + size(index) - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int record = classRecord(mid);
+				int cmp = compare(buffer, pool + buffer.getInt(record), buffer.getInt(record + 4), name);
+				if (cmp < 0) {
+					low = mid + 1;
+				} else if (cmp > 0) {
+					high = mid - 1;
+				} else {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		String key(int index) {
+			return new String(bytes(bundleRecord(index)), UTF_8);
+		}
+
+		long lastModified(int index) {
+			return buffer.getLong(bundleRecord(index) + 8);
+		}
+
+		long length(int index) {
+			return buffer.getLong(bundleRecord(index) + 16);
+		}
+
+		int first(int index) {
+			return buffer.getInt(bundleRecord(index) + 24);
+		}
+
+		int size(int index) {
+			return buffer.getInt(bundleRecord(index) + 28);
+		}
+
+		int bundleRecord(int index) {
+			return HEADER + index * BUNDLE_RECORD;
+		}
+
+		int classRecord(int index) {
+			return HEADER + bundles * BUNDLE_RECORD + index * CLASS_RECORD;
+		}
+
+		byte[] bytes(int record) {
+			int offset = pool + buffer.getInt(record);
+			byte[] bytes = new byte[buffer.getInt(record + 4)];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = buffer.get(offset + i);
+			}
+			return bytes;
+		}
+	}
+}
@@ -39,6 +39,8 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
@@ -52,6 +54,8 @@ import org.osgi.resource.Capability;
 import org.osgi.resource.Requirement;
 import org.osgi.service.repository.ContentNamespace;
 import org.osgi.service.repository.Repository;
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -87,6 +91,7 @@ import aQute.bnd.osgi.Processor;
 import aQute.bnd.osgi.Resource;
 import aQute.bnd.osgi.Verifier;
 import aQute.bnd.osgi.eclipse.EclipseClasspath;
+import aQute.bnd.osgi.repository.WorkspaceRepositoryMarker;
 import aQute.bnd.osgi.resource.CapReqBuilder;
 import aQute.bnd.osgi.resource.ResourceBuilder;
 import aQute.bnd.osgi.resource.ResourceUtils;
@@ -417,10 +422,16 @@ public class Project extends Processor {
 				// path and extracts the projects so we can build them
 				// before.
 
-				doPath(buildpath, buildDeps, parseBuildpath(), bootclasspath, false, BUILDPATH);
+				// The bundles of both paths are requested before we wait
+				// for any of them so they are downloaded concurrently.
+
+				BundlesRequest buildpathRequest = parseBuildpath();
+				BundlesRequest testpathRequest = parseTestpath();
+
+				doPath(buildpath, buildDeps, buildpathRequest.get(), bootclasspath, false, BUILDPATH);
 
 				Set<Project> testDeps = new LinkedHashSet<>(buildDeps);
-				doPath(testpath, testDeps, parseTestpath(), bootclasspath, false, TESTPATH);
+				doPath(testpath, testDeps, testpathRequest.get(), bootclasspath, false, TESTPATH);
 
 				if (!delayRunDependencies) {
 					doPath(runfw, testDeps, parseRunFw(), null, false, RUNFW);
@@ -574,10 +585,8 @@ public class Project extends Processor {
 	 * from them.
 	 */
 
-	private List<Container> parseBuildpath() throws Exception {
-		List<Container> bundles = getBundles(Strategy.LOWEST, mergeProperties(Constants.BUILDPATH),
-			Constants.BUILDPATH);
-		return bundles;
+	private BundlesRequest parseBuildpath() throws Exception {
+		return requestBundles(Strategy.LOWEST, mergeProperties(Constants.BUILDPATH), Constants.BUILDPATH);
 	}
 
 	private List<Container> parseRunpath() throws Exception {
@@ -598,8 +607,8 @@ public class Project extends Processor {
 		return getBundles(Strategy.HIGHEST, getProperty(Constants.RUNFW), Constants.RUNFW);
 	}
 
-	private List<Container> parseTestpath() throws Exception {
-		return getBundles(Strategy.HIGHEST, mergeProperties(Constants.TESTPATH), Constants.TESTPATH);
+	private BundlesRequest parseTestpath() throws Exception {
+		return requestBundles(Strategy.HIGHEST, mergeProperties(Constants.TESTPATH), Constants.TESTPATH);
 	}
 
 	/**
@@ -615,9 +624,20 @@ public class Project extends Processor {
 	 */
 
 	public List<Container> getBundles(Strategy strategyx, String spec, String source) throws Exception {
+		return requestBundles(strategyx, spec, source).get();
+	}
+
+	/**
+	 * Select the bundles for a header and start fetching the bundles that come
+	 * from repositories. The selection is done in the calling thread, the
+	 * repositories are accessed concurrently. Only {@link BundlesRequest#get()}
+	 * waits for the repositories, so the paths of a project can be requested
+	 * together before any of them is needed.
+	 */
+	private BundlesRequest requestBundles(Strategy strategyx, String spec, String source) throws Exception {
 		Instructions decorator = new Instructions(mergeProperties(source + "+"));
 
-		List<Container> result = new ArrayList<>();
+		BundlesRequest request = new BundlesRequest(spec, source);
 		Parameters bundles = new Parameters(spec, this);
 		decorator.decorate(bundles);
 
@@ -626,18 +646,22 @@ public class Project extends Processor {
 				String bsn = removeDuplicateMarker(entry.getKey());
 				Map<String, String> attrs = entry.getValue();
 
-				Container found = null;
+				Callable<Container> found = null;
 
 				String versionRange = attrs.get("version");
 				boolean triedGetBundle = false;
 
 				if (bsn.indexOf('*') >= 0) {
-					return getBundlesWildcard(bsn, versionRange, strategyx, attrs);
+					request.wildcard = getBundlesWildcard(bsn, versionRange, strategyx, attrs);
+					return request;
 				}
 
 				if (versionRange != null) {
 					if (versionRange.equals(VERSION_ATTR_LATEST) || versionRange.equals(VERSION_ATTR_SNAPSHOT)) {
-						found = getBundle(bsn, versionRange, strategyx, attrs);
+						found = selectBundle(bsn, versionRange, strategyx, attrs);
+						if (!(found instanceof RepositoryFetch) && found.call() == null) {
+							found = null;
+						}
 						triedGetBundle = true;
 					}
 				}
@@ -656,8 +680,9 @@ public class Project extends Processor {
 						Project project = getWorkspace().getProject(bsn);
 						if (project != null && project.exists()) {
 							File f = project.getOutput();
-							found = new Container(project, bsn, versionRange, Container.TYPE.PROJECT, f, null, attrs,
-								null);
+							Container c = new Container(project, bsn, versionRange, Container.TYPE.PROJECT, f, null,
+								attrs, null);
+							found = () -> c;
 						} else {
 							msgs.NoSuchProject(bsn, spec)
 								.context(bsn)
@@ -669,45 +694,126 @@ public class Project extends Processor {
 						String error = null;
 						if (!f.exists())
 							error = "File does not exist: " + IO.absolutePath(f);
+						Container c;
 						if (f.getName()
 							.endsWith(".lib")) {
-							found = new Container(this, bsn, "file", Container.TYPE.LIBRARY, f, error, attrs, null);
+							c = new Container(this, bsn, "file", Container.TYPE.LIBRARY, f, error, attrs, null);
 						} else {
-							found = new Container(this, bsn, "file", Container.TYPE.EXTERNAL, f, error, attrs, null);
+							c = new Container(this, bsn, "file", Container.TYPE.EXTERNAL, f, error, attrs, null);
 						}
+						found = () -> c;
 					} else if (!triedGetBundle) {
-						found = getBundle(bsn, versionRange, strategyx, attrs);
+						found = selectBundle(bsn, versionRange, strategyx, attrs);
 					}
 				}
 
-				if (found != null) {
-					List<Container> libs = found.getMembers();
-					for (Container cc : libs) {
-						if (result.contains(cc)) {
-							if (isPedantic())
-								warning("Multiple bundles with the same final URL: %s, dropped duplicate", cc);
-						} else {
-							result.add(cc);
+				request.add(bsn, versionRange, attrs, found);
+			}
+		} catch (Exception e) {
+			request.failure = e;
+		}
+		return request;
+	}
+
+	/**
+	 * The bundles of a header while they are fetched from the repositories.
+	 */
+	private final class BundlesRequest {
+		final String			spec;
+		final String			source;
+		final List<Pending>		entries	= new ArrayList<>();
+		List<Container>			wildcard;
+		Exception				failure;
+
+		final class Pending {
+			final String				bsn;
+			final String				versionRange;
+			final Map<String, String>	attrs;
+			final Promise<Container>	found;
+
+			Pending(String bsn, String versionRange, Map<String, String> attrs, Promise<Container> found) {
+				this.bsn = bsn;
+				this.versionRange = versionRange;
+				this.attrs = attrs;
+				this.found = found;
+			}
+		}
+
+		BundlesRequest(String spec, String source) {
+			this.spec = spec;
+			this.source = source;
+		}
+
+		void add(String bsn, String versionRange, Map<String, String> attrs, Callable<Container> found) {
+			PromiseFactory promiseFactory = Processor.getPromiseFactory();
+			Promise<Container> promise;
+			if (found == null) {
+				promise = promiseFactory.resolved(null);
+			} else if (found instanceof RepositoryFetch && ((RepositoryFetch) found).isConcurrent()) {
+				Semaphore downloads = getWorkspace().downloads;
+				promise = promiseFactory.submit(() -> {
+					downloads.acquire();
+					try {
+						return found.call();
+					} finally {
+						downloads.release();
+					}
+				});
+			} else {
+				try {
+					promise = promiseFactory.resolved(found.call());
+				} catch (Exception e) {
+					promise = promiseFactory.failed(e);
+				}
+			}
+			entries.add(new Pending(bsn, versionRange, attrs, promise));
+		}
+
+		/**
+		 * Wait for the bundles and answer the containers.
+		 */
+		List<Container> get() throws Exception {
+			List<Container> result = new ArrayList<>();
+			try {
+				for (Pending entry : entries) {
+					Throwable f = entry.found.getFailure();
+					if (f != null) {
+						throw Exceptions.duck(f);
+					}
+					Container found = entry.found.getValue();
+					if (found != null) {
+						List<Container> libs = found.getMembers();
+						for (Container cc : libs) {
+							if (result.contains(cc)) {
+								if (isPedantic())
+									warning("Multiple bundles with the same final URL: %s, dropped duplicate", cc);
+							} else {
+								result.add(cc);
+							}
 						}
+					} else {
+						// Oops, not a bundle in sight :-(
+						Container x = new Container(Project.this, entry.bsn, entry.versionRange,
+							Container.TYPE.ERROR, null, entry.bsn + ";version=" + entry.versionRange + " not found",
+							entry.attrs, null);
+						result.add(x);
+						error("Can not find URL for bsn %s", entry.bsn).context(entry.bsn)
+							.header(source);
 					}
-				} else {
-					// Oops, not a bundle in sight :-(
-					Container x = new Container(this, bsn, versionRange, Container.TYPE.ERROR, null,
-						bsn + ";version=" + versionRange + " not found", attrs, null);
-					result.add(x);
-					error("Can not find URL for bsn %s", bsn).context(bsn)
-						.header(source);
 				}
+				if (failure != null) {
+					throw failure;
+				}
+			} catch (CircularDependencyException e) {
+				String message = e.getMessage();
+				if (source != null)
+					message = String.format("%s (from property: %s)", message, source);
+				msgs.CircularDependencyContext_Message_(getName(), message);
+			} catch (IOException e) {
+				exception(e, "Unexpected exception in get bundles", spec);
 			}
-		} catch (CircularDependencyException e) {
-			String message = e.getMessage();
-			if (source != null)
-				message = String.format("%s (from property: %s)", message, source);
-			msgs.CircularDependencyContext_Message_(getName(), message);
-		} catch (IOException e) {
-			exception(e, "Unexpected exception in get bundles", spec);
+			return (wildcard != null) ? wildcard : result;
 		}
-		return result;
 	}
 
 	/**
@@ -1136,6 +1242,7 @@ public class Project extends Processor {
 			// TODO find sub bnd that is associated with this thing
 			putOptions.context = context;
 			PutResult r = releaseRepo.put(jarStream, putOptions);
+			workspace.repositoryVersions.clear();
 			logger.debug("Released {} to {} in repository {}", jarName, r.artifact, releaseRepo);
 			return r.artifact;
 		} catch (Exception e) {
@@ -1237,14 +1344,28 @@ public class Project extends Processor {
 
 	public Container getBundle(String bsn, String range, Strategy strategy, Map<String, String> attrs)
 		throws Exception {
+		return selectBundle(bsn, range, strategy, attrs).call();
+	}
+
+	/**
+	 * Select the bundle for {@link #getBundle(String, String, Strategy, Map)}.
+	 * The selection is done in the calling thread. When the bundle must be
+	 * fetched from a repository, the returned {@link RepositoryFetch} does
+	 * this so that {@link #getBundles(Strategy, String, String)} can fetch
+	 * several bundles concurrently.
+	 */
+	private Callable<Container> selectBundle(String bsn, String range, Strategy strategy, Map<String, String> attrs)
+		throws Exception {
 
 		if (range == null)
 			range = "0";
 
 		if (VERSION_ATTR_SNAPSHOT.equals(range) || VERSION_ATTR_PROJECT.equals(range)) {
-			return getBundleFromProject(bsn, attrs);
+			Container c = getBundleFromProject(bsn, attrs);
+			return () -> c;
 		} else if (VERSION_ATTR_HASH.equals(range)) {
-			return getBundleByHash(bsn, attrs);
+			Container c = getBundleByHash(bsn, attrs);
+			return () -> c;
 		}
 
 		Strategy useStrategy = strategy;
@@ -1252,7 +1373,7 @@ public class Project extends Processor {
 		if (VERSION_ATTR_LATEST.equals(range)) {
 			Container c = getBundleFromProject(bsn, attrs);
 			if (c != null)
-				return c;
+				return () -> c;
 
 			useStrategy = Strategy.HIGHEST;
 		}
@@ -1263,60 +1384,50 @@ public class Project extends Processor {
 		List<RepositoryPlugin> plugins = workspace.getRepositories();
 
 		if (useStrategy == Strategy.EXACT) {
-			if (!Verifier.isVersion(range))
-				return new Container(this, bsn, range, Container.TYPE.ERROR, null,
+			if (!Verifier.isVersion(range)) {
+				Container c = new Container(this, bsn, range, Container.TYPE.ERROR, null,
 					bsn + ";version=" + range + " Invalid version", null, null);
+				return () -> c;
+			}
 
 			// For an exact range we just iterate over the repos
 			// and return the first we find.
-			Version version = new Version(range);
-			for (RepositoryPlugin plugin : plugins) {
-				DownloadBlocker blocker = new DownloadBlocker(this);
-				File result = plugin.get(bsn, version, attrs, blocker);
-				if (result != null)
-					return toContainer(bsn, range, attrs, result, blocker);
-			}
+			return new RepositoryFetch(bsn, range, attrs, new Version(range), plugins,
+				notFoundContainer(bsn, range, plugins));
 		} else {
 			VersionRange versionRange = VERSION_ATTR_LATEST.equals(range) ? new VersionRange("0")
 				: new VersionRange(range);
 
 			// We have a range search. Gather all the versions in all the repos
-			// and make a decision on that choice. If the same version is found
-			// in
-			// multiple repos we take the first
-
-			SortedMap<Version, RepositoryPlugin> versions = new TreeMap<>();
-			for (RepositoryPlugin plugin : plugins) {
-
-				if (repoFilter != null && !repoFilter.match(plugin))
-					continue;
-
-				try {
-					SortedSet<Version> vs = plugin.versions(bsn);
-					if (vs != null) {
-						for (Version v : vs) {
-							if (!versions.containsKey(v) && versionRange.includes(v))
-								versions.put(v, plugin);
-						}
-					}
-				} catch (UnsupportedOperationException ose) {
-					// We have a plugin that cannot list versions, try
-					// if it has this specific version
-					// The main reaosn for this code was the Maven Remote
-					// Repository
-					// To query, we must have a real version
-					if (!versions.isEmpty() && Verifier.isVersion(range)) {
-						Version version = new Version(range);
-						DownloadBlocker blocker = new DownloadBlocker(this);
-						File file = plugin.get(bsn, version, attrs, blocker);
-						// and the entry must exist
-						// if it does, return this as a result
-						if (file != null)
-							return toContainer(bsn, range, attrs, file, blocker);
+			// and make a decision on that choice. The versions in the repos
+			// are cached for the workspace since the same bundles are
+			// requested by many projects.
+
+			RepositoryVersionCache.Versions available = workspace.repositoryVersions.get(bsn, range, versionRange,
+				(attrs == null) ? null : attrs.get("repo"), plugins,
+				(repoFilter == null) ? plugin -> true : repoFilter::match);
+
+			// We have a plugin that cannot list versions, try
+			// if it has this specific version
+			// The main reaosn for this code was the Maven Remote
+			// Repository
+			// To query, we must have a real version
+			if (Verifier.isVersion(range)) {
+				for (RepositoryPlugin plugin : available.unlisted) {
+					Version version = new Version(range);
+					DownloadBlocker blocker = new DownloadBlocker(this);
+					File file = plugin.get(bsn, version, attrs, blocker);
+					// and the entry must exist
+					// if it does, return this as a result
+					if (file != null) {
+						Container c = toContainer(bsn, range, attrs, file, blocker);
+						return () -> c;
 					}
 				}
 			}
 
+			SortedMap<Version, RepositoryPlugin> versions = new TreeMap<>(available.versions);
+
 			//
 			// We have to augment the list of returned versions
 			// with info from the workspace. We use null as a marker
@@ -1353,14 +1464,12 @@ public class Project extends Processor {
 					if (repo == null) {
 						// A null provider indicates that we have a local
 						// project
-						return getBundleFromProject(bsn, attrs);
+						Container c = getBundleFromProject(bsn, attrs);
+						return () -> c;
 					}
 
-					String version = provider.toString();
-					DownloadBlocker blocker = new DownloadBlocker(this);
-					File result = repo.get(bsn, provider, attrs, blocker);
-					if (result != null)
-						return toContainer(bsn, version, attrs, result, blocker);
+					return new RepositoryFetch(bsn, provider.toString(), attrs, provider,
+						Collections.singletonList(repo), notFoundContainer(bsn, range, plugins));
 				} else {
 					msgs.FoundVersions_ForStrategy_ButNoProvider(versions, useStrategy);
 				}
@@ -1371,9 +1480,59 @@ public class Project extends Processor {
 		// If we get this far we ran into an error somewhere
 		//
 
+		Container c = notFoundContainer(bsn, range, plugins);
+		return () -> c;
+	}
+
+	private Container notFoundContainer(String bsn, String range, List<RepositoryPlugin> plugins) {
 		return new Container(this, bsn, range, Container.TYPE.ERROR, null,
 			bsn + ";version=" + range + " Not found in " + plugins, null, null);
+	}
+
+	/**
+	 * Get a bundle from the first repository that has it. This can block while
+	 * the repository downloads the bundle.
+	 */
+	private class RepositoryFetch implements Callable<Container> {
+		final String					bsn;
+		final String					range;
+		final Map<String, String>		attrs;
+		final Version					version;
+		final List<RepositoryPlugin>	plugins;
+		final Container					notFound;
+
+		RepositoryFetch(String bsn, String range, Map<String, String> attrs, Version version,
+			List<RepositoryPlugin> plugins, Container notFound) {
+			this.bsn = bsn;
+			this.range = range;
+			this.attrs = attrs;
+			this.version = version;
+			this.plugins = plugins;
+			this.notFound = notFound;
+		}
+
+		/*
+		 * The workspace repositories build projects, which must happen in the
+		 * thread that prepares the project to detect circular dependencies.
+		 */
+		boolean isConcurrent() {
+			for (RepositoryPlugin plugin : plugins) {
+				if (plugin instanceof WorkspaceRepository || plugin instanceof WorkspaceRepositoryMarker)
+					return false;
+			}
+			return true;
+		}
 
+		@Override
+		public Container call() throws Exception {
+			for (RepositoryPlugin plugin : plugins) {
+				DownloadBlocker blocker = new DownloadBlocker(Project.this);
+				File result = plugin.get(bsn, version, attrs, blocker);
+				if (result != null)
+					return toContainer(bsn, range, attrs, result, blocker);
+			}
+			return notFound;
+		}
 	}
 
 	/**
@@ -1568,6 +1727,7 @@ public class Project extends Processor {
 		if (rp != null) {
 			try (InputStream stream = new BufferedInputStream(IO.stream(file))) {
 				rp.put(stream, new RepositoryPlugin.PutOptions());
+				workspace.repositoryVersions.clear();
 			} catch (Exception e) {
 				msgs.DeployingFile_On_Exception_(file, rp.getName(), e);
 			}
@@ -1739,6 +1899,7 @@ public class Project extends Processor {
 			options.context = p;
 			try (InputStream in = IO.stream(f)) {
 				repo.put(in, options);
+				workspace.repositoryVersions.clear();
 			} catch (Exception e) {
 				exception(e, "Cannot install %s into %s because %s", f, repo.getName(), e);
 			}
@@ -2541,7 +2702,9 @@ public class Project extends Processor {
 			logger.error("Tests not run because project has errors");
 			return;
 		}
-		int errors = tester.test();
+		int shards = getTestShards();
+		int errors = ((shards > 1) && !tester.getContinuous()) ? new TestShards(this, tester, shards).test()
+			: tester.test();
 		if (errors == 0) {
 			logger.info("No Errors");
 		} else {
@@ -2553,6 +2716,19 @@ public class Project extends Processor {
 		}
 	}
 
+	private int getTestShards() {
+		String shards = getProperty(Constants.TESTSHARDS);
+		if (shards == null) {
+			return 1;
+		}
+		try {
+			return Integer.parseInt(shards.trim());
+		} catch (NumberFormatException e) {
+			error("%s must be a number of shards: %s", Constants.TESTSHARDS, shards);
+			return 1;
+		}
+	}
+
 	/**
 	 * Run JUnit
 	 *
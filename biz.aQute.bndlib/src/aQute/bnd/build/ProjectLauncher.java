@@ -48,6 +48,7 @@ import aQute.lib.watcher.FileWatcher;
 import aQute.lib.watcher.FileWatcher.Builder;
 import aQute.libg.command.Command;
 import aQute.libg.generics.Create;
+import aQute.service.reporter.Reporter;
 
 /**
  * A Project Launcher is a base class to be extended by launchers. Launchers are
@@ -76,6 +77,7 @@ public abstract class ProjectLauncher extends Processor {
 	private Parameters					runsystemcapabilities;
 	private final List<String>			activators			= Create.list();
 	private File						storageDir;
+	private Reporter					reporter;
 	protected BuilderInstructions		builderInstrs;
 	protected LauncherInstructions		launcherInstrs;
 
@@ -309,6 +311,15 @@ public abstract class ProjectLauncher extends Processor {
 		return storageDir;
 	}
 
+	/**
+	 * Set the directory of the framework storage. This overrides the
+	 * {@link Constants#RUNSTORAGE} of the project until the launcher is
+	 * updated from the project.
+	 */
+	public void setStorageDir(File storageDir) {
+		this.storageDir = storageDir;
+	}
+
 	public abstract String getMainTypeName();
 
 	public void update() throws Exception {
@@ -460,22 +471,39 @@ public abstract class ProjectLauncher extends Processor {
 				logger.debug("Command terminated normal {}", java);
 				break;
 			case TIMEDOUT :
-				getProject().error("Launch timedout: %s", java);
+				getReporter().error("Launch timedout: %s", java);
 				break;
 
 			case ERROR :
-				getProject().error("Launch errored: %s", java);
+				getReporter().error("Launch errored: %s", java);
 				break;
 
 			case WARNING :
-				getProject().warning("Launch had a warning %s", java);
+				getReporter().warning("Launch had a warning %s", java);
 				break;
 			default :
-				getProject().error("Exit code remote process %d: %s", result, java);
+				getReporter().error("Exit code remote process %d: %s", result, java);
 				break;
 		}
 	}
 
+	/**
+	 * Answer the reporter of the launch results. This is the project unless
+	 * another reporter was set.
+	 */
+	public Reporter getReporter() {
+		return (reporter != null) ? reporter : getProject();
+	}
+
+	/**
+	 * Set the reporter of the launch results. Launchers that run concurrently
+	 * for the same project use their own reporter and the caller merges the
+	 * messages into the project afterwards.
+	 */
+	public void setReporter(Reporter reporter) {
+		this.reporter = reporter;
+	}
+
 	public void setTimeout(long timeout, TimeUnit unit) {
 		this.timeout = unit.convert(timeout, TimeUnit.MILLISECONDS);
 	}
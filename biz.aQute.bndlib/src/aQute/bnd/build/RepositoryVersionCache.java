@@ -0,0 +1,164 @@
+package aQute.bnd.build;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
+
+import aQute.bnd.exceptions.Exceptions;
+import aQute.bnd.osgi.Jar;
+import aQute.bnd.osgi.Processor;
+import aQute.bnd.service.RepositoryListenerPlugin;
+import aQute.bnd.service.RepositoryPlugin;
+import aQute.bnd.version.Version;
+import aQute.bnd.version.VersionRange;
+
+/**
+ * Caches the versions of a bundle that are available in the repositories of a
+ * workspace for {@link Project#getBundle(String, String, Strategy, java.util.Map)}.
+ * <p>
+ * The same bsn and range are looked up for the build path, test path and run
+ * bundles of many projects. The answer only changes when a repository changes,
+ * so it is cached for the workspace. The cache is cleared when the workspace
+ * or a repository is refreshed and when a bundle is added to or removed from a
+ * repository. When the versions are not cached, the repositories are queried
+ * concurrently.
+ */
+final class RepositoryVersionCache implements RepositoryListenerPlugin {
+	private final ConcurrentMap<String, Versions>	cache		= new ConcurrentHashMap<>();
+	private final AtomicLong						generation	= new AtomicLong();
+
+	/**
+	 * The versions of a bundle in the repositories.
+	 */
+	final static class Versions {
+		/**
+		 * The matching versions, mapped to the first repository that has the
+		 * version.
+		 */
+		final SortedMap<Version, RepositoryPlugin>	versions;
+		/**
+		 * Repositories that cannot list their versions. These are only
+		 * recorded when versions were found in an earlier repository.
+		 */
+		final List<RepositoryPlugin>				unlisted;
+
+		Versions(SortedMap<Version, RepositoryPlugin> versions, List<RepositoryPlugin> unlisted) {
+			this.versions = Collections.unmodifiableSortedMap(versions);
+			this.unlisted = Collections.unmodifiableList(unlisted);
+		}
+	}
+
+	/**
+	 * Answer the versions of a bundle in the given repositories.
+	 *
+	 * @param bsn the bundle symbolic name
+	 * @param range the version range as specified
+	 * @param versionRange the parsed version range
+	 * @param repoFilter the specification of the repository filter or
+	 *            {@code null}
+	 * @param plugins the repositories in declaration order
+	 * @param accept the repository filter
+	 */
+	Versions get(String bsn, String range, VersionRange versionRange, String repoFilter,
+		List<RepositoryPlugin> plugins, Predicate<RepositoryPlugin> accept) throws Exception {
+		String key = bsn + ';' + range + ';' + repoFilter;
+		Versions versions = cache.get(key);
+		if (versions != null) {
+			return versions;
+		}
+		long start = generation.get();
+		versions = load(bsn, versionRange, plugins, accept);
+		if (generation.get() == start) {
+			// only cache when not cleared while loading
+			cache.putIfAbsent(key, versions);
+		}
+		return versions;
+	}
+
+	private Versions load(String bsn, VersionRange versionRange, List<RepositoryPlugin> plugins,
+		Predicate<RepositoryPlugin> accept) throws Exception {
+		List<RepositoryPlugin> selected = new ArrayList<>(plugins.size());
+		for (RepositoryPlugin plugin : plugins) {
+			if (accept.test(plugin)) {
+				selected.add(plugin);
+			}
+		}
+
+		List<Promise<SortedSet<Version>>> promises = new ArrayList<>(selected.size());
+		PromiseFactory promiseFactory = Processor.getPromiseFactory();
+		for (RepositoryPlugin plugin : selected) {
+			if (selected.size() == 1) {
+				try {
+					promises.add(promiseFactory.resolved(plugin.versions(bsn)));
+				} catch (Exception e) {
+					promises.add(promiseFactory.failed(e));
+				}
+			} else {
+				promises.add(promiseFactory.submit(() -> plugin.versions(bsn)));
+			}
+		}
+
+		// If the same version is found in multiple repos we take the first
+		SortedMap<Version, RepositoryPlugin> versions = new TreeMap<>();
+		List<RepositoryPlugin> unlisted = new ArrayList<>();
+		for (int i = 0; i < selected.size(); i++) {
+			RepositoryPlugin plugin = selected.get(i);
+			Promise<SortedSet<Version>> promise = promises.get(i);
+			Throwable failure = promise.getFailure();
+			if (failure instanceof UnsupportedOperationException) {
+				// We have a plugin that cannot list versions
+				if (!versions.isEmpty()) {
+					unlisted.add(plugin);
+				}
+				continue;
+			}
+			if (failure != null) {
+				throw Exceptions.duck(failure);
+			}
+			SortedSet<Version> vs = promise.getValue();
+			if (vs != null) {
+				for (Version v : vs) {
+					if (!versions.containsKey(v) && versionRange.includes(v))
+						versions.put(v, plugin);
+				}
+			}
+		}
+		return new Versions(versions, unlisted);
+	}
+
+	void clear() {
+		generation.incrementAndGet();
+		cache.clear();
+	}
+
+	@Override
+	public void bundleAdded(RepositoryPlugin repository, Jar jar, File file) {
+		clear();
+	}
+
+	@Override
+	public void bundleRemoved(RepositoryPlugin repository, Jar jar, File file) {
+		clear();
+	}
+
+	@Override
+	public void repositoryRefreshed(RepositoryPlugin repository) {
+		clear();
+	}
+
+	@Override
+	public void repositoriesRefreshed() {
+		clear();
+	}
+}
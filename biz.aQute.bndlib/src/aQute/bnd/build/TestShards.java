@@ -0,0 +1,412 @@
+package aQute.bnd.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.osgi.util.promise.Promise;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import aQute.bnd.exceptions.Exceptions;
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.Processor;
+import aQute.lib.io.IO;
+import aQute.lib.utf8properties.UTF8Properties;
+import aQute.lib.xml.XML;
+import aQute.libg.reporter.ReporterAdapter;
+
+/**
+ * Runs the tests of a project in a number of frameworks which are launched in
+ * parallel.
+ * <p>
+ * The test classes are distributed over the shards by their duration in
+ * previous runs, which is kept in the workspace cache. Each shard is launched
+ * with its own tester, report directory and framework storage. The JUnit XML
+ * reports of the shards are merged into the report directory of the project
+ * tester. A shard that fails is reported as an error but the reports of the
+ * other shards are still merged. The shards report to their own reporter since
+ * the project is not thread safe; the messages are added to the project when
+ * all shards are done.
+ */
+class TestShards {
+	private final static Logger					logger				= LoggerFactory.getLogger(TestShards.class);
+	private final static DocumentBuilderFactory	dbf					= XML.newDocumentBuilderFactory();
+	private final static Pattern				LIST_SPLITTER		= Pattern.compile("\\s*,\\s*");
+	private final static long					DEFAULT_DURATION	= 1000L;
+	private final static String[]				COUNTS				= {
+		"tests", "failures", "errors", "skipped"
+	};
+
+	private final Project						project;
+	private final ProjectTester					tester;
+	private final int							shards;
+
+	/**
+	 * @param project the project to test
+	 * @param tester the prepared tester of the project
+	 * @param shards the maximum number of shards
+	 */
+	TestShards(Project project, ProjectTester tester, int shards) {
+		this.project = project;
+		this.tester = tester;
+		this.shards = shards;
+	}
+
+	/**
+	 * Run the tests. If the tests cannot be distributed over more than one
+	 * shard they are run by the project tester.
+	 *
+	 * @return the number of errors
+	 */
+	int test() throws Exception {
+		Map<String, List<String>> tests = classes(tester.getTests()
+			.isEmpty() ? testCases() : tester.getTests());
+		File cache = project.getWorkspace()
+			.getCache("test-durations/" + project.getName() + ".properties");
+		Properties durations = load(cache);
+		List<List<String>> partition = balance(tests.keySet(), durations, shards);
+		if (partition.size() < 2) {
+			return tester.test();
+		}
+		tester.getProjectLauncher()
+			.cleanup();
+
+		File shardsDir = new File(project.getTarget(), "test-shards");
+		IO.delete(shardsDir);
+		List<ProjectTester> testers = new ArrayList<>(partition.size());
+		for (int i = 0; i < partition.size(); i++) {
+			File shardDir = new File(shardsDir, Integer.toString(i));
+			ProjectTester shard = project.getProjectTester();
+			shard.setReportDir(new File(shardDir, tester.getReportDir()
+				.getName()));
+			shard.setContinuous(false);
+			shard.setCwd(tester.getCwd());
+			shard.getProjectLauncher()
+				.setStorageDir(new File(shardDir, "fw"));
+			for (String test : partition.get(i)) {
+				tests.get(test)
+					.forEach(shard::addTest);
+			}
+			// prepared here since preparing reads the project
+			shard.prepare();
+			testers.add(shard);
+		}
+		if (!project.isOk()) {
+			return -1;
+		}
+
+		logger.info("Testing {} in {} shards", project, testers.size());
+		List<ReporterAdapter> reporters = new ArrayList<>(testers.size());
+		List<Promise<Integer>> promises = new ArrayList<>(testers.size());
+		for (ProjectTester shard : testers) {
+			ReporterAdapter reporter = new ReporterAdapter();
+			shard.getProjectLauncher()
+				.setReporter(reporter);
+			reporters.add(reporter);
+			promises.add(Processor.getPromiseFactory()
+				.submit(() -> {
+					try {
+						return shard.test();
+					} catch (Exception e) {
+						reporter.exception(e, "Test shard %s failed", shard.getReportDir()
+							.getParentFile());
+						return -1;
+					}
+				}));
+		}
+		int errors = 0;
+		try {
+			for (Integer result : Processor.getPromiseFactory()
+				.all(promises)
+				.getValue()) {
+				if (result.intValue() != 0) {
+					errors = (errors < 0 || result.intValue() < 0) ? -1 : errors + result.intValue();
+				}
+			}
+		} catch (InvocationTargetException e) {
+			throw Exceptions.duck(e.getCause());
+		} finally {
+			// the shards are done, their messages can be added to the project
+			reporters.forEach(project::getInfo);
+		}
+
+		List<File> reportDirs = new ArrayList<>(testers.size());
+		for (ProjectTester shard : testers) {
+			if (shard.getReports()
+				.isEmpty()) {
+				project.error("Test shard %s did not report any results for %s", shard.getReportDir()
+					.getParentFile(), shard.getTests());
+			}
+			reportDirs.add(shard.getReportDir());
+		}
+		merge(reportDirs, tester.getReportDir());
+		save(cache, durations, tester.getReportDir());
+		return errors;
+	}
+
+	/**
+	 * Answer the test names in the {@link Constants#TESTCASES} headers of the
+	 * run bundles.
+	 */
+	private Collection<String> testCases() {
+		Set<String> tests = new LinkedHashSet<>();
+		for (String path : tester.getProjectLauncher()
+			.getRunBundles()) {
+			File file = new File(path);
+			if (!file.isFile()) {
+				continue;
+			}
+			try (JarFile jar = new JarFile(file)) {
+				Manifest manifest = jar.getManifest();
+				String testcases = (manifest == null) ? null
+					: manifest.getMainAttributes()
+						.getValue(Constants.TESTCASES);
+				if ((testcases != null) && !(testcases = testcases.trim()).isEmpty()) {
+					LIST_SPLITTER.splitAsStream(testcases)
+						.forEach(tests::add);
+				}
+			} catch (IOException e) {
+				logger.debug("Cannot read the test cases of {}", file, e);
+			}
+		}
+		return tests;
+	}
+
+	/**
+	 * Group test names by their class. A test name is a class name optionally
+	 * followed by a colon and a method name.
+	 */
+	static Map<String, List<String>> classes(Collection<String> tests) {
+		Map<String, List<String>> classes = new LinkedHashMap<>();
+		for (String test : tests) {
+			int n = test.indexOf(':');
+			String className = (n < 0) ? test : test.substring(0, n);
+			classes.computeIfAbsent(className, k -> new ArrayList<>())
+				.add(test);
+		}
+		return classes;
+	}
+
+	/**
+	 * Distribute the classes over at most the given number of shards so that
+	 * the durations of the shards are balanced. The longest class is added to
+	 * the shard with the shortest duration until all classes are distributed.
+	 * Classes without a known duration are assumed to take the average known
+	 * duration.
+	 *
+	 * @param classes the test classes
+	 * @param durations the known durations in milliseconds by class name
+	 * @param shards the maximum number of shards
+	 * @return the classes of each non empty shard
+	 */
+	static List<List<String>> balance(Collection<String> classes, Properties durations, int shards) {
+		Map<String, Long> known = new TreeMap<>();
+		long total = 0L;
+		for (String className : classes) {
+			long duration = duration(durations, className);
+			if (duration >= 0L) {
+				known.put(className, duration);
+				total += duration;
+			}
+		}
+		long average = known.isEmpty() ? DEFAULT_DURATION : Math.max(1L, total / known.size());
+		Map<String, Long> estimated = new TreeMap<>();
+		for (String className : classes) {
+			estimated.put(className, known.getOrDefault(className, average));
+		}
+		List<String> sorted = new ArrayList<>(estimated.keySet());
+		sorted.sort(Comparator.comparing(estimated::get, Comparator.reverseOrder()));
+
+		int n = Math.min(shards, sorted.size());
+		List<List<String>> partition = new ArrayList<>(n);
+		long[] loads = new long[n];
+		for (int i = 0; i < n; i++) {
+			partition.add(new ArrayList<>());
+		}
+		for (String className : sorted) {
+			int min = 0;
+			for (int i = 1; i < n; i++) {
+				if (loads[i] < loads[min]) {
+					min = i;
+				}
+			}
+			partition.get(min)
+				.add(className);
+			loads[min] += estimated.get(className);
+		}
+		return partition;
+	}
+
+	private static long duration(Properties durations, String className) {
+		String duration = durations.getProperty(className);
+		if (duration != null) {
+			try {
+				return Long.parseLong(duration);
+			} catch (NumberFormatException e) {
+				// ignore
+			}
+		}
+		return -1L;
+	}
+
+	/**
+	 * Merge the JUnit XML reports of the shards. The reports with the same
+	 * file name are merged into one test suite in the target directory. The
+	 * counts of the test suites are added and the test cases are appended.
+	 */
+	static void merge(Collection<File> reportDirs, File target) throws Exception {
+		Map<String, List<File>> reports = new TreeMap<>();
+		for (File reportDir : reportDirs) {
+			for (File report : IO.listFiles(reportDir)) {
+				if (report.isFile() && report.getName()
+					.endsWith(".xml")) {
+					reports.computeIfAbsent(report.getName(), k -> new ArrayList<>())
+						.add(report);
+				}
+			}
+		}
+		IO.mkdirs(target);
+		DocumentBuilder db = dbf.newDocumentBuilder();
+		for (Map.Entry<String, List<File>> entry : reports.entrySet()) {
+			Document merged = null;
+			for (File report : entry.getValue()) {
+				Document doc;
+				try (InputStream in = IO.stream(report)) {
+					doc = db.parse(in);
+				} catch (Exception e) {
+					logger.warn("Cannot parse the test report {}", report, e);
+					continue;
+				}
+				if (merged == null) {
+					merged = doc;
+				} else {
+					merge(merged.getDocumentElement(), doc.getDocumentElement());
+				}
+			}
+			if (merged != null) {
+				Transformer transformer = XML.newTransformerFactory()
+					.newTransformer();
+				try (OutputStream out = IO.outputStream(new File(target, entry.getKey()))) {
+					transformer.transform(new DOMSource(merged), new StreamResult(out));
+				}
+			}
+		}
+	}
+
+	private static void merge(Element suite, Element other) {
+		for (String count : COUNTS) {
+			if (suite.hasAttribute(count) || other.hasAttribute(count)) {
+				suite.setAttribute(count, Long.toString(count(suite, count) + count(other, count)));
+			}
+		}
+		if (suite.hasAttribute("time") && other.hasAttribute("time")) {
+			try {
+				suite.setAttribute("time", new BigDecimal(suite.getAttribute("time"))
+					.add(new BigDecimal(other.getAttribute("time")))
+					.toPlainString());
+			} catch (NumberFormatException e) {
+				// ignore
+			}
+		}
+		Document doc = suite.getOwnerDocument();
+		NodeList children = other.getChildNodes();
+		for (int i = 0; i < children.getLength(); i++) {
+			Node child = children.item(i);
+			if ((child.getNodeType() == Node.ELEMENT_NODE) && !child.getNodeName()
+				.equals("properties")) {
+				suite.appendChild(doc.importNode(child, true));
+			}
+		}
+	}
+
+	private static long count(Element suite, String count) {
+		try {
+			return suite.hasAttribute(count) ? Long.parseLong(suite.getAttribute(count)) : 0L;
+		} catch (NumberFormatException e) {
+			return 0L;
+		}
+	}
+
+	private static Properties load(File cache) {
+		Properties durations = new UTF8Properties();
+		if (cache.isFile()) {
+			try (InputStream in = IO.stream(cache)) {
+				durations.load(in);
+			} catch (IOException e) {
+				logger.debug("Cannot read the test durations {}", cache, e);
+			}
+		}
+		return durations;
+	}
+
+	/**
+	 * Record the durations of the test classes in the merged reports.
+	 */
+	static void save(File cache, Properties durations, File reportDir) throws Exception {
+		Map<String, BigDecimal> seconds = new TreeMap<>();
+		DocumentBuilder db = dbf.newDocumentBuilder();
+		for (File report : IO.listFiles(reportDir)) {
+			if (!report.isFile() || !report.getName()
+				.endsWith(".xml")) {
+				continue;
+			}
+			Document doc;
+			try (InputStream in = IO.stream(report)) {
+				doc = db.parse(in);
+			} catch (Exception e) {
+				continue;
+			}
+			NodeList testcases = doc.getElementsByTagName("testcase");
+			for (int i = 0; i < testcases.getLength(); i++) {
+				Element testcase = (Element) testcases.item(i);
+				String className = testcase.getAttribute("classname");
+				if (className.isEmpty()) {
+					continue;
+				}
+				try {
+					BigDecimal time = testcase.hasAttribute("time") ? new BigDecimal(testcase.getAttribute("time"))
+						: BigDecimal.ZERO;
+					seconds.merge(className, time, BigDecimal::add);
+				} catch (NumberFormatException e) {
+					// ignore
+				}
+			}
+		}
+		if (seconds.isEmpty()) {
+			return;
+		}
+		seconds.forEach((className, time) -> durations.setProperty(className, Long.toString(time.movePointRight(3)
+			.longValue())));
+		IO.mkdirs(cache.getParentFile());
+		try (OutputStream out = IO.outputStream(cache)) {
+			durations.store(out, null);
+		}
+	}
+}
@@ -33,6 +33,7 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -207,6 +208,14 @@ public class Workspace extends Processor {
 	private final WorkspaceLock		workspaceLock						= new WorkspaceLock(true);
 	private static final long		WORKSPACE_LOCK_DEFAULT_TIMEOUTMS	= 120_000L;
 	final WorkspaceNotifier										notifier			= new WorkspaceNotifier(this);
+	final RepositoryVersionCache								repositoryVersions	= new RepositoryVersionCache();
+	/**
+	 * Limits the number of bundles that are fetched concurrently from the
+	 * repositories for the paths of the projects.
+	 */
+	final Semaphore												downloads			= new Semaphore(
+		Integer.getInteger("bnd.workspace.maximumDownloads", 8)
+			.intValue());
 
 	public static boolean										remoteWorkspaces	= false;
 
@@ -775,6 +784,7 @@ public class Workspace extends Processor {
 			super.setTypeSpecificPlugins(pluginsContainer);
 			pluginsContainer.add(maven);
 			pluginsContainer.add(settings);
+			pluginsContainer.add(repositoryVersions);
 
 			if (!isTrue(getProperty(NOBUILDINCACHE))) {
 				CachedFileRepo repo = new CachedFileRepo();
@@ -1088,6 +1098,7 @@ public class Workspace extends Processor {
 		WorkspaceData oldData = data;
 		data = new WorkspaceData();
 		oldData.close();
+		repositoryVersions.clear();
 	}
 
 	/**
@@ -1589,6 +1600,8 @@ public class Workspace extends Processor {
 	}
 
 	public void refresh(RepositoryPlugin repo) {
+		repositoryVersions.clear();
+		data.classIndex.ifPresent(index -> index.refreshed(repo));
 		for (RepositoryListenerPlugin listener : getPlugins(RepositoryListenerPlugin.class)) {
 			try {
 				listener.repositoryRefreshed(repo);
@@ -1598,6 +1611,123 @@ public class Workspace extends Processor {
 		}
 	}
 
+	/**
+	 * Answer the projects affected by a change of the given files.
+	 * <p>
+	 * A project is affected when a file is its bnd file, a bnd file in its
+	 * directory or a file it includes. When a file is the bnd file of this
+	 * workspace, a file this workspace includes or an extension file, all
+	 * projects are affected.
+	 *
+	 * @param files The changed files.
+	 * @return The affected projects.
+	 */
+	public Set<Project> getAffectedProjects(Collection<File> files) {
+		Set<File> changed = files.stream()
+			.map(File::getAbsoluteFile)
+			.collect(Collectors.toSet());
+		if (changed.isEmpty()) {
+			return Collections.emptySet();
+		}
+		File extDir = new File(getBuildDir(), EXT);
+		if (isIncluded(this, changed) || changed.stream()
+			.anyMatch(file -> extDir.equals(file.getParentFile()) && file.getName()
+				.endsWith(".bnd"))) {
+			return new LinkedHashSet<>(getAllProjects());
+		}
+		Set<Project> affected = new LinkedHashSet<>();
+		for (Project project : getAllProjects()) {
+			File base = project.getBase();
+			if (isIncluded(project, changed) || changed.stream()
+				.anyMatch(file -> base.equals(file.getParentFile()) && file.getName()
+					.endsWith(".bnd"))) {
+				affected.add(project);
+			}
+		}
+		return affected;
+	}
+
+	private static boolean isIncluded(Processor processor, Set<File> changed) {
+		File propertiesFile = processor.getPropertiesFile();
+		if ((propertiesFile != null) && changed.contains(propertiesFile.getAbsoluteFile())) {
+			return true;
+		}
+		return processor.getIncluded()
+			.stream()
+			.anyMatch(file -> changed.contains(file.getAbsoluteFile()));
+	}
+
+	/**
+	 * Answer the projects affected by a change of the repository contents for
+	 * the given bsns.
+	 * <p>
+	 * A project is affected when one of the bsns is named in its build path,
+	 * test path, run path, run framework or run bundles or in a {@code repo}
+	 * macro in its own or inherited properties. A project is also affected
+	 * when this cannot be decided, because a path entry is a file or the bsn
+	 * of a {@code repo} macro is itself a macro.
+	 *
+	 * @param bsns The bsns whose repository contents changed.
+	 * @return The affected projects.
+	 */
+	public Set<Project> getAffectedProjectsByBsn(Collection<String> bsns) {
+		if (bsns.isEmpty()) {
+			return Collections.emptySet();
+		}
+		Set<Project> affected = new LinkedHashSet<>();
+		for (Project project : getAllProjects()) {
+			if (isReferenced(project, bsns)) {
+				affected.add(project);
+			}
+		}
+		return affected;
+	}
+
+	private static final String[] PATH_INSTRUCTIONS = {
+		BUILDPATH, TESTPATH, RUNPATH, RUNFW, RUNBUNDLES
+	};
+
+	private static boolean isReferenced(Project project, Collection<String> bsns) {
+		for (String instruction : PATH_INSTRUCTIONS) {
+			Parameters parameters = new Parameters(project.mergeProperties(instruction), project);
+			for (Entry<String, Attrs> entry : parameters.entrySet()) {
+				String key = removeDuplicateMarker(entry.getKey());
+				if (bsns.contains(key) || isFile(key, entry.getValue())) {
+					return true;
+				}
+			}
+		}
+		// repo macros can be used by any instruction, e.g. -includeresource
+		for (String key : project.getPropertyKeys(true)) {
+			String value = project.getUnprocessedProperty(key, "");
+			int n = value.indexOf("repo;");
+			while (n >= 0) {
+				int start = n + "repo;".length();
+				int end = start;
+				while ((end < value.length()) && (";,)}]>\u00BB".indexOf(value.charAt(end)) < 0)) {
+					end++;
+				}
+				String bsn = value.substring(start, end)
+					.trim();
+				if (bsn.isEmpty() || (bsn.indexOf('$') >= 0) || bsns.contains(bsn)) {
+					return true;
+				}
+				n = value.indexOf("repo;", end);
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * A path entry is a file when it has version=file or when it is a path,
+	 * for example a repo macro that was expanded. The bsn of its content is
+	 * not known.
+	 */
+	private static boolean isFile(String key, Attrs attrs) {
+		return "file".equals(attrs.get(Constants.VERSION_ATTRIBUTE)) || (key.indexOf('/') >= 0)
+			|| (key.indexOf(File.separatorChar) >= 0);
+	}
+
 	/**
 	 * Search for a partial class name. The partialFqn name may be a simple
 	 * class name (Foo) or a fully qualified class name line (foo.bar.Foo),
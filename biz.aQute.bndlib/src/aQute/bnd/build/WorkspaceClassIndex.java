@@ -25,17 +25,18 @@ import aQute.bnd.osgi.Descriptors;
 import aQute.bnd.osgi.resource.RequirementBuilder;
 import aQute.bnd.osgi.resource.ResourceUtils;
 import aQute.bnd.result.Result;
+import aQute.bnd.service.RepositoryPlugin;
 import aQute.bnd.version.Version;
 import aQute.lib.collections.MultiMap;
-import aQute.lib.hierarchy.Hierarchy;
-import aQute.lib.hierarchy.NamedNode;
-import aQute.lib.zip.JarIndex;
+import aQute.lib.io.IO;
 
 class WorkspaceClassIndex implements AutoCloseable {
-	final Workspace workspace;
+	final Workspace			workspace;
+	final ClassIndexTable	table;
 
 	WorkspaceClassIndex(Workspace workspace) {
 		this.workspace = workspace;
+		this.table = new ClassIndexTable(workspace.getCache("classindex"));
 	}
 
 	/**
@@ -118,7 +119,9 @@ class WorkspaceClassIndex implements AutoCloseable {
 	/*
 	 * we have a set of package capabilities and a class name. These caps were
 	 * found via the hashes or the package prefix. We try to find the class name
-	 * in the package directory of the resource
+	 * in the package directory of the resource. The class entries of the
+	 * resources are kept in a persistent table so we do not have to open the
+	 * bundle again.
 	 */
 	private String matchClassNameAgainstResource(String binaryClassName, List<Capability> caps, BundleId bundle,
 		MultiMap<BundleId, String> result) {
@@ -130,7 +133,7 @@ class WorkspaceClassIndex implements AutoCloseable {
 					.get();
 			}
 
-			Hierarchy zipIndex = new JarIndex(r.unwrap());
+			File file = r.unwrap();
 
 			caps: for (Capability cap : caps) {
 
@@ -139,21 +142,11 @@ class WorkspaceClassIndex implements AutoCloseable {
 				if (foundPackage == null)
 					continue caps;
 
-				String[] foundPath = foundPackage.split("\\.");
-
-				zipIndex.findFolder(foundPath)
-					.ifPresent(folder -> {
-
-						NamedNode clazz = folder.get(binaryClassName)
-							.orElse(null);
-						if (clazz != null) {
-							String path = clazz.path();
-							String fqn = Descriptors.binaryClassToFQN(path);
-							result.add(bundle, fqn);
-							return;
-						}
-
-					});
+				String path = Descriptors.fqnToBinary(foundPackage) + "/" + binaryClassName;
+				if (table.contains(file, path)) {
+					String fqn = Descriptors.binaryClassToFQN(path);
+					result.add(bundle, fqn);
+				}
 			}
 		} catch (IOException e1) {
 			return Exceptions.causes(e1);
@@ -245,7 +238,24 @@ class WorkspaceClassIndex implements AutoCloseable {
 		return sb.toString();
 	}
 
+	/**
+	 * Called when a repository was refreshed. The bundles indexed so far are
+	 * written to the persistent table and bundles that have changed or
+	 * disappeared are removed from it.
+	 *
+	 * @param repository the refreshed repository
+	 */
+	void refreshed(RepositoryPlugin repository) {
+		try {
+			table.flush();
+		} catch (IOException e) {
+			workspace.exception(e, "Updating class index after refresh of %s", repository);
+		}
+	}
+
 	@Override
-	public void close() {}
+	public void close() {
+		IO.close(table);
+	}
 
 }
@@ -1,6 +1,6 @@
 /**
  */
-@Version("4.2.0")
+@Version("4.3.0")
 package aQute.bnd.build;
 
 import org.osgi.annotation.versioning.Version;
@@ -0,0 +1,111 @@
+package aQute.bnd.component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import aQute.bnd.exceptions.ConsumerWithException;
+import aQute.bnd.osgi.Annotation;
+import aQute.bnd.osgi.ClassDataCollector;
+import aQute.bnd.osgi.Clazz;
+import aQute.bnd.osgi.Clazz.FieldDef;
+import aQute.bnd.osgi.Clazz.MethodDef;
+import aQute.bnd.osgi.Clazz.MethodParameter;
+import aQute.bnd.osgi.Descriptors.TypeRef;
+
+/**
+ * The class data events of a class that are relevant for DS, recorded once so
+ * they can be replayed into the reader of every component that inherits from
+ * the class. References, constants and the byte code of the class are not
+ * recorded.
+ */
+class ClassEvents extends ClassDataCollector {
+	private final Clazz													clazz;
+	private final List<ConsumerWithException<ClassDataCollector>>	events	= new ArrayList<>();
+
+	ClassEvents(Clazz clazz) throws Exception {
+		this.clazz = clazz;
+		clazz.parseClassFileWithCollector(this);
+	}
+
+	/**
+	 * Replay the recorded events as if the class was parsed with the given
+	 * collector.
+	 */
+	void replay(ClassDataCollector cd) throws Exception {
+		if (!cd.classStart(clazz)) {
+			return;
+		}
+		try {
+			for (ConsumerWithException<ClassDataCollector> event : events) {
+				event.accept(cd);
+			}
+		} finally {
+			cd.classEnd();
+		}
+	}
+
+	@Override
+	public boolean classStart(Clazz c) {
+		return true;
+	}
+
+	@Override
+	public void version(int minor, int major) {
+		events.add(cd -> cd.version(minor, major));
+	}
+
+	@Override
+	public void extendsClass(TypeRef zuper) {
+		events.add(cd -> cd.extendsClass(zuper));
+	}
+
+	@Override
+	public void implementsInterfaces(TypeRef[] interfaces) {
+		events.add(cd -> cd.implementsInterfaces(interfaces));
+	}
+
+	@Override
+	public void field(FieldDef field) {
+		events.add(cd -> cd.field(field));
+	}
+
+	@Override
+	public void method(MethodDef method) {
+		events.add(cd -> cd.method(method));
+	}
+
+	@Override
+	public void methodParameters(MethodDef method, MethodParameter[] parameters) {
+		events.add(cd -> cd.methodParameters(method, parameters));
+	}
+
+	@Override
+	public void parameter(int p) {
+		events.add(cd -> cd.parameter(p));
+	}
+
+	@Override
+	public void annotation(Annotation annotation) {
+		events.add(cd -> cd.annotation(annotation));
+	}
+
+	@Override
+	public void annotationDefault(MethodDef method, Object value) {
+		events.add(cd -> cd.annotationDefault(method, value));
+	}
+
+	@Override
+	public void signature(String signature) {
+		events.add(cd -> cd.signature(signature));
+	}
+
+	@Override
+	public void deprecated() {
+		events.add(ClassDataCollector::deprecated);
+	}
+
+	@Override
+	public void memberEnd() {
+		events.add(ClassDataCollector::memberEnd);
+	}
+}
@@ -127,16 +127,18 @@ public class DSAnnotationReader extends ClassDataCollector {
 	final Map<Object, ReferenceDef>							referencesByTarget			= new HashMap<>();
 
 	final XMLAttributeFinder								finder;
+	final Map<TypeRef, ClassEvents>							inherited;
 
 	Map<String, List<DeclarativeServicesAnnotationError>>	mismatchedAnnotations		= new HashMap<>();
 	private int												componentPropertyTypeCount	= 0;
 
 	DSAnnotationReader(Analyzer analyzer, Clazz clazz, Set<Options> options, XMLAttributeFinder finder,
-		Version minVersion) {
+		Version minVersion, Map<TypeRef, ClassEvents> inherited) {
 		this.analyzer = requireNonNull(analyzer);
 		this.clazz = clazz;
 		this.options = options;
 		this.finder = finder;
+		this.inherited = inherited;
 		this.component = new ComponentDef(analyzer, finder, minVersion);
 		String signature = clazz.getClassSignature();
 		classSig = analyzer.getClassSignature((signature != null) ? signature : "Ljava/lang/Object;");
@@ -144,7 +146,16 @@ public class DSAnnotationReader extends ClassDataCollector {
 
 	public static ComponentDef getDefinition(Clazz c, Analyzer analyzer, Set<Options> options,
 		XMLAttributeFinder finder, Version minVersion) throws Exception {
-		DSAnnotationReader r = new DSAnnotationReader(analyzer, c, options, finder, minVersion);
+		return getDefinition(c, analyzer, options, finder, minVersion, new HashMap<>());
+	}
+
+	/**
+	 * Get the definition of a component, sharing the recorded events of the
+	 * inherited classes with the other components of the same analysis.
+	 */
+	static ComponentDef getDefinition(Clazz c, Analyzer analyzer, Set<Options> options, XMLAttributeFinder finder,
+		Version minVersion, Map<TypeRef, ClassEvents> inherited) throws Exception {
+		DSAnnotationReader r = new DSAnnotationReader(analyzer, c, options, finder, minVersion, inherited);
 		return r.getDef();
 	}
 
@@ -187,7 +198,12 @@ public class DSAnnotationReader extends ClassDataCollector {
 						.details(details);
 					break;
 				} else {
-					ec.parseClassFileWithCollector(this);
+					ClassEvents events = inherited.get(extendsClass);
+					if (events == null) {
+						events = new ClassEvents(ec);
+						inherited.put(extendsClass, events);
+					}
+					events.replay(this);
 				}
 			}
 		}
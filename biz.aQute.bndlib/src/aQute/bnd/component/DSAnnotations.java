@@ -6,11 +6,14 @@ import static aQute.bnd.component.DSAnnotationReader.VMAX;
 import static aQute.lib.strings.Strings.joining;
 import static java.util.stream.Collectors.toList;
 
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -19,10 +22,13 @@ import java.util.TreeSet;
 import org.osgi.namespace.extender.ExtenderNamespace;
 import org.osgi.namespace.service.ServiceNamespace;
 import org.osgi.resource.Namespace;
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
 
 import aQute.bnd.component.annotations.ReferenceCardinality;
 import aQute.bnd.component.error.DeclarativeServicesAnnotationError;
 import aQute.bnd.component.error.DeclarativeServicesAnnotationError.ErrorType;
+import aQute.bnd.exceptions.Exceptions;
 import aQute.bnd.header.Attrs;
 import aQute.bnd.header.OSGiHeader;
 import aQute.bnd.header.Parameters;
@@ -150,6 +156,8 @@ public class DSAnnotations implements AnalyzerPlugin {
 		Version maxVersionUsedByAnyComponent = V1_0;
 
 		XMLAttributeFinder finder = new XMLAttributeFinder(analyzer);
+		Map<TypeRef, ClassEvents> inherited = new HashMap<>();
+		List<TagResource> descriptors = new ArrayList<>();
 		boolean componentProcessed = false;
 		for (Clazz c : list) {
 			for (Instruction instruction : instructions.keySet()) {
@@ -158,7 +166,7 @@ public class DSAnnotations implements AnalyzerPlugin {
 						break;
 					}
 					ComponentDef definition = DSAnnotationReader.getDefinition(c, analyzer, options, finder,
-						settings.minVersion);
+						settings.minVersion, inherited);
 					if (definition == null) {
 						break;
 					}
@@ -180,8 +188,10 @@ public class DSAnnotations implements AnalyzerPlugin {
 					String path = "OSGI-INF/" + analyzer.validResourcePath(definition.name, "Invalid component name")
 						+ ".xml";
 					componentPaths.add(path);
+					TagResource descriptor = new TagResource(definition.getTag());
+					descriptors.add(descriptor);
 					analyzer.getJar()
-						.putResource(path, new TagResource(definition.getTag()));
+						.putResource(path, descriptor);
 
 					if (!options.contains(Options.nocapabilities)) {
 						addServiceCapability(definition, provides, nouses);
@@ -211,6 +221,8 @@ public class DSAnnotations implements AnalyzerPlugin {
 				addExtenderRequirement(requires, maxVersionUsedByAnyComponent);
 			}
 		}
+		render(analyzer.getJar()
+			.getPromiseFactory(), descriptors);
 		componentPaths = removeOverlapInServiceComponentHeader(componentPaths);
 		sc = Processor.append(componentPaths.toArray(new String[0]));
 		analyzer.setProperty(Constants.SERVICE_COMPONENT, sc);
@@ -227,6 +239,26 @@ public class DSAnnotations implements AnalyzerPlugin {
 		return false;
 	}
 
+	/*
+	 * Render the XML of the component descriptors concurrently. The components
+	 * are read sequentially since the readers share the analyzer.
+	 */
+	private void render(PromiseFactory promiseFactory, List<TagResource> descriptors) throws Exception {
+		if (descriptors.size() < 2) {
+			return;
+		}
+		List<Promise<ByteBuffer>> promises = new ArrayList<>(descriptors.size());
+		for (TagResource descriptor : descriptors) {
+			promises.add(promiseFactory.submit(descriptor::buffer));
+		}
+		try {
+			promiseFactory.all(promises)
+				.getValue();
+		} catch (InvocationTargetException e) {
+			throw Exceptions.duck(e.getCause());
+		}
+	}
+
 	/*
 	 * Check for any version conflicts and report them as errors
 	 */
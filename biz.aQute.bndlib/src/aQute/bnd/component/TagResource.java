@@ -5,13 +5,16 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
 
 import aQute.bnd.osgi.WriteResource;
+import aQute.lib.io.ByteBufferOutputStream;
 import aQute.lib.io.IO;
 import aQute.lib.tag.Tag;
 
 public class TagResource extends WriteResource {
-	final Tag tag;
+	final Tag			tag;
+	private ByteBuffer	rendered;
 
 	public TagResource(Tag tag) {
 		this.tag = tag;
@@ -19,13 +22,33 @@ public class TagResource extends WriteResource {
 
 	@Override
 	public void write(OutputStream out) throws IOException {
-		PrintWriter pw = IO.writer(out, UTF_8);
-		pw.print("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-		try {
+		IO.copy(render(), out);
+	}
+
+	@Override
+	public ByteBuffer buffer() throws IOException {
+		return render();
+	}
+
+	@Override
+	public long size() throws IOException {
+		return render().limit();
+	}
+
+	/**
+	 * Render the tag once, the rendered XML is shared by all readers of this
+	 * resource.
+	 */
+	private synchronized ByteBuffer render() throws IOException {
+		if (rendered == null) {
+			ByteBufferOutputStream out = new ByteBufferOutputStream();
+			PrintWriter pw = IO.writer(out, UTF_8);
+			pw.print("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
 			tag.print(0, pw);
-		} finally {
 			pw.flush();
+			rendered = out.toByteBuffer();
 		}
+		return rendered.duplicate();
 	}
 
 	@Override
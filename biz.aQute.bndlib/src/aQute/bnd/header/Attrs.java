@@ -1,13 +1,19 @@
 package aQute.bnd.header;
 
 import java.lang.reflect.Array;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -75,8 +81,19 @@ public class Attrs implements Map<String, String> {
 	public static final Pattern					TYPED			= Pattern
 		.compile("List\\s*<\\s*(String|Version|Long|Double)\\s*>");
 
-	private final Map<String, String>			map;
-	private final Map<String, Type>				types;
+	private static final Object					INVALID			= new Object();
+
+	/*
+	 * An Attrs is either backed by the mutable map and types or, when compact,
+	 * by the immutable keys, values, compactTypes and typed arrays. A compact
+	 * Attrs is converted to the mutable form on the first modification.
+	 */
+	private Map<String, String>					map;
+	private Map<String, Type>					types;
+	private String[]							keys;
+	private String[]							values;
+	private Type[]								compactTypes;
+	private Object[]							typed;
 	public static final Attrs					EMPTY_ATTRS		= new Attrs(Collections.emptyMap(),
 		Collections.emptyMap());
 
@@ -85,6 +102,13 @@ public class Attrs implements Map<String, String> {
 		this.types = types;
 	}
 
+	private Attrs(String[] keys, String[] values, Type[] compactTypes, Object[] typed) {
+		this.keys = keys;
+		this.values = values;
+		this.compactTypes = compactTypes;
+		this.typed = typed;
+	}
+
 	public Attrs() {
 		this(new LinkedHashMap<>(), new HashMap<>());
 	}
@@ -113,6 +137,115 @@ public class Attrs implements Map<String, String> {
 		}
 	}
 
+	/**
+	 * Answer a compact copy of these attributes for read-only use.
+	 * <p>
+	 * A compact Attrs is backed by arrays, its keys are interned and its typed
+	 * values are parsed once. It behaves like any other Attrs: the first
+	 * modification converts it to the regular mutable form (copy-on-write).
+	 *
+	 * @return a compact copy of these attributes
+	 */
+	public Attrs compact() {
+		if (isCompact()) {
+			return this;
+		}
+		int size = map.size();
+		String[] keys = new String[size];
+		String[] values = new String[size];
+		Type[] compactTypes = null;
+		Object[] typed = null;
+		int i = 0;
+		for (Map.Entry<String, String> e : map.entrySet()) {
+			String key = e.getKey()
+				.intern();
+			String value = e.getValue();
+			keys[i] = key;
+			values[i] = value;
+			Type type = types.get(key);
+			if (type != null && type != Type.STRING) {
+				if (compactTypes == null) {
+					compactTypes = new Type[size];
+					typed = new Object[size];
+				}
+				compactTypes[i] = type;
+				typed[i] = preparse(type, value);
+			}
+			i++;
+		}
+		return new Attrs(keys, values, compactTypes, typed);
+	}
+
+	/**
+	 * Answer if this Attrs is in the compact read-only form.
+	 *
+	 * @return {@code true} if these attributes are compact
+	 */
+	public boolean isCompact() {
+		return map == null;
+	}
+
+	private static Object preparse(Type type, String value) {
+		if (value == null) {
+			return null;
+		}
+		try {
+			Object result = convert(type, value);
+			return (result instanceof List) ? Collections.unmodifiableList((List<?>) result) : result;
+		} catch (RuntimeException e) {
+			// report the failure on access like the mutable form does
+			return INVALID;
+		}
+	}
+
+	private int indexOf(Object key) {
+		String[] keys = this.keys;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == key) {
+				return i;
+			}
+		}
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i].equals(key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private Type compactType(int index) {
+		Type[] compactTypes = this.compactTypes;
+		if (compactTypes == null) {
+			return Type.STRING;
+		}
+		Type t = compactTypes[index];
+		return (t == null) ? Type.STRING : t;
+	}
+
+	/**
+	 * Convert a compact Attrs to the mutable form.
+	 */
+	private void mutable() {
+		if (map != null) {
+			return;
+		}
+		Map<String, String> map = new LinkedHashMap<>();
+		Map<String, Type> types = new HashMap<>();
+		for (int i = 0; i < keys.length; i++) {
+			map.put(keys[i], values[i]);
+			Type t = compactType(i);
+			if (t != Type.STRING) {
+				types.put(keys[i], t);
+			}
+		}
+		this.map = map;
+		this.types = types;
+		keys = null;
+		values = null;
+		compactTypes = null;
+		typed = null;
+	}
+
 	public void putAllTyped(Map<? extends String, ? extends Object> attrs) {
 		attrs.forEach(this::putTyped);
 	}
@@ -186,11 +319,15 @@ public class Attrs implements Map<String, String> {
 
 	@Override
 	public void clear() {
+		mutable();
 		map.clear();
 		types.clear();
 	}
 
 	public boolean containsKey(String name) {
+		if (isCompact()) {
+			return indexOf(name) >= 0;
+		}
 		return map.containsKey(name);
 	}
 
@@ -199,10 +336,17 @@ public class Attrs implements Map<String, String> {
 	@Deprecated
 	public boolean containsKey(Object name) {
 		assert name instanceof String;
+		if (isCompact()) {
+			return indexOf(name) >= 0;
+		}
 		return map.containsKey(name);
 	}
 
 	public boolean containsValue(String value) {
+		if (isCompact()) {
+			return Arrays.asList(values)
+				.contains(value);
+		}
 		return map.containsValue(value);
 	}
 
@@ -211,11 +355,18 @@ public class Attrs implements Map<String, String> {
 	@Deprecated
 	public boolean containsValue(Object value) {
 		assert value instanceof String;
+		if (isCompact()) {
+			return Arrays.asList(values)
+				.contains(value);
+		}
 		return map.containsValue(value);
 	}
 
 	@Override
 	public Set<java.util.Map.Entry<String, String>> entrySet() {
+		if (isCompact()) {
+			return new CompactEntrySet(keys, values);
+		}
 		return map.entrySet();
 	}
 
@@ -228,10 +379,18 @@ public class Attrs implements Map<String, String> {
 	@Deprecated
 	public String get(Object key) {
 		assert key instanceof String;
+		if (isCompact()) {
+			int index = indexOf(key);
+			return (index < 0) ? null : values[index];
+		}
 		return map.get(key);
 	}
 
 	public String get(String key) {
+		if (isCompact()) {
+			int index = indexOf(key);
+			return (index < 0) ? null : values[index];
+		}
 		return map.get(key);
 	}
 
@@ -244,11 +403,17 @@ public class Attrs implements Map<String, String> {
 
 	@Override
 	public boolean isEmpty() {
+		if (isCompact()) {
+			return keys.length == 0;
+		}
 		return map.isEmpty();
 	}
 
 	@Override
 	public Set<String> keySet() {
+		if (isCompact()) {
+			return new CompactKeySet(keys);
+		}
 		return map.keySet();
 	}
 
@@ -257,6 +422,7 @@ public class Attrs implements Map<String, String> {
 		if (key == null)
 			return null;
 
+		mutable();
 		return map.put(putType(key), value);
 	}
 
@@ -324,6 +490,10 @@ public class Attrs implements Map<String, String> {
 	}
 
 	public Type getType(String key) {
+		if (isCompact()) {
+			int index = indexOf(key);
+			return (index < 0) ? Type.STRING : compactType(index);
+		}
 		Type t = types.get(key);
 		if (t == null)
 			return Type.STRING;
@@ -331,6 +501,20 @@ public class Attrs implements Map<String, String> {
 	}
 
 	public void putAll(Attrs attrs) {
+		mutable();
+		if (attrs.isCompact()) {
+			for (int i = 0; i < attrs.keys.length; i++) {
+				String key = attrs.keys[i];
+				map.put(key, attrs.values[i]);
+				Type t = attrs.compactType(i);
+				if (t != Type.STRING) {
+					types.put(key, t);
+				} else {
+					types.remove(key);
+				}
+			}
+			return;
+		}
 		types.keySet()
 			.removeAll(attrs.map.keySet());
 		map.putAll(attrs.map);
@@ -351,22 +535,30 @@ public class Attrs implements Map<String, String> {
 	@Deprecated
 	public String remove(Object var0) {
 		assert var0 instanceof String;
+		mutable();
 		types.remove(var0);
 		return map.remove(var0);
 	}
 
 	public String remove(String var0) {
+		mutable();
 		types.remove(var0);
 		return map.remove(var0);
 	}
 
 	@Override
 	public int size() {
+		if (isCompact()) {
+			return keys.length;
+		}
 		return map.size();
 	}
 
 	@Override
 	public Collection<String> values() {
+		if (isCompact()) {
+			return new CompactValues(keys, values);
+		}
 		return map.values();
 	}
 
@@ -382,6 +574,15 @@ public class Attrs implements Map<String, String> {
 	}
 
 	public void append(StringBuilder sb) {
+		if (isCompact()) {
+			for (int i = 0; i < keys.length; i++) {
+				if (i > 0) {
+					sb.append(';');
+				}
+				append(sb, keys[i], values[i]);
+			}
+			return;
+		}
 		String del = "";
 		for (Map.Entry<String, String> e : entrySet()) {
 			sb.append(del);
@@ -453,7 +654,7 @@ public class Attrs implements Map<String, String> {
 			return null;
 
 		Type t = getType(adname);
-		return convert(t, s);
+		return convertTyped(adname, t, s);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -467,7 +668,20 @@ public class Attrs implements Map<String, String> {
 			throw new IllegalArgumentException(
 				"For key " + adname + ", expected " + type.type() + " but had a " + t + ". Value is " + s);
 
-		return (T) convert(t, s);
+		return (T) convertTyped(adname, t, s);
+	}
+
+	private Object convertTyped(String adname, Type t, String s) {
+		if (isCompact() && (t != Type.STRING)) {
+			Object value = typed[indexOf(adname)];
+			if (value instanceof List) {
+				return new ArrayList<>((List<?>) value);
+			}
+			if (value != INVALID) {
+				return value;
+			}
+		}
+		return convert(t, s);
 	}
 
 	public static Type toType(String type) {
@@ -553,6 +767,7 @@ public class Attrs implements Map<String, String> {
 	 */
 
 	public void mergeWith(Attrs other, boolean override) {
+		mutable();
 		MapStream<String, String> stream = other.stream();
 		if (!override) {
 			stream = stream.filterKey(key -> !containsKey(key));
@@ -604,4 +819,129 @@ public class Attrs implements Map<String, String> {
 		put(key, value);
 		return this;
 	}
+
+	/*
+	 * Views on a compact Attrs. They iterate over the immutable arrays and
+	 * modify the Attrs through its regular methods, which convert it to the
+	 * mutable form first.
+	 */
+	private abstract class CompactIterator<E> implements Iterator<E> {
+		final String[]	keys;
+		int				next;
+		int				last	= -1;
+
+		CompactIterator(String[] keys) {
+			this.keys = keys;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < keys.length;
+		}
+
+		int nextIndex() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return last = next++;
+		}
+
+		@Override
+		public void remove() {
+			if (last < 0) {
+				throw new IllegalStateException();
+			}
+			Attrs.this.remove(keys[last]);
+			last = -1;
+		}
+	}
+
+	private final class CompactKeySet extends AbstractSet<String> {
+		private final String[] keys;
+
+		CompactKeySet(String[] keys) {
+			this.keys = keys;
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			return new CompactIterator<String>(keys) {
+				@Override
+				public String next() {
+					return keys[nextIndex()];
+				}
+			};
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return Attrs.this.containsKey(o);
+		}
+
+		@Override
+		public int size() {
+			return Attrs.this.size();
+		}
+	}
+
+	private final class CompactValues extends AbstractCollection<String> {
+		private final String[]	keys;
+		private final String[]	values;
+
+		CompactValues(String[] keys, String[] values) {
+			this.keys = keys;
+			this.values = values;
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			return new CompactIterator<String>(keys) {
+				@Override
+				public String next() {
+					return values[nextIndex()];
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return Attrs.this.size();
+		}
+	}
+
+	private final class CompactEntrySet extends AbstractSet<Map.Entry<String, String>> {
+		private final String[]	keys;
+		private final String[]	values;
+
+		CompactEntrySet(String[] keys, String[] values) {
+			this.keys = keys;
+			this.values = values;
+		}
+
+		@Override
+		public Iterator<Map.Entry<String, String>> iterator() {
+			return new CompactIterator<Map.Entry<String, String>>(keys) {
+				@Override
+				public Map.Entry<String, String> next() {
+					int index = nextIndex();
+					return new AbstractMap.SimpleEntry<String, String>(keys[index], values[index]) {
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						public String setValue(String value) {
+							// like Map.Entry.setValue, this keeps the type
+							mutable();
+							map.put(getKey(), value);
+							return super.setValue(value);
+						}
+					};
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return Attrs.this.size();
+		}
+	}
 }
@@ -26,6 +26,10 @@ public class OSGiHeader {
 	 * value ) This is mapped to a Map { name => Map { attr|directive => value }
 	 * }
 	 *
+	 * <p>
+	 * The attributes of the clauses are in the compact form, see
+	 * {@link Attrs#compact()}.
+	 *
 	 * @param value A string
 	 * @return a Map<String,Map<String,String>>
 	 */
@@ -99,6 +103,11 @@ public class OSGiHeader {
 					}
 				}
 
+				// The parsed attributes are mostly only read, so we keep them
+				// in the compact form. It is converted to the mutable form
+				// on the first modification.
+				Attrs attrs = clause.compact();
+
 				// Check for duplicate names. The aliases list contains
 				// the list of names, for each check if it exists. If so,
 				// add a number of "~" to make it unique.
@@ -117,7 +126,7 @@ public class OSGiHeader {
 								+ DUPLICATE_MARKER + " at the end (which is stripped at printing time).",
 							clauseName, value);
 					}
-					result.put(key, clause);
+					result.put(key, attrs);
 				}
 			}
 		} while (del == ',');
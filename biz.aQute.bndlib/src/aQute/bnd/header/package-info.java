@@ -1,4 +1,4 @@
-@Version("2.4.0")
+@Version("2.5.0")
 package aQute.bnd.header;
 
 import org.osgi.annotation.versioning.Version;
@@ -712,6 +712,9 @@ public class Syntax implements Constants {
 		new Syntax(TESTCONTINUOUS,
 			"Do not exit after running the test suites but keep watching the bundles and rerun the test cases if the bundle is updated.",
 			TESTCONTINUOUS + "=true", "true,false", Verifier.TRUEORFALSEPATTERN),
+		new Syntax(TESTSHARDS,
+			"Distribute the test classes over a number of frameworks which are launched in parallel. The test classes are balanced by their duration in previous runs.",
+			TESTSHARDS + "=4", null, Verifier.NUMBERPATTERN),
 		new Syntax(TESTSOURCES,
 			"Specification to find JUnit test cases by traversing the test src directory and looking for java classes.",
 			TESTSOURCES + "=*.java", "REGEX ( ',' REGEX )*", null),
@@ -0,0 +1,351 @@
+package aQute.bnd.http;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.bnd.exceptions.Exceptions;
+import aQute.lib.io.IO;
+import aQute.libg.cryptography.SHA256;
+
+/**
+ * A content addressed store for downloaded artifacts that is shared by all
+ * caches of a user.
+ * <p>
+ * Artifacts are stored under their SHA-256 in the root directory. When a cache
+ * downloads an artifact, its file is replaced by a hard link to the artifact in
+ * the store, so identical artifacts in different caches only use disk space
+ * once. An artifact with a known SHA-256 can be restored from the store without
+ * downloading it.
+ * <p>
+ * All modifications are done by creating temporary files or links and moving
+ * them into place, so the store can be used concurrently by several
+ * processes. On file systems that do not support hard links, or when a cache
+ * is on another file system than the store, the caches keep their own copies.
+ * <p>
+ * The store is garbage collected when it exceeds its maximum size. The least
+ * recently used artifacts are removed first. Removing an artifact from the
+ * store does not remove it from the caches that link to it.
+ */
+public class ArtifactStore {
+	private final static Logger						logger						= LoggerFactory.getLogger(ArtifactStore.class);
+	private final static Pattern					SHA256_P					= Pattern.compile("[0-9a-f]{64}");
+	private final static String						GC_STAMP					= "gc.stamp";
+	private final static long						GC_INTERVAL					= TimeUnit.HOURS.toMillis(1);
+	private final static Set<PosixFilePermission>	WRITE_PERMISSIONS			= EnumSet.of(PosixFilePermission.OWNER_WRITE,
+		PosixFilePermission.GROUP_WRITE, PosixFilePermission.OTHERS_WRITE);
+
+	/**
+	 * The default maximum size of the store in bytes.
+	 */
+	public final static long						DEFAULT_MAX_SIZE			= 10L * 1024L * 1024L * 1024L;
+
+	/**
+	 * The system property with the directory of the store that is used by the
+	 * {@link HttpClient} by default, for example {@code ~/.bnd/artifacts}. When
+	 * it is not set, downloads are not shared.
+	 */
+	public final static String						ARTIFACTS_DIR_SYSTEM_PROP	= "bnd.artifacts.dir";
+
+	private final File								root;
+	private final long								maxSize;
+
+	/**
+	 * Create a store.
+	 *
+	 * @param root the directory of the store
+	 * @param maxSize the maximum size in bytes of the store before least
+	 *            recently used artifacts are removed
+	 */
+	public ArtifactStore(File root, long maxSize) {
+		this.root = root;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Answer the store in the directory of the
+	 * {@link #ARTIFACTS_DIR_SYSTEM_PROP} system property.
+	 *
+	 * @return the store or {@code null} if the system property is not set
+	 */
+	public static ArtifactStore fromSystemProperty() {
+		String dir = System.getProperty(ARTIFACTS_DIR_SYSTEM_PROP);
+		if ((dir == null) || (dir = dir.trim()).isEmpty()) {
+			return null;
+		}
+		return new ArtifactStore(IO.getFile(dir), DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Answer the file of an artifact in the store.
+	 *
+	 * @param sha256 the SHA-256 of the artifact in hex
+	 * @return the file of the artifact or {@code null} if the store does not
+	 *         contain it
+	 */
+	public File get(String sha256) {
+		String key = key(sha256);
+		if (key == null) {
+			return null;
+		}
+		File blob = blob(key);
+		return blob.isFile() ? blob : null;
+	}
+
+	/**
+	 * Add a file to the store. If the store already contains the artifact, the
+	 * file is replaced with a link to the artifact in the store. Otherwise the
+	 * file becomes the artifact in the store.
+	 *
+	 * @param file the file, its content must have the given SHA-256
+	 * @param sha256 the SHA-256 of the file in hex
+	 * @return {@code true} if the file is now shared with the store
+	 */
+	public boolean link(File file, String sha256) {
+		String key = key(sha256);
+		if (key == null || !file.isFile()) {
+			return false;
+		}
+		Path blob = blob(key).toPath();
+		Path path = file.toPath();
+		try {
+			IO.mkdirs(blob.getParent());
+			for (int i = 0; i < 2; i++) {
+				if (Files.isRegularFile(blob)) {
+					if (Files.isSameFile(blob, path)) {
+						used(blob);
+						return true;
+					}
+					if (isValid(blob, key, Files.size(path))) {
+						Path tmp = Files.createTempFile(path.getParent(), path.getFileName()
+							.toString(), ".link");
+						try {
+							Files.delete(tmp);
+							Files.createLink(tmp, blob);
+							IO.rename(tmp, path);
+						} finally {
+							Files.deleteIfExists(tmp);
+						}
+						readOnly(blob);
+						used(blob);
+						return true;
+					}
+					// damaged, replace it with the new file
+					Files.deleteIfExists(blob);
+				}
+				try {
+					Files.createLink(blob, path);
+					readOnly(blob);
+					used(blob);
+					gc(false);
+					return true;
+				} catch (FileAlreadyExistsException e) {
+					// another process added it, try again
+				}
+			}
+		} catch (IOException | UnsupportedOperationException | SecurityException e) {
+			logger.debug("Cannot share {} with the artifact store {}: {}", file, root, e);
+		}
+		return false;
+	}
+
+	/**
+	 * Restore an artifact from the store to a file. The file will be a link to
+	 * the artifact in the store or, when links are not supported, a copy.
+	 *
+	 * @param sha256 the SHA-256 of the artifact in hex
+	 * @param file the file to create or replace
+	 * @return {@code true} if the artifact was in the store and was restored
+	 */
+	public boolean restore(String sha256, File file) {
+		String key = key(sha256);
+		if (key == null) {
+			return false;
+		}
+		Path blob = blob(key).toPath();
+		Path path = file.toPath();
+		try {
+			if (!Files.isRegularFile(blob) || !isValid(blob, key, Files.size(blob))) {
+				return false;
+			}
+			IO.mkdirs(path.getParent());
+			Path tmp = Files.createTempFile(path.getParent(), path.getFileName()
+				.toString(), ".link");
+			try {
+				Files.delete(tmp);
+				try {
+					Files.createLink(tmp, blob);
+				} catch (IOException | UnsupportedOperationException e) {
+					Files.copy(blob, tmp, StandardCopyOption.COPY_ATTRIBUTES);
+				}
+				IO.rename(tmp, path);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+			used(blob);
+			return true;
+		} catch (NoSuchFileException e) {
+			// removed concurrently
+		} catch (IOException | SecurityException e) {
+			logger.debug("Cannot restore {} from the artifact store {}: {}", file, root, e);
+		}
+		return false;
+	}
+
+	/**
+	 * Remove the least recently used artifacts until the store is smaller than
+	 * its maximum size.
+	 *
+	 * @param force if {@code false}, the collection is skipped when the store
+	 *            was collected recently by this or another process
+	 * @return the number of bytes removed
+	 */
+	public long gc(boolean force) {
+		try {
+			Path stamp = new File(root, GC_STAMP).toPath();
+			long now = System.currentTimeMillis();
+			if (!force && Files.isRegularFile(stamp) && Files.getLastModifiedTime(stamp)
+				.toMillis() + GC_INTERVAL > now) {
+				return 0L;
+			}
+			IO.mkdirs(root);
+			IO.store(Long.toString(now), stamp.toFile());
+
+			List<Artifact> artifacts = new ArrayList<>();
+			long total = 0L;
+			try (Stream<Path> dirs = Files.list(root.toPath())) {
+				for (Path dir : (Iterable<Path>) dirs::iterator) {
+					if (!Files.isDirectory(dir)) {
+						continue;
+					}
+					try (Stream<Path> blobs = Files.list(dir)) {
+						for (Path blob : (Iterable<Path>) blobs::iterator) {
+							if (SHA256_P.matcher(blob.getFileName()
+								.toString())
+								.matches()) {
+								BasicFileAttributes attributes = Files.readAttributes(blob, BasicFileAttributes.class);
+								artifacts.add(new Artifact(blob, attributes.size(), attributes.lastAccessTime()
+									.toMillis()));
+								total += attributes.size();
+							}
+						}
+					}
+				}
+			}
+			if (total <= maxSize) {
+				return 0L;
+			}
+			artifacts.sort(Comparator.comparingLong(a -> a.used));
+			long removed = 0L;
+			for (Artifact artifact : artifacts) {
+				if (total - removed <= maxSize) {
+					break;
+				}
+				if (Files.deleteIfExists(artifact.path)) {
+					removed += artifact.size;
+				}
+			}
+			logger.debug("Removed {} bytes from the artifact store {}", removed, root);
+			return removed;
+		} catch (IOException | SecurityException e) {
+			logger.debug("Failed to collect the artifact store {}: {}", root, e);
+			return 0L;
+		}
+	}
+
+	public File getRoot() {
+		return root;
+	}
+
+	@Override
+	public String toString() {
+		return "ArtifactStore [root=" + root + ", maxSize=" + maxSize + "]";
+	}
+
+	private File blob(String key) {
+		return new File(root, key.substring(0, 2) + "/" + key);
+	}
+
+	/*
+	 * A stored artifact could have been modified through one of its links.
+	 * Verify it before handing it out.
+	 */
+	private boolean isValid(Path blob, String key, long size) throws IOException {
+		try {
+			return Files.size(blob) == size && SHA256.digest(blob.toFile())
+				.asHex()
+				.equalsIgnoreCase(key);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw Exceptions.duck(e);
+		}
+	}
+
+	/*
+	 * The permissions are shared by all links, so this protects the artifact
+	 * from being changed through the file of a cache.
+	 */
+	private static void readOnly(Path blob) throws IOException {
+		PosixFileAttributeView view = Files.getFileAttributeView(blob, PosixFileAttributeView.class);
+		if (view == null) {
+			return;
+		}
+		Set<PosixFilePermission> permissions = view.readAttributes()
+			.permissions();
+		permissions.removeAll(WRITE_PERMISSIONS);
+		view.setPermissions(permissions);
+	}
+
+	/*
+	 * Only the access time is updated. The modification time is shared by all
+	 * links and is used by the caches.
+	 */
+	private static void used(Path blob) throws IOException {
+		Files.getFileAttributeView(blob, BasicFileAttributeView.class)
+			.setTimes(null, FileTime.fromMillis(System.currentTimeMillis()), null);
+	}
+
+	private static String key(String sha256) {
+		if (sha256 == null) {
+			return null;
+		}
+		String key = sha256.trim()
+			.toLowerCase(Locale.ROOT);
+		return SHA256_P.matcher(key)
+			.matches() ? key : null;
+	}
+
+	final static class Artifact {
+		final Path	path;
+		final long	size;
+		final long	used;
+
+		Artifact(Path path, long size, long used) {
+			this.path = path;
+			this.size = size;
+			this.used = used;
+		}
+	}
+}
@@ -92,7 +92,8 @@ public class HttpClient implements Closeable, URLConnector {
 	private ThreadLocal<PasswordAuthentication>	passwordAuthentication	= new ThreadLocal<>();
 	private boolean								inited;
 	static final JSONCodec						codec					= new JSONCodec();
-	private URLCache							cache					= new URLCache(
+	private ArtifactStore						artifacts				= ArtifactStore.fromSystemProperty();
+	private URLCache							cache					= newURLCache(
 		IO.getFile(Home.getUserHomeBnd() + "/urlcache"));
 	private Registry							registry				= null;
 	private Reporter							reporter;
@@ -279,7 +280,54 @@ public class HttpClient implements Closeable, URLConnector {
 	}
 
 	public void setCache(File cache) {
-		this.cache = new URLCache(cache);
+		this.cache = newURLCache(cache);
+	}
+
+	private URLCache newURLCache(File root) {
+		URLCache cache = new URLCache(root);
+		cache.setArtifactStore(artifacts);
+		return cache;
+	}
+
+	/**
+	 * Set the store that the cached downloads are shared with. By default the
+	 * downloads are only shared when the
+	 * {@link ArtifactStore#ARTIFACTS_DIR_SYSTEM_PROP} system property is set.
+	 *
+	 * @param artifacts the store or {@code null} to not share downloads
+	 */
+	public void setArtifactStore(ArtifactStore artifacts) {
+		this.artifacts = artifacts;
+		cache.setArtifactStore(artifacts);
+	}
+
+	public ArtifactStore getArtifactStore() {
+		return artifacts;
+	}
+
+	/**
+	 * Restore a cache file from the artifact store when the content is known
+	 * by its SHA-256. This avoids a download of an artifact that was already
+	 * downloaded for another cache. The restored file is treated like a
+	 * downloaded file by later cached requests for the url.
+	 *
+	 * @param url the url the file is cached for
+	 * @param file the cache file
+	 * @param sha256 the SHA-256 of the content in hex
+	 * @return {@code true} if the file is present in the cache
+	 */
+	public boolean restore(URI url, File file, String sha256) throws Exception {
+		ArtifactStore store = artifacts;
+		try (Info info = cache().get(file, url)) {
+			if (info.isPresent()) {
+				return true;
+			}
+			if (store == null || !store.restore(sha256, info.file)) {
+				return false;
+			}
+			info.update(null);
+			return true;
+		}
 	}
 
 	public void setReporter(Reporter reporter) {
@@ -486,7 +534,7 @@ public class HttpClient implements Closeable, URLConnector {
 						return new TaggedData(uri, HTTP_NOT_FOUND, null);
 					}
 
-					if (info.file.isFile() && info.file.lastModified() == sourceFile.lastModified()
+					if (info.file.isFile() && info.lastModified() == sourceFile.lastModified()
 						&& info.file.length() == sourceFile.length()) {
 						return new TaggedData(uri, HTTP_NOT_MODIFIED, info.file);
 					}
@@ -516,7 +564,7 @@ public class HttpClient implements Closeable, URLConnector {
 						if (info.dto.etag != null) {
 							request.ifNoneMatch(info.getETag());
 						} else {
-							long time = info.file.lastModified();
+							long time = info.lastModified();
 							if (time > 0) {
 								request.ifModifiedSince(time + 1);
 							}
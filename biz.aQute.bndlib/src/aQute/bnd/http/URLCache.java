@@ -30,6 +30,7 @@ public class URLCache {
 	private final File					root;
 
 	private ConcurrentMap<File, Info>	infos	= new ConcurrentHashMap<>();
+	private volatile ArtifactStore		artifacts;
 
 	public static class InfoDTO {
 		public String	etag;
@@ -77,12 +78,25 @@ public class URLCache {
 		}
 
 		public void update(InputStream inputStream, String etag, long modified) throws Exception {
-			IO.mkdirs(this.file.getParentFile());
-			IO.copy(inputStream, this.file);
-			if (modified > 0) {
-				this.file.setLastModified(modified);
+			File dir = this.file.getParentFile();
+			IO.mkdirs(dir);
+			// The file can be a link into the artifact store, so it must
+			// be replaced and not overwritten
+			File tmp = File.createTempFile(this.file.getName(), ".tmp", dir);
+			try {
+				IO.copy(inputStream, tmp);
+				if (modified > 0) {
+					tmp.setLastModified(modified);
+				}
+				IO.rename(tmp, this.file);
+			} finally {
+				IO.delete(tmp);
 			}
 			update(etag);
+			ArtifactStore store = artifacts;
+			if (store != null) {
+				store.link(this.file, this.dto.sha_256);
+			}
 		}
 
 		public void update(String etag) throws Exception {
@@ -116,6 +130,15 @@ public class URLCache {
 			return dto.modified;
 		}
 
+		/*
+		 * The modification time of the file itself is shared with the
+		 * artifact store when the file is a link, so the recorded time is
+		 * preferred.
+		 */
+		long lastModified() {
+			return (dto.modified > 0) ? dto.modified : file.lastModified();
+		}
+
 		@Override
 		public String toString() {
 			return "Info [file=" + file + ", etag=" + dto.etag + ", modified=" + Instant.ofEpochMilli(dto.modified)
@@ -133,6 +156,20 @@ public class URLCache {
 		}
 	}
 
+	/**
+	 * Set the store to share downloaded files with.
+	 *
+	 * @param artifacts the store or {@code null} to keep downloaded files
+	 *            private to this cache
+	 */
+	public void setArtifactStore(ArtifactStore artifacts) {
+		this.artifacts = artifacts;
+	}
+
+	public ArtifactStore getArtifactStore() {
+		return artifacts;
+	}
+
 	public Info get(URI uri) throws Exception {
 		return get(null, uri);
 	}
@@ -2605,6 +2605,14 @@ public class Analyzer extends Processor {
 	private boolean analyzeJar(Jar jar, String prefix, boolean okToIncludeDirs, String bcpEntry) throws Exception {
 		Map<String, Clazz> mismatched = new HashMap<>();
 
+		// The classes are parsed sequentially since the descriptors are
+		// shared, but their content can be read concurrently up front
+		jar.load(jar.getResources()
+			.keySet()
+			.stream()
+			.filter(path -> path.startsWith(prefix) && path.endsWith(".class"))
+			.collect(toList()));
+
 		next: for (String path : jar.getResources()
 			.keySet()) {
 			if (path.startsWith(prefix)) {
@@ -3149,6 +3157,10 @@ public class Analyzer extends Processor {
 		return descriptors.getTypeRef(binaryClassName);
 	}
 
+	String intern(String constant) {
+		return descriptors.intern(constant);
+	}
+
 	public PackageRef getPackageRef(String binaryName) {
 		return descriptors.getPackageRef(binaryName);
 	}
@@ -3211,29 +3223,38 @@ public class Analyzer extends Processor {
 			.stream()
 			.filter(packageRef -> !packageRef.isMetaData())
 			.sorted()
-			.collect(toCollection(LinkedList<PackageRef>::new));
+			.collect(toList());
 
 		if (nomatch == null)
 			nomatch = Create.set();
 
-		for (Instruction instruction : instructions.keySet()) {
-			boolean match = false;
+		// A package can only be matched by the first matching instruction
+		CompiledInstructions compiled = new CompiledInstructions(instructions);
+		List<List<PackageRef>> matched = new ArrayList<>(Collections.nCopies(compiled.size(), null));
+		for (PackageRef packageRef : refs) {
+			int index = compiled.indexOf(packageRef.getFQN(), i -> true);
+			if (index >= 0) {
+				List<PackageRef> packageRefs = matched.get(index);
+				if (packageRefs == null) {
+					matched.set(index, packageRefs = new ArrayList<>());
+				}
+				packageRefs.add(packageRef);
+			}
+		}
 
-			for (Iterator<PackageRef> i = refs.iterator(); i.hasNext();) {
-				PackageRef packageRef = i.next();
-				String packageName = packageRef.getFQN();
+		for (int index = 0; index < compiled.size(); index++) {
+			Instruction instruction = compiled.instruction(index);
+			List<PackageRef> packageRefs = matched.get(index);
 
-				if (instruction.matches(packageName)) {
-					match = true;
-					if (!instruction.isNegated()) {
-						result.merge(packageRef, instruction.isDuplicate(), source.get(packageRef),
-							instructions.get(instruction));
-					}
-					i.remove(); // Can never match again for another pattern
+			if (packageRefs == null) {
+				if (!instruction.isAny())
+					nomatch.add(instruction);
+			} else if (!instruction.isNegated()) {
+				for (PackageRef packageRef : packageRefs) {
+					result.merge(packageRef, instruction.isDuplicate(), source.get(packageRef),
+						compiled.attrs(index));
 				}
 			}
-			if (!match && !instruction.isAny())
-				nomatch.add(instruction);
 		}
 
 		/*
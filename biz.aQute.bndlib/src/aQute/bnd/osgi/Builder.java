@@ -684,13 +684,40 @@ public class Builder extends Analyzer {
 	 */
 	private Set<Instruction> doExpand(Jar jar, MultiMap<String, Jar> index, Instructions filter) throws Exception {
 		Set<Instruction> unused = Create.set();
+		CompiledInstructions compiled = new CompiledInstructions(filter);
+
+		// Assign each package to the first instruction that matches it. Each
+		// package is matched once and then removed from the index so that it
+		// is never matched again, also not by the exports.
+		List<List<Entry<String, List<Jar>>>> matched = new ArrayList<>(
+			Collections.nCopies(compiled.size(), null));
+		for (Iterator<Entry<String, List<Jar>>> entry = index.entrySet()
+			.iterator(); entry.hasNext();) {
+			Entry<String, List<Jar>> p = entry.next();
+			PackageRef packageRef = getPackageRef(p.getKey());
+
+			int n = compiled.indexOf(packageRef.getFQN(), i -> {
+				Instruction instruction = compiled.instruction(i);
+				// Skip * and meta data, we're talking packages!
+				return !instruction.isDuplicate() && !(packageRef.isMetaData() && instruction.isAny());
+			});
+			if (n < 0)
+				continue;
+
+			entry.remove();
+			List<Entry<String, List<Jar>>> packages = matched.get(n);
+			if (packages == null) {
+				matched.set(n, packages = new ArrayList<>());
+			}
+			packages.add(p);
+		}
 
-		for (Entry<Instruction, Attrs> e : filter.entrySet()) {
-			Instruction instruction = e.getKey();
+		for (int n = 0; n < compiled.size(); n++) {
+			Instruction instruction = compiled.instruction(n);
 			if (instruction.isDuplicate())
 				continue;
 
-			Attrs directives = e.getValue();
+			Attrs directives = compiled.attrs(n);
 
 			// We can optionally filter on the
 			// source of the package. We assume
@@ -699,42 +726,29 @@ public class Builder extends Analyzer {
 			Instruction from = new Instruction(directives.get(FROM_DIRECTIVE, "*"));
 
 			boolean used = false;
+			List<Entry<String, List<Jar>>> packages = matched.get(n);
+			if (packages != null) {
+				for (Entry<String, List<Jar>> p : packages) {
+					// ! effectively removes it from consideration by others
+					// (this includes exports)
+					if (instruction.isNegated()) {
+						used = true;
+						continue;
+					}
 
-			for (Iterator<Entry<String, List<Jar>>> entry = index.entrySet()
-				.iterator(); entry.hasNext();) {
-				Entry<String, List<Jar>> p = entry.next();
-
-				String directory = p.getKey();
-				PackageRef packageRef = getPackageRef(directory);
-
-				// Skip * and meta data, we're talking packages!
-				if (packageRef.isMetaData() && instruction.isAny())
-					continue;
-
-				if (!instruction.matches(packageRef.getFQN()))
-					continue;
+					// Do the from: directive, filters on the JAR type
+					List<Jar> providers = filterFrom(from, p.getValue());
+					if (providers.isEmpty())
+						continue;
 
-				// Ensure it is never matched again
-				entry.remove();
+					String directory = p.getKey();
+					int splitStrategy = getSplitStrategy(directives.get(SPLIT_PACKAGE_DIRECTIVE));
+					copyPackage(jar, providers, directory, splitStrategy);
+					Attrs contained = getContained().put(getPackageRef(directory));
 
-				// ! effectively removes it from consideration by others (this
-				// includes exports)
-				if (instruction.isNegated()) {
+					contained.put(INTERNAL_SOURCE_DIRECTIVE, getName(providers.get(0)));
 					used = true;
-					continue;
 				}
-
-				// Do the from: directive, filters on the JAR type
-				List<Jar> providers = filterFrom(from, p.getValue());
-				if (providers.isEmpty())
-					continue;
-
-				int splitStrategy = getSplitStrategy(directives.get(SPLIT_PACKAGE_DIRECTIVE));
-				copyPackage(jar, providers, directory, splitStrategy);
-				Attrs contained = getContained().put(packageRef);
-
-				contained.put(INTERNAL_SOURCE_DIRECTIVE, getName(providers.get(0)));
-				used = true;
 			}
 
 			if (!used && !isTrue(directives.get("optional:")))
@@ -862,32 +876,29 @@ public class Builder extends Analyzer {
 	 * @param source The name of the source container, can be filtered upon with
 	 *            the from: directive.
 	 */
-	private Instruction matches(Instructions instructions, String pack, Set<Instruction> unused, String source) {
-		for (Entry<Instruction, Attrs> entry : instructions.entrySet()) {
-			Instruction pattern = entry.getKey();
-
+	private Instruction matches(CompiledInstructions instructions, String pack, Set<Instruction> unused,
+		String source) {
+		int index = instructions.indexOf(pack, i -> {
 			// It is possible to filter on the source of the
 			// package with the from: directive. This is an
 			// instruction that must match the name of the
 			// source class path entry.
 
-			String from = entry.getValue()
+			String from = instructions.attrs(i)
 				.get(FROM_DIRECTIVE);
 			if (from != null) {
 				Instruction f = new Instruction(from);
-				if (!(f.matches(source) ^ f.isNegated()))
-					continue;
+				return f.matches(source) ^ f.isNegated();
 			}
+			return true;
+		});
+		if (index < 0)
+			return null;
 
-			// Now do the normal
-			// matching
-			if (pattern.matches(pack)) {
-				if (unused != null)
-					unused.remove(pattern);
-				return pattern;
-			}
-		}
-		return null;
+		Instruction pattern = instructions.instruction(index);
+		if (unused != null)
+			unused.remove(pattern);
+		return pattern;
 	}
 
 	/**
@@ -1599,7 +1610,7 @@ public class Builder extends Analyzer {
 
 		Stream<String> ir = getIncludedResourcePrefixes();
 
-		Instructions instructions = new Instructions(clauses);
+		CompiledInstructions instructions = new CompiledInstructions(new Instructions(clauses));
 
 		for (File r : resources) {
 			String cpEntry = getClasspathEntrySuffix(r);
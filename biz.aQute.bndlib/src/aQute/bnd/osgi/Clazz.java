@@ -59,10 +59,8 @@ import aQute.bnd.classfile.ClassFile;
 import aQute.bnd.classfile.CodeAttribute;
 import aQute.bnd.classfile.CodeAttribute.ExceptionHandler;
 import aQute.bnd.classfile.ConstantPool;
-import aQute.bnd.classfile.ConstantPool.AbstractRefInfo;
-import aQute.bnd.classfile.ConstantPool.MethodTypeInfo;
-import aQute.bnd.classfile.ConstantPool.NameAndTypeInfo;
 import aQute.bnd.classfile.ConstantValueAttribute;
+import aQute.bnd.classfile.DeferredAttribute;
 import aQute.bnd.classfile.DeprecatedAttribute;
 import aQute.bnd.classfile.ElementInfo;
 import aQute.bnd.classfile.ElementValueInfo;
@@ -657,8 +655,11 @@ public class Clazz {
 		<A extends TypeAnnotationsAttribute> Stream<TypeAnnotationInfo> typeAnnotationInfos(Class<A> attributeType) {
 			ElementType elementType = elementType();
 			Stream<A> methodAttributes = attributes(attributeType);
-			Stream<A> codeAttributes = attribute(CodeAttribute.class)
-				.map(code -> new CodeDef(code, elementType).attributes(attributeType))
+			Stream<A> codeAttributes = Arrays.stream(attributes())
+				.filter(a -> a.name()
+					.equals(CodeAttribute.NAME))
+				.findFirst()
+				.map(a -> new CodeDef(code(a), elementType).attributes(attributeType))
 				.orElseGet(Stream::empty);
 			return Stream.concat(methodAttributes, codeAttributes)
 				.flatMap(a -> Arrays.stream(a.type_annotations));
@@ -771,7 +772,8 @@ public class Clazz {
 
 		logger.debug("parseClassFile(): path={} resource={}", path, resource);
 
-		classFile = ClassFile.parseClassFile(in);
+		// The byte code attributes are parsed when processed
+		classFile = ClassFile.parseClassFile(in, true, analyzer::intern);
 		classDef = new ClassDef(classFile);
 		constantPool = classFile.constant_pool;
 		referred = new HashMap<>(constantPool.size());
@@ -811,18 +813,12 @@ public class Clazz {
 				case CONSTANT_Fieldref :
 				case CONSTANT_Methodref :
 				case CONSTANT_InterfaceMethodref : {
-					AbstractRefInfo info = constantPool.entry(i);
-					classConstRef(constantPool.className(info.class_index));
-					break;
-				}
-				case CONSTANT_NameAndType : {
-					NameAndTypeInfo info = constantPool.entry(i);
-					referTo(constantPool.utf8(info.descriptor_index), 0);
+					classConstRef(constantPool.refClassName(i));
 					break;
 				}
+				case CONSTANT_NameAndType :
 				case CONSTANT_MethodType : {
-					MethodTypeInfo info = constantPool.entry(i);
-					referTo(constantPool.utf8(info.descriptor_index), 0);
+					referTo(constantPool.descriptor(i), 0);
 					break;
 				}
 				default :
@@ -929,11 +925,10 @@ public class Clazz {
 			switch (constantPool.tag(i)) {
 				case CONSTANT_Methodref :
 				case CONSTANT_InterfaceMethodref :
-					AbstractRefInfo refInfo = constantPool.entry(i);
-					if (clazz.equals(constantPool.className(refInfo.class_index))) {
-						NameAndTypeInfo nameAndTypeInfo = constantPool.entry(refInfo.name_and_type_index);
-						if (methodname.equals(constantPool.utf8(nameAndTypeInfo.name_index))
-							&& descriptor.equals(constantPool.utf8(nameAndTypeInfo.descriptor_index))) {
+					if (clazz.equals(constantPool.refClassName(i))) {
+						int name_and_type_index = constantPool.refNameAndTypeIndex(i);
+						if (methodname.equals(constantPool.nameAndTypeName(name_and_type_index))
+							&& descriptor.equals(constantPool.descriptor(name_and_type_index))) {
 							return i;
 						}
 					}
@@ -945,7 +940,8 @@ public class Clazz {
 	/**
 	 * Called for the attributes in the class, field, method or Code attribute.
 	 */
-	private void processAttributes(Attribute[] attributes, ElementType elementType, int access_flags) {
+	private void processAttributes(Attribute[] attributes, ElementType elementType, int access_flags)
+		throws IOException {
 		for (Attribute attribute : attributes) {
 			switch (attribute.name()) {
 				case RuntimeVisibleAnnotationsAttribute.NAME :
@@ -976,7 +972,7 @@ public class Clazz {
 					processEnclosingMethod((EnclosingMethodAttribute) attribute);
 					break;
 				case CodeAttribute.NAME :
-					processCode((CodeAttribute) attribute, elementType);
+					processCode(code(attribute), elementType);
 					break;
 				case SignatureAttribute.NAME :
 					processSignature((SignatureAttribute) attribute, elementType, access_flags);
@@ -991,7 +987,11 @@ public class Clazz {
 					processBootstrapMethods((BootstrapMethodsAttribute) attribute);
 					break;
 				case StackMapTableAttribute.NAME :
-					processStackMapTable((StackMapTableAttribute) attribute);
+					if (attribute instanceof DeferredAttribute) {
+						processStackMapTable(((DeferredAttribute) attribute).value);
+					} else {
+						processStackMapTable((StackMapTableAttribute) attribute);
+					}
 					break;
 				default :
 					break;
@@ -1041,7 +1041,7 @@ public class Clazz {
 					visitEnclosingMethod(cd, (EnclosingMethodAttribute) attribute);
 					break;
 				case CodeAttribute.NAME :
-					visitCode(cd, (CodeAttribute) attribute, elementType);
+					visitCode(cd, code(attribute), elementType);
 					break;
 				case SignatureAttribute.NAME :
 					visitSignature(cd, (SignatureAttribute) attribute);
@@ -1177,7 +1177,22 @@ public class Clazz {
 		cd.methodParameters(method, MethodParameter.parameters(attribute));
 	}
 
-	private void processCode(CodeAttribute attribute, ElementType elementType) {
+	/**
+	 * The Code attribute is deferred when the class file is parsed, so it is
+	 * parsed when needed. Its attributes are also deferred.
+	 */
+	private CodeAttribute code(Attribute attribute) {
+		if (attribute instanceof DeferredAttribute) {
+			try {
+				return (CodeAttribute) ((DeferredAttribute) attribute).parse(constantPool);
+			} catch (IOException e) {
+				throw Exceptions.duck(e);
+			}
+		}
+		return (CodeAttribute) attribute;
+	}
+
+	private void processCode(CodeAttribute attribute, ElementType elementType) throws IOException {
 		ByteBuffer code = attribute.code.duplicate();
 		code.rewind();
 		int lastReference = -1;
@@ -1338,11 +1353,10 @@ public class Clazz {
 	 * Called when crawling the byte code and a method reference is found
 	 */
 	private void visitReferenceMethod(ClassDataCollector cd, int method_ref_index) {
-		AbstractRefInfo refInfo = constantPool.entry(method_ref_index);
-		String className = constantPool.className(refInfo.class_index);
-		NameAndTypeInfo nameAndTypeInfo = constantPool.entry(refInfo.name_and_type_index);
-		String method = constantPool.utf8(nameAndTypeInfo.name_index);
-		String descriptor = constantPool.utf8(nameAndTypeInfo.descriptor_index);
+		String className = constantPool.refClassName(method_ref_index);
+		int name_and_type_index = constantPool.refNameAndTypeIndex(method_ref_index);
+		String method = constantPool.nameAndTypeName(name_and_type_index);
+		String descriptor = constantPool.descriptor(name_and_type_index);
 		TypeRef type = analyzer.getTypeRef(className);
 		cd.referenceMethod(0, type, method, descriptor);
 	}
@@ -1557,6 +1571,66 @@ public class Clazz {
 		}
 	}
 
+	/**
+	 * Scan the value of a StackMapTable attribute which was not parsed for the
+	 * class references of the verification types. This avoids creating the
+	 * frames.
+	 */
+	private void processStackMapTable(ByteBuffer value) throws IOException {
+		ByteBuffer in = value.duplicate();
+		in.rewind();
+		int number_of_entries = Short.toUnsignedInt(in.getShort());
+		for (int i = 0; i < number_of_entries; i++) {
+			int frame_type = Byte.toUnsignedInt(in.get());
+			if (frame_type <= StackMapFrame.SAME) { // same_frame
+				continue;
+			}
+			if (frame_type <= StackMapFrame.SAME_LOCALS_1_STACK_ITEM) { // same_locals_1_stack_item_frame
+				verification_type_info(in);
+			} else if (frame_type <= StackMapFrame.RESERVED) { // RESERVED
+				throw new IOException("Unrecognized stack map frame type " + frame_type);
+			} else if (frame_type <= StackMapFrame.SAME_LOCALS_1_STACK_ITEM_EXTENDED) { // same_locals_1_stack_item_frame_extended
+				in.getShort(); // offset_delta
+				verification_type_info(in);
+			} else if (frame_type <= StackMapFrame.SAME_FRAME_EXTENDED) { // chop_frame or same_frame_extended
+				in.getShort(); // offset_delta
+			} else if (frame_type <= StackMapFrame.APPEND) { // append_frame
+				in.getShort(); // offset_delta
+				int number_of_locals = frame_type - StackMapFrame.SAME_FRAME_EXTENDED;
+				for (int n = 0; n < number_of_locals; n++) {
+					verification_type_info(in);
+				}
+			} else { // full_frame
+				in.getShort(); // offset_delta
+				int number_of_locals = Short.toUnsignedInt(in.getShort());
+				for (int n = 0; n < number_of_locals; n++) {
+					verification_type_info(in);
+				}
+				int number_of_stack_items = Short.toUnsignedInt(in.getShort());
+				for (int n = 0; n < number_of_stack_items; n++) {
+					verification_type_info(in);
+				}
+			}
+		}
+	}
+
+	private void verification_type_info(ByteBuffer in) throws IOException {
+		int tag = Byte.toUnsignedInt(in.get());
+		switch (tag) {
+			case VerificationTypeInfo.ITEM_Object : // Object_variable_info
+				classConstRef(Short.toUnsignedInt(in.getShort()));
+				break;
+			case VerificationTypeInfo.ITEM_Uninitialized : // Uninitialized_variable_info
+				in.getShort(); // offset
+				break;
+			default :
+				if (tag > VerificationTypeInfo.ITEM_Uninitialized) {
+					throw new IOException("Unrecognized verification type tag " + tag);
+				}
+				break;
+		}
+	}
+
 	private void verification_type_info(VerificationTypeInfo verificationTypeInfo) {
 		switch (verificationTypeInfo.tag) {
 			case VerificationTypeInfo.ITEM_Object :// Object_variable_info
@@ -0,0 +1,165 @@
+package aQute.bnd.osgi;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+import aQute.bnd.header.Attrs;
+
+/**
+ * A compiled form of {@link Instructions} for matching a large number of
+ * (package) names.
+ * <p>
+ * Literal instructions and prefix instructions like {@code com.acme.*} are
+ * placed in a trie keyed by the dot separated segments of the name. Only the
+ * remaining instructions, i.e. complex globs and case insensitive
+ * instructions, are matched with their regular expression. The result is the
+ * same as trying each instruction in order: the first matching instruction
+ * wins.
+ * <p>
+ * This is a snapshot, changes to the Instructions are not reflected.
+ */
+final class CompiledInstructions {
+	private final static int[]	EMPTY	= new int[0];
+
+	private final Instruction[]	instructions;
+	private final Attrs[]		attrs;
+	private final Node			root	= new Node();
+	private final int[]			patterns;
+
+	final static class Node {
+		Map<String, Node>	children;
+		int[]				literals	= EMPTY;
+		int[]				prefixes	= EMPTY;
+
+		Node child(String segment) {
+			if (children == null) {
+				children = new HashMap<>();
+			}
+			return children.computeIfAbsent(segment, k -> new Node());
+		}
+
+		Node get(String segment) {
+			return (children == null) ? null : children.get(segment);
+		}
+	}
+
+	CompiledInstructions(Instructions instructions) {
+		int size = instructions.size();
+		this.instructions = new Instruction[size];
+		this.attrs = new Attrs[size];
+		int[] patterns = new int[size];
+		int p = 0;
+		int index = 0;
+		for (Map.Entry<Instruction, Attrs> entry : instructions.entrySet()) {
+			Instruction instruction = entry.getKey();
+			this.instructions[index] = instruction;
+			this.attrs[index] = entry.getValue();
+			if (instruction.isAny()) {
+				root.prefixes = add(root.prefixes, index);
+			} else if (instruction.isLiteral() && !instruction.isCaseInsensitive()) {
+				Node node = insert(instruction.getLiteral());
+				node.literals = add(node.literals, index);
+			} else if (instruction.getPrefix() != null) {
+				Node node = insert(instruction.getPrefix());
+				node.prefixes = add(node.prefixes, index);
+			} else {
+				patterns[p++] = index;
+			}
+			index++;
+		}
+		this.patterns = Arrays.copyOf(patterns, p);
+	}
+
+	int size() {
+		return instructions.length;
+	}
+
+	Instruction instruction(int index) {
+		return instructions[index];
+	}
+
+	Attrs attrs(int index) {
+		return attrs[index];
+	}
+
+	/**
+	 * Answer the first instruction that matches the value.
+	 *
+	 * @param value the value to match
+	 * @return the first matching instruction or {@code null}
+	 */
+	Instruction matcher(String value) {
+		int index = indexOf(value, i -> true);
+		return (index < 0) ? null : instructions[index];
+	}
+
+	/**
+	 * Answer the index of the first instruction that matches the value and is
+	 * accepted by the given predicate. The predicate can be used to implement
+	 * additional conditions on an instruction like the {@code from:}
+	 * directive.
+	 *
+	 * @param value the value to match
+	 * @param accept tests the index of a matching instruction
+	 * @return the index of the first matching and accepted instruction or -1
+	 */
+	int indexOf(String value, IntPredicate accept) {
+		int best = Integer.MAX_VALUE;
+		Node node = root;
+		best = first(node.prefixes, best, accept);
+		int start = 0;
+		while (node != null) {
+			int end = value.indexOf('.', start);
+			String segment = (end < 0) ? value.substring(start) : value.substring(start, end);
+			node = node.get(segment);
+			if (node == null) {
+				break;
+			}
+			best = first(node.prefixes, best, accept);
+			if (end < 0) {
+				best = first(node.literals, best, accept);
+				break;
+			}
+			start = end + 1;
+		}
+
+		for (int index : patterns) {
+			if (index >= best) {
+				break;
+			}
+			if (instructions[index].matches(value) && accept.test(index)) {
+				return index;
+			}
+		}
+		return (best == Integer.MAX_VALUE) ? -1 : best;
+	}
+
+	private Node insert(String name) {
+		Node node = root;
+		int start = 0;
+		for (int end; (end = name.indexOf('.', start)) >= 0; start = end + 1) {
+			node = node.child(name.substring(start, end));
+		}
+		return node.child(name.substring(start));
+	}
+
+	private static int first(int[] indexes, int best, IntPredicate accept) {
+		for (int index : indexes) {
+			if (index >= best) {
+				break;
+			}
+			if (accept.test(index)) {
+				return index;
+			}
+		}
+		return best;
+	}
+
+	private static int[] add(int[] indexes, int index) {
+		int[] result = Arrays.copyOf(indexes, indexes.length + 1);
+		result[indexes.length] = index;
+		return result;
+	}
+}
@@ -276,6 +276,7 @@ public interface Constants {
 	String		IGNORE_STANDALONE							= "-ignore-standalone";
 	String		TESTPACKAGES								= "-testpackages";
 	String		TESTPATH									= "-testpath";
+	String		TESTSHARDS									= "-testshards";
 	String		TESTCONTINUOUS								= "-testcontinuous";
 	String		TESTTERMINATE								= "-testterminate";
 	String		TESTSOURCES									= "-testsources";
@@ -300,7 +301,7 @@ public interface Constants {
 		CLASSPATH, COMPRESSION, CONSUMER_POLICY, DEPENDSON, DONOTCOPY, EXPORT_CONTENTS, FAIL_OK, INCLUDE,
 		INCLUDERESOURCE, MAKE, MANIFEST, NOEXTRAHEADERS, NOUSES, NOBUNDLES, PEDANTIC, PLUGIN, POM, PROVIDER_POLICY,
 		REMOVEHEADERS, RESOURCEONLY, SOURCES, SOURCEPATH, SUB, RUNBUNDLES, RUNPATH, RUNSYSTEMPACKAGES,
-		RUNSYSTEMCAPABILITIES, RUNPROPERTIES, REPORTNEWER, UNDERTEST, TESTPATH, TESTPACKAGES, NOMANIFEST, DEPLOYREPO,
+		RUNSYSTEMCAPABILITIES, RUNPROPERTIES, REPORTNEWER, UNDERTEST, TESTPATH, TESTSHARDS, TESTPACKAGES, NOMANIFEST, DEPLOYREPO,
 		RELEASEREPO, SAVEMANIFEST, RUNVM, RUNPROGRAMARGS, WAB, WABLIB, RUNFRAMEWORK, RUNFW, RUNKEEP, RUNTRACE,
 		RUNBLACKLIST, TESTCONTINUOUS, SNAPSHOT, NAMESECTION, DIGESTS, DSANNOTATIONS, DSANNOTATIONS_OPTIONS,
 		BASELINEREPO, PROFILE, EXECUTABLE, RUNNOREFERENCES, JAVAAGENT, STRICT, DIFFIGNORE, DIFFPACKAGES, CONTRACT,
@@ -6,6 +6,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.osgi.annotation.versioning.ProviderType;
 
@@ -22,6 +23,7 @@ public class Descriptors {
 	private final Map<String, ClassSignature>	classSignatureCache		= new HashMap<>();
 	private final Map<String, MethodSignature>	methodSignatureCache	= new HashMap<>();
 	private final Map<String, FieldSignature>	fieldSignatureCache		= new HashMap<>();
+	private final Map<String, String>			strings					= new ConcurrentHashMap<>();
 
 	// MUST BE BEFORE PRIMITIVES, THEY USE THE DEFAULT PACKAGE!!
 	final static PackageRef						DEFAULT_PACKAGE			= new PackageRef();
@@ -439,6 +441,15 @@ public class Descriptors {
 
 	}
 
+	/**
+	 * Answer the canonical instance of a constant from a class file. The class
+	 * files of an analyzer share many of their names and descriptors.
+	 */
+	String intern(String constant) {
+		String previous = strings.putIfAbsent(constant, constant);
+		return (previous != null) ? previous : constant;
+	}
+
 	public TypeRef getTypeRef(String binaryClassName) {
 		assert !binaryClassName.endsWith(".class");
 		int last = binaryClassName.length() - 1;
@@ -41,6 +41,7 @@ import aQute.bnd.maven.PomParser;
 import aQute.bnd.version.Version;
 import aQute.lib.converter.Converter;
 import aQute.bnd.exceptions.Exceptions;
+import aQute.bnd.exceptions.FunctionWithException;
 import aQute.lib.io.ByteBufferInputStream;
 import aQute.lib.io.IO;
 import aQute.lib.utf8properties.UTF8Properties;
@@ -456,6 +457,30 @@ public abstract class Domain implements Iterable<String> {
 		}
 	}
 
+	/**
+	 * Answer the domain of a manifest with the translation of its
+	 * localization.
+	 *
+	 * @param manifest the manifest
+	 * @param resources answers the content of a resource in the jar of the
+	 *            manifest or null if there is no such resource
+	 * @return the domain of the manifest
+	 */
+	public static Domain domain(Manifest manifest, FunctionWithException<String, InputStream> resources)
+		throws IOException {
+		Domain domain = domain(manifest);
+		try (InputStream in = resources.apply(domain.getLocalization())) {
+			if (in != null) {
+				domain.translation.load(in);
+			}
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw Exceptions.duck(e);
+		}
+		return domain;
+	}
+
 	public static Domain domain(JarInputStream jin) throws IOException {
 		Manifest m = jin.getManifest();
 		if (m != null) {
@@ -66,6 +66,7 @@ public class Instruction {
 	private final int				matchFlags;
 	private Pattern					pattern;
 	private boolean					optional;
+	private String					prefix;
 
 	public Instruction(String input) {
 
@@ -127,8 +128,11 @@ public class Instruction {
 		// also include the last full package. I.e.
 		// com.foo.* includes com.foo (unlike OSGi)
 		if (s.regionMatches(end - 2, ".*", 0, 2)) {
-			s = s.substring(start, end - 2)
-				.concat("(?:.*)?");
+			String base = s.substring(start, end - 2);
+			if (((flags & Pattern.CASE_INSENSITIVE) == 0) && isLiteralPrefix(base)) {
+				prefix = base;
+			}
+			s = base.concat("(?:.*)?");
 			literal = false;
 		} else {
 			s = s.substring(start, end);
@@ -148,6 +152,11 @@ public class Instruction {
 		}
 	}
 
+	private static boolean isLiteralPrefix(String base) {
+		return (base.indexOf('\\') < 0) && !WILDCARD.matcher(base)
+			.find() && base.equals(base.trim());
+	}
+
 	public static Instruction legacy(String input) {
 		if (input.equals("*")) {
 			return new Instruction(input, null, null, false, 0, true, false, false);
@@ -304,6 +313,21 @@ public class Instruction {
 		return match;
 	}
 
+	/**
+	 * If this instruction is of the form {@code com.acme.*} without any other
+	 * wildcards or flags, it matches {@code com.acme} and every name that starts
+	 * with {@code com.acme.}. In that case, answer the literal prefix.
+	 *
+	 * @return the literal prefix or {@code null}
+	 */
+	String getPrefix() {
+		return prefix;
+	}
+
+	boolean isCaseInsensitive() {
+		return (matchFlags & Pattern.CASE_INSENSITIVE) != 0;
+	}
+
 	public boolean isDuplicate() {
 		return duplicate;
 	}
@@ -207,26 +207,34 @@ public class Instructions implements Map<Instruction, Attrs> {
 	}
 
 	public <T> Collection<T> select(Collection<T> set, Set<Instruction> unused, boolean emptyIsAll) {
-		List<T> input = new ArrayList<>(set);
 		if (emptyIsAll && isEmpty())
-			return input;
+			return new ArrayList<>(set);
+
+		// Assign each element to the first instruction that matches it and
+		// then collect in the order of the instructions
+		CompiledInstructions compiled = new CompiledInstructions(this);
+		List<List<T>> matched = new ArrayList<>(Collections.nCopies(compiled.size(), null));
+		for (T oo : set) {
+			int index = compiled.indexOf(oo.toString(), i -> true);
+			if (index >= 0) {
+				List<T> list = matched.get(index);
+				if (list == null) {
+					matched.set(index, list = new ArrayList<>());
+				}
+				list.add(oo);
+			}
+		}
 
 		List<T> result = new ArrayList<>();
-
-		for (Instruction instruction : keySet()) {
-			boolean used = false;
-			for (Iterator<T> o = input.iterator(); o.hasNext();) {
-				T oo = o.next();
-				String s = oo.toString();
-				if (instruction.matches(s)) {
-					if (!instruction.isNegated())
-						result.add(oo);
-					o.remove();
-					used = true;
-				}
+		for (int index = 0; index < compiled.size(); index++) {
+			Instruction instruction = compiled.instruction(index);
+			List<T> list = matched.get(index);
+			if (list == null) {
+				if (unused != null)
+					unused.add(instruction);
+			} else if (!instruction.isNegated()) {
+				result.addAll(list);
 			}
-			if (!used && unused != null)
-				unused.add(instruction);
 		}
 		return result;
 	}
@@ -383,11 +391,12 @@ public class Instructions implements Map<Instruction, Attrs> {
 		Iterator<Map.Entry<String, Attrs>> it = parameters.entrySet()
 			.iterator();
 		Set<Instruction> used = new HashSet<>(keySet());
+		CompiledInstructions compiled = new CompiledInstructions(this);
 
 		while (it.hasNext()) {
 			Entry<String, Attrs> next = it.next();
 
-			Instruction matching = matcher(next.getKey());
+			Instruction matching = compiled.matcher(next.getKey());
 			if (matching != null) {
 				used.remove(matching);
 				if (matching.isNegated())
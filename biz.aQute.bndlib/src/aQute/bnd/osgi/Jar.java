@@ -7,11 +7,13 @@ import static java.util.stream.Collectors.toList;
 
 import java.io.Closeable;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.file.FileVisitOption;
@@ -25,9 +27,11 @@ import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.GregorianCalendar;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -38,22 +42,23 @@ import java.util.Spliterator;
 import java.util.Spliterators.AbstractSpliterator;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
-import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
-import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
+
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
 
 import aQute.bnd.classfile.ClassFile;
 import aQute.bnd.classfile.ModuleAttribute;
@@ -73,6 +78,7 @@ import aQute.libg.glob.PathSet;
 
 public class Jar implements Closeable {
 	private static final int	BUFFER_SIZE				= IOConstants.PAGE_SIZE * 16;
+	private static final int	MAX_BUFFER_SIZE			= Integer.MAX_VALUE - 8;
 	/**
 	 * Note that setting the January 1st 1980 (or even worse, "0", as time)
 	 * won't work due to Java 8 doing some interesting time processing: It
@@ -96,6 +102,14 @@ public class Jar implements Closeable {
 		STORE
 	}
 
+	/**
+	 * The default number of bytes of the entries read from a stream that are
+	 * kept on the heap, see {@link #fromInputStream(String, InputStream, long)}.
+	 * Can be set with the {@code bnd.jar.memorybudget} system property.
+	 */
+	public static final long									DEFAULT_MEMORY_BUDGET	= Long
+		.getLong("bnd.jar.memorybudget", Long.MAX_VALUE);
+	private static final int									WRITE_BATCH				= 256;
 	private static final String									DEFAULT_MANIFEST_NAME	= "META-INF/MANIFEST.MF";
 	private static final Pattern								DEFAULT_DO_NOT_COPY		= Pattern
 		.compile(Constants.DEFAULT_DO_NOT_COPY);
@@ -110,6 +124,7 @@ public class Jar implements Closeable {
 	private String												name;
 	private File												source;
 	private ZipFile												zipFile;
+	private RawZipFile											rawZipFile;
 	private long												lastModified;
 	private String												lastModifiedReason;
 	private boolean												doNotTouchManifest;
@@ -121,6 +136,10 @@ public class Jar implements Closeable {
 	private SHA256												sha256;
 	private boolean												calculateFileDigest;
 	private int													fileLength				= -1;
+	private final Map<String, EntryDigests>						entryDigests			= new ConcurrentHashMap<>();
+	private long												memoryBudget			= DEFAULT_MEMORY_BUDGET;
+	private SpillFile											spillFile;
+	private PromiseFactory										promiseFactory;
 
 	public Jar(String name) {
 		this.name = name;
@@ -255,6 +274,51 @@ public class Jar implements Closeable {
 		buildFromInputStream(in);
 	}
 
+	/**
+	 * Create a Jar from a stream that keeps at most the given number of bytes
+	 * of its entries on the heap. When the budget is used up, the remaining
+	 * entries are spilled to a temporary file that is memory mapped when the
+	 * entries are read. The file is deleted when the Jar is closed. Its
+	 * resources remain readable after the Jar is closed, so they can be added
+	 * to another Jar.
+	 *
+	 * @param name the name of the Jar
+	 * @param in the stream of a zip file
+	 * @param memoryBudget the maximum number of bytes of entries to keep on
+	 *            the heap
+	 * @return a Jar with the entries of the stream
+	 */
+	public static Jar fromInputStream(String name, InputStream in, long memoryBudget) throws IOException {
+		Jar jar = new Jar(name);
+		jar.memoryBudget = memoryBudget;
+		try {
+			return jar.buildFromInputStream(in);
+		} catch (IOException | RuntimeException e) {
+			jar.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Create a Jar from the content of a zip file held in a byte buffer. The
+	 * entries are read from the central directory and are only inflated when
+	 * they are used.
+	 *
+	 * @param name the name of the Jar
+	 * @param buffer the content of a zip file
+	 * @return a Jar with the entries of the buffer
+	 * @throws ZipException if the central directory cannot be read
+	 */
+	public static Jar fromBuffer(String name, ByteBuffer buffer) throws IOException {
+		Jar jar = new Jar(name);
+		try {
+			return jar.buildFromBuffer(buffer);
+		} catch (IOException | RuntimeException e) {
+			jar.close();
+			throw e;
+		}
+	}
+
 	public Jar(String string, File file) throws IOException {
 		this(string, file, DEFAULT_DO_NOT_COPY);
 	}
@@ -296,42 +360,95 @@ public class Jar implements Closeable {
 	private Jar buildFromZip(File file) throws IOException {
 		try {
 			zipFile = new ZipFile(file);
+			rawZipFile = new RawZipFile(file.toPath());
 			for (ZipEntry entry : Iterables.iterable(zipFile.entries())) {
 				if (entry.isDirectory()) {
 					continue;
 				}
-				putResource(entry.getName(), new ZipResource(zipFile, entry), true);
+				putResource(entry.getName(), new ZipResource(zipFile, entry, rawZipFile), true);
 			}
 			return this;
 		} catch (ZipException e) {
 			IO.close(zipFile);
+			IO.close(rawZipFile);
 			ZipException ze = new ZipException(
 				"The JAR/ZIP file (" + file.getAbsolutePath() + ") seems corrupted, error: " + e.getMessage());
 			ze.initCause(e);
 			throw ze;
 		} catch (FileNotFoundException e) {
 			IO.close(zipFile);
+			IO.close(rawZipFile);
 			throw new IllegalArgumentException("Problem opening JAR: " + file.getAbsolutePath(), e);
 		} catch (IOException e) {
 			IO.close(zipFile);
+			IO.close(rawZipFile);
 			throw e;
 		}
 	}
 
+	private Jar buildFromBuffer(ByteBuffer buffer) throws IOException {
+		RawZipFile zip = rawZipFile = new RawZipFile(buffer);
+		for (String entryName : zip.names()) {
+			if (entryName.endsWith("/")) {
+				continue;
+			}
+			putResource(entryName, new AbstractResource(zip.lastModified(entryName)) {
+				@Override
+				protected byte[] getBytes() throws Exception {
+					return IO.read(zip.open(entryName));
+				}
+			}, true);
+		}
+		return this;
+	}
+
 	private Jar buildFromResource(Resource resource) throws Exception {
 		return buildFromInputStream(resource.openInputStream());
 	}
 
 	private Jar buildFromInputStream(InputStream in) throws IOException {
-		try (ZipInputStream jin = new ZipInputStream(in);
-			ByteBufferOutputStream bbos = new ByteBufferOutputStream(BUFFER_SIZE)) {
+		long budget = memoryBudget;
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (ZipInputStream jin = new ZipInputStream(in)) {
 			for (ZipEntry entry; (entry = jin.getNextEntry()) != null;) {
 				if (entry.isDirectory()) {
 					continue;
 				}
-				bbos.clear()
-					.write(jin);
-				Resource resource = new EmbeddedResource(bbos.toByteBuffer(), ZipUtil.getModifiedTime(entry));
+				long lastModified = ZipUtil.getModifiedTime(entry);
+				long size = entry.getSize();
+				long limit = Math.min(budget, MAX_BUFFER_SIZE);
+				Resource resource;
+				if (size > limit) {
+					resource = spillFile().add(jin, lastModified);
+				} else if (size >= 0L) {
+					byte[] data = new byte[(int) size];
+					for (int length = 0, n; length < data.length; length += n) {
+						if ((n = jin.read(data, length, data.length - length)) < 0) {
+							throw new EOFException("Unexpected end of entry " + entry.getName());
+						}
+					}
+					resource = new EmbeddedResource(data, lastModified);
+					budget -= size;
+				} else {
+					// The size is not known before the entry is read, the
+					// entry is spilled as soon as it exceeds the budget
+					int length = 0;
+					for (int n; (n = jin.read(buffer, length, buffer.length - length)) > 0;) {
+						length += n;
+						if (length > limit) {
+							break;
+						}
+						if (length == buffer.length) {
+							buffer = Arrays.copyOf(buffer, (int) Math.min(length * 2L, limit + 1L));
+						}
+					}
+					if (length > limit) {
+						resource = spillFile().add(ByteBuffer.wrap(buffer, 0, length), jin, lastModified);
+					} else {
+						resource = new EmbeddedResource(Arrays.copyOf(buffer, length), lastModified);
+						budget -= length;
+					}
+				}
 				byte[] extra = entry.getExtra();
 				if (extra != null) {
 					resource.setExtra(Resource.encodeExtra(extra));
@@ -342,6 +459,13 @@ public class Jar implements Closeable {
 		return this;
 	}
 
+	private SpillFile spillFile() throws IOException {
+		if (spillFile == null) {
+			spillFile = new SpillFile();
+		}
+		return spillFile;
+	}
+
 	public void setName(String name) {
 		this.name = name;
 	}
@@ -571,16 +695,7 @@ public class Jar implements Closeable {
 			out = digester = SHA256.getDigester(out);
 		}
 
-		ZipOutputStream jout = nomanifest || doNotTouchManifest ? new ZipOutputStream(out) : new JarOutputStream(out);
-
-		switch (compression) {
-			case STORE :
-				jout.setMethod(ZipOutputStream.STORED);
-				break;
-
-			default :
-				// default is DEFLATED
-		}
+		ZipWriter jout = new ZipWriter(out, !(nomanifest || doNotTouchManifest));
 
 		Set<String> done = new HashSet<>();
 
@@ -596,10 +711,14 @@ public class Jar implements Closeable {
 			done.add(manifestName);
 		}
 
-		for (Map.Entry<String, Resource> entry : getResources().entrySet()) {
-			// Skip metainf contents
-			if (!done.contains(entry.getKey()))
-				writeResource(jout, directories, entry.getKey(), entry.getValue());
+		if (isReproducible()) {
+			writeResources(jout, directories, done);
+		} else {
+			for (Map.Entry<String, Resource> entry : getResources().entrySet()) {
+				// Skip metainf contents
+				if (!done.contains(entry.getKey()))
+					writeResource(jout, directories, entry.getKey(), entry.getValue());
+			}
 		}
 		jout.finish();
 
@@ -695,7 +814,7 @@ public class Jar implements Closeable {
 		return new String(cs);
 	}
 
-	private void doManifest(ZipOutputStream jout, Set<String> directories, String manifestName) throws Exception {
+	private void doManifest(ZipWriter jout, Set<String> directories, String manifestName) throws Exception {
 		check();
 		createDirectories(directories, jout, manifestName);
 		JarEntry ze = new JarEntry(manifestName);
@@ -719,23 +838,17 @@ public class Jar implements Closeable {
 		putEntry(jout, ze, r);
 	}
 
-	private void putEntry(ZipOutputStream jout, ZipEntry entry, Resource r) throws Exception {
-
-		if (compression == Compression.STORE) {
-			byte[] content = IO.read(r.openInputStream());
-			entry.setMethod(ZipOutputStream.STORED);
-			CRC32 crc = new CRC32();
-			crc.update(content);
-			entry.setCrc(crc.getValue());
-			entry.setSize(content.length);
-			entry.setCompressedSize(content.length);
-			jout.putNextEntry(entry);
-			jout.write(content);
+	private void putEntry(ZipWriter jout, ZipEntry entry, Resource r) throws Exception {
+		int method = (compression == Compression.STORE) ? ZipEntry.STORED : ZipEntry.DEFLATED;
+		// Unchanged entries from another zip file with the same compression
+		// method are copied without inflating and deflating them again
+		if ((r instanceof ZipResource) && ((ZipResource) r).hasRawData(method)) {
+			jout.putRaw(entry, (ZipResource) r);
+		} else if (method == ZipEntry.STORED) {
+			jout.putStored(entry, IO.read(r.openInputStream()));
 		} else {
-			jout.putNextEntry(entry);
-			r.write(jout);
+			jout.putDeflated(entry, r);
 		}
-		jout.closeEntry();
 	}
 
 	/**
@@ -930,7 +1043,7 @@ public class Jar implements Closeable {
 			return s;
 	}
 
-	private void writeResource(ZipOutputStream jout, Set<String> directories, String path, Resource resource)
+	private void writeResource(ZipWriter jout, Set<String> directories, String path, Resource resource)
 		throws Exception {
 		if (resource == null)
 			return;
@@ -938,28 +1051,82 @@ public class Jar implements Closeable {
 			createDirectories(directories, jout, path);
 			if (path.endsWith(Constants.EMPTY_HEADER))
 				return;
-			ZipEntry ze = new ZipEntry(path);
-			ze.setMethod(ZipEntry.DEFLATED);
-			if (isReproducible()) {
-				ze.setTime(ZIP_ENTRY_CONSTANT_TIME);
-			} else {
-				long lastModified = resource.lastModified();
-				if (lastModified == 0L) {
-					lastModified = System.currentTimeMillis();
+			putEntry(jout, zipEntry(path, resource), resource);
+		} catch (Exception e) {
+			throw new Exception("Problem writing resource " + path, e);
+		}
+	}
+
+	private ZipEntry zipEntry(String path, Resource resource) throws Exception {
+		ZipEntry ze = new ZipEntry(path);
+		if (isReproducible()) {
+			ze.setTime(ZIP_ENTRY_CONSTANT_TIME);
+		} else {
+			long lastModified = resource.lastModified();
+			if (lastModified == 0L) {
+				lastModified = System.currentTimeMillis();
+			}
+			ZipUtil.setModifiedTime(ze, lastModified);
+		}
+		String extra = resource.getExtra();
+		if (extra != null) {
+			ze.setExtra(Resource.decodeExtra(extra));
+		}
+		return ze;
+	}
+
+	/**
+	 * Write the resources for a reproducible jar. The resources are
+	 * compressed concurrently, a batch at a time, and then written in the
+	 * order of their paths. Since the compressed content only depends on the
+	 * resource, the output is the same for any number of threads. Resources
+	 * that can be copied raw from another zip file are not compressed again.
+	 */
+	private void writeResources(ZipWriter jout, Set<String> directories, Set<String> done) throws Exception {
+		int method = (compression == Compression.STORE) ? ZipEntry.STORED : ZipEntry.DEFLATED;
+		PromiseFactory promiseFactory = getPromiseFactory();
+		List<String> paths = new ArrayList<>(getResources().keySet());
+		paths.removeAll(done);
+		for (int from = 0; from < paths.size(); from += WRITE_BATCH) {
+			List<String> batch = paths.subList(from, Math.min(from + WRITE_BATCH, paths.size()));
+			List<Promise<ZipWriter.Compressed>> promises = new ArrayList<>(batch.size());
+			for (String path : batch) {
+				Resource resource = getResource(path);
+				if ((resource == null) || path.endsWith(Constants.EMPTY_HEADER)
+					|| ((resource instanceof ZipResource) && ((ZipResource) resource).hasRawData(method))) {
+					promises.add(promiseFactory.resolved(null));
+					continue;
 				}
-				ZipUtil.setModifiedTime(ze, lastModified);
+				promises.add(promiseFactory.submit(() -> {
+					try {
+						return ZipWriter.compress(resource, method);
+					} catch (Exception e) {
+						throw new Exception("Problem writing resource " + path, e);
+					}
+				}));
 			}
-			String extra = resource.getExtra();
-			if (extra != null) {
-				ze.setExtra(Resource.decodeExtra(extra));
+			try {
+				promiseFactory.all(promises)
+					.getValue();
+			} catch (InvocationTargetException e) {
+				throw Exceptions.duck(e.getCause());
+			}
+
+			for (int i = 0; i < batch.size(); i++) {
+				String path = batch.get(i);
+				ZipWriter.Compressed compressed = promises.get(i)
+					.getValue();
+				if (compressed == null) {
+					writeResource(jout, directories, path, getResource(path));
+					continue;
+				}
+				createDirectories(directories, jout, path);
+				jout.putCompressed(zipEntry(path, getResource(path)), compressed);
 			}
-			putEntry(jout, ze, resource);
-		} catch (Exception e) {
-			throw new Exception("Problem writing resource " + path, e);
 		}
 	}
 
-	void createDirectories(Set<String> directories, ZipOutputStream zip, String name) throws IOException {
+	void createDirectories(Set<String> directories, ZipWriter zip, String name) throws IOException {
 		int index = name.lastIndexOf('/');
 		if (index > 0) {
 			String path = name.substring(0, index);
@@ -972,13 +1139,7 @@ public class Jar implements Closeable {
 			} else {
 				ZipUtil.setModifiedTime(ze, lastModified());
 			}
-			if (compression == Compression.STORE) {
-				ze.setCrc(0L);
-				ze.setSize(0);
-				ze.setCompressedSize(0);
-			}
-			zip.putNextEntry(ze);
-			zip.closeEntry();
+			zip.putDirectory(ze);
 			directories.add(path);
 		}
 	}
@@ -1021,10 +1182,13 @@ public class Jar implements Closeable {
 	public void close() {
 		this.closed = true;
 		IO.close(zipFile);
+		IO.close(rawZipFile);
+		IO.close(spillFile);
 		resources.values()
 			.forEach(IO::close);
 		resources.clear();
 		directories.clear();
+		entryDigests.clear();
 		manifest = null;
 		source = null;
 	}
@@ -1083,6 +1247,7 @@ public class Jar implements Closeable {
 		path = ZipUtil.cleanPath(path);
 		Resource resource = resources.remove(path);
 		if (resource != null) {
+			entryDigests.remove(path);
 			String dir = getParent(path);
 			Map<String, Resource> mdir = directories.get(dir);
 			// must be != null
@@ -1117,44 +1282,171 @@ public class Jar implements Closeable {
 			setManifest(m);
 		}
 
-		MessageDigest[] digests = new MessageDigest[algorithms.length];
-		int n = 0;
-		for (String algorithm : algorithms)
-			digests[n++] = MessageDigest.getInstance(algorithm);
-
-		byte[] buffer = new byte[BUFFER_SIZE];
+		List<String> paths = resources.keySet()
+			.stream()
+			.filter(path -> !path.equals(manifestName))
+			.collect(toList());
 
-		for (Map.Entry<String, Resource> entry : resources.entrySet()) {
+		for (Map.Entry<String, Map<String, byte[]>> entry : getDigests(paths, algorithms).entrySet()) {
 			String path = entry.getKey();
-			// Skip the manifest
-			if (path.equals(manifestName))
-				continue;
-
 			Attributes attributes = m.getAttributes(path);
 			if (attributes == null) {
 				attributes = new Attributes();
 				getManifest().getEntries()
 					.put(path, attributes);
 			}
-			Resource r = entry.getValue();
-			ByteBuffer bb = r.buffer();
-			if ((bb != null) && bb.hasArray()) {
-				for (MessageDigest d : digests) {
-					d.update(bb);
-					bb.flip();
+			Map<String, byte[]> digests = entry.getValue();
+			for (String algorithm : algorithms) {
+				attributes.putValue(algorithm + "-Digest", Base64.encodeBase64(digests.get(algorithm)));
+			}
+		}
+	}
+
+	/**
+	 * Answer the digests of the resources at the given paths for each of the
+	 * algorithms. The digests are cached per resource until the resource is
+	 * replaced or its last modified time changes. Missing digests are
+	 * calculated concurrently, reading each resource once for all algorithms.
+	 *
+	 * @param paths the paths of the resources, unknown paths are ignored
+	 * @param algorithms the names of the {@link MessageDigest} algorithms
+	 * @return a map from path to a map from algorithm to digest, in the order
+	 *         of the paths
+	 */
+	Map<String, Map<String, byte[]>> getDigests(Collection<String> paths, String... algorithms) throws Exception {
+		check();
+		Map<String, Map<String, byte[]>> result = new LinkedHashMap<>();
+		List<EntryDigests> todo = new ArrayList<>();
+		for (String path : paths) {
+			Resource resource = resources.get(path);
+			if (resource == null)
+				continue;
+
+			EntryDigests entry = entryDigests.get(path);
+			if ((entry == null) || !entry.isFor(resource)) {
+				entry = new EntryDigests(resource);
+				entryDigests.put(path, entry);
+			}
+			if (!entry.has(algorithms))
+				todo.add(entry);
+			result.put(path, entry.digests);
+		}
+
+		if (todo.size() > 1) {
+			PromiseFactory promiseFactory = getPromiseFactory();
+			List<Promise<Void>> promises = new ArrayList<>(todo.size());
+			for (EntryDigests entry : todo) {
+				promises.add(promiseFactory.submit(() -> {
+					entry.calculate(algorithms);
+					return null;
+				}));
+			}
+			try {
+				promiseFactory.all(promises)
+					.getValue();
+			} catch (InvocationTargetException e) {
+				throw Exceptions.duck(e.getCause());
+			}
+		} else {
+			for (EntryDigests entry : todo) {
+				entry.calculate(algorithms);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Read the content of the file and zip backed resources at the given
+	 * paths concurrently. These resources keep their content once read, so
+	 * they can then be processed sequentially without waiting for I/O or
+	 * inflating. Failures are ignored, they are reported when the resource is
+	 * actually used.
+	 *
+	 * @param paths the paths of the resources to load
+	 */
+	void load(Collection<String> paths) throws Exception {
+		check();
+		List<Resource> todo = new ArrayList<>(paths.size());
+		for (String path : paths) {
+			Resource resource = resources.get(path);
+			if ((resource instanceof FileResource) || (resource instanceof ZipResource)) {
+				todo.add(resource);
+			}
+		}
+		if (todo.size() < 2) {
+			return;
+		}
+		PromiseFactory promiseFactory = getPromiseFactory();
+		List<Promise<Void>> promises = new ArrayList<>(todo.size());
+		for (Resource resource : todo) {
+			promises.add(promiseFactory.submit(() -> {
+				try {
+					resource.buffer();
+				} catch (Exception e) {
+					// reported when the resource is used
 				}
-			} else {
-				try (InputStream in = r.openInputStream()) {
-					for (int size; (size = in.read(buffer, 0, buffer.length)) > 0;) {
-						for (MessageDigest d : digests) {
-							d.update(buffer, 0, size);
-						}
-					}
+				return null;
+			}));
+		}
+		promiseFactory.all(promises)
+			.getValue();
+	}
+
+	/**
+	 * The digests of a resource
+	 */
+	static final class EntryDigests {
+		final Resource				resource;
+		final long					lastModified;
+		final Map<String, byte[]>	digests	= new ConcurrentHashMap<>();
+
+		EntryDigests(Resource resource) {
+			this.resource = resource;
+			this.lastModified = resource.lastModified();
+		}
+
+		boolean isFor(Resource resource) {
+			return (this.resource == resource) && (lastModified == resource.lastModified());
+		}
+
+		boolean has(String[] algorithms) {
+			for (String algorithm : algorithms) {
+				if (!digests.containsKey(algorithm))
+					return false;
+			}
+			return true;
+		}
+
+		void calculate(String[] algorithms) throws Exception {
+			List<String> names = new ArrayList<>(algorithms.length);
+			List<MessageDigest> mds = new ArrayList<>(algorithms.length);
+			for (String algorithm : algorithms) {
+				if (!digests.containsKey(algorithm) && !names.contains(algorithm)) {
+					names.add(algorithm);
+					mds.add(MessageDigest.getInstance(algorithm));
 				}
 			}
-			for (MessageDigest d : digests) {
-				attributes.putValue(d.getAlgorithm() + "-Digest", Base64.encodeBase64(d.digest()));
-				d.reset();
+			if (mds.isEmpty())
+				return;
+
+			resource.write(new OutputStream() {
+				@Override
+				public void write(int b) {
+					for (MessageDigest md : mds) {
+						md.update((byte) b);
+					}
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) {
+					for (MessageDigest md : mds) {
+						md.update(b, off, len);
+					}
+				}
+			});
+			for (int i = 0; i < mds.size(); i++) {
+				digests.put(names.get(i), mds.get(i)
+					.digest());
 			}
 		}
 	}
@@ -1234,6 +1526,24 @@ public class Jar implements Closeable {
 		this.reproducible = reproducible;
 	}
 
+	/**
+	 * Answer the promise factory used to process the entries of this jar
+	 * concurrently. This is the {@link Processor#getPromiseFactory()} unless
+	 * another one was set.
+	 */
+	public PromiseFactory getPromiseFactory() {
+		PromiseFactory promiseFactory = this.promiseFactory;
+		return (promiseFactory != null) ? promiseFactory : Processor.getPromiseFactory();
+	}
+
+	/**
+	 * Set the promise factory used to process the entries of this jar
+	 * concurrently, for example to limit the number of threads.
+	 */
+	public void setPromiseFactory(PromiseFactory promiseFactory) {
+		this.promiseFactory = promiseFactory;
+	}
+
 	public void copy(Jar srce, String path, boolean overwrite) {
 		check();
 		addDirectory(srce.getDirectory(path), overwrite);
@@ -1298,13 +1608,15 @@ public class Jar implements Closeable {
 			}
 			writeManifest(m2, dout);
 
-			for (Map.Entry<String, Resource> entry : getResources().entrySet()) {
-				String path = entry.getKey();
-				if (path.equals(manifestName))
-					continue;
-				Resource resource = entry.getValue();
-				dout.write(path.getBytes(UTF_8));
-				resource.write(dout);
+			List<String> paths = resources.keySet()
+				.stream()
+				.filter(path -> !path.equals(manifestName))
+				.collect(toList());
+			for (Map.Entry<String, Map<String, byte[]>> entry : getDigests(paths, "SHA1").entrySet()) {
+				dout.write(entry.getKey()
+					.getBytes(UTF_8));
+				dout.write(entry.getValue()
+					.get("SHA1"));
 			}
 		}
 		return md.digest();
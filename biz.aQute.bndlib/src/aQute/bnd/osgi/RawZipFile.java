@@ -0,0 +1,423 @@
+package aQute.bnd.osgi;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import aQute.lib.io.IO;
+import aQute.lib.io.IOConstants;
+
+/**
+ * Provides access to the raw, still compressed, data of the entries in a zip
+ * file. This is used to copy unchanged entries from one zip file to another
+ * without inflating and deflating them again.
+ * <p>
+ * {@link java.util.zip.ZipFile} does not expose the offsets of the entries, so
+ * the central directory is read once when the first entry is copied. The file
+ * is opened when this object is created, so that a file replaced after the
+ * {@link java.util.zip.ZipFile} was opened is not read. An entry is only
+ * copied when its sizes and CRC match the entry of the
+ * {@link java.util.zip.ZipFile}.
+ * <p>
+ * The zip file can also be completely held in a byte buffer. The entries are
+ * then read from the buffer, so that a file can be digested and its entries
+ * be read with a single read of the file.
+ */
+final class RawZipFile implements Closeable {
+	private final static int	LOCSIG			= 0x04034b50;
+	private final static int	CENSIG			= 0x02014b50;
+	private final static int	ENDSIG			= 0x06054b50;
+	private final static int	ZIP64_ENDSIG	= 0x06064b50;
+	private final static int	ZIP64_LOCSIG	= 0x07064b50;
+	private final static int	LOCHDR			= 30;
+	private final static int	CENHDR			= 46;
+	private final static int	ENDHDR			= 22;
+	private final static int	ZIP64_LOCHDR	= 20;
+	private final static int	ZIP64_ENDHDR	= 56;
+	private final static long	ZIP64_MAGIC		= 0xFFFFFFFFL;
+	private final static int	STORED			= 0;
+	private final static int	DEFLATED		= 8;
+	private final static int	BUFFER_SIZE		= IOConstants.PAGE_SIZE * 16;
+
+	private final Object		source;
+	private final String		location;
+	private FileChannel			channel;
+	private Map<String, Entry>	entries;
+	private boolean				closed;
+
+	RawZipFile(Path path) throws IOException {
+		this.source = path;
+		this.location = path.toString();
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+	}
+
+	/**
+	 * Read the entries of a zip file held in a byte buffer.
+	 *
+	 * @param bb the content of the zip file
+	 */
+	RawZipFile(ByteBuffer bb) {
+		this.source = bb.slice()
+			.order(ByteOrder.LITTLE_ENDIAN);
+		this.location = "zip buffer";
+	}
+
+	/**
+	 * Answer the names of the entries.
+	 *
+	 * @throws ZipException if the central directory cannot be read
+	 */
+	Set<String> names() throws IOException {
+		return Collections.unmodifiableSet(entries().keySet());
+	}
+
+	/**
+	 * Open an entry. The entry is inflated into memory.
+	 *
+	 * @param name the name of the entry
+	 * @return the content of the entry or null if there is no such entry
+	 * @throws ZipException if the entry cannot be read
+	 */
+	InputStream open(String name) throws IOException {
+		Entry entry = entries().get(name);
+		if (entry == null) {
+			return null;
+		}
+		if ((entry.compressedSize > Integer.MAX_VALUE) || (entry.size > Integer.MAX_VALUE)) {
+			throw new ZipException("Entry too large " + name + " in " + location);
+		}
+		ByteBuffer data = read(data(name, entry), (int) entry.compressedSize);
+		switch (entry.method) {
+			case STORED :
+				return IO.stream(data);
+			case DEFLATED :
+				return IO.stream(inflate(name, data, (int) entry.size));
+			default :
+				throw new ZipException("Unsupported compression method " + entry.method + " for " + name);
+		}
+	}
+
+	/**
+	 * Answer the modification time of an entry in the form of
+	 * {@link aQute.lib.zip.ZipUtil#getModifiedTime(java.util.zip.ZipEntry)}.
+	 *
+	 * @param name the name of the entry
+	 * @return the modification time or 0 if there is no such entry
+	 */
+	long lastModified(String name) throws IOException {
+		Entry entry = entries().get(name);
+		if (entry == null) {
+			return 0L;
+		}
+		try {
+			long time = LocalDateTime
+				.of((int) ((entry.time >>> 25) & 0x7F) + 1980, (int) ((entry.time >>> 21) & 0x0F),
+					(int) ((entry.time >>> 16) & 0x1F), (int) ((entry.time >>> 11) & 0x1F),
+					(int) ((entry.time >>> 5) & 0x3F), (int) ((entry.time << 1) & 0x3E))
+				.toInstant(ZoneOffset.UTC)
+				.toEpochMilli();
+			return Math.min(time, System.currentTimeMillis() - 1);
+		} catch (DateTimeException e) {
+			return 0L;
+		}
+	}
+
+	/**
+	 * Answer if the central directory has an entry with the given sizes and
+	 * CRC.
+	 *
+	 * @param name the name of the entry
+	 * @param compressedSize the expected compressed size
+	 * @param size the expected uncompressed size
+	 * @param crc the expected CRC
+	 */
+	boolean matches(String name, long compressedSize, long size, long crc) throws IOException {
+		Entry entry = entries().get(name);
+		return (entry != null) && (entry.compressedSize == compressedSize) && (entry.size == size)
+			&& (entry.crc == crc);
+	}
+
+	/**
+	 * Copy the raw data of an entry to the output stream.
+	 *
+	 * @param name the name of the entry
+	 * @param compressedSize the compressed size of the entry as recorded in
+	 *            the central directory
+	 * @param out the output stream
+	 */
+	void copy(String name, long compressedSize, OutputStream out) throws IOException {
+		Entry entry = entries().get(name);
+		if (entry == null) {
+			throw new ZipException("Entry " + name + " not found in " + location);
+		}
+		long position = data(name, entry);
+		if (source instanceof ByteBuffer) {
+			IO.copy(read(position, (int) compressedSize), out);
+			return;
+		}
+		FileChannel channel = channel();
+		ByteBuffer bb = ByteBuffer.allocate((int) Math.min(compressedSize, BUFFER_SIZE));
+		for (long remaining = compressedSize; remaining > 0;) {
+			bb.clear();
+			if (remaining < bb.capacity()) {
+				bb.limit((int) remaining);
+			}
+			int n = channel.read(bb, position);
+			if (n < 0) {
+				throw new EOFException("Unexpected end of " + location + " while reading " + name);
+			}
+			out.write(bb.array(), 0, n);
+			position += n;
+			remaining -= n;
+		}
+	}
+
+	/**
+	 * Answer the position of the data of an entry after its local header.
+	 */
+	private long data(String name, Entry entry) throws IOException {
+		ByteBuffer loc = read(entry.offset, LOCHDR);
+		if (loc.getInt(0) != LOCSIG) {
+			throw new ZipException("Invalid local header for " + name + " in " + location);
+		}
+		return entry.offset + LOCHDR + u2(loc, 26) + u2(loc, 28);
+	}
+
+	private static ByteBuffer inflate(String name, ByteBuffer data, int size) throws ZipException {
+		byte[] input = new byte[data.remaining()];
+		data.get(input);
+		byte[] output = new byte[size];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(input);
+			int length = 0;
+			while ((length < output.length) && !inflater.finished()) {
+				int n = inflater.inflate(output, length, output.length - length);
+				if ((n == 0) && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += n;
+			}
+			if (length != output.length) {
+				throw new ZipException("Invalid size for " + name);
+			}
+			return ByteBuffer.wrap(output);
+		} catch (DataFormatException e) {
+			ZipException ze = new ZipException("Invalid deflated data for " + name);
+			ze.initCause(e);
+			throw ze;
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private synchronized FileChannel channel() throws IOException {
+		if (closed) {
+			throw new IOException("Closed " + location);
+		}
+		return channel;
+	}
+
+	private synchronized Map<String, Entry> entries() throws IOException {
+		if (entries == null) {
+			entries = readCentralDirectory();
+		}
+		return entries;
+	}
+
+	private long size() throws IOException {
+		if (source instanceof ByteBuffer) {
+			return ((ByteBuffer) source).limit();
+		}
+		return channel().size();
+	}
+
+	private Map<String, Entry> readCentralDirectory() throws IOException {
+		long size = size();
+		int tail = (int) Math.min(size, ENDHDR + 0xFFFF);
+		long tailStart = size - tail;
+		ByteBuffer bb = read(tailStart, tail);
+		int end = -1;
+		for (int i = tail - ENDHDR; i >= 0; i--) {
+			if (bb.getInt(i) == ENDSIG && (i + ENDHDR + u2(bb, i + 20) == tail)) {
+				end = i;
+				break;
+			}
+		}
+		if (end < 0) {
+			throw new ZipException("No end of central directory found in " + location);
+		}
+		long endPosition = tailStart + end;
+		long cenSize = u4(bb, end + 12);
+		long cenOffset = u4(bb, end + 16);
+		long entries = u2(bb, end + 10);
+		if ((cenSize == ZIP64_MAGIC || cenOffset == ZIP64_MAGIC || entries == 0xFFFF)
+			&& endPosition >= ZIP64_LOCHDR) {
+			ByteBuffer locator = read(endPosition - ZIP64_LOCHDR, ZIP64_LOCHDR);
+			if (locator.getInt(0) == ZIP64_LOCSIG) {
+				long zip64End = locator.getLong(8);
+				ByteBuffer end64 = read(zip64End, ZIP64_ENDHDR);
+				if (end64.getInt(0) == ZIP64_ENDSIG) {
+					entries = end64.getLong(32);
+					cenSize = end64.getLong(40);
+					cenOffset = end64.getLong(48);
+					endPosition = zip64End;
+				}
+			}
+		}
+		if ((cenSize < 0) || (cenSize > endPosition)) {
+			throw new ZipException("Invalid central directory in " + location);
+		}
+		if (cenSize > Integer.MAX_VALUE) {
+			throw new ZipException("Central directory too large in " + location);
+		}
+		// Data prepended to the zip file shifts all offsets
+		long base = endPosition - cenSize - cenOffset;
+		ByteBuffer cen = read(endPosition - cenSize, (int) cenSize);
+		Map<String, Entry> result = new HashMap<>((int) Math.min(entries * 4 / 3 + 1, Integer.MAX_VALUE));
+		for (int pos = 0; pos + CENHDR <= cenSize;) {
+			if (cen.getInt(pos) != CENSIG) {
+				throw new ZipException("Invalid central directory header in " + location);
+			}
+			int nlen = u2(cen, pos + 28);
+			int elen = u2(cen, pos + 30);
+			int clen = u2(cen, pos + 32);
+			if (pos + CENHDR + nlen + elen > cenSize) {
+				throw new ZipException("Invalid central directory header in " + location);
+			}
+			byte[] name = new byte[nlen];
+			ByteBuffer nameBuffer = cen.duplicate();
+			nameBuffer.position(pos + CENHDR);
+			nameBuffer.get(name);
+			Entry entry = new Entry(u2(cen, pos + 10), u4(cen, pos + 12), u4(cen, pos + 16), u4(cen, pos + 20),
+				u4(cen, pos + 24), u4(cen, pos + 42));
+			entry.zip64(cen, pos + CENHDR + nlen, elen, location);
+			entry.offset += base;
+			result.put(new String(name, UTF_8), entry);
+			pos += CENHDR + nlen + elen + clen;
+		}
+		return result;
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		if (source instanceof ByteBuffer) {
+			ByteBuffer bb = ((ByteBuffer) source).duplicate();
+			if ((position < 0) || (position + length > bb.limit())) {
+				throw new ZipException("Unexpected end of " + location);
+			}
+			bb.position((int) position);
+			bb.limit((int) position + length);
+			return bb.slice()
+				.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		FileChannel channel = channel();
+		ByteBuffer bb = ByteBuffer.allocate(length)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		while (bb.hasRemaining()) {
+			if (channel.read(bb, position + bb.position()) < 0) {
+				throw new EOFException();
+			}
+		}
+		bb.flip();
+		return bb;
+	}
+
+	private static int u2(ByteBuffer bb, int index) {
+		return Short.toUnsignedInt(bb.getShort(index));
+	}
+
+	private static long u4(ByteBuffer bb, int index) {
+		return Integer.toUnsignedLong(bb.getInt(index));
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+		IO.close(channel);
+		channel = null;
+		entries = null;
+	}
+
+	/**
+	 * The central directory header of an entry.
+	 */
+	private static final class Entry {
+		final int	method;
+		final long	time;
+		final long	crc;
+		long		compressedSize;
+		long		size;
+		long		offset;
+
+		Entry(int method, long time, long crc, long compressedSize, long size, long offset) {
+			this.method = method;
+			this.time = time;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.offset = offset;
+		}
+
+		/**
+		 * Replace the sizes and offset which do not fit the header by the
+		 * values of the zip64 extra field. Invalid extra fields are rejected
+		 * as {@link java.util.zip.ZipFile} does.
+		 */
+		void zip64(ByteBuffer cen, int extra, int elen, String location) throws ZipException {
+			int end = extra + elen;
+			for (int pos = extra; pos + 4 <= end;) {
+				int tag = u2(cen, pos);
+				int length = u2(cen, pos + 2);
+				int field = pos + 4;
+				pos = field + length;
+				if (pos > end) {
+					throw new ZipException("Invalid extra data field size in " + location);
+				}
+				if (tag != 0x0001) {
+					continue;
+				}
+				if (size == ZIP64_MAGIC) {
+					size = long8(cen, field, pos, location);
+					field += 8;
+				}
+				if (compressedSize == ZIP64_MAGIC) {
+					compressedSize = long8(cen, field, pos, location);
+					field += 8;
+				}
+				if (offset == ZIP64_MAGIC) {
+					offset = long8(cen, field, pos, location);
+				}
+				return;
+			}
+			if (offset == ZIP64_MAGIC) {
+				throw new ZipException("Invalid zip64 extra field in " + location);
+			}
+		}
+
+		private static long long8(ByteBuffer cen, int field, int end, String location) throws ZipException {
+			if (field + 8 > end) {
+				throw new ZipException("Invalid zip64 extra field in " + location);
+			}
+			return cen.getLong(field);
+		}
+	}
+}
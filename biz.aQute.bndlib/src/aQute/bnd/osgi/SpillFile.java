@@ -0,0 +1,201 @@
+package aQute.bnd.osgi;
+
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import aQute.lib.io.IO;
+import aQute.lib.io.IOConstants;
+
+/**
+ * A temporary file that holds the content of resources that do not fit in the
+ * memory budget of a {@link Jar}. The content is appended to the file and read
+ * back through memory mapped slices, so it does not count against the heap.
+ * The file is deleted when it is closed.
+ * <p>
+ * The resources can be added to other Jars and outlive the Jar that owns the
+ * file. Therefore the resources that were not read yet are mapped when the
+ * file is closed. A mapping remains valid after the file is closed and deleted
+ * until it is garbage collected.
+ */
+final class SpillFile implements Closeable {
+	private static final int			BUFFER_SIZE	= IOConstants.PAGE_SIZE * 16;
+
+	private final FileChannel			channel;
+	private final ByteBuffer			buffer		= ByteBuffer.allocate(BUFFER_SIZE);
+	private final List<SpillResource>	resources	= new ArrayList<>();
+	private long						size;
+
+	SpillFile() throws IOException {
+		File file = File.createTempFile("jar", ".spill");
+		channel = FileChannel.open(file.toPath(), READ, WRITE, DELETE_ON_CLOSE);
+	}
+
+	/**
+	 * Append the remainder of a stream as a new resource.
+	 */
+	Resource add(InputStream in, long lastModified) throws IOException {
+		long position = size;
+		append(in);
+		return resource(position, lastModified);
+	}
+
+	/**
+	 * Append the part of a stream that was already read and the remainder of
+	 * the stream as a new resource.
+	 */
+	Resource add(ByteBuffer head, InputStream in, long lastModified) throws IOException {
+		long position = size;
+		append(head);
+		append(in);
+		return resource(position, lastModified);
+	}
+
+	private Resource resource(long position, long lastModified) {
+		SpillResource resource = new SpillResource(this, position, size - position, lastModified);
+		resources.add(resource);
+		return resource;
+	}
+
+	private void append(InputStream in) throws IOException {
+		for (int n; (n = in.read(buffer.array(), 0, buffer.capacity())) > 0;) {
+			buffer.limit(n);
+			append(buffer);
+			buffer.clear();
+		}
+	}
+
+	private void append(ByteBuffer bb) throws IOException {
+		while (bb.hasRemaining()) {
+			size += channel.write(bb, size);
+		}
+	}
+
+	long size() {
+		return size;
+	}
+
+	ByteBuffer map(long position, long length) throws IOException {
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Resource too large to map: " + length);
+		}
+		return channel.map(MapMode.READ_ONLY, position, length);
+	}
+
+	/**
+	 * Map the resources that were not read yet and close the file. When the
+	 * file fits, it is mapped once and the resources get slices of it, so
+	 * closing a file with many resources does not create many mappings.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!channel.isOpen()) {
+			return;
+		}
+		try {
+			ByteBuffer all = null;
+			for (SpillResource resource : resources) {
+				if ((resource.mapped != null) || (resource.length > Integer.MAX_VALUE)) {
+					continue;
+				}
+				if (size > Integer.MAX_VALUE) {
+					resource.mapped = map(resource.position, resource.length);
+					continue;
+				}
+				if (all == null) {
+					all = map(0L, size);
+				}
+				ByteBuffer slice = all.duplicate();
+				slice.position((int) resource.position)
+					.limit((int) (resource.position + resource.length));
+				resource.mapped = slice.slice();
+			}
+		} finally {
+			resources.clear();
+			channel.close();
+		}
+	}
+
+	static final class SpillResource implements Resource {
+		private final SpillFile	file;
+		private final long		position;
+		private final long		length;
+		private final long		lastModified;
+		private ByteBuffer		mapped;
+		private String			extra;
+
+		SpillResource(SpillFile file, long position, long length, long lastModified) {
+			this.file = file;
+			this.position = position;
+			this.length = length;
+			this.lastModified = lastModified;
+		}
+
+		@Override
+		public ByteBuffer buffer() throws IOException {
+			return getMapped().duplicate();
+		}
+
+		/*
+		 * Synchronized on the file since the file maps the remaining
+		 * resources when it is closed.
+		 */
+		private ByteBuffer getMapped() throws IOException {
+			synchronized (file) {
+				if (mapped == null) {
+					mapped = file.map(position, length);
+				}
+				return mapped;
+			}
+		}
+
+		@Override
+		public InputStream openInputStream() throws IOException {
+			return IO.stream(buffer());
+		}
+
+		@Override
+		public void write(OutputStream out) throws IOException {
+			IO.copy(buffer(), out);
+		}
+
+		@Override
+		public long lastModified() {
+			return lastModified;
+		}
+
+		@Override
+		public String getExtra() {
+			return extra;
+		}
+
+		@Override
+		public void setExtra(String extra) {
+			this.extra = extra;
+		}
+
+		@Override
+		public long size() {
+			return length;
+		}
+
+		@Override
+		public String toString() {
+			return ":" + length + ":";
+		}
+
+		@Override
+		public void close() {}
+	}
+}
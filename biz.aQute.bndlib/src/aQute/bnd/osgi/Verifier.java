@@ -1,11 +1,11 @@
 package aQute.bnd.osgi;
 
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Formatter;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -29,9 +29,7 @@ import aQute.bnd.service.verifier.VerifierPlugin;
 import aQute.bnd.version.VersionRange;
 import aQute.lib.base64.Base64;
 import aQute.lib.filter.Filter;
-import aQute.lib.io.IO;
 import aQute.lib.regex.PatternConstants;
-import aQute.libg.cryptography.Digester;
 import aQute.libg.cryptography.SHA1;
 import aQute.libg.qtokens.QuotedTokenizer;
 
@@ -1455,6 +1453,7 @@ public class Verifier extends Processor {
 		}
 
 		List<String> missingDigest = new ArrayList<>();
+		Map<String, String> expected = new LinkedHashMap<>();
 
 		for (String path : dot.getResources()
 			.keySet()) {
@@ -1462,22 +1461,23 @@ public class Verifier extends Processor {
 				continue;
 
 			Attributes a = m.getAttributes(path);
-			String digest = a.getValue("SHA1-Digest");
+			String digest = (a == null) ? null : a.getValue("SHA1-Digest");
 			if (digest == null) {
 				if (!path.matches(""))
 					missingDigest.add(path);
 			} else {
-				byte[] d = Base64.decodeBase64(digest);
-				SHA1 expected = new SHA1(d);
-				try (Digester<SHA1> digester = SHA1.getDigester();
-					InputStream in = dot.getResource(path)
-						.openInputStream()) {
-					IO.copy(in, digester);
-					digester.digest();
-					if (!expected.equals(digester.digest())) {
-						error("Checksum mismatch %s, expected %s, got %s", path, expected, digester.digest());
-					}
-				}
+				expected.put(path, digest);
+			}
+		}
+
+		for (Map.Entry<String, Map<String, byte[]>> entry : dot.getDigests(expected.keySet(), "SHA1")
+			.entrySet()) {
+			String path = entry.getKey();
+			SHA1 digest = new SHA1(Base64.decodeBase64(expected.get(path)));
+			SHA1 actual = new SHA1(entry.getValue()
+				.get("SHA1"));
+			if (!digest.equals(actual)) {
+				error("Checksum mismatch %s, expected %s, got %s", path, digest, actual);
 			}
 		}
 		if (missingDigest.size() > 0) {
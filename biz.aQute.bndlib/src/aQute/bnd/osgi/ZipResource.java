@@ -17,6 +17,7 @@ public class ZipResource implements Resource {
 	private final ZipFile	zip;
 	private final ZipEntry	entry;
 	private final boolean	closeZipFile;
+	private final RawZipFile	raw;
 	private long			lastModified;
 	private long			size;
 	private String			extra;
@@ -34,13 +35,22 @@ public class ZipResource implements Resource {
 	}
 
 	ZipResource(ZipFile zip, ZipEntry entry) {
-		this(zip, entry, false);
+		this(zip, entry, false, null);
+	}
+
+	ZipResource(ZipFile zip, ZipEntry entry, RawZipFile raw) {
+		this(zip, entry, false, raw);
 	}
 
 	private ZipResource(ZipFile zip, ZipEntry entry, boolean closeZipFile) {
+		this(zip, entry, closeZipFile, null);
+	}
+
+	private ZipResource(ZipFile zip, ZipEntry entry, boolean closeZipFile, RawZipFile raw) {
 		this.zip = zip;
 		this.entry = entry;
 		this.closeZipFile = closeZipFile;
+		this.raw = raw;
 		this.lastModified = -11L;
 		this.size = entry.getSize();
 		byte[] extra = entry.getExtra();
@@ -111,6 +121,42 @@ public class ZipResource implements Resource {
 		return size = getBuffer().limit();
 	}
 
+	/**
+	 * Answer if the raw, still compressed, data of this entry can be copied
+	 * for an entry with the given compression method. The raw data is only
+	 * copied when the entry in the file still has the sizes and CRC of the
+	 * entry, otherwise the entry is inflated and compressed again.
+	 *
+	 * @param method the compression method of the target entry
+	 */
+	boolean hasRawData(int method) {
+		if ((raw == null) || (entry.getMethod() != method) || (entry.getCrc() == -1L)
+			|| (entry.getCompressedSize() < 0L) || (entry.getSize() < 0L)) {
+			return false;
+		}
+		try {
+			return raw.matches(entry.getName(), entry.getCompressedSize(), entry.getSize(), entry.getCrc());
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	int method() {
+		return entry.getMethod();
+	}
+
+	long crc() {
+		return entry.getCrc();
+	}
+
+	long compressedSize() {
+		return entry.getCompressedSize();
+	}
+
+	void copyRaw(OutputStream out) throws IOException {
+		raw.copy(entry.getName(), entry.getCompressedSize(), out);
+	}
+
 	@Override
 	public void close() throws IOException {
 		if (closeZipFile) {
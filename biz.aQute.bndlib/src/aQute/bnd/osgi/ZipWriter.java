@@ -0,0 +1,440 @@
+package aQute.bnd.osgi;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+import aQute.lib.io.ByteBufferOutputStream;
+
+/**
+ * Writes the zip format for {@link Jar#write(OutputStream)}.
+ * <p>
+ * The entries are written like {@link java.util.jar.JarOutputStream} writes
+ * them but this writer can also copy the raw, still compressed, data of an
+ * entry in a {@link ZipResource} together with its CRC and sizes. Unchanged
+ * entries from other zip files therefore do not have to be inflated and
+ * deflated again.
+ */
+final class ZipWriter {
+	private final static int	LOCSIG			= 0x04034b50;
+	private final static int	EXTSIG			= 0x08074b50;
+	private final static int	CENSIG			= 0x02014b50;
+	private final static int	ENDSIG			= 0x06054b50;
+	private final static int	ZIP64_ENDSIG	= 0x06064b50;
+	private final static int	ZIP64_LOCSIG	= 0x07064b50;
+	private final static long	ZIP64_MAGIC		= 0xFFFFFFFFL;
+	private final static int	ZIP64_EXTID		= 0x0001;
+	private final static int	JAR_MAGIC		= 0xCAFE;
+	private final static int	FLAG_DATADESCR	= 0x0008;
+	private final static int	FLAG_UTF8		= 0x0800;
+	private final static int	BUFFER_SIZE		= 8192;
+
+	private final static class Entry {
+		final byte[]	name;
+		final byte[]	extra;
+		final int		flag;
+		final int		method;
+		final int		time;
+		long			crc;
+		long			csize;
+		long			size;
+		final long		offset;
+
+		Entry(byte[] name, byte[] extra, int flag, int method, int time, long offset) {
+			this.name = name;
+			this.extra = (extra == null) ? new byte[0] : extra;
+			this.flag = flag;
+			this.method = method;
+			this.time = time;
+			this.offset = offset;
+		}
+
+		boolean isZip64() {
+			return (csize >= ZIP64_MAGIC) || (size >= ZIP64_MAGIC) || (offset >= ZIP64_MAGIC);
+		}
+
+		int version() {
+			if (isZip64()) {
+				return 45;
+			}
+			return (method == ZipEntry.DEFLATED) ? 20 : 10;
+		}
+	}
+
+	private final Counter		out;
+	private final List<Entry>	entries	= new ArrayList<>();
+	private final Deflater		deflater	= new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	private final CRC32			crc			= new CRC32();
+	private boolean				jarMagic;
+	private boolean				finished;
+
+	/**
+	 * @param out the output stream, it is not closed
+	 * @param jar add the jar magic to the extra field of the first entry like
+	 *            {@link java.util.jar.JarOutputStream}
+	 */
+	ZipWriter(OutputStream out, boolean jar) {
+		this.out = new Counter(out);
+		this.jarMagic = jar;
+	}
+
+	/**
+	 * Write a directory entry.
+	 */
+	void putDirectory(ZipEntry ze) throws IOException {
+		Entry e = entry(ze, 0, ZipEntry.STORED);
+		writeLOC(e);
+	}
+
+	/**
+	 * Write an entry with the stored (uncompressed) content.
+	 */
+	void putStored(ZipEntry ze, byte[] content) throws IOException {
+		Entry e = entry(ze, 0, ZipEntry.STORED);
+		crc.reset();
+		crc.update(content);
+		e.crc = crc.getValue();
+		e.csize = e.size = content.length;
+		writeLOC(e);
+		out.write(content);
+	}
+
+	/**
+	 * Write an entry by deflating the content of the resource. The CRC and
+	 * sizes follow the data in a data descriptor.
+	 */
+	void putDeflated(ZipEntry ze, Resource resource) throws Exception {
+		Entry e = entry(ze, FLAG_DATADESCR, ZipEntry.DEFLATED);
+		writeLOC(e);
+		crc.reset();
+		deflater.reset();
+		DeflaterOutputStream dos = new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+		resource.write(new CheckedOutputStream(dos, crc));
+		dos.finish();
+		e.crc = crc.getValue();
+		e.csize = deflater.getBytesWritten();
+		e.size = deflater.getBytesRead();
+		writeEXT(e);
+	}
+
+	/**
+	 * Write an entry with content that was already compressed by
+	 * {@link #compress(Resource, int)}. Since the CRC and sizes are known they
+	 * are written in the local header, no data descriptor follows the data.
+	 */
+	void putCompressed(ZipEntry ze, Compressed compressed) throws IOException {
+		Entry e = entry(ze, 0, compressed.method);
+		e.crc = compressed.crc;
+		e.csize = compressed.data.remaining();
+		e.size = compressed.size;
+		writeLOC(e);
+		ByteBuffer data = compressed.data;
+		out.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+	}
+
+	/**
+	 * Compress the content of a resource independently of any writer. This
+	 * is thread safe so the entries of a jar can be compressed concurrently
+	 * and then written in order with {@link #putCompressed(ZipEntry,
+	 * Compressed)}. The result only depends on the content and the method.
+	 */
+	static Compressed compress(Resource resource, int method) throws Exception {
+		CRC32 crc = new CRC32();
+		ByteBufferOutputStream bout = new ByteBufferOutputStream();
+		if (method == ZipEntry.STORED) {
+			resource.write(new CheckedOutputStream(bout, crc));
+			ByteBuffer data = bout.toByteBuffer();
+			return new Compressed(method, crc.getValue(), data.remaining(), data);
+		}
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			DeflaterOutputStream dos = new DeflaterOutputStream(bout, deflater, BUFFER_SIZE);
+			resource.write(new CheckedOutputStream(dos, crc));
+			dos.finish();
+			return new Compressed(method, crc.getValue(), deflater.getBytesRead(), bout.toByteBuffer());
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * The compressed content of an entry with its CRC and uncompressed size.
+	 */
+	final static class Compressed {
+		final int			method;
+		final long			crc;
+		final long			size;
+		final ByteBuffer	data;
+
+		Compressed(int method, long crc, long size, ByteBuffer data) {
+			this.method = method;
+			this.crc = crc;
+			this.size = size;
+			this.data = data;
+		}
+	}
+
+	/**
+	 * Write an entry by copying the raw, still compressed, data of a zip
+	 * resource.
+	 */
+	void putRaw(ZipEntry ze, ZipResource resource) throws Exception {
+		Entry e = entry(ze, 0, resource.method());
+		e.crc = resource.crc();
+		e.csize = resource.compressedSize();
+		e.size = resource.size();
+		writeLOC(e);
+		long start = out.written;
+		resource.copyRaw(out);
+		if (out.written - start != e.csize) {
+			throw new IOException("Invalid compressed size for " + ze.getName());
+		}
+	}
+
+	/**
+	 * Write the central directory. The underlying output stream is flushed but
+	 * not closed.
+	 */
+	void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		deflater.end();
+
+		long cenOffset = out.written;
+		for (Entry e : entries) {
+			writeCEN(e);
+		}
+		long cenSize = out.written - cenOffset;
+		long count = entries.size();
+		if ((count >= 0xFFFF) || (cenOffset >= ZIP64_MAGIC) || (cenSize >= ZIP64_MAGIC)) {
+			long zip64End = out.written;
+			ByteBuffer bb = buffer(56 + 20);
+			bb.putInt(ZIP64_ENDSIG)
+				.putLong(44)
+				.putShort((short) 45)
+				.putShort((short) 45)
+				.putInt(0)
+				.putInt(0)
+				.putLong(count)
+				.putLong(count)
+				.putLong(cenSize)
+				.putLong(cenOffset);
+			bb.putInt(ZIP64_LOCSIG)
+				.putInt(0)
+				.putLong(zip64End)
+				.putInt(1);
+			write(bb);
+		}
+		ByteBuffer bb = buffer(22);
+		bb.putInt(ENDSIG)
+			.putShort((short) 0)
+			.putShort((short) 0)
+			.putShort((short) Math.min(count, 0xFFFF))
+			.putShort((short) Math.min(count, 0xFFFF))
+			.putInt((int) Math.min(cenSize, ZIP64_MAGIC))
+			.putInt((int) Math.min(cenOffset, ZIP64_MAGIC))
+			.putShort((short) 0);
+		write(bb);
+		out.flush();
+	}
+
+	private Entry entry(ZipEntry ze, int flag, int method) {
+		byte[] extra = ze.getExtra();
+		if (jarMagic) {
+			jarMagic = false;
+			if (!hasJarMagic(extra)) {
+				byte[] magic = new byte[4 + ((extra == null) ? 0 : extra.length)];
+				magic[0] = (byte) JAR_MAGIC;
+				magic[1] = (byte) (JAR_MAGIC >> 8);
+				if (extra != null) {
+					System.arraycopy(extra, 0, magic, 4, extra.length);
+				}
+				extra = magic;
+			}
+		}
+		Entry e = new Entry(ze.getName()
+			.getBytes(UTF_8), extra, flag | FLAG_UTF8, method, dosTime(ze.getTime()), out.written);
+		entries.add(e);
+		return e;
+	}
+
+	private static boolean hasJarMagic(byte[] extra) {
+		if (extra == null) {
+			return false;
+		}
+		for (int i = 0; i + 4 <= extra.length;) {
+			int tag = (extra[i] & 0xFF) | ((extra[i + 1] & 0xFF) << 8);
+			if (tag == JAR_MAGIC) {
+				return true;
+			}
+			i += 4 + ((extra[i + 2] & 0xFF) | ((extra[i + 3] & 0xFF) << 8));
+		}
+		return false;
+	}
+
+	private void writeLOC(Entry e) throws IOException {
+		boolean zip64 = ((e.flag & FLAG_DATADESCR) == 0) && ((e.csize >= ZIP64_MAGIC) || (e.size >= ZIP64_MAGIC));
+		int elen = e.extra.length + (zip64 ? 20 : 0);
+		ByteBuffer bb = buffer(30 + e.name.length + elen);
+		bb.putInt(LOCSIG)
+			.putShort((short) (zip64 ? 45 : e.version()))
+			.putShort((short) e.flag)
+			.putShort((short) e.method)
+			.putInt(e.time);
+		if ((e.flag & FLAG_DATADESCR) != 0) {
+			bb.putInt(0)
+				.putInt(0)
+				.putInt(0);
+		} else {
+			bb.putInt((int) e.crc)
+				.putInt((int) (zip64 ? ZIP64_MAGIC : e.csize))
+				.putInt((int) (zip64 ? ZIP64_MAGIC : e.size));
+		}
+		bb.putShort((short) e.name.length)
+			.putShort((short) elen)
+			.put(e.name);
+		if (zip64) {
+			bb.putShort((short) ZIP64_EXTID)
+				.putShort((short) 16)
+				.putLong(e.size)
+				.putLong(e.csize);
+		}
+		bb.put(e.extra);
+		write(bb);
+	}
+
+	private void writeEXT(Entry e) throws IOException {
+		boolean zip64 = (e.csize >= ZIP64_MAGIC) || (e.size >= ZIP64_MAGIC);
+		ByteBuffer bb = buffer(zip64 ? 24 : 16);
+		bb.putInt(EXTSIG)
+			.putInt((int) e.crc);
+		if (zip64) {
+			bb.putLong(e.csize)
+				.putLong(e.size);
+		} else {
+			bb.putInt((int) e.csize)
+				.putInt((int) e.size);
+		}
+		write(bb);
+	}
+
+	private void writeCEN(Entry e) throws IOException {
+		int zip64 = 0;
+		if (e.size >= ZIP64_MAGIC) {
+			zip64 += 8;
+		}
+		if (e.csize >= ZIP64_MAGIC) {
+			zip64 += 8;
+		}
+		if (e.offset >= ZIP64_MAGIC) {
+			zip64 += 8;
+		}
+		int elen = e.extra.length + ((zip64 > 0) ? zip64 + 4 : 0);
+		ByteBuffer bb = buffer(46 + e.name.length + elen);
+		int version = e.version();
+		bb.putInt(CENSIG)
+			.putShort((short) version)
+			.putShort((short) version)
+			.putShort((short) e.flag)
+			.putShort((short) e.method)
+			.putInt(e.time)
+			.putInt((int) e.crc)
+			.putInt((int) Math.min(e.csize, ZIP64_MAGIC))
+			.putInt((int) Math.min(e.size, ZIP64_MAGIC))
+			.putShort((short) e.name.length)
+			.putShort((short) elen)
+			.putShort((short) 0)
+			.putShort((short) 0)
+			.putShort((short) 0)
+			.putInt(0)
+			.putInt((int) Math.min(e.offset, ZIP64_MAGIC))
+			.put(e.name);
+		if (zip64 > 0) {
+			bb.putShort((short) ZIP64_EXTID)
+				.putShort((short) zip64);
+			if (e.size >= ZIP64_MAGIC) {
+				bb.putLong(e.size);
+			}
+			if (e.csize >= ZIP64_MAGIC) {
+				bb.putLong(e.csize);
+			}
+			if (e.offset >= ZIP64_MAGIC) {
+				bb.putLong(e.offset);
+			}
+		}
+		bb.put(e.extra);
+		write(bb);
+	}
+
+	/**
+	 * Convert a Java time to the MS-DOS date and time format in the default
+	 * time zone, the same conversion {@link ZipEntry#setTime(long)} uses.
+	 */
+	static int dosTime(long time) {
+		if (time == -1L) {
+			time = System.currentTimeMillis();
+		}
+		LocalDateTime d = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+		int year = d.getYear();
+		if (year < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+		return ((year - 1980) << 25) | (d.getMonthValue() << 21) | (d.getDayOfMonth() << 16) | (d.getHour() << 11)
+			| (d.getMinute() << 5) | (d.getSecond() >> 1);
+	}
+
+	private static ByteBuffer buffer(int size) {
+		return ByteBuffer.allocate(size)
+			.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private void write(ByteBuffer bb) throws IOException {
+		out.write(bb.array(), 0, bb.position());
+	}
+
+	private final static class Counter extends OutputStream {
+		private final OutputStream	out;
+		long						written;
+
+		Counter(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			written++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			written += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() {
+			// the underlying stream is owned by the caller
+		}
+	}
+}
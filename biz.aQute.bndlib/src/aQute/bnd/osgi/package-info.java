@@ -1,4 +1,4 @@
-@Version("5.3.0")
+@Version("5.4.0")
 package aQute.bnd.osgi;
 
 import org.osgi.annotation.versioning.Version;
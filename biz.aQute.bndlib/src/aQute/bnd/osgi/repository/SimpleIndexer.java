@@ -5,23 +5,38 @@ import static java.util.Objects.requireNonNull;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import org.osgi.resource.Capability;
 import org.osgi.resource.Resource;
+import org.osgi.service.repository.ContentNamespace;
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
 
 import aQute.bnd.annotation.ConsumerType;
+import aQute.bnd.exceptions.Exceptions;
 import aQute.bnd.osgi.Domain;
+import aQute.bnd.osgi.Processor;
+import aQute.bnd.osgi.resource.CapReqBuilder;
 import aQute.bnd.osgi.resource.ResourceBuilder;
-import aQute.bnd.exceptions.Exceptions;
+import aQute.bnd.osgi.resource.ResourceUtils;
+import aQute.bnd.osgi.resource.ResourceUtils.ContentCapability;
 import aQute.lib.io.IO;
+import aQute.libg.cryptography.SHA256;
 import aQute.libg.reporter.slf4j.Slf4jReporter;
 import aQute.service.reporter.Reporter;
 
@@ -74,6 +89,9 @@ public class SimpleIndexer {
 	private long			increment	= -1L;
 	private FileAnalyzer	analyzer;
 	private Reporter		reporter	= new Slf4jReporter(SimpleIndexer.class);
+	private int				parallel	= Runtime.getRuntime()
+		.availableProcessors();
+	private File			previous;
 
 	public SimpleIndexer() {}
 
@@ -123,6 +141,31 @@ public class SimpleIndexer {
 		return this;
 	}
 
+	/**
+	 * The files are indexed concurrently. The analyzer is called by one
+	 * thread at a time.
+	 *
+	 * @param parallel the maximum number of files indexed concurrently, the
+	 *            default is the number of available processors
+	 */
+	public SimpleIndexer parallel(int parallel) {
+		this.parallel = Math.max(parallel, 1);
+		return this;
+	}
+
+	/**
+	 * The resources of a previous index are reused for the files whose size
+	 * and SHA-256 did not change. The analyzer is not called for the reused
+	 * resources.
+	 *
+	 * @param previous a previous index of the files, ignored if it does not
+	 *            exist
+	 */
+	public SimpleIndexer previous(File previous) {
+		this.previous = previous;
+		return this;
+	}
+
 	/**
 	 * @param increment the timestamp of the index
 	 */
@@ -157,12 +200,43 @@ public class SimpleIndexer {
 	 * @return the set of resources handled so far.
 	 */
 	public List<Resource> getResources() {
-		List<Resource> resources = files.stream()
+		File[] files = this.files.stream()
 			.filter(f -> f.isFile() && !f.isHidden() && f.canRead())
-			.map(this::indexFile)
+			.toArray(File[]::new);
+		Map<URI, Resource> previousResources = previousResources();
+		Resource[] resources = new Resource[files.length];
+		AtomicInteger next = new AtomicInteger();
+		Runnable worker = () -> {
+			for (int i; (i = next.getAndIncrement()) < files.length;) {
+				resources[i] = indexFile(files[i], previousResources);
+			}
+		};
+		int workers = Math.min(parallel, files.length);
+		if (workers > 1) {
+			PromiseFactory promiseFactory = Processor.getPromiseFactory();
+			List<Promise<Void>> promises = new ArrayList<>(workers);
+			for (int i = 0; i < workers; i++) {
+				promises.add(promiseFactory.submit(() -> {
+					worker.run();
+					return null;
+				}));
+			}
+			try {
+				promiseFactory.all(promises)
+					.getValue();
+			} catch (InvocationTargetException e) {
+				throw Exceptions.duck(e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+					.interrupt();
+				throw Exceptions.duck(e);
+			}
+		} else {
+			worker.run();
+		}
+		return Arrays.stream(resources)
 			.filter(Objects::nonNull)
 			.collect(Collectors.toList());
-		return resources;
 	}
 
 	public SimpleIndexer reporter(Reporter reporter) {
@@ -187,21 +261,87 @@ public class SimpleIndexer {
 		return repository;
 	}
 
-	private Resource indexFile(File file) {
+	private Map<URI, Resource> previousResources() {
+		Map<URI, Resource> resources = new HashMap<>();
+		if ((previous == null) || !previous.isFile()) {
+			return resources;
+		}
+		try {
+			for (Resource resource : XMLResourceParser.getResources(previous, location())) {
+				ContentCapability content = ResourceUtils.getContentCapability(resource);
+				if ((content != null) && (content.url() != null)) {
+					resources.put(content.url()
+						.normalize(), resource);
+				}
+			}
+		} catch (Exception e) {
+			reporter.warning("Could not read the previous index %s, indexing all files: %s", previous, e);
+		}
+		return resources;
+	}
+
+	private Resource indexFile(File file, Map<URI, Resource> previousResources) {
 		try {
+			URI uri = relativize(file);
+			Resource resource = reuse(file, uri, previousResources.get(location().resolve(uri)
+				.normalize()));
+			if (resource != null) {
+				return resource;
+			}
 			ResourceBuilder resourceBuilder = new ResourceBuilder();
-			if (resourceBuilder.addFile(file, relativize(file))) {
+			if (resourceBuilder.addFile(file, uri)) {
 				if (analyzer != null) {
-					analyzer.analyzeFile(file, resourceBuilder.safeResourceBuilder());
+					synchronized (analyzer) {
+						analyzer.analyzeFile(file, resourceBuilder.safeResourceBuilder());
+					}
 				}
 				return resourceBuilder.build();
 			}
 		} catch (Exception e) {
-			reporter.exception(e, "Could not index file %s", file);
+			synchronized (reporter) {
+				reporter.exception(e, "Could not index file %s", file);
+			}
 		}
 		return null;
 	}
 
+	/**
+	 * Answer the resource of the previous index with the url of the file if
+	 * the file did not change.
+	 */
+	private Resource reuse(File file, URI uri, Resource resource) throws Exception {
+		if (resource == null) {
+			return null;
+		}
+		ContentCapability content = ResourceUtils.getContentCapability(resource);
+		if (content.size() != file.length()) {
+			return null;
+		}
+		if (!SHA256.digest(file)
+			.asHex()
+			.equalsIgnoreCase(content.osgi_content())) {
+			return null;
+		}
+		ResourceBuilder resourceBuilder = new ResourceBuilder();
+		for (Capability capability : resource.getCapabilities(null)) {
+			if (ContentNamespace.CONTENT_NAMESPACE.equals(capability.getNamespace()) && content.osgi_content()
+				.equals(capability.getAttributes()
+					.get(ContentNamespace.CONTENT_NAMESPACE))) {
+				resourceBuilder.addCapability(CapReqBuilder.clone(capability)
+					.addAttribute(ContentNamespace.CAPABILITY_URL_ATTRIBUTE, uri.toString()));
+			} else {
+				resourceBuilder.addCapability(capability);
+			}
+		}
+		resourceBuilder.addRequirements(resource.getRequirements(null));
+		return resourceBuilder.build();
+	}
+
+	private URI location() {
+		return (base != null) ? base.toUri() : new File("").getAbsoluteFile()
+			.toURI();
+	}
+
 	private URI relativize(File file) {
 		if (base == null) {
 			return file.toURI();
@@ -218,8 +358,10 @@ public class SimpleIndexer {
 		} catch (URISyntaxException e) {
 			throw Exceptions.duck(e);
 		}
-		reporter.trace("Resolving %s relative to %s; Relative Path: %s, URI: %s", filePath, base, relativePath,
-			relativeURI);
+		synchronized (reporter) {
+			reporter.trace("Resolving %s relative to %s; Relative Path: %s, URI: %s", filePath, base, relativePath,
+				relativeURI);
+		}
 		return relativeURI;
 	}
 
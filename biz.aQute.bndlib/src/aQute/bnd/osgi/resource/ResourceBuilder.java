@@ -7,7 +7,10 @@ import static java.util.stream.Collectors.toList;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -21,8 +24,11 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.function.Supplier;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
+import java.util.zip.ZipException;
 
 import org.osgi.framework.Constants;
 import org.osgi.framework.Version;
@@ -58,12 +64,18 @@ import aQute.lib.hex.Hex;
 import aQute.lib.hierarchy.FolderNode;
 import aQute.lib.hierarchy.Hierarchy;
 import aQute.lib.hierarchy.NamedNode;
+import aQute.lib.io.IO;
 import aQute.lib.zip.JarIndex;
 import aQute.libg.cryptography.SHA256;
 import aQute.libg.reporter.ReporterAdapter;
 import aQute.service.reporter.Reporter;
 
 public class ResourceBuilder {
+	/**
+	 * Archives up to this size are read into memory once by
+	 * {@link #addFile(File, URI)}. Larger files are read several times.
+	 */
+	private final static long					MAX_ARCHIVE_SIZE	= 64L * 1024L * 1024L;
 	private final ResourceImpl					resource		= new ResourceImpl();
 	private final Map<String, Set<Capability>>	capabilities	= new TreeMap<>(new NamespaceComparator());
 	private final Map<String, Set<Requirement>>	requirements	= new TreeMap<>(new NamespaceComparator());
@@ -707,6 +719,14 @@ public class ResourceBuilder {
 		if (uri == null)
 			uri = file.toURI();
 
+		if (isArchive(file)) {
+			try {
+				return addArchive(file, uri);
+			} catch (ZipException e) {
+				// read the file again as before
+			}
+		}
+
 		Domain manifest = Domain.domain(file);
 		boolean hasIdentity = false;
 		if (manifest != null) {
@@ -723,6 +743,76 @@ public class ResourceBuilder {
 		return hasIdentity;
 	}
 
+	/**
+	 * Digest the file, read the manifest and collect the class names of the
+	 * packages in a single read of the file.
+	 */
+	private boolean addArchive(File file, URI uri) throws Exception {
+		ByteBuffer bb = IO.read(file.toPath());
+		Domain manifest = null;
+		Map<String, Set<String>> classes = new HashMap<>();
+		try (Jar jar = Jar.fromBuffer(file.getName(), bb.duplicate())) {
+			Map<String, aQute.bnd.osgi.Resource> resources = jar.getResources();
+			String manifestName = resources.keySet()
+				.stream()
+				.filter(JarFile.MANIFEST_NAME::equalsIgnoreCase)
+				.findFirst()
+				.orElse(null);
+			if (manifestName != null) {
+				try (InputStream in = resources.get(manifestName)
+					.openInputStream()) {
+					manifest = Domain.domain(new Manifest(in), name -> {
+						aQute.bnd.osgi.Resource r = resources.get(name);
+						return (r != null) ? r.openInputStream() : null;
+					});
+				}
+			}
+			if (manifest != null) {
+				for (String name : resources.keySet()) {
+					int n = name.lastIndexOf('/');
+					String simple = name.substring(n + 1);
+					if (Descriptors.isBinaryClass(simple)) {
+						classes.computeIfAbsent((n < 0) ? "" : name.substring(0, n), k -> new TreeSet<>())
+							.add(simple);
+					}
+				}
+			}
+		}
+		MessageDigest md = MessageDigest.getInstance(SHA256.ALGORITHM);
+		md.update(bb);
+
+		boolean hasIdentity = false;
+		if (manifest != null) {
+			hasIdentity = addManifest(manifest);
+		}
+		String mime = hasIdentity ? MIME_TYPE_BUNDLE : MIME_TYPE_JAR;
+		String sha256 = Hex.toHexString(md.digest());
+		addContentCapability(uri, sha256, file.length(), mime);
+
+		if (hasIdentity) {
+			Map<String, List<Long>> hashes = new HashMap<>();
+			classes.forEach((folder, names) -> {
+				List<Long> theseHashes = names.stream()
+					.map(Descriptors::binaryToSimple)
+					.distinct()
+					.filter(simple -> !Verifier.isNumber(simple))
+					.map(simple -> Long.valueOf(ClassIndexerAnalyzer.hash(simple)))
+					.collect(toList());
+				if (!theseHashes.isEmpty()) {
+					hashes.put(Descriptors.binaryToFQN(folder), theseHashes);
+				}
+			});
+			addHashes(hashes);
+		}
+		return hasIdentity;
+	}
+
+	private static boolean isArchive(File file) {
+		String name = file.getName();
+		return !(name.endsWith(".mf") || name.endsWith(".properties") || name.endsWith(".bnd")
+			|| name.endsWith(".pom")) && (file.length() <= MAX_ARCHIVE_SIZE);
+	}
+
 	/**
 	 * Add simple class name hashes to the exported packages. This should not be
 	 * called before any package capabilities are set since we only hash class
@@ -14,6 +14,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.jar.Manifest;
@@ -36,6 +37,7 @@ import aQute.bnd.service.RepositoryListenerPlugin;
 import aQute.bnd.service.RepositoryPlugin;
 import aQute.bnd.service.repository.SearchableRepository.ResourceDescriptor;
 import aQute.bnd.version.Version;
+import aQute.bnd.version.VersionRange;
 import aQute.lib.collections.SortedList;
 import aQute.lib.hex.Hex;
 import aQute.lib.io.IO;
@@ -225,7 +227,6 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 
 	private static final String				LATEST_POSTFIX		= "-" + Constants.VERSION_ATTR_LATEST + ".jar";
 	public static final Version				LATEST_VERSION		= new Version(MAX_MAJOR, 0, 0);
-	private static final SortedSet<Version>	LATEST_SET			= new TreeSet<>(Collections.singleton(LATEST_VERSION));
 
 	final static JSONCodec					codec				= new JSONCodec();
 	String									shell;
@@ -255,6 +256,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	PersistentMap<ResourceDescriptor>		index;
 
 	private boolean							hasIndex;
+	private volatile FileRepoIndex			repoIndex;
 
 	public FileRepo() {}
 
@@ -310,6 +312,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 			throw new IllegalArgumentException("Location must be set on a FileRepo plugin");
 
 		root = IO.getFile(IO.home, location);
+		resetIndex();
 
 		String readonly = map.get(READONLY);
 		if (readonly != null)
@@ -422,6 +425,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 				file.setWritable(true);
 			}
 			IO.rename(tmpFile, file);
+			repoIndex().changed(bsn);
 
 			fireBundleAdded(file);
 			afterPut(file, bsn, version, Hex.toHexString(digest));
@@ -491,6 +495,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 
 	public void setLocation(String string) {
 		root = IO.getFile(string);
+		resetIndex();
 	}
 
 	@Override
@@ -511,14 +516,9 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 				reporter.error("FileRepo root directory is not set.");
 		} else {
 			if (root.isDirectory()) {
-				for (File f : IO.listFiles(root)) {
-					if (!f.isDirectory())
-						continue; // ignore non-directories
-					String fileName = f.getName();
-					if (fileName.charAt(0) == '.')
-						continue; // ignore hidden files
-					if (pattern == null || pattern.matches(fileName))
-						result.add(fileName);
+				for (String bsn : repoIndex().list()) {
+					if (pattern == null || pattern.matches(bsn))
+						result.add(bsn);
 				}
 			} else if (reporter != null)
 				reporter.error("FileRepo root directory (%s) does not exist", root);
@@ -530,26 +530,62 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	@Override
 	public SortedSet<Version> versions(String bsn) throws Exception {
 		init();
-		File dir = new File(root, bsn);
-		boolean latest = false;
-		if (dir.isDirectory()) {
-			List<Version> list = new ArrayList<>();
-			for (String v : IO.list(dir)) {
-				Matcher m = REPO_FILE.matcher(v);
-				if (m.matches()) {
-					String version = m.group(2);
-					if (!version.equals(Constants.VERSION_ATTR_LATEST))
-						list.add(new Version(version));
-					else
-						latest = true;
+		return repoIndex().versions(bsn);
+	}
+
+	/**
+	 * Answer the versions of a bsn that are in a range.
+	 *
+	 * @param bsn the bundle symbolic name
+	 * @param range the version range
+	 * @return the versions in the range, sorted
+	 * @throws Exception
+	 */
+	public SortedSet<Version> versions(String bsn, VersionRange range) throws Exception {
+		init();
+		return repoIndex().versions(bsn, range);
+	}
+
+	/*
+	 * The bsns and versions in the directory are kept in an index since they
+	 * are asked for very often.
+	 */
+	FileRepoIndex repoIndex() {
+		FileRepoIndex index = repoIndex;
+		if (index == null) {
+			synchronized (this) {
+				index = repoIndex;
+				if (index == null) {
+					repoIndex = index = new FileRepoIndex(root, this::scan);
 				}
 			}
-			if (list.isEmpty() && latest)
-				return LATEST_SET;
-			else
-				return new SortedList<>(list);
 		}
-		return SortedList.empty();
+		return index;
+	}
+
+	private NavigableSet<Version> scan(File dir) {
+		boolean latest = false;
+		TreeSet<Version> versions = new TreeSet<>();
+		for (String v : IO.list(dir)) {
+			Matcher m = REPO_FILE.matcher(v);
+			if (m.matches()) {
+				String version = m.group(2);
+				if (!version.equals(Constants.VERSION_ATTR_LATEST))
+					versions.add(new Version(version));
+				else
+					latest = true;
+			}
+		}
+		if (versions.isEmpty() && latest)
+			versions.add(LATEST_VERSION);
+		return versions;
+	}
+
+	private synchronized void resetIndex() {
+		FileRepoIndex index = repoIndex;
+		repoIndex = null;
+		if (index != null)
+			index.close();
 	}
 
 	@Override
@@ -566,6 +602,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	public boolean refresh() throws Exception {
 		init();
 		exec(refresh, root);
+		repoIndex().clear();
 		rebuildIndex();
 		return true;
 	}
@@ -640,6 +677,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 				if (f.getParentFile()
 					.list().length == 0)
 					IO.delete(f.getParentFile());
+				repoIndex().changed(bsn);
 				afterAction(f, "delete");
 			});
 			return actions;
@@ -792,6 +830,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 
 	@Override
 	public void close() throws IOException {
+		resetIndex();
 		if (inited) {
 			exec(close, IO.absolutePath(getRoot()));
 			if (hasIndex)
@@ -907,6 +946,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	 */
 	public void setDir(File repoDir) {
 		this.root = repoDir;
+		resetIndex();
 	}
 
 	/**
@@ -933,8 +973,11 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 			else
 				IO.delete(f);
 		}
-		if (versions(bsn).isEmpty())
+		repoIndex().changed(bsn);
+		if (versions(bsn).isEmpty()) {
 			IO.delete(new File(root, bsn));
+			repoIndex().changed(bsn);
+		}
 
 		index.remove(bsn + "-" + version);
 	}
@@ -0,0 +1,346 @@
+package aQute.lib.deployer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.bnd.version.Version;
+import aQute.bnd.version.VersionRange;
+import aQute.lib.io.IO;
+
+/**
+ * An in memory index of the bsns and versions in the directory of a
+ * {@link FileRepo}.
+ * <p>
+ * A directory is only listed when it is first needed. The repository
+ * invalidates the entries it changes. Entries are always checked against the
+ * last modified time of their directory, so external changes are seen
+ * immediately. A {@link WatchService} that is shared by all indexes also
+ * invalidates entries when it reports a change, this catches changes that do
+ * not show in the coarse last modified time of some file systems. The watch
+ * service runs on its own daemon thread, which is stopped when the last index
+ * is closed.
+ */
+final class FileRepoIndex implements Closeable {
+	private final static Logger							logger		= LoggerFactory.getLogger(FileRepoIndex.class);
+	private final static Entry							MISSING		= new Entry(Collections.emptyNavigableSet(), 0L);
+
+	private final File									root;
+	private final Function<File, NavigableSet<Version>>	scanner;
+	private final ConcurrentMap<String, Entry>			versions	= new ConcurrentHashMap<>();
+	private final AtomicLong							generation	= new AtomicLong();
+	private final List<WatchKey>						keys		= new CopyOnWriteArrayList<>();
+	private final Watcher								watcher;
+	private volatile Entry								bsns;
+	private volatile boolean							closed;
+
+	final static class Entry {
+		final NavigableSet<?>	set;
+		final long				lastModified;
+
+		Entry(NavigableSet<?> set, long lastModified) {
+			this.set = set;
+			this.lastModified = lastModified;
+		}
+	}
+
+	/**
+	 * @param root the directory of the repository
+	 * @param scanner lists the versions in the directory of a bsn
+	 */
+	FileRepoIndex(File root, Function<File, NavigableSet<Version>> scanner) {
+		this.root = root;
+		this.scanner = scanner;
+		Watcher w = Watcher.get();
+		if (w != null && !w.register(root.toPath(), this, null)) {
+			w = null;
+		}
+		this.watcher = w;
+	}
+
+	/**
+	 * Answer the bsns in the repository, these are the directories that are
+	 * not hidden.
+	 */
+	@SuppressWarnings("unchecked")
+	SortedSet<String> list() {
+		Entry entry = bsns;
+		if (entry == null || !isCurrent(entry, root)) {
+			long start = generation.get();
+			long lastModified = root.lastModified();
+			TreeSet<String> names = new TreeSet<>();
+			for (File f : IO.listFiles(root)) {
+				String name = f.getName();
+				if (f.isDirectory() && name.charAt(0) != '.')
+					names.add(name);
+			}
+			entry = new Entry(Collections.unmodifiableNavigableSet(names), lastModified);
+			if (generation.get() == start) {
+				bsns = entry;
+			}
+		}
+		return (SortedSet<String>) entry.set;
+	}
+
+	/**
+	 * Answer the versions of a bsn.
+	 */
+	@SuppressWarnings("unchecked")
+	NavigableSet<Version> versions(String bsn) {
+		File dir = new File(root, bsn);
+		Entry entry = versions.get(bsn);
+		if (entry == null || !isCurrent(entry, dir)) {
+			long start = generation.get();
+			long lastModified = dir.lastModified();
+			if (!dir.isDirectory()) {
+				entry = MISSING;
+			} else {
+				if (watcher != null) {
+					watcher.register(dir.toPath(), this, bsn);
+				}
+				entry = new Entry(Collections.unmodifiableNavigableSet(scanner.apply(dir)), lastModified);
+			}
+			if (generation.get() == start) {
+				versions.put(bsn, entry);
+			}
+		}
+		return (NavigableSet<Version>) entry.set;
+	}
+
+	/**
+	 * Answer the versions of a bsn in a range. The answer is a view on the
+	 * versions in the index.
+	 */
+	SortedSet<Version> versions(String bsn, VersionRange range) {
+		NavigableSet<Version> all = versions(bsn);
+		if (range.isSingleVersion()) {
+			return all.tailSet(range.getLow(), range.includeLow());
+		}
+		if (range.getLow()
+			.compareTo(range.getHigh()) > 0) {
+			return Collections.emptySortedSet();
+		}
+		return all.subSet(range.getLow(), range.includeLow(), range.getHigh(), range.includeHigh());
+	}
+
+	/**
+	 * Called when the directory of a bsn is changed by the repository.
+	 */
+	void changed(String bsn) {
+		generation.incrementAndGet();
+		bsns = null;
+		versions.remove(bsn);
+	}
+
+	/**
+	 * Forget everything, for example when the repository is refreshed.
+	 */
+	void clear() {
+		generation.incrementAndGet();
+		bsns = null;
+		versions.clear();
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		clear();
+		if (watcher != null) {
+			watcher.unregister(this);
+		}
+	}
+
+	private boolean isCurrent(Entry entry, File dir) {
+		return entry.lastModified == dir.lastModified();
+	}
+
+	/**
+	 * Called from the watcher thread with the name of the changed file in a
+	 * watched directory. The bsn is null for the root directory.
+	 */
+	private void event(String bsn, Path context) {
+		if (bsn == null) {
+			if (context == null) {
+				clear();
+			} else {
+				changed(context.toString());
+			}
+		} else {
+			changed(bsn);
+		}
+	}
+
+	/**
+	 * A watch service for the file repositories in this process. The
+	 * registrations weakly reference their index so that indexes of
+	 * repositories that are not closed do not leak. The service waits for
+	 * events on a dedicated daemon thread and not on the bnd executor, it
+	 * would otherwise hold on to one of its threads forever.
+	 */
+	final static class Watcher implements Runnable {
+		private static Watcher										instance;
+		private static boolean										failed;
+
+		private final WatchService									service;
+		private final Thread										thread;
+		private final ConcurrentMap<WatchKey, List<Registration>>	registrations	= new ConcurrentHashMap<>();
+
+		final static class Registration {
+			final WeakReference<FileRepoIndex>	index;
+			final String						bsn;
+
+			Registration(FileRepoIndex index, String bsn) {
+				this.index = new WeakReference<>(index);
+				this.bsn = bsn;
+			}
+		}
+
+		static synchronized Watcher get() {
+			if (instance == null && !failed) {
+				try {
+					instance = new Watcher(FileSystems.getDefault()
+						.newWatchService());
+					instance.thread.start();
+				} catch (Exception e) {
+					logger.debug("Cannot watch file repositories, will check the directories instead: {}", e);
+					failed = true;
+				}
+			}
+			return instance;
+		}
+
+		private Watcher(WatchService service) {
+			this.service = service;
+			this.thread = new Thread(this, "Bnd-FileRepoWatcher");
+			this.thread.setDaemon(true);
+		}
+
+		boolean register(Path dir, FileRepoIndex index, String bsn) {
+			if (index.closed) {
+				return false;
+			}
+			try {
+				WatchKey key = dir.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+				List<Registration> list = registrations.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>());
+				for (Registration r : list) {
+					if (r.index.get() == index) {
+						return true;
+					}
+				}
+				list.add(new Registration(index, bsn));
+				index.keys.add(key);
+				return true;
+			} catch (IOException | RuntimeException e) {
+				logger.debug("Cannot watch {}: {}", dir, e);
+				return false;
+			}
+		}
+
+		void unregister(FileRepoIndex index) {
+			for (WatchKey key : index.keys) {
+				List<Registration> list = registrations.get(key);
+				if (list != null) {
+					list.removeIf(r -> {
+						FileRepoIndex i = r.index.get();
+						return i == null || i == index;
+					});
+					cancelIfUnused(key, list);
+				}
+			}
+			index.keys.clear();
+			if (registrations.isEmpty()) {
+				stop();
+			}
+		}
+
+		/**
+		 * Stop the thread when there are no more indexes to watch. A later
+		 * index starts a new watcher.
+		 */
+		private void stop() {
+			synchronized (Watcher.class) {
+				if (instance == this) {
+					instance = null;
+				}
+			}
+			thread.interrupt();
+			IO.close(service);
+		}
+
+		@Override
+		public void run() {
+			try {
+				for (WatchKey key; (key = service.take()) != null;) {
+					List<Registration> list = registrations.get(key);
+					List<WatchEvent<?>> events = key.pollEvents();
+					if (list != null) {
+						list.removeIf(r -> r.index.get() == null);
+						for (Registration r : list) {
+							FileRepoIndex index = r.index.get();
+							if (index == null) {
+								continue;
+							}
+							for (WatchEvent<?> event : events) {
+								index.event(r.bsn, event.kind() == OVERFLOW ? null : (Path) event.context());
+							}
+						}
+						if (!key.reset()) {
+							// directory is gone
+							for (Registration r : list) {
+								FileRepoIndex index = r.index.get();
+								if (index != null) {
+									index.event(r.bsn, null);
+									index.keys.remove(key);
+								}
+							}
+							list.clear();
+						}
+						cancelIfUnused(key, list);
+					} else {
+						key.cancel();
+					}
+				}
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				// done
+			} finally {
+				synchronized (Watcher.class) {
+					if (instance == this) {
+						instance = null;
+					}
+				}
+				IO.close(service);
+			}
+		}
+
+		private void cancelIfUnused(WatchKey key, List<Registration> list) {
+			if (list.isEmpty() && registrations.remove(key, list)) {
+				key.cancel();
+			}
+		}
+	}
+}
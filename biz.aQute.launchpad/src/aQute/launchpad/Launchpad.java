@@ -99,8 +99,10 @@ public class Launchpad implements AutoCloseable {
 	final Map<Class<?>, ServiceTracker<?, ?>>	injectedDoNotClose		= new HashMap<>();
 	final Set<String>							frameworkExports;
 	final List<String>							errors					= new ArrayList<>();
-	final String								name;
-	final String								className;
+	final List<Closeable>						hidden					= new CopyOnWriteArrayList<>();
+	final List<ServiceRegistration<?>>			registrations			= new CopyOnWriteArrayList<>();
+	String										name;
+	String										className;
 	final RunSpecification						runspec;
 	final boolean								hasTestBundle;
 	final StartLevelRuntimeHandler				startlevels;
@@ -115,6 +117,7 @@ public class Launchpad implements AutoCloseable {
 	private long								closeTimeout;
 	private Bundle								proxyBundle;
 	private Probe								probe					= new ProbeImpl();
+	PooledFramework								pooled;
 
 	Launchpad(RemoteWorkspace workspace, Framework framework, String name, String className, RunSpecification runspec,
 		long closeTimeout, boolean debug, boolean hasTestBundle, boolean byReference) {
@@ -329,10 +332,19 @@ public class Launchpad implements AutoCloseable {
 	}
 
 	/**
-	 * Close this framework
+	 * Close this framework. A pooled framework is reset and returned to the
+	 * pool, see {@link LaunchpadBuilder#pooled()}.
 	 */
 	@Override
 	public void close() throws Exception {
+		if (pooled != null) {
+			pooled.release();
+			return;
+		}
+		stopFramework();
+	}
+
+	void stopFramework() throws Exception {
 		startlevels.close();
 		report("Stop the framework");
 		framework.stop();
@@ -710,10 +722,12 @@ public class Launchpad implements AutoCloseable {
 
 			}, null);
 
-		return () -> {
+		Closeable closeable = () -> {
 			eventReg.unregister();
 			findReg.unregister();
 		};
+		hidden.add(closeable);
+		return closeable;
 	}
 
 	/**
@@ -880,7 +894,11 @@ public class Launchpad implements AutoCloseable {
 			}
 			ht.put(key, value);
 		}
-		return getBundleContext().registerService(type, instance, ht);
+		ServiceRegistration<T> registration = getBundleContext().registerService(type, instance, ht);
+		if (pooled != null) {
+			registrations.add(registration);
+		}
+		return registration;
 	}
 
 	/**
@@ -1387,4 +1405,17 @@ public class Launchpad implements AutoCloseable {
 	public void sync() {
 		startlevels.sync();
 	}
+
+	/**
+	 * Prepare this launchpad for the next test of a pooled framework.
+	 */
+	void lease(String name, String className, boolean debug) {
+		this.name = name;
+		this.className = className;
+		this.debug = debug;
+		this.proxyBundle = framework;
+		this.probe = new ProbeImpl();
+		errors.clear();
+		frameworkEvents.clear();
+	}
 }
@@ -15,6 +15,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -87,6 +88,8 @@ public class LaunchpadBuilder implements AutoCloseable {
 	boolean							byReference		= true;
 	long							closeTimeout	= 60000;
 	boolean							debug;
+	boolean							pooled;
+	final Set<String>				poolKeys		= new HashSet<>();
 	final Set<Class<?>>				hide			= new HashSet<>();
 	final List<Predicate<String>>	excludeExports	= new ArrayList<>();
 	final List<String>				exports			= new ArrayList<>();
@@ -217,6 +220,30 @@ public class LaunchpadBuilder implements AutoCloseable {
 		return this;
 	}
 
+	/**
+	 * Use a pooled framework. The frameworks are kept started and are shared
+	 * by the launchpads created with the same specification. Closing a
+	 * launchpad resets its framework for the next test: the bundles installed
+	 * by the test are uninstalled, the services registered by the test are
+	 * unregistered and the configurations are restored. A framework that the
+	 * test changed in a way that cannot be reset, for example by stopping or
+	 * updating one of its bundles, is stopped instead. The pooled frameworks
+	 * are stopped when this builder is closed.
+	 * <p>
+	 * The framework properties of a pooled framework, like the storage and the
+	 * name of the launchpad, are those of the launchpad that created it.
+	 * Pooling is ignored if the launchpad is not started, see
+	 * {@link #nostart()}. The number of idle frameworks per specification can
+	 * be set with the {@code launchpad.pool.size} system property, the
+	 * default is 2.
+	 *
+	 * @return this
+	 */
+	public LaunchpadBuilder pooled() {
+		this.pooled = true;
+		return this;
+	}
+
 	/**
 	 * Exclude the exports that are matched by any of the given globs
 	 *
@@ -255,9 +282,6 @@ public class LaunchpadBuilder implements AutoCloseable {
 
 	public Launchpad create(String name, String className) {
 		try {
-			File storage = IO.getFile(new File(local.target), "launchpad/launchpad-" + counter.incrementAndGet());
-			IO.delete(storage);
-
 			List<Predicate<String>> localExcludeExports = new ArrayList<>(excludeExports);
 			new ParameterMap(local.instructions.get(EXCLUDEEXPORTS)).keySet()
 				.stream()
@@ -270,6 +294,21 @@ public class LaunchpadBuilder implements AutoCloseable {
 
 			String extraCapabilities = new ParameterMap(local.extraSystemCapabilities).toString();
 
+			String key = null;
+			if (pooled && start) {
+				key = poolKey(extraPackages, extraCapabilities);
+				poolKeys.add(key);
+				Launchpad launchpad = PooledFramework.acquire(key);
+				if (launchpad != null) {
+					launchpad.lease(name, className, debug);
+					launchpad.report("Reusing pooled framework %s", launchpad.framework);
+					return launchpad;
+				}
+			}
+
+			File storage = IO.getFile(new File(local.target), "launchpad/launchpad-" + counter.incrementAndGet());
+			IO.delete(storage);
+
 			RunSpecification runspec = new RunSpecification();
 			runspec.mergeWith(local);
 
@@ -298,6 +337,9 @@ public class LaunchpadBuilder implements AutoCloseable {
 			if (start) {
 				launchpad.start();
 			}
+			if (key != null) {
+				PooledFramework.pool(key, launchpad);
+			}
 
 			return launchpad;
 		} catch (Exception e) {
@@ -305,6 +347,20 @@ public class LaunchpadBuilder implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * The specification of a pooled framework.
+	 */
+	private String poolKey(String extraPackages, String extraCapabilities) {
+		return Stream.of(local.runfw, local.runpath, local.runbundles, new TreeMap<>(local.properties), extraPackages,
+			extraCapabilities, testbundle, byReference, parentLoader, hide.stream()
+				.map(Class::getName)
+				.sorted()
+				.collect(Collectors.toList()),
+			System.identityHashCode(getMyClassLoader()))
+			.map(String::valueOf)
+			.collect(Collectors.joining("\n"));
+	}
+
 	private String toLines(Collection<String> set) {
 		return set.stream()
 			.sorted()
@@ -333,12 +389,19 @@ public class LaunchpadBuilder implements AutoCloseable {
 	// }
 
 	/**
-	 * We're not closing the framework and reuse the static variables. That
-	 * means we never really shut down the remote connection and let the process
-	 * exit kill it. This is for efficiency reasons.
+	 * Stop the pooled frameworks of the specifications of this builder, see
+	 * {@link #pooled()}. A pooled framework that is still used by a launchpad
+	 * is stopped when the launchpad is closed.
+	 * <p>
+	 * We're not closing the remote workspace and reuse the static variables.
+	 * That means we never really shut down the remote connection and let the
+	 * process exit kill it. This is for efficiency reasons.
 	 */
 	@Override
-	public void close() throws Exception {}
+	public void close() throws Exception {
+		PooledFramework.close(poolKeys);
+		poolKeys.clear();
+	}
 
 	Framework getFramework(RunSpecification runspec) {
 		try {
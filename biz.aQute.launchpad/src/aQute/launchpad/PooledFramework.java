@@ -0,0 +1,431 @@
+package aQute.launchpad;
+
+import java.io.Closeable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.launch.Framework;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+/**
+ * A started framework that is kept in a pool to be used by the tests that
+ * create a launchpad with the same specification, see
+ * {@link LaunchpadBuilder#pooled()}.
+ * <p>
+ * The state of the framework after it was started is the baseline. When the
+ * launchpad is closed, the framework is reset to the baseline: the bundles
+ * installed by the test are uninstalled, the test bundle is restarted to
+ * unregister its services and listeners, the services registered with
+ * {@link Launchpad#register(Class, Object, Object...)} are unregistered, the
+ * services hidden by the test are made visible again and the configurations
+ * are restored. A framework is not returned to the pool but stopped when the
+ * test changed the framework in a way that cannot be reset. For example, when
+ * it stopped, updated or uninstalled a bundle of the baseline, left a service
+ * registered that is not part of the baseline, whichever bundle registered
+ * it, or deleted a configuration of the baseline.
+ */
+final class PooledFramework {
+	private final static String							CONFIGURATION_ADMIN	= "org.osgi.service.cm.ConfigurationAdmin";
+	private final static String							CONFIGURATION		= "org.osgi.service.cm.Configuration";
+	private final static long							REFRESH_TIMEOUT		= 60000L;
+	private final static int							MAX_IDLE			= Integer.getInteger("launchpad.pool.size", 2);
+	private final static Map<String, Deque<Launchpad>>	idle				= new HashMap<>();
+	private final static Map<String, Integer>			generations			= new HashMap<>();
+
+	static {
+		Runtime.getRuntime()
+			.addShutdownHook(new Thread(PooledFramework::stopAll, "launchpad pool shutdown"));
+	}
+
+	private final String								key;
+	private final Launchpad								launchpad;
+	private final int									generation;
+	private final Map<Long, Baseline>					bundles				= new HashMap<>();
+	private final Set<Long>								services;
+	private final int									hidden;
+	private final Map<String, Map<String, Object>>		configurations;
+	private boolean										leased				= true;
+
+	private PooledFramework(String key, Launchpad launchpad) {
+		this.key = key;
+		this.launchpad = launchpad;
+		synchronized (idle) {
+			this.generation = generations.getOrDefault(key, 0);
+		}
+		BundleContext context = launchpad.framework.getBundleContext();
+		for (Bundle bundle : context.getBundles()) {
+			bundles.put(bundle.getBundleId(), new Baseline(bundle));
+		}
+		this.services = serviceIds(context);
+		this.hidden = launchpad.hidden.size();
+		this.configurations = configurations(context);
+	}
+
+	/**
+	 * Answer an idle launchpad for the specification.
+	 *
+	 * @param key the specification of the framework
+	 * @return an idle launchpad or null if there is none
+	 */
+	static Launchpad acquire(String key) {
+		synchronized (idle) {
+			Deque<Launchpad> launchpads = idle.get(key);
+			Launchpad launchpad = (launchpads == null) ? null : launchpads.pollFirst();
+			if (launchpad != null) {
+				launchpad.pooled.leased = true;
+			}
+			return launchpad;
+		}
+	}
+
+	/**
+	 * Make a started launchpad a member of the pool. The current state of its
+	 * framework is the baseline the framework is reset to.
+	 *
+	 * @param key the specification of the framework
+	 * @param launchpad the started launchpad
+	 */
+	static void pool(String key, Launchpad launchpad) {
+		launchpad.pooled = new PooledFramework(key, launchpad);
+	}
+
+	/**
+	 * Stop the idle frameworks of the specifications. The leased frameworks
+	 * of the specifications are stopped when they are released.
+	 *
+	 * @param keys the specifications of the frameworks
+	 */
+	static void close(Collection<String> keys) {
+		List<Launchpad> launchpads = new ArrayList<>();
+		synchronized (idle) {
+			for (String key : keys) {
+				generations.merge(key, 1, Integer::sum);
+				Deque<Launchpad> keyed = idle.remove(key);
+				if (keyed != null) {
+					launchpads.addAll(keyed);
+				}
+			}
+		}
+		stop(launchpads);
+	}
+
+	/**
+	 * Reset the framework and return the launchpad to the pool. The framework
+	 * is stopped when it cannot be reset, its specification was closed or
+	 * there are enough idle frameworks for its specification.
+	 */
+	void release() throws Exception {
+		synchronized (idle) {
+			if (!leased) {
+				return;
+			}
+			leased = false;
+		}
+		boolean reset;
+		try {
+			reset = reset();
+		} catch (Exception e) {
+			launchpad.report("Cannot reset the pooled framework %s", e);
+			reset = false;
+		}
+		if (reset) {
+			synchronized (idle) {
+				Deque<Launchpad> launchpads = idle.computeIfAbsent(key, k -> new ArrayDeque<>());
+				if ((launchpads.size() < MAX_IDLE) && (generations.getOrDefault(key, 0) == generation)) {
+					launchpads.addFirst(launchpad);
+					return;
+				}
+			}
+		}
+		launchpad.pooled = null;
+		launchpad.stopFramework();
+	}
+
+	private boolean reset() throws Exception {
+		Framework framework = launchpad.framework;
+		if (framework.getState() != Bundle.ACTIVE) {
+			launchpad.report("The pooled framework is no longer active");
+			return false;
+		}
+		BundleContext context = framework.getBundleContext();
+
+		List<Closeable> hides = launchpad.hidden.subList(hidden, launchpad.hidden.size());
+		for (Closeable hide : new ArrayList<>(hides)) {
+			try {
+				hide.close();
+			} catch (IllegalStateException e) {
+				// already closed by the test
+			}
+		}
+		hides.clear();
+
+		for (ServiceRegistration<?> registration : launchpad.registrations) {
+			try {
+				registration.unregister();
+			} catch (IllegalStateException e) {
+				// already unregistered by the test
+			}
+		}
+		launchpad.registrations.clear();
+
+		List<Bundle> installed = new ArrayList<>();
+		for (Bundle bundle : context.getBundles()) {
+			if (!bundles.containsKey(bundle.getBundleId())) {
+				installed.add(bundle);
+			}
+		}
+		Collections.reverse(installed);
+		for (Bundle bundle : installed) {
+			launchpad.report("Uninstalling %s", bundle);
+			bundle.uninstall();
+		}
+		refresh(framework);
+
+		Bundle testbundle = launchpad.testbundle;
+		if (testbundle != null) {
+			testbundle.stop();
+			testbundle.start();
+		}
+
+		for (Map.Entry<Long, Baseline> entry : bundles.entrySet()) {
+			Bundle bundle = context.getBundle(entry.getKey());
+			if ((bundle == null) || !entry.getValue()
+				.matches(bundle)) {
+				launchpad.report("The test changed the bundle %s", (bundle == null) ? entry.getKey() : bundle);
+				return false;
+			}
+		}
+
+		ServiceReference<?>[] references = context.getAllServiceReferences(null, null);
+		if (references != null) {
+			for (ServiceReference<?> reference : references) {
+				if (!services.contains(serviceId(reference))) {
+					launchpad.report("The test registered the service %s", reference);
+					return false;
+				}
+			}
+		}
+
+		if (!restoreConfigurations(context)) {
+			return false;
+		}
+		return true;
+	}
+
+	private static void refresh(Framework framework) throws InterruptedException {
+		FrameworkWiring wiring = framework.adapt(FrameworkWiring.class);
+		if (wiring.getRemovalPendingBundles()
+			.isEmpty()) {
+			return;
+		}
+		CountDownLatch refreshed = new CountDownLatch(1);
+		wiring.refreshBundles(null, event -> {
+			if (event.getType() == FrameworkEvent.PACKAGES_REFRESHED) {
+				refreshed.countDown();
+			}
+		});
+		refreshed.await(REFRESH_TIMEOUT, TimeUnit.MILLISECONDS);
+	}
+
+	private static Set<Long> serviceIds(BundleContext context) {
+		Set<Long> ids = new HashSet<>();
+		try {
+			ServiceReference<?>[] references = context.getAllServiceReferences(null, null);
+			if (references != null) {
+				for (ServiceReference<?> reference : references) {
+					ids.add(serviceId(reference));
+				}
+			}
+		} catch (Exception e) {
+			// ignore
+		}
+		return ids;
+	}
+
+	private static long serviceId(ServiceReference<?> reference) {
+		Object id = reference.getProperty(Constants.SERVICE_ID);
+		return (id instanceof Long) ? ((Long) id).longValue() : 0L;
+	}
+
+	/*
+	 * Configuration Admin is used reflectively since the framework may not
+	 * share the package with the class path of the tests.
+	 */
+
+	private static Map<String, Map<String, Object>> configurations(BundleContext context) {
+		ServiceReference<?> reference = context.getServiceReference(CONFIGURATION_ADMIN);
+		if (reference == null) {
+			return null;
+		}
+		Object cm = context.getService(reference);
+		try {
+			Map<String, Map<String, Object>> configurations = new HashMap<>();
+			Class<?> configurationClass = reference.getBundle()
+				.loadClass(CONFIGURATION);
+			Method getPid = configurationClass.getMethod("getPid");
+			Method getProperties = configurationClass.getMethod("getProperties");
+			for (Object configuration : listConfigurations(reference, cm)) {
+				configurations.put((String) getPid.invoke(configuration),
+					toMap((Dictionary<?, ?>) getProperties.invoke(configuration)));
+			}
+			return configurations;
+		} catch (Exception e) {
+			return null;
+		} finally {
+			context.ungetService(reference);
+		}
+	}
+
+	private boolean restoreConfigurations(BundleContext context) throws Exception {
+		ServiceReference<?> reference = context.getServiceReference(CONFIGURATION_ADMIN);
+		if (reference == null) {
+			return configurations == null;
+		}
+		if (configurations == null) {
+			launchpad.report("The test started Configuration Admin");
+			return false;
+		}
+		Object cm = context.getService(reference);
+		try {
+			Class<?> configurationClass = reference.getBundle()
+				.loadClass(CONFIGURATION);
+			Method getPid = configurationClass.getMethod("getPid");
+			Method getProperties = configurationClass.getMethod("getProperties");
+			Method update = configurationClass.getMethod("update", Dictionary.class);
+			Method delete = configurationClass.getMethod("delete");
+			Map<String, Map<String, Object>> missing = new HashMap<>(configurations);
+			for (Object configuration : listConfigurations(reference, cm)) {
+				String pid = (String) getPid.invoke(configuration);
+				Map<String, Object> baseline = missing.remove(pid);
+				if (baseline == null) {
+					launchpad.report("Deleting configuration %s", pid);
+					delete.invoke(configuration);
+				} else if (!equals(baseline, toMap((Dictionary<?, ?>) getProperties.invoke(configuration)))) {
+					launchpad.report("Restoring configuration %s", pid);
+					update.invoke(configuration, new Hashtable<>(baseline));
+				}
+			}
+			if (!missing.isEmpty()) {
+				launchpad.report("The test deleted the configurations %s", missing.keySet());
+				return false;
+			}
+			return true;
+		} finally {
+			context.ungetService(reference);
+		}
+	}
+
+	private static Object[] listConfigurations(ServiceReference<?> reference, Object cm) throws Exception {
+		Class<?> cmClass = reference.getBundle()
+			.loadClass(CONFIGURATION_ADMIN);
+		Object[] configurations = (Object[]) cmClass.getMethod("listConfigurations", String.class)
+			.invoke(cm, (Object) null);
+		return (configurations == null) ? new Object[0] : configurations;
+	}
+
+	private static Map<String, Object> toMap(Dictionary<?, ?> properties) {
+		Map<String, Object> map = new HashMap<>();
+		if (properties != null) {
+			for (Enumeration<?> keys = properties.keys(); keys.hasMoreElements();) {
+				Object key = keys.nextElement();
+				map.put(key.toString(), properties.get(key));
+			}
+		}
+		return map;
+	}
+
+	private static boolean equals(Map<String, Object> a, Map<String, Object> b) {
+		if (!a.keySet()
+			.equals(b.keySet())) {
+			return false;
+		}
+		for (Map.Entry<String, Object> entry : a.entrySet()) {
+			Object value = entry.getValue();
+			Object other = b.get(entry.getKey());
+			if ((value != null) && value.getClass()
+				.isArray() && (other != null)
+				&& other.getClass()
+					.isArray()) {
+				if (!arrayEquals(value, other)) {
+					return false;
+				}
+			} else if (!Objects.equals(value, other)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean arrayEquals(Object a, Object b) {
+		int length = Array.getLength(a);
+		if (length != Array.getLength(b)) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (!Objects.equals(Array.get(a, i), Array.get(b, i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void stopAll() {
+		List<Launchpad> launchpads = new ArrayList<>();
+		synchronized (idle) {
+			idle.values()
+				.forEach(launchpads::addAll);
+			idle.clear();
+		}
+		stop(launchpads);
+	}
+
+	private static void stop(List<Launchpad> launchpads) {
+		for (Launchpad launchpad : launchpads) {
+			launchpad.pooled = null;
+			try {
+				launchpad.stopFramework();
+			} catch (Exception e) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * The state of a bundle of the baseline.
+	 */
+	private static final class Baseline {
+		private final int	state;
+		private final long	lastModified;
+
+		Baseline(Bundle bundle) {
+			this.state = bundle.getState();
+			this.lastModified = bundle.getLastModified();
+		}
+
+		boolean matches(Bundle bundle) {
+			return (bundle.getState() == state) && (bundle.getLastModified() == lastModified);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package aQute.launchpad;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.launch.Framework;
+
+import aQute.launchpad.test.inject.SomeService;
+
+public class PooledLaunchpadTest {
+	static final String	org_apache_felix_framework	= "org.apache.felix.framework;version='[5.6.10,5.6.11)'";
+
+	LaunchpadBuilder	builder;
+
+	@BeforeEach
+	public void before() throws Exception {
+		builder = new LaunchpadBuilder().runfw(org_apache_felix_framework)
+			.pooled();
+	}
+
+	@AfterEach
+	public void after() throws Exception {
+		builder.close();
+	}
+
+	@Test
+	public void testReset() throws Exception {
+		Framework framework;
+		long installed;
+		try (Launchpad fw = builder.create()) {
+			framework = fw.getFramework();
+			installed = fw.bundle()
+				.start()
+				.getBundleId();
+			fw.register(SomeService.class, new SomeService());
+			assertThat(fw.getServices(SomeService.class)).hasSize(1);
+		}
+
+		try (Launchpad fw = builder.create()) {
+			assertThat(fw.getFramework()).isSameAs(framework);
+			assertThat(fw.getBundleContext()
+				.getBundle(installed)).isNull();
+			assertThat(fw.getServices(SomeService.class)).isEmpty();
+		}
+	}
+
+	@Test
+	public void testHideIsReset() throws Exception {
+		Framework framework;
+		try (Launchpad fw = builder.create()) {
+			framework = fw.getFramework();
+			fw.hide(SomeService.class);
+		}
+
+		try (Launchpad fw = builder.create()) {
+			assertThat(fw.getFramework()).isSameAs(framework);
+			Bundle registrar = fw.bundle()
+				.start();
+			registrar.getBundleContext()
+				.registerService(SomeService.class, new SomeService(), null);
+			assertThat(fw.getServices(SomeService.class)).hasSize(1);
+		}
+	}
+
+	@Test
+	public void testRecycleWhenIsolationIsViolated() throws Exception {
+		Framework framework;
+		try (Launchpad fw = builder.create()) {
+			framework = fw.getFramework();
+			fw.getFramework()
+				.getBundleContext()
+				.registerService(SomeService.class, new SomeService(), null);
+		}
+		assertThat(framework.getState()).isNotEqualTo(Bundle.ACTIVE);
+
+		try (Launchpad fw = builder.create()) {
+			assertThat(fw.getFramework()).isNotSameAs(framework);
+			assertThat(fw.getServices(SomeService.class)).isEmpty();
+		}
+	}
+
+	@Test
+	public void testDifferentSpecifications() throws Exception {
+		Framework framework;
+		try (Launchpad fw = builder.create()) {
+			framework = fw.getFramework();
+		}
+		try (Launchpad fw = builder.set("launchpad.pooled.test", "true")
+			.create()) {
+			assertThat(fw.getFramework()).isNotSameAs(framework);
+		}
+	}
+
+	@Test
+	public void testRegisteredServicesAreUnregistered() throws Exception {
+		Framework framework;
+		try (Launchpad fw = builder.notestbundle()
+			.create()) {
+			framework = fw.getFramework();
+			fw.register(SomeService.class, new SomeService());
+			assertThat(fw.getServices(SomeService.class)).hasSize(1);
+		}
+
+		try (Launchpad fw = builder.create()) {
+			assertThat(fw.getFramework()).isSameAs(framework);
+			assertThat(fw.getServices(SomeService.class)).isEmpty();
+		}
+	}
+
+	@Test
+	public void testCloseStopsPooledFrameworks() throws Exception {
+		Framework idle;
+		try (Launchpad fw = builder.create()) {
+			idle = fw.getFramework();
+		}
+		assertThat(idle.getState()).isEqualTo(Bundle.ACTIVE);
+
+		Launchpad leased = builder.create();
+		assertThat(leased.getFramework()).isSameAs(idle);
+		Framework other;
+		try (Launchpad fw = builder.create()) {
+			other = fw.getFramework();
+		}
+		builder.close();
+		assertThat(other.getState()).isNotEqualTo(Bundle.ACTIVE);
+		assertThat(idle.getState()).isEqualTo(Bundle.ACTIVE);
+
+		leased.close();
+		assertThat(idle.getState()).isNotEqualTo(Bundle.ACTIVE);
+	}
+}
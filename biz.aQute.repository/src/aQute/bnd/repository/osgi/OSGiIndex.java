@@ -156,6 +156,10 @@ class OSGiIndex {
 		}
 
 		String remoteDigest = content.osgi_content();
+		if (remoteDigest != null && !file.isFile()) {
+			// Another cache may already have downloaded the same content
+			client.restore(url, file, remoteDigest);
+		}
 		return get(url, file, remoteDigest, 2, 1000L).map(TaggedData::getFile);
 	}
 
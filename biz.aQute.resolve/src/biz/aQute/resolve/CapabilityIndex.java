@@ -0,0 +1,77 @@
+package biz.aQute.resolve;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.osgi.resource.Capability;
+import org.osgi.resource.Namespace;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+
+import aQute.bnd.osgi.repository.BaseRepository;
+import aQute.bnd.osgi.resource.ResourceUtils;
+
+/**
+ * An immutable repository of a fixed set of resources for concurrent
+ * resolves.
+ * <p>
+ * The capabilities are indexed by namespace and the providers found for a
+ * requirement are kept so that the same lookup made by another resolve does
+ * not scan the capabilities again. The providers only depend on the
+ * namespace, the filter and the effective directive of a requirement.
+ */
+final class CapabilityIndex extends BaseRepository {
+	private final Map<String, List<Capability>>					capabilities	= new HashMap<>();
+	private final Map<List<String>, List<Capability>>			providers		= new ConcurrentHashMap<>();
+	private final Map<String, Predicate<Map<String, Object>>>	filters			= new ConcurrentHashMap<>();
+
+	CapabilityIndex(Collection<? extends Resource> resources) {
+		for (Resource resource : new LinkedHashSet<>(resources)) {
+			for (Capability capability : resource.getCapabilities(null)) {
+				capabilities.computeIfAbsent(capability.getNamespace(), k -> new ArrayList<>())
+					.add(capability);
+			}
+		}
+	}
+
+	@Override
+	public Map<Requirement, Collection<Capability>> findProviders(Collection<? extends Requirement> requirements) {
+		return ResourceUtils.findProviders(requirements, this::findProvider);
+	}
+
+	List<Capability> findProvider(Requirement requirement) {
+		Map<String, String> directives = requirement.getDirectives();
+		List<String> key = new ArrayList<>(3);
+		key.add(requirement.getNamespace());
+		key.add(directives.get(Namespace.REQUIREMENT_FILTER_DIRECTIVE));
+		key.add(directives.get(Namespace.REQUIREMENT_EFFECTIVE_DIRECTIVE));
+		List<Capability> found = providers.computeIfAbsent(key, k -> {
+			List<Capability> candidates = capabilities.getOrDefault(requirement.getNamespace(), emptyList());
+			Predicate<Capability> matcher = ResourceUtils.matcher(requirement, this::filterPredicate);
+			List<Capability> result = new ArrayList<>();
+			for (Capability capability : candidates) {
+				if (matcher.test(capability)) {
+					result.add(capability);
+				}
+			}
+			return unmodifiableList(result);
+		});
+		return new ArrayList<>(found);
+	}
+
+	private Predicate<Map<String, Object>> filterPredicate(String filterString) {
+		if (filterString == null) {
+			return ResourceUtils.filterPredicate(null);
+		}
+		return filters.computeIfAbsent(filterString, ResourceUtils::filterPredicate);
+	}
+}
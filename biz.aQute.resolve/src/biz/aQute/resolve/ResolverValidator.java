@@ -5,15 +5,25 @@ import static aQute.bnd.osgi.resource.ResourceUtils.createWildcardRequirement;
 import static aQute.bnd.osgi.resource.ResourceUtils.getIdentityCapability;
 import static java.util.Collections.singleton;
 
+import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import org.osgi.resource.Capability;
 import org.osgi.resource.Requirement;
@@ -21,10 +31,13 @@ import org.osgi.resource.Resource;
 import org.osgi.resource.Wire;
 import org.osgi.service.repository.Repository;
 import org.osgi.service.resolver.ResolutionException;
-import org.osgi.service.resolver.Resolver;
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import aQute.bnd.exceptions.Exceptions;
+import aQute.bnd.exceptions.RunnableWithException;
 import aQute.bnd.http.HttpClient;
 import aQute.bnd.osgi.Processor;
 import aQute.bnd.osgi.repository.ResourcesRepository;
@@ -39,10 +52,11 @@ import aQute.lib.strings.Strings;
 public class ResolverValidator extends Processor {
 	private final static Logger	logger			= LoggerFactory.getLogger(ResolverValidator.class);
 
-	LogReporter					reporter		= new LogReporter(this);
-	Resolver					resolver		= new BndResolver(reporter);
 	List<URI>					repositories	= new ArrayList<>();
 	Resource					system			= null;
+	int							parallel		= Runtime.getRuntime()
+		.availableProcessors();
+	long						timeout			= 0L;
 
 	public static class Resolution {
 		public Resource				resource;
@@ -71,7 +85,36 @@ public class ResolverValidator extends Processor {
 		this.system = resource;
 	}
 
+	/**
+	 * Set the maximum number of resources which are resolved concurrently. The
+	 * default is the number of available processors.
+	 */
+	public void setParallel(int parallel) {
+		this.parallel = Math.max(parallel, 1);
+	}
+
+	/**
+	 * Set the time budget of the resolve of a single resource. A resolve which
+	 * takes longer is cancelled and its resource fails the validation. The
+	 * default of 0 does not limit the resolve.
+	 */
+	public void setTimeout(long timeout, TimeUnit unit) {
+		this.timeout = unit.toMillis(Math.max(timeout, 0L));
+	}
+
 	public List<Resolution> validate() throws Exception {
+		List<Resolution> result = new ArrayList<>();
+		validate(result::add);
+		return result;
+	}
+
+	/**
+	 * Validate all the resources of the repositories.
+	 *
+	 * @param results called with the resolution of each resource as soon as
+	 *            it is known, one call at a time
+	 */
+	public void validate(Consumer<? super Resolution> results) throws Exception {
 		try (OSGiRepository repository = new OSGiRepository(); HttpClient httpClient = new HttpClient()) {
 			Map<String, String> map = new HashMap<>();
 			map.put("locations", Strings.join(repositories));
@@ -82,7 +125,7 @@ public class ResolverValidator extends Processor {
 			repository.setRegistry(registry);
 			repository.setReporter(this);
 			Set<Resource> resources = getAllResources(repository);
-			return validateResources(repository, resources);
+			validateResources(new CapabilityIndex(resources), resources, results);
 		}
 	}
 
@@ -92,28 +135,79 @@ public class ResolverValidator extends Processor {
 			allResources.addAll(XMLResourceParser.getResources(uri));
 		}
 		allResources.addAll(toBeChecked);
-		ResourcesRepository repository = new ResourcesRepository(allResources);
-		return validateResources(repository, toBeChecked);
+		return validateResources(new CapabilityIndex(allResources), toBeChecked);
 	}
 
 	public List<Resolution> validateResources(Repository repository, Collection<Resource> resources) throws Exception {
+		Map<Resource, Resolution> result = new LinkedHashMap<>();
+		for (Resource resource : resources) {
+			result.put(resource, null);
+		}
+		validateResources(repository, resources, resolution -> result.put(resolution.resource, resolution));
+		return new ArrayList<>(result.values());
+	}
+
+	/**
+	 * Validate resources by resolving each of them against a repository.
+	 * <p>
+	 * The resources are resolved concurrently against the repository, which
+	 * must therefore support concurrent lookups. A successful resolve also
+	 * validates the resources it wired, so these are not resolved again.
+	 *
+	 * @param repository the repository
+	 * @param resources the resources to validate
+	 * @param results called with the resolution of each resource as soon as
+	 *            it is known, one call at a time
+	 */
+	public void validateResources(Repository repository, Collection<Resource> resources,
+		Consumer<? super Resolution> results) throws Exception {
 		setProperty("-runfw", "dummy");
-		List<Resolution> result = new ArrayList<>();
-		List<Resource> resourceList = new ArrayList<>(resources);
-		while (!resourceList.isEmpty()) {
-			Resource resource = resourceList.remove(0);
-			Resolution resolution = resolve(repository, resource);
-			result.add(resolution);
-			for (Resource resolved : resolution.resolved) {
-				if (resourceList.remove(resolved)) {
-					Resolution curResolution = new Resolution();
-					curResolution.resource = resolved;
-					curResolution.succeeded = true;
-					result.add(curResolution);
+		Resource[] toBeChecked = new LinkedHashSet<>(resources).toArray(new Resource[0]);
+		Set<Resource> pending = ConcurrentHashMap.newKeySet();
+		pending.addAll(Arrays.asList(toBeChecked));
+		AtomicInteger next = new AtomicInteger();
+		Object lock = new Object();
+		RunnableWithException worker = () -> {
+			for (int i; (i = next.getAndIncrement()) < toBeChecked.length;) {
+				Resource resource = toBeChecked[i];
+				if (!pending.contains(resource)) {
+					continue;
+				}
+				Resolution resolution = resolve(repository, resource);
+				synchronized (lock) {
+					if (pending.remove(resource)) {
+						results.accept(resolution);
+					}
+					for (Resource resolved : resolution.resolved) {
+						if (pending.remove(resolved)) {
+							Resolution curResolution = new Resolution();
+							curResolution.resource = resolved;
+							curResolution.succeeded = true;
+							results.accept(curResolution);
+						}
+					}
 				}
 			}
+		};
+		int workers = Math.min(parallel, toBeChecked.length);
+		if (workers > 1) {
+			PromiseFactory promiseFactory = getPromiseFactory();
+			List<Promise<Void>> promises = new ArrayList<>(workers);
+			for (int i = 0; i < workers; i++) {
+				promises.add(promiseFactory.submit(() -> {
+					worker.run();
+					return null;
+				}));
+			}
+			try {
+				promiseFactory.all(promises)
+					.getValue();
+			} catch (InvocationTargetException e) {
+				throw Exceptions.duck(e.getCause());
+			}
+		} else {
+			worker.run();
 		}
-		return result;
 	}
 
 	public static Set<Resource> getAllResources(Repository repository) {
@@ -124,12 +218,18 @@ public class ResolverValidator extends Processor {
 		return resources;
 	}
 
-	private BndrunResolveContext getResolveContext() throws Exception {
-		BndrunResolveContext context = new BndrunResolveContext(this, null, this, reporter) {
+	private BndrunResolveContext getResolveContext(Processor properties, LogReporter reporter,
+		AtomicReference<Runnable> cancel) throws Exception {
+		BndrunResolveContext context = new BndrunResolveContext(properties, null, this, reporter) {
 			@Override
 			void loadFramework(ResourceBuilder systemBuilder) throws Exception {
 				systemBuilder.addCapabilities(system.getCapabilities(null));
 			}
+
+			@Override
+			public void onCancel(Runnable callback) {
+				cancel.set(callback);
+			}
 		};
 		return context;
 	}
@@ -139,26 +239,56 @@ public class ResolverValidator extends Processor {
 		return createRequirementFromCapability(identityCapability).buildSyntheticRequirement();
 	}
 
+	/**
+	 * Resolve a resource against a repository. This method can be called
+	 * concurrently.
+	 */
 	public Resolution resolve(Repository repository, Resource resource) throws Exception {
+		try (Processor properties = new Processor(this)) {
+			Resolution resolution = resolve(repository, resource, properties);
+			synchronized (this) {
+				getInfo(properties);
+			}
+			return resolution;
+		}
+	}
+
+	private Resolution resolve(Repository repository, Resource resource, Processor properties) throws Exception {
 		Resolution resolution = new Resolution();
 
 		Requirement identity = getIdentity(resource);
-		setProperty("-runrequires", ResourceUtils.toRequireCapability(identity));
+		properties.setProperty("-runrequires", ResourceUtils.toRequireCapability(identity));
 
-		BndrunResolveContext context = getResolveContext();
+		LogReporter reporter = new LogReporter(properties);
+		AtomicReference<Runnable> cancel = new AtomicReference<>();
+		BndrunResolveContext context = getResolveContext(properties, reporter, cancel);
 
 		context.addRepository(repository);
 		context.init();
 
 		resolution.resource = resource;
 
+		ScheduledFuture<?> budget = (timeout > 0L) ? getScheduledExecutor().schedule(() -> {
+			Runnable callback = cancel.get();
+			if (callback != null) {
+				callback.run();
+			}
+		}, timeout, TimeUnit.MILLISECONDS) : null;
 		try {
-			Map<Resource, List<Wire>> resolve2 = resolver.resolve(context);
+			Map<Resource, List<Wire>> resolve2 = new BndResolver(reporter).resolve(context);
 			resolution.succeeded = true;
 			resolution.resolved = resolve2.keySet();
 
 			logger.debug("resolving {} succeeded", resource);
 		} catch (ResolutionException e) {
+			if (e.getCause() instanceof CancellationException) {
+				logger.debug("resolving {} timed out", resource);
+
+				resolution.succeeded = false;
+				resolution.message = "resolving " + resource + " timed out after " + timeout + " ms";
+				properties.error("%s", resolution.message);
+				return resolution;
+			}
 			logger.debug("resolving {} failed", resource);
 
 			resolution.succeeded = false;
@@ -200,12 +330,16 @@ public class ResolverValidator extends Processor {
 				}
 			}
 
-			error(ResolveProcess.format(e, false));
+			properties.error(ResolveProcess.format(e, false));
 		} catch (Exception e) {
 			e.printStackTrace();
-			error("resolving %s failed with %s", context.getInputResource()
+			properties.error("resolving %s failed with %s", context.getInputResource()
 				.getRequirements(null), e);
 			resolution.message = e.getMessage();
+		} finally {
+			if (budget != null) {
+				budget.cancel(false);
+			}
 		}
 
 		return resolution;
@@ -1,4 +1,4 @@
-@Version("8.0.0")
+@Version("8.1.0")
 package biz.aQute.resolve;
 
 import org.osgi.annotation.versioning.Version;
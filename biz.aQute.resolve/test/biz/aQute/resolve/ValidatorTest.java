@@ -2,16 +2,27 @@ package biz.aQute.resolve;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.osgi.framework.namespace.PackageNamespace.PACKAGE_NAMESPACE;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Namespace;
+import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
+import org.osgi.service.repository.Repository;
 
 import aQute.bnd.build.model.EE;
 import aQute.bnd.build.model.OSGI_CORE;
@@ -19,6 +30,7 @@ import aQute.bnd.osgi.repository.ResourcesRepository;
 import aQute.bnd.osgi.repository.XMLResourceParser;
 import aQute.bnd.osgi.resource.CapReqBuilder;
 import aQute.bnd.osgi.resource.ResourceBuilder;
+import aQute.bnd.osgi.resource.ResourceUtils;
 import aQute.lib.io.IO;
 import biz.aQute.resolve.ResolverValidator.Resolution;
 
@@ -86,6 +98,69 @@ public class ValidatorTest {
 		}
 	}
 
+	@Test
+	public void testParallel() throws Exception {
+		List<Resource> resources = XMLResourceParser.getResources(IO.getFile("testdata/repo1.index.xml")
+			.toURI());
+		Map<Resource, Boolean> sequential = new HashMap<>();
+		try (ResolverValidator validator = new ResolverValidator();) {
+			ResourceBuilder system = new ResourceBuilder();
+			system.addEE(EE.JavaSE_1_8);
+			system.addManifest(OSGI_CORE.R8_0_0.getManifest());
+			validator.setSystem(system.build());
+			validator.setParallel(1);
+			validator.validateResources(new ResourcesRepository(resources), resources,
+				resolution -> assertNull(sequential.put(resolution.resource, resolution.succeeded)));
+			assertTrue(validator.check());
+		}
+		Map<Resource, Boolean> parallel = new HashMap<>();
+		try (ResolverValidator validator = new ResolverValidator();) {
+			ResourceBuilder system = new ResourceBuilder();
+			system.addEE(EE.JavaSE_1_8);
+			system.addManifest(OSGI_CORE.R8_0_0.getManifest());
+			validator.setSystem(system.build());
+			validator.setParallel(4);
+			validator.setTimeout(1, TimeUnit.MINUTES);
+			validator.validateResources(new ResourcesRepository(resources), resources,
+				resolution -> assertNull(parallel.put(resolution.resource, resolution.succeeded)));
+			assertTrue(validator.check());
+		}
+		assertEquals(resources.size(), sequential.size());
+		assertEquals(sequential, parallel);
+	}
+
+	@Test
+	public void testResolvesAgainstGivenRepository() throws Exception {
+		List<Resource> resources = XMLResourceParser.getResources(IO.getFile("testdata/repo1.index.xml")
+			.toURI());
+		Queue<Requirement> asked = new ConcurrentLinkedQueue<>();
+		Repository repository = new ResourcesRepository(resources) {
+			@Override
+			public Map<Requirement, Collection<Capability>> findProviders(
+				Collection<? extends Requirement> requirements) {
+				asked.addAll(requirements);
+				return super.findProviders(requirements);
+			}
+		};
+		try (ResolverValidator validator = new ResolverValidator();) {
+			ResourceBuilder system = new ResourceBuilder();
+			system.addEE(EE.JavaSE_1_8);
+			system.addManifest(OSGI_CORE.R8_0_0.getManifest());
+			validator.setSystem(system.build());
+			validator.setParallel(4);
+			List<Resolution> resolutions = validator.validateResources(repository, resources.subList(0, 1));
+			assertEquals(1, resolutions.size());
+			assertTrue(validator.check());
+		}
+		String wildcard = ResourceUtils.createWildcardRequirement()
+			.getDirectives()
+			.get(Namespace.REQUIREMENT_FILTER_DIRECTIVE);
+		assertFalse(asked.isEmpty());
+		assertFalse(asked.stream()
+			.anyMatch(r -> wildcard.equals(r.getDirectives()
+				.get(Namespace.REQUIREMENT_FILTER_DIRECTIVE))));
+	}
+
 	@Test
 	public void testDelibarateFail() throws Exception {
 		try (ResolverValidator validator = new ResolverValidator();) {
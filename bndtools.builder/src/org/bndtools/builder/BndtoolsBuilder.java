@@ -1,5 +1,6 @@
 package org.bndtools.builder;
 
+import java.io.Closeable;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -8,6 +9,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 
 import org.bndtools.api.BndtoolsConstants;
 import org.bndtools.api.ILogger;
@@ -33,6 +36,7 @@ import org.eclipse.ui.preferences.ScopedPreferenceStore;
 
 import aQute.bnd.build.Project;
 import aQute.bnd.build.Workspace;
+import aQute.bnd.exceptions.RunnableWithException;
 import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Processor;
 import aQute.lib.io.IO;
@@ -161,10 +165,22 @@ public class BndtoolsBuilder extends IncrementalProjectBuilder {
 
 			final Project model = ourModel;
 
+			//
+			// A packaging in the background that has started still uses the
+			// model. It is cancelled without waiting and we build again when
+			// it is done.
+			//
+			Closeable reservation = PackagingJob.reserve(model);
+			if (reservation == null) {
+				buildLog.basic("project is being packaged in the background, postponed");
+				return postpone();
+			}
+
 			try {
 				markers.deleteMarkers(BndtoolsConstants.MARKER_BND_BLOCKER);
-				Workspace ws = model.getWorkspace();
-				Central.bndCall(ws::readLocked, after -> {
+				AtomicBoolean blocked = new AtomicBoolean();
+				AtomicBoolean packageInBackground = new AtomicBoolean();
+				Central.bndCall(model.getWorkspace()::readLocked, after -> {
 					if (!model.isValid()) {
 						after.accept("Not a valid project" + model, () -> {
 							markers.createMarker(null, IMarker.SEVERITY_ERROR, "Not a valid bnd project",
@@ -258,6 +274,7 @@ public class BndtoolsBuilder extends IncrementalProjectBuilder {
 					}
 
 					if (markers.hasBlockingErrors(delta)) {
+						blocked.set(true);
 						CompileErrorAction actionOnCompileError = getActionOnCompileError();
 						if (actionOnCompileError != CompileErrorAction.build) {
 							after.accept("Decorating " + myProject, () -> {
@@ -283,38 +300,27 @@ public class BndtoolsBuilder extends IncrementalProjectBuilder {
 						});
 					}
 
-					File buildFiles[] = model.build();
-					// We can now decorate based on the build we just did.
-					BndProjectInfoAdapter adapter = new BndProjectInfoAdapter(model);
-					File target = model.getTarget();
-					Processor processor = new Processor();
-					processor.getInfo(model);
-
-					after.accept("Decorating " + myProject, () -> {
-						IResource r = Central.toResource(target);
-						r.refreshLocal(IResource.DEPTH_INFINITE, monitor);
-
-						Central.invalidateIndex();
-						if (buildFiles != null) {
-							listeners.updateListeners(buildFiles, myProject);
-							buildLog.setFiles(buildFiles.length);
-						}
-						PackageDecorator.updateDecoration(myProject, adapter);
-						ComponentMarker.updateComponentMarkers(myProject, adapter);
-						markers.setMarkers(processor, BndtoolsConstants.MARKER_BND_PROBLEM);
-						processor.close();
-					});
-					if (model.isCnf()) {
-						model.getWorkspace()
-							.refresh(); // this is for bnd plugins built in
-										// cnf
+					if (prefs.isBackgroundPackaging() && !model.isCnf()) {
+						buildLog.basic("Packaging in the background");
+						packageInBackground.set(true);
+						return null;
 					}
+
+					packageProject(model, myProject, markers, listeners, buildLog, after, monitor);
 					return null;
 				}, monitor);
+				if (blocked.get()) {
+					PackagingJob.cancel(model);
+				}
+				if (packageInBackground.get()) {
+					PackagingJob.schedule(model, myProject);
+				}
 				return null;
 			} catch (TimeoutException | InterruptedException e) {
 				logger.logWarning("Unable to build project " + myProject.getName(), e);
 				return postpone();
+			} finally {
+				IO.close(reservation);
 			}
 		} catch (
 
@@ -327,6 +333,40 @@ public class BndtoolsBuilder extends IncrementalProjectBuilder {
 		}
 	}
 
+	/**
+	 * Build the jars of a project and decorate the project with the results.
+	 */
+	static void packageProject(Project model, IProject myProject, MarkerSupport markers, BuildListeners listeners,
+		BuildLogger buildLog, BiConsumer<String, RunnableWithException> after, IProgressMonitor monitor)
+		throws Exception {
+		File buildFiles[] = model.build();
+		// We can now decorate based on the build we just did.
+		BndProjectInfoAdapter adapter = new BndProjectInfoAdapter(model);
+		File target = model.getTarget();
+		Processor processor = new Processor();
+		processor.getInfo(model);
+
+		after.accept("Decorating " + myProject, () -> {
+			IResource r = Central.toResource(target);
+			r.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+
+			Central.invalidateIndex();
+			if (buildFiles != null) {
+				listeners.updateListeners(buildFiles, myProject);
+				buildLog.setFiles(buildFiles.length);
+			}
+			PackageDecorator.updateDecoration(myProject, adapter);
+			ComponentMarker.updateComponentMarkers(myProject, adapter);
+			markers.setMarkers(processor, BndtoolsConstants.MARKER_BND_PROBLEM);
+			processor.close();
+		});
+		if (model.isCnf()) {
+			model.getWorkspace()
+				.refresh(); // this is for bnd plugins built in
+							// cnf
+		}
+	}
+
 	private IProject[] postpone() {
 		postponed = true;
 		rememberLastBuiltState();
@@ -1,18 +1,24 @@
 package org.bndtools.builder;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 import org.bndtools.api.BndtoolsConstants;
 import org.bndtools.api.ILogger;
 import org.bndtools.api.Logger;
 import org.bndtools.utils.workspace.WorkspaceUtils;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.resources.WorkspaceJob;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -59,7 +65,8 @@ public class CnfWatcher implements IResourceChangeListener {
 				return;
 
 			IResourceDelta delta = event.getDelta();
-			if (delta.findMember(cnfProject.getFullPath()) == null)
+			IResourceDelta cnfDelta = delta.findMember(cnfProject.getFullPath());
+			if (cnfDelta == null)
 				return;
 
 			Collection<Project> allProjects = workspace.getAllProjects();
@@ -91,9 +98,52 @@ public class CnfWatcher implements IResourceChangeListener {
 					}
 				};
 				j.schedule();
+				return;
 			}
+
+			//
+			// Other files in cnf, like files included by projects, only
+			// affect the projects which include them
+			//
+
+			Set<Project> affected = workspace.getAffectedProjects(changedFiles(cnfDelta));
+			if (affected.isEmpty())
+				return;
+
+			WorkspaceJob j = new WorkspaceJob("Refreshing projects for cnf change") {
+				@Override
+				public IStatus runInWorkspace(IProgressMonitor arg0) throws CoreException {
+					try {
+						for (Project project : affected) {
+							project.refresh();
+						}
+						BndtoolsBuilder.dirty.addAll(affected);
+						Central.refreshProjects(affected);
+					} catch (Exception e) {
+						return new Status(IStatus.ERROR, BndtoolsBuilder.PLUGIN_ID, "error during project refresh", e);
+					}
+					return Status.OK_STATUS;
+				}
+			};
+			j.schedule();
 		} catch (Exception e) {
 			logger.logError("Detecting changes in cnf failed, ignoring", e);
 		}
 	}
+
+	private static List<File> changedFiles(IResourceDelta delta) throws CoreException {
+		List<File> files = new ArrayList<>();
+		delta.accept(d -> {
+			IResource resource = d.getResource();
+			if (resource.getType() != IResource.FILE)
+				return true;
+			if (d.getFlags() != IResourceDelta.MARKERS) {
+				IPath location = resource.getLocation();
+				if (location != null)
+					files.add(location.toFile());
+			}
+			return false;
+		});
+		return files;
+	}
 }
@@ -0,0 +1,265 @@
+package org.bndtools.builder;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+import org.bndtools.api.ILogger;
+import org.bndtools.api.Logger;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobManager;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+
+import aQute.bnd.build.Project;
+import aQute.bnd.exceptions.RunnableWithException;
+import bndtools.central.Central;
+
+/**
+ * Packages a bnd project in the background. The jar assembly, the baselining
+ * and the exports of {@link Project#build()} run in this job after the
+ * Eclipse build of the project has finished so that independent projects are
+ * packaged concurrently.
+ * <p>
+ * The job has no scheduling rule so that it does not block the Eclipse
+ * builds. The packaging of a project waits for the packaging of the projects
+ * it depends on and holds a {@link PackagingRule} for the project, so that
+ * the packagings of a project never overlap. The resource changes after the
+ * packaging are made with the project as rule.
+ * <p>
+ * The builder of a project reserves the model of the project before it uses
+ * it, a pending packaging waits until the build is done. If the packaging has
+ * already started, the model is in use. The packaging is then cancelled and
+ * the builder postpones its build, the project is built again when the
+ * packaging has finished. The builder never waits for a packaging.
+ */
+class PackagingJob extends Job {
+	private static final ILogger					logger	= Logger.getLogger(PackagingJob.class);
+	private static final Map<Project, PackagingJob>	jobs	= new ConcurrentHashMap<>();
+
+	private final Project							model;
+	private final IProject							project;
+	private boolean									canceled;
+	private boolean									packaging;
+	private boolean									rebuild;
+	private int										builds;
+
+	private PackagingJob(Project model, IProject project) {
+		super("Packaging " + project.getName());
+		this.model = model;
+		this.project = project;
+	}
+
+	/**
+	 * Schedule the packaging of a project, cancelling a previous packaging of
+	 * the project which did not finish yet.
+	 */
+	static void schedule(Project model, IProject project) {
+		PackagingJob job = new PackagingJob(model, project);
+		PackagingJob previous = jobs.put(model, job);
+		if (previous != null) {
+			previous.cancelPackaging();
+		}
+		job.schedule();
+	}
+
+	/**
+	 * Cancel the packaging of a project. This never waits for the packaging.
+	 */
+	static void cancel(Project model) {
+		PackagingJob job = jobs.get(model);
+		if (job != null) {
+			job.cancelPackaging();
+		}
+	}
+
+	/**
+	 * Reserve the model of a project for a build. This never waits for the
+	 * packaging.
+	 *
+	 * @return the reservation, to be closed when the build no longer uses the
+	 *         model, or {@code null} if the packaging of the project has
+	 *         started. The packaging is then cancelled and the project is
+	 *         built again when the packaging has finished.
+	 */
+	static Closeable reserve(Project model) {
+		PackagingJob job = jobs.get(model);
+		if (job == null) {
+			return () -> {};
+		}
+		return job.enterBuild() ? job::exitBuild : null;
+	}
+
+	private synchronized void cancelPackaging() {
+		canceled = true;
+		cancel();
+	}
+
+	private synchronized boolean enterBuild() {
+		if (packaging) {
+			cancelPackaging();
+			rebuild = true;
+			return false;
+		}
+		builds++;
+		return true;
+	}
+
+	private synchronized void exitBuild() {
+		builds--;
+		notifyAll();
+	}
+
+	private synchronized boolean startPackaging(IProgressMonitor monitor) throws InterruptedException {
+		while (builds > 0 && !canceled && !monitor.isCanceled()) {
+			wait(100L);
+		}
+		if (canceled || monitor.isCanceled()) {
+			return false;
+		}
+		packaging = true;
+		return true;
+	}
+
+	private synchronized boolean endPackaging() {
+		packaging = false;
+		return rebuild;
+	}
+
+	/**
+	 * Change the resources of the project with the project as scheduling
+	 * rule.
+	 */
+	private void decorate(List<RunnableWithException> decorations, IProgressMonitor monitor) throws CoreException {
+		if (decorations.isEmpty()) {
+			return;
+		}
+		ResourcesPlugin.getWorkspace()
+			.run((IWorkspaceRunnable) m -> {
+				try {
+					for (RunnableWithException runnable : decorations) {
+						runnable.run();
+					}
+				} catch (CoreException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new CoreException(
+						new Status(IStatus.ERROR, BndtoolsBuilder.PLUGIN_ID, "Decorating " + project.getName() + " failed",
+							e));
+				}
+			}, project, IWorkspace.AVOID_UPDATE, monitor);
+	}
+
+	/**
+	 * Build the project again after a build was postponed because the model
+	 * was in use by this packaging.
+	 */
+	private void rebuild() {
+		WorkspaceJob job = new WorkspaceJob("Rebuilding " + project.getName()) {
+			@Override
+			public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+				if (project.isAccessible()) {
+					project.touch(monitor);
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setRule(project);
+		job.setSystem(true);
+		job.schedule();
+	}
+
+	@Override
+	public boolean belongsTo(Object family) {
+		return family == BndtoolsBuilder.class;
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		BuildLogger buildLog = new BuildLogger(BndtoolsBuilder.prefs.getBuildLogging(), project.getName(),
+			BndtoolsBuilder.FULL_BUILD);
+		BuildListeners listeners = new BuildListeners();
+		List<RunnableWithException> decorations = new ArrayList<>();
+		boolean postponed = false;
+		try {
+			for (Project dependency : model.getBuildDependencies()) {
+				PackagingJob job = jobs.get(dependency);
+				if (job != null) {
+					job.join();
+				}
+			}
+			IJobManager manager = Job.getJobManager();
+			ISchedulingRule rule = new PackagingRule(project);
+			try {
+				manager.beginRule(rule, monitor);
+				if (!startPackaging(monitor)) {
+					return Status.CANCEL_STATUS;
+				}
+				try {
+					Central.bndCall(model.getWorkspace()::readLocked, after -> {
+						BndtoolsBuilder.packageProject(model, project, new MarkerSupport(project), listeners, buildLog,
+							(name, runnable) -> decorations.add(runnable), monitor);
+						return null;
+					}, monitor);
+				} finally {
+					postponed = endPackaging();
+				}
+			} finally {
+				manager.endRule(rule);
+			}
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			decorate(decorations, monitor);
+			return Status.OK_STATUS;
+		} catch (OperationCanceledException | InterruptedException | TimeoutException e) {
+			return Status.CANCEL_STATUS;
+		} catch (Exception e) {
+			return new Status(IStatus.ERROR, BndtoolsBuilder.PLUGIN_ID, "Packaging " + project.getName() + " failed",
+				e);
+		} finally {
+			jobs.remove(model, this);
+			if (postponed) {
+				rebuild();
+			}
+			if (buildLog.isActive())
+				logger.logInfo(buildLog.format(), null);
+			listeners.release(project);
+		}
+	}
+
+	/**
+	 * Serializes the packagings of a project. The rule only conflicts with
+	 * the rule of the same project, so it does not block the Eclipse builds
+	 * or the packaging of other projects.
+	 */
+	static final class PackagingRule implements ISchedulingRule {
+		private final IProject project;
+
+		PackagingRule(IProject project) {
+			this.project = project;
+		}
+
+		@Override
+		public boolean contains(ISchedulingRule rule) {
+			return isConflicting(rule);
+		}
+
+		@Override
+		public boolean isConflicting(ISchedulingRule rule) {
+			return (rule instanceof PackagingRule) && project.equals(((PackagingRule) rule).project);
+		}
+	}
+}
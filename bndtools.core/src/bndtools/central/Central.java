@@ -6,10 +6,16 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeoutException;
@@ -64,9 +70,11 @@ import aQute.bnd.memoize.Memoize;
 import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Processor;
 import aQute.bnd.service.Refreshable;
+import aQute.bnd.service.RepositoryListenerPlugin;
 import aQute.bnd.service.RepositoryPlugin;
 import aQute.bnd.service.progress.ProgressPlugin.Task;
 import aQute.bnd.service.progress.TaskManager;
+import aQute.bnd.version.Version;
 import aQute.lib.io.IO;
 import aQute.libg.ints.IntCounter;
 import aQute.service.reporter.Reporter;
@@ -93,6 +101,12 @@ public class Central implements IStartupParticipant {
 
 	static final AtomicBoolean									indexValid					= new AtomicBoolean(false);
 
+	/*
+	 * The contents of the refreshable repositories at their last refresh
+	 */
+	private static final Map<Refreshable, Map<String, SortedSet<Version>>>	refreshedContents	= Collections
+		.synchronizedMap(new WeakHashMap<>());
+
 	private final BundleContext									bundleContext;
 	private final Map<IJavaProject, Project>					javaProjectToModel			= new HashMap<>();
 	private final List<ModelListener>							listeners					= new CopyOnWriteArrayList<>();
@@ -523,9 +537,11 @@ public class Central implements IStartupParticipant {
 
 	public static void refreshPlugins() throws Exception {
 		List<File> refreshedFiles = new ArrayList<>();
-		List<Refreshable> rps = getWorkspace().getPlugins(Refreshable.class);
+		Workspace ws = getWorkspace();
+		List<Refreshable> rps = ws.getPlugins(Refreshable.class);
 		boolean changed = false;
 		boolean repoChanged = false;
+		Set<String> changedBsns = new HashSet<>();
 		for (Refreshable rp : rps) {
 			if (rp.refresh()) {
 				changed = true;
@@ -535,6 +551,7 @@ public class Central implements IStartupParticipant {
 				if (rp instanceof RepositoryPlugin) {
 					repoChanged = true;
 				}
+				changedBsns = changedBsns(rp, changedBsns);
 			}
 		}
 
@@ -551,9 +568,16 @@ public class Central implements IStartupParticipant {
 			}
 
 			if (repoChanged) {
-				repositoriesViewRefresher.repositoriesRefreshed();
+				// notifies the repositories view through the listener
+				// plugins
+				ws.getPlugins(RepositoryListenerPlugin.class)
+					.forEach(RepositoryListenerPlugin::repositoriesRefreshed);
+			}
+			if (changedBsns != null) {
+				refreshProjects(ws.getAffectedProjectsByBsn(changedBsns));
+			} else {
+				refreshProjects();
 			}
-			refreshProjects();
 		}
 	}
 
@@ -566,21 +590,101 @@ public class Central implements IStartupParticipant {
 		if (refresh || force) {
 			refreshFile(plugin.getRoot());
 			if (plugin instanceof RepositoryPlugin) {
-				repositoriesViewRefresher.repositoryRefreshed((RepositoryPlugin) plugin);
+				// notifies the repositories view through the listener
+				// plugins
+				getWorkspace().refresh((RepositoryPlugin) plugin);
+			}
+			Set<String> changedBsns = changedBsns(plugin, new HashSet<>());
+			if (changedBsns != null && !force) {
+				refreshProjects(getWorkspace().getAffectedProjectsByBsn(changedBsns));
+			} else {
+				refreshProjects();
 			}
-			refreshProjects();
 		}
 	}
 
+	/**
+	 * Add the bsns of a refreshed repository whose versions changed since its
+	 * previous refresh. The contents of a repository are only listed after a
+	 * refresh that reports a change and are kept for the next refresh. Answers
+	 * null when the changed bsns cannot be determined, which includes the
+	 * first refresh of a repository.
+	 */
+	private static Set<String> changedBsns(Refreshable plugin, Set<String> changedBsns) {
+		Map<String, SortedSet<Version>> after = contents(plugin);
+		Map<String, SortedSet<Version>> before = (after == null) ? refreshedContents.remove(plugin)
+			: refreshedContents.put(plugin, after);
+		return changedBsns(before, after, changedBsns);
+	}
+
+	/**
+	 * Answer the bsns and versions of a repository so that the bsns whose
+	 * contents change with a refresh can be found. Answers null when the
+	 * plugin is not a repository or cannot be listed.
+	 */
+	private static Map<String, SortedSet<Version>> contents(Refreshable plugin) {
+		if (!(plugin instanceof RepositoryPlugin)) {
+			return null;
+		}
+		RepositoryPlugin repo = (RepositoryPlugin) plugin;
+		try {
+			Map<String, SortedSet<Version>> contents = new HashMap<>();
+			for (String bsn : repo.list(null)) {
+				contents.put(bsn, new TreeSet<>(repo.versions(bsn)));
+			}
+			return contents;
+		} catch (Exception e) {
+			logger.debug("Unable to list the contents of repository {}", repo.getName(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Add the bsns whose versions differ between the contents of a repository
+	 * at the previous and at this refresh. Answers null when the changed bsns cannot be
+	 * determined and so all projects must be refreshed. This is also the case
+	 * when the versions are the same since the refresh may then have changed
+	 * the content of a bundle.
+	 */
+	private static Set<String> changedBsns(Map<String, SortedSet<Version>> before,
+		Map<String, SortedSet<Version>> after, Set<String> changedBsns) {
+		if ((before == null) || (after == null) || (changedBsns == null)) {
+			return null;
+		}
+		int size = changedBsns.size();
+		before.forEach((bsn, versions) -> {
+			if (!versions.equals(after.get(bsn))) {
+				changedBsns.add(bsn);
+			}
+		});
+		after.keySet()
+			.stream()
+			.filter(bsn -> !before.containsKey(bsn))
+			.forEach(changedBsns::add);
+		if (changedBsns.size() == size) {
+			return null;
+		}
+		return changedBsns;
+	}
+
 	public static void refreshProjects() throws Exception {
-		Collection<Project> allProjects = getWorkspace().getAllProjects();
+		refreshProjects(getWorkspace().getAllProjects());
+	}
+
+	/**
+	 * Refresh the models of the given projects. The model listeners update
+	 * the classpath containers and the markers of these projects only.
+	 *
+	 * @param projects The projects to refresh.
+	 */
+	public static void refreshProjects(Collection<Project> projects) throws Exception {
 		// Mark all projects changed before we notify model listeners
 		// since the listeners can take actions on project's other than
 		// the specified project.
-		for (Project p : allProjects) {
+		for (Project p : projects) {
 			p.setChanged();
 		}
-		for (Project p : allProjects) {
+		for (Project p : projects) {
 			for (ModelListener m : getInstance().listeners) {
 				try {
 					m.modelChanged(p);
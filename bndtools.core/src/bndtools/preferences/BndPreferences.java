@@ -44,6 +44,7 @@ public class BndPreferences {
 	private static final String		PREF_TEMPLATE_REPO_URI_LIST		= "templateRepoUriList";
 	private static final String		PREF_EXPLORER_PROMPT			= "prompt";
 	private static final String		PREF_PARALLEL					= "parallel";
+	private static final String		PREF_BACKGROUND_PACKAGING		= "backgroundPackaging";
 
 	static final String				PREF_WORKSPACE_OFFLINE			= "workspaceIsOffline";
 
@@ -65,6 +66,7 @@ public class BndPreferences {
 			"https://raw.githubusercontent.com/bndtools/bundle-hub/master/index.xml.gz");
 		store.setDefault(PREF_WORKSPACE_OFFLINE, false);
 		store.setDefault(PREF_PARALLEL, false);
+		store.setDefault(PREF_BACKGROUND_PACKAGING, false);
 		store.setDefault(PREF_USE_ALIAS_REQUIREMENTS, true);
 		store.setDefault(QuickFixVersioning.PREFERENCE_KEY, QuickFixVersioning.DEFAULT.toString());
 		store.setDefault(PREF_EXPLORER_PROMPT, "");
@@ -305,6 +307,14 @@ public class BndPreferences {
 		return store.getBoolean(PREF_PARALLEL);
 	}
 
+	public void setBackgroundPackaging(boolean backgroundPackaging) {
+		store.setValue(PREF_BACKGROUND_PACKAGING, backgroundPackaging);
+	}
+
+	public boolean isBackgroundPackaging() {
+		return store.getBoolean(PREF_BACKGROUND_PACKAGING);
+	}
+
 
 	public Closeable onString(String key, Consumer<String> listener) {
 		IPropertyChangeListener l = e -> {
@@ -21,6 +21,7 @@ public class BndBuildPreferencePage extends PreferencePage implements IWorkbench
 	private BndPreferences	prefs;
 	private int				buildLogging;
 	private Button			parallel;
+	private Button			backgroundPackaging;
 
 	@Override
 	public void init(IWorkbench workbench) {
@@ -47,6 +48,11 @@ public class BndBuildPreferencePage extends PreferencePage implements IWorkbench
 		parallel = new Button(composite, SWT.CHECK);
 		parallel.setSelection(prefs.isParallel());
 
+		// Package bundles in background jobs
+		new Label(composite, SWT.NONE).setText("Package bundles in background jobs (experimental)");
+		backgroundPackaging = new Button(composite, SWT.CHECK);
+		backgroundPackaging.setSelection(prefs.isBackgroundPackaging());
+
 		cmbBuildLogging.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
 
 		// Load Data
@@ -67,6 +73,7 @@ public class BndBuildPreferencePage extends PreferencePage implements IWorkbench
 	public boolean performOk() {
 		prefs.setBuildLogging(buildLogging);
 		prefs.setParallel(parallel.getSelection());
+		prefs.setBackgroundPackaging(backgroundPackaging.getSelection());
 		return true;
 	}
 
@@ -7,17 +7,31 @@ import static aQute.bnd.gradle.BndUtils.sourceSets;
 import static aQute.bnd.gradle.BndUtils.unwrap;
 import static aQute.bnd.gradle.BndUtils.unwrapFile;
 import static aQute.bnd.gradle.BndUtils.unwrapOptional;
+import static org.gradle.api.tasks.PathSensitivity.NAME_ONLY;
 import static org.gradle.api.tasks.PathSensitivity.RELATIVE;
 
 import java.io.File;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+
+import javax.inject.Inject;
 
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
+import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.file.ConfigurableFileCollection;
@@ -25,6 +39,7 @@ import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
@@ -35,20 +50,39 @@ import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.compile.JavaCompile;
 import org.gradle.work.NormalizeLineEndings;
+import org.gradle.workers.WorkerExecutor;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+import org.osgi.service.repository.Repository;
 
+import aQute.bnd.build.Container;
 import aQute.bnd.build.Project;
 import aQute.bnd.build.Workspace;
+import aQute.bnd.build.WorkspaceRepository;
 import aQute.bnd.build.model.EE;
+import aQute.bnd.exceptions.Exceptions;
 import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Domain;
 import aQute.bnd.osgi.Processor;
+import aQute.bnd.osgi.repository.WorkspaceRepositoryMarker;
+import aQute.bnd.osgi.resource.ResourceUtils;
+import aQute.bnd.osgi.resource.ResourceUtils.ContentCapability;
+import aQute.bnd.osgi.resource.ResourceUtils.IdentityCapability;
 import aQute.bnd.repository.fileset.FileSetRepository;
 import aQute.bnd.service.RepositoryPlugin;
+import aQute.bnd.service.repository.InfoRepository;
+import aQute.bnd.service.repository.SearchableRepository.ResourceDescriptor;
 import aQute.bnd.unmodifiable.Maps;
+import aQute.bnd.version.Version;
+import aQute.lib.hex.Hex;
 import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
+import aQute.libg.cryptography.Digester;
+import aQute.libg.cryptography.SHA256;
 
 /**
  * Abstract Bndrun task type for Gradle.
@@ -74,6 +108,8 @@ import aQute.lib.strings.Strings;
  * </ul>
  */
 public abstract class AbstractBndrun extends DefaultTask {
+	private final static String					UNLISTED		= "location:";
+
 	private final RegularFileProperty			bndrun;
 	private final ConfigurableFileCollection	bundles;
 	private boolean								ignoreFailures	= false;
@@ -85,6 +121,7 @@ public abstract class AbstractBndrun extends DefaultTask {
 	private final Property<Boolean>				offline;
 	private final Property<Project>				bndProject;
 	private final Property<Workspace>			bndWorkspace;
+	private final Property<BndWorkspaceService>	bndWorkspaceService;
 
 	/**
 	 * The bndrun file for the execution.
@@ -221,6 +258,19 @@ public abstract class AbstractBndrun extends DefaultTask {
 		return bndProject;
 	}
 
+	@Internal
+	Provider<BndWorkspaceService> getBndWorkspaceService() {
+		return bndWorkspaceService;
+	}
+
+	/**
+	 * The WorkerExecutor used to run the execution of Bnd Workspace builds.
+	 *
+	 * @return The WorkerExecutor.
+	 */
+	@Inject
+	protected abstract WorkerExecutor getWorkerExecutor();
+
 	/**
 	 * Create a Bndrun task.
 	 */
@@ -255,8 +305,14 @@ public abstract class AbstractBndrun extends DefaultTask {
 		bndWorkspace = objects.property(Workspace.class)
 			.value((Workspace) project.findProperty("bndWorkspace"));
 		bndProject = objects.property(Project.class);
+		bndWorkspaceService = objects.property(BndWorkspaceService.class);
 
 		if (bndWorkspace.isPresent()) {
+			Provider<BndWorkspaceService> service = BndWorkspaceService.find(project.getGradle());
+			if (Objects.nonNull(service)) {
+				bndWorkspaceService.value(service);
+				usesService(service);
+			}
 			// bundles and properties must not be used for Bnd workspace builds
 			bundles.disallowChanges();
 			properties.disallowChanges();
@@ -277,6 +333,218 @@ public abstract class AbstractBndrun extends DefaultTask {
 		}
 	}
 
+	/**
+	 * Declare the state of the Bnd Workspace as inputs of this task.
+	 * <p>
+	 * The configuration files of the Bnd Workspace are fingerprinted by their
+	 * relative path and content, and each repository by a digest of the
+	 * bundles it contains. The bundles of the workspace projects are declared
+	 * through the outputs of their jar tasks. This allows the outputs of the
+	 * task to be loaded from the build cache when the workspace is in another
+	 * location. The outputs are not cached when a repository cannot be listed,
+	 * since such a repository is only identified by its location.
+	 */
+	void workspaceInputs() {
+		unwrapOptional(getBndWorkspace()).ifPresent(workspace -> {
+			org.gradle.api.Project project = getProject();
+			getInputs().files(project.getObjects()
+				.fileCollection()
+				.from(workspace.getPropertiesFile(), workspace.getIncluded()))
+				.withPathSensitivity(RELATIVE)
+				.normalizeLineEndings()
+				.withPropertyName("bndWorkspaceConfiguration");
+			getInputs().files(project.provider(() -> workspaceJarTasks(workspace)))
+				.withPathSensitivity(RELATIVE)
+				.withPropertyName("bndWorkspaceBundles");
+			getInputs().property("bndRepositories",
+				project.provider(() -> repositoryDigests(workspace, repositoryDigestCache())));
+			getOutputs().doNotCacheIf("A repository of the Bnd Workspace cannot be listed",
+				t -> hasUnlistedRepository(workspace));
+		});
+	}
+
+	private boolean hasUnlistedRepository(Workspace workspace) {
+		try {
+			return repositoryDigests(workspace, repositoryDigestCache()).values()
+				.stream()
+				.anyMatch(digest -> digest.startsWith(UNLISTED));
+		} catch (Exception e) {
+			throw Exceptions.duck(e);
+		}
+	}
+
+	/*
+	 * The jar tasks of the Gradle projects of the Bnd Workspace projects, they
+	 * build the bundles of the workspace repository.
+	 */
+	private List<TaskProvider<Task>> workspaceJarTasks(Workspace workspace) throws Exception {
+		org.gradle.api.Project root = getProject().getRootProject();
+		List<TaskProvider<Task>> tasks = new ArrayList<>();
+		for (Project bndProject : workspace.getAllProjects()) {
+			for (org.gradle.api.Project project : root.getAllprojects()) {
+				if (project.getProjectDir()
+					.equals(bndProject.getBase())
+					&& project.getPluginManager()
+						.hasPlugin(BndPlugin.PLUGINID)) {
+					tasks.add(project.getTasks()
+						.named(JavaPlugin.JAR_TASK_NAME));
+				}
+			}
+		}
+		return tasks;
+	}
+
+	/**
+	 * Declare the run bundles, run path and framework of the bndrun as inputs
+	 * of this task for Bnd Workspace builds.
+	 * <p>
+	 * The files are fingerprinted by their name and content.
+	 */
+	void runInputs() {
+		unwrapOptional(getBndWorkspace()).ifPresent(workspace -> {
+			getInputs().files(getProject().files((Callable<List<File>>) () -> runFiles(workspace)))
+				.withPathSensitivity(NAME_ONLY)
+				.withPropertyName("bndRunFiles");
+		});
+	}
+
+	private List<File> runFiles(Workspace workspace) throws Exception {
+		File bndrunFile = unwrapFile(getBndrun());
+		Optional<Project> project = unwrapOptional(getBndProject());
+		if (project.map(Processor::getPropertiesFile)
+			.filter(bndrunFile::equals)
+			.isPresent()) {
+			return runFiles(project.get());
+		}
+		try (biz.aQute.resolve.Bndrun run = biz.aQute.resolve.Bndrun.createBndrun(workspace, bndrunFile)) {
+			return runFiles(run);
+		}
+	}
+
+	private static List<File> runFiles(Project run) throws Exception {
+		List<File> files = new ArrayList<>();
+		for (Collection<Container> containers : Arrays.asList(run.getRunFw(), run.getRunpath(), run.getRunbundles())) {
+			for (Container container : containers) {
+				File file = container.getFile();
+				if (Objects.nonNull(file) && file.isFile()) {
+					files.add(file);
+				}
+			}
+		}
+		return files;
+	}
+
+	/*
+	 * The digests of the repositories other than the workspace repository are
+	 * computed once per build when the build service is available.
+	 */
+	private Map<RepositoryPlugin, String> repositoryDigestCache() {
+		return unwrapOptional(getBndWorkspaceService()).map(BndWorkspaceService::getRepositoryDigests)
+			.orElseGet(HashMap::new);
+	}
+
+	/**
+	 * Answer a digest per repository of the Bnd Workspace.
+	 * <p>
+	 * The digest covers the bundles in the repository and their content. For
+	 * OSGi repositories the content is taken from the content capabilities in
+	 * the index and for other repositories from their resource descriptors
+	 * when they have them. The content of the bundles of the workspace
+	 * repository is an input of the task through their jar tasks. Repositories
+	 * that cannot be listed are identified by their location, their digest
+	 * starts with {@value #UNLISTED}. The workspace repository changes during
+	 * the build, the digests of the other repositories are kept in the given
+	 * cache.
+	 */
+	static Map<String, String> repositoryDigests(Workspace workspace, Map<RepositoryPlugin, String> cache)
+		throws Exception {
+		Map<String, String> digests = new TreeMap<>();
+		for (RepositoryPlugin repository : workspace.getRepositories()) {
+			String digest;
+			if ((repository instanceof WorkspaceRepository) || (repository instanceof WorkspaceRepositoryMarker)) {
+				digest = repositoryDigest(repository, true);
+			} else {
+				digest = cache.get(repository);
+				if (Objects.isNull(digest)) {
+					digest = repositoryDigest(repository, false);
+					cache.put(repository, digest);
+				}
+			}
+			digests.merge(repository.getName(), digest, (a, b) -> a + "," + b);
+		}
+		return digests;
+	}
+
+	private static String repositoryDigest(RepositoryPlugin repository, boolean workspaceRepository)
+		throws Exception {
+		Digester<SHA256> digester = SHA256.getDigester();
+		try (Writer writer = IO.writer(digester)) {
+			if (!workspaceRepository && (repository instanceof Repository)) {
+				for (String line : contentLines((Repository) repository)) {
+					writer.append(line)
+						.append('\n');
+				}
+			} else {
+				try {
+					SortedSet<String> bsns = new TreeSet<>(repository.list(null));
+					for (String bsn : bsns) {
+						for (Version version : repository.versions(bsn)) {
+							writer.append(bsn)
+								.append(':')
+								.append(version.toString());
+							String content = workspaceRepository ? null : contentDigest(repository, bsn, version);
+							if (Objects.nonNull(content)) {
+								writer.append(':')
+									.append(content);
+							}
+							writer.append('\n');
+						}
+					}
+				} catch (UnsupportedOperationException e) {
+					return UNLISTED + repository.getLocation();
+				}
+			}
+		}
+		return digester.digest()
+			.asHex();
+	}
+
+	/*
+	 * The identity, version and content hashes of every resource in an OSGi
+	 * repository, sorted.
+	 */
+	private static SortedSet<String> contentLines(Repository repository) {
+		Requirement wildcard = ResourceUtils.createWildcardRequirement();
+		SortedSet<String> lines = new TreeSet<>();
+		for (Capability capability : repository.findProviders(Collections.singleton(wildcard))
+			.getOrDefault(wildcard, Collections.emptyList())) {
+			Resource resource = capability.getResource();
+			IdentityCapability identity = ResourceUtils.getIdentityCapability(resource);
+			if (Objects.isNull(identity)) {
+				continue;
+			}
+			StringBuilder line = new StringBuilder().append(identity.osgi_identity())
+				.append(':')
+				.append(identity.version());
+			for (ContentCapability content : ResourceUtils.getContentCapabilities(resource)) {
+				line.append(':')
+					.append(content.osgi_content());
+			}
+			lines.add(line.toString());
+		}
+		return lines;
+	}
+
+	private static String contentDigest(RepositoryPlugin repository, String bsn, Version version) throws Exception {
+		if (repository instanceof InfoRepository) {
+			ResourceDescriptor descriptor = ((InfoRepository) repository).getDescriptor(bsn, version);
+			if (Objects.nonNull(descriptor) && Objects.nonNull(descriptor.sha256)) {
+				return Hex.toHexString(descriptor.sha256);
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Add files to use when locating bundles.
 	 *
@@ -305,11 +573,44 @@ public abstract class AbstractBndrun extends DefaultTask {
 
 	/**
 	 * Setup the Run object and call worker on it.
+	 * <p>
+	 * For Bnd Workspace builds, the execution is submitted to the Worker API so
+	 * that tasks using the shared Bnd Workspace can run concurrently.
 	 *
 	 * @throws Exception If the run action has an exception.
 	 */
 	@TaskAction
 	public void bndrunAction() throws Exception {
+		Optional<BndWorkspaceService> service = unwrapOptional(getBndWorkspaceService());
+		if (service.isPresent() && isWorkerAction()) {
+			String id = service.get()
+				.submit(() -> {
+					execute();
+					return null;
+				});
+			getWorkerExecutor().noIsolation()
+				.submit(BndWorkspaceService.Action.class, parameters -> {
+					parameters.getService()
+						.set(getBndWorkspaceService());
+					parameters.getId()
+						.set(id);
+				});
+			return;
+		}
+		execute();
+	}
+
+	/**
+	 * Whether the execution can be run by the Worker API.
+	 *
+	 * @return <code>true</code> if the execution can be run on a worker
+	 *         thread. The default is <code>true</code>.
+	 */
+	protected boolean isWorkerAction() {
+		return true;
+	}
+
+	private void execute() throws Exception {
 		File bndrunFile = unwrapFile(getBndrun());
 		Optional<Project> project = unwrapOptional(getBndProject());
 		if (project.map(Processor::getPropertiesFile)
@@ -174,6 +174,7 @@ public class BndWorkspacePlugin implements Plugin<Object> {
 		workspace.setOffline(startParameter.isOffline());
 		Gradle gradle = settings.getGradle();
 		bndWorkspaceConfigure(workspace, gradle);
+		BndWorkspaceService.register(gradle, workspace);
 
 		/*
 		 * Prepare each project in the workspace to establish complete
@@ -271,6 +272,7 @@ public class BndWorkspacePlugin implements Plugin<Object> {
 				.isOffline());
 			ext.set("bndWorkspace", bndWorkspace);
 			bndWorkspaceConfigure(bndWorkspace, gradle);
+			BndWorkspaceService.register(gradle, bndWorkspace);
 		}
 
 		/* Configure cnf project */
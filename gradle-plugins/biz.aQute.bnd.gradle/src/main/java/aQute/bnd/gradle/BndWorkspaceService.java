@@ -0,0 +1,249 @@
+package aQute.bnd.gradle;
+
+import static aQute.bnd.gradle.BndUtils.unwrap;
+import static aQute.bnd.gradle.BndUtils.unwrapFile;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.api.services.BuildServiceRegistration;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import aQute.bnd.build.Workspace;
+import aQute.bnd.exceptions.Exceptions;
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.service.RepositoryPlugin;
+
+/**
+ * Shared build service owning the Bnd Workspace of a build.
+ * <p>
+ * The service is registered by the {@code biz.aQute.bnd.workspace} plugin. It
+ * holds the single Bnd Workspace used by all projects and tasks of the build
+ * and closes it when the build is finished. Task actions that run on a worker
+ * thread access the workspace through
+ * {@link #readLocked(Callable)} so that they can run concurrently with each
+ * other but not while the workspace is being modified.
+ */
+public abstract class BndWorkspaceService implements BuildService<BndWorkspaceService.Parameters>, AutoCloseable {
+	/**
+	 * Name of the build service.
+	 */
+	public static final String						NAME				= "bndWorkspace";
+
+	private static final Logger						logger				= Logging.getLogger(BndWorkspaceService.class);
+
+	private final Map<String, Callable<Void>>		actions				= new ConcurrentHashMap<>();
+	private final Map<RepositoryPlugin, String>	repositoryDigests	= new ConcurrentHashMap<>();
+	private Workspace								workspace;
+
+	/**
+	 * Parameters of the build service.
+	 */
+	public interface Parameters extends BuildServiceParameters {
+		/**
+		 * The root directory of the Bnd Workspace.
+		 *
+		 * @return The root directory of the Bnd Workspace.
+		 */
+		DirectoryProperty getRootDir();
+
+		/**
+		 * The name of the cnf project.
+		 *
+		 * @return The name of the cnf project.
+		 */
+		Property<String> getCnf();
+
+		/**
+		 * Whether the build is offline.
+		 *
+		 * @return Whether the build is offline.
+		 */
+		Property<Boolean> getOffline();
+	}
+
+	/**
+	 * Register the build service for a Bnd Workspace with the build.
+	 * <p>
+	 * If the service is already registered, the registered service is
+	 * returned.
+	 *
+	 * @param gradle The Gradle object of the build.
+	 * @param workspace The Bnd Workspace to be owned by the service.
+	 * @return The provider of the build service.
+	 */
+	public static Provider<BndWorkspaceService> register(Gradle gradle, Workspace workspace) {
+		Provider<BndWorkspaceService> service = gradle.getSharedServices()
+			.registerIfAbsent(NAME, BndWorkspaceService.class, spec -> {
+				Parameters parameters = spec.getParameters();
+				parameters.getRootDir()
+					.set(workspace.getBase());
+				parameters.getCnf()
+					.set(workspace.getBuildDir()
+						.getName());
+				parameters.getOffline()
+					.set(Boolean.valueOf(workspace.isOffline()));
+			});
+		service.get()
+			.setWorkspace(workspace);
+		return service;
+	}
+
+	/**
+	 * Return the build service of the build.
+	 *
+	 * @param gradle The Gradle object of the build.
+	 * @return The provider of the build service or {@code null} if the build
+	 *         service is not registered.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Provider<BndWorkspaceService> find(Gradle gradle) {
+		BuildServiceRegistration<?, ?> registration = gradle.getSharedServices()
+			.getRegistrations()
+			.findByName(NAME);
+		if (Objects.isNull(registration)) {
+			return null;
+		}
+		return (Provider<BndWorkspaceService>) registration.getService();
+	}
+
+	/**
+	 * Return the Bnd Workspace.
+	 * <p>
+	 * If no Bnd Workspace was given to the service, a Bnd Workspace is created
+	 * from the parameters of the service.
+	 *
+	 * @return The Bnd Workspace.
+	 */
+	public synchronized Workspace getWorkspace() {
+		if (Objects.isNull(workspace)) {
+			Parameters parameters = getParameters();
+			try {
+				Workspace.setDriver(Constants.BNDDRIVER_GRADLE);
+				Workspace.addGestalt(Constants.GESTALT_BATCH, null);
+				workspace = new Workspace(unwrapFile(parameters.getRootDir()), unwrap(parameters.getCnf()));
+				workspace.setOffline(unwrap(parameters.getOffline()).booleanValue());
+			} catch (Exception e) {
+				throw Exceptions.duck(e);
+			}
+		}
+		return workspace;
+	}
+
+	synchronized void setWorkspace(Workspace workspace) {
+		if (Objects.isNull(this.workspace)) {
+			this.workspace = workspace;
+		} else if (this.workspace != workspace) {
+			throw new GradleException(
+				String.format("The build already has the Bnd Workspace %s", this.workspace.getBase()));
+		}
+	}
+
+	/**
+	 * Run a callable with the Bnd Workspace read locked.
+	 *
+	 * @param <T> The result type.
+	 * @param callable The callable to run.
+	 * @return The result of the callable.
+	 * @throws Exception If the callable has an exception or the lock could not
+	 *             be obtained.
+	 */
+	public <T> T readLocked(Callable<T> callable) throws Exception {
+		return getWorkspace().readLocked(callable);
+	}
+
+	/**
+	 * Return the digests of the repositories of the Bnd Workspace that were
+	 * computed during this build.
+	 *
+	 * @return The digests by repository.
+	 */
+	Map<RepositoryPlugin, String> getRepositoryDigests() {
+		return repositoryDigests;
+	}
+
+	/**
+	 * Submit an action to be run by {@link Action}.
+	 *
+	 * @param action The action to run.
+	 * @return The id of the action.
+	 */
+	String submit(Callable<Void> action) {
+		String id = UUID.randomUUID()
+			.toString();
+		actions.put(id, action);
+		return id;
+	}
+
+	private void run(String id) throws Exception {
+		Callable<Void> action = actions.remove(id);
+		if (Objects.isNull(action)) {
+			throw new GradleException(String.format("No action %s submitted to the Bnd Workspace service", id));
+		}
+		readLocked(action);
+	}
+
+	/**
+	 * Close the Bnd Workspace at the end of the build.
+	 */
+	@Override
+	public synchronized void close() {
+		actions.clear();
+		repositoryDigests.clear();
+		if (Objects.nonNull(workspace)) {
+			try {
+				workspace.close();
+			} catch (Exception e) {
+				logger.debug("Failed to close the Bnd Workspace {}", workspace.getBase(), e);
+			}
+			workspace = null;
+		}
+	}
+
+	/**
+	 * Worker API action running an action submitted to the service.
+	 */
+	public abstract static class Action implements WorkAction<Action.Parameters> {
+		/**
+		 * Parameters of the work action.
+		 */
+		public interface Parameters extends WorkParameters {
+			/**
+			 * The build service.
+			 *
+			 * @return The build service.
+			 */
+			Property<BndWorkspaceService> getService();
+
+			/**
+			 * The id of the submitted action.
+			 *
+			 * @return The id of the submitted action.
+			 */
+			Property<String> getId();
+		}
+
+		@Override
+		public void execute() {
+			Parameters parameters = getParameters();
+			try {
+				unwrap(parameters.getService()).run(unwrap(parameters.getId()));
+			} catch (Exception e) {
+				throw Exceptions.duck(e);
+			}
+		}
+	}
+}
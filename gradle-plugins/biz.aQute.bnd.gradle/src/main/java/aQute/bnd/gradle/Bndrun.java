@@ -58,7 +58,7 @@ import aQute.lib.io.IO;
  * </ul>
  */
 @UntrackedTask(because = "Task executes bndrun")
-public class Bndrun extends AbstractBndrun {
+public abstract class Bndrun extends AbstractBndrun {
 	private final Property<JavaLauncher> javaLauncher;
 
 	/**
@@ -87,6 +87,16 @@ public class Bndrun extends AbstractBndrun {
 			.convention(defaultToolFor(project, JavaToolchainService::launcherFor));
 	}
 
+	/**
+	 * The execution is interactive, so it is not run by the Worker API.
+	 *
+	 * @return <code>false</code>.
+	 */
+	@Override
+	protected boolean isWorkerAction() {
+		return false;
+	}
+
 	/**
 	 * Execute the Project object.
 	 *
@@ -19,11 +19,13 @@ import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.model.ReplacedBy;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
 
 import aQute.bnd.build.Project;
+import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.JarResource;
 import aQute.bnd.osgi.Resource;
 import aQute.lib.io.IO;
@@ -75,8 +77,14 @@ import aQute.lib.strings.Strings;
  * "bnd.runbundles" exports the -runbundles files. The default is
  * "bnd.executablejar".</li>
  * </ul>
+ * <p>
+ * The task is cacheable. For Bnd Workspace builds, the configuration and
+ * repositories of the Bnd Workspace and the bundles of the run are inputs of
+ * the task. If the bndrun sets <code>-reproducible</code>, exported jars use
+ * fixed timestamps.
  */
-public class Export extends AbstractBndrun {
+@CacheableTask
+public abstract class Export extends AbstractBndrun {
 	private boolean					bundlesOnly	= false;
 	private final DirectoryProperty	destinationDirectory;
 	private final Property<String>	exporter;
@@ -166,6 +174,8 @@ public class Export extends AbstractBndrun {
 					}
 				}));
 			}));
+		workspaceInputs();
+		runInputs();
 	}
 
 	/**
@@ -191,6 +201,10 @@ public class Export extends AbstractBndrun {
 					}
 				} else {
 					try (Resource r = export.getValue()) {
+						if ((r instanceof JarResource) && run.is(Constants.REPRODUCIBLE)) {
+							((JarResource) r).getJar()
+								.setReproducible(true);
+						}
 						File exported = IO.getBasedFile(destinationDirFile, export.getKey());
 						r.write(exported);
 						exported.setLastModified(r.lastModified());
@@ -5,10 +5,12 @@ import static aQute.bnd.gradle.BndUtils.unwrapFile;
 
 import java.io.File;
 import java.io.Writer;
+import java.nio.file.Path;
 import java.util.Objects;
 
 import org.gradle.api.GradleException;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
@@ -64,8 +66,13 @@ import biz.aQute.resolve.ResolveProcess;
  * <li>writeOnChanges - If true the task will write changes to the value of the
  * -runbundles property. The default is true.</li>
  * </ul>
+ * <p>
+ * The task is cacheable when the outputBndrun is not the input bndrun file.
+ * For Bnd Workspace builds, the configuration and repositories of the Bnd
+ * Workspace are inputs of the task.
  */
-public class Resolve extends AbstractBndrun {
+@CacheableTask
+public abstract class Resolve extends AbstractBndrun {
 	private boolean						failOnChanges	= false;
 	private final RegularFileProperty	outputBndrun;
 	private boolean						reportOptional	= true;
@@ -207,6 +214,10 @@ public class Resolve extends AbstractBndrun {
 		outputBndrun = project.getObjects()
 			.fileProperty()
 			.convention(getBndrun());
+		// the input bndrun file is updated in place
+		getOutputs().doNotCacheIf("The outputBndrun is the input bndrun file",
+			t -> Objects.equals(unwrapFile(getOutputBndrun()), unwrapFile(getBndrun())));
+		workspaceInputs();
 	}
 
 	/**
@@ -223,7 +234,7 @@ public class Resolve extends AbstractBndrun {
 		if (!Objects.equals(outputBndrunFile, bndrunFile)) {
 			try (Writer writer = IO.writer(outputBndrunFile)) {
 				UTF8Properties props = new UTF8Properties();
-				props.setProperty(Constants.INCLUDE, String.format("\"%s\"", IO.absolutePath(bndrunFile)));
+				props.setProperty(Constants.INCLUDE, String.format("\"%s\"", includePath(outputBndrunFile, bndrunFile)));
 				props.store(writer, null);
 			}
 			bndrunFile = outputBndrunFile;
@@ -231,6 +242,22 @@ public class Resolve extends AbstractBndrun {
 		return super.createBndrun(workspace, bndrunFile);
 	}
 
+	/**
+	 * Answer the path of the input bndrun file relative to the output bndrun
+	 * file so that the output does not depend on the location of the build.
+	 */
+	private static String includePath(File outputBndrunFile, File bndrunFile) {
+		Path base = outputBndrunFile.getAbsoluteFile()
+			.toPath()
+			.getParent();
+		Path path = bndrunFile.getAbsoluteFile()
+			.toPath();
+		if (Objects.equals(base.getRoot(), path.getRoot())) {
+			return IO.normalizePath(base.relativize(path));
+		}
+		return IO.absolutePath(bndrunFile);
+	}
+
 	/**
 	 * Resolve the Bndrun object.
 	 *
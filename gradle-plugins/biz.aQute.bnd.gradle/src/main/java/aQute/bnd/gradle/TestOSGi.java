@@ -25,6 +25,7 @@ import org.gradle.jvm.toolchain.JavaLauncher;
 import org.gradle.jvm.toolchain.JavaToolchainService;
 
 import aQute.bnd.build.Project;
+import aQute.bnd.osgi.Constants;
 import aQute.lib.io.IO;
 
 /**
@@ -65,9 +66,12 @@ import aQute.lib.io.IO;
  * <li>tests - The test class names to be run. If not set, all test classes are
  * run. Use a colon (:) to specify a test method to run on the specified test
  * class.</li>
+ * <li>shards - The number of frameworks over which the test classes are
+ * distributed. The frameworks are launched in parallel. If not set, the
+ * {@code -testshards} instruction of the bndrun is used.</li>
  * </ul>
  */
-public class TestOSGi extends AbstractBndrun {
+public abstract class TestOSGi extends AbstractBndrun {
 	/**
 	 * Option to specify test names.
 	 */
@@ -76,6 +80,7 @@ public class TestOSGi extends AbstractBndrun {
 	private final DirectoryProperty			resultsDirectory;
 	private List<String>					tests;
 	private final Property<JavaLauncher>	javaLauncher;
+	private final Property<Integer>			shards;
 
 	/**
 	 * The directory where the test case results are placed.
@@ -126,6 +131,19 @@ public class TestOSGi extends AbstractBndrun {
 		return javaLauncher;
 	}
 
+	/**
+	 * The number of frameworks over which the test classes are distributed.
+	 * <p>
+	 * If not set, the {@code -testshards} instruction of the bndrun is used.
+	 *
+	 * @return The property for the number of frameworks.
+	 */
+	@Input
+	@Optional
+	public Property<Integer> getShards() {
+		return shards;
+	}
+
 	/**
 	 * Create a TestOSGi task.
 	 */
@@ -139,6 +157,7 @@ public class TestOSGi extends AbstractBndrun {
 			.convention(testResultsDir.map(d -> d.dir(taskName)));
 		javaLauncher = objects.property(JavaLauncher.class)
 			.convention(defaultToolFor(project, JavaToolchainService::launcherFor));
+		shards = objects.property(Integer.class);
 	}
 
 	/**
@@ -152,6 +171,9 @@ public class TestOSGi extends AbstractBndrun {
 		if (getJavaLauncher().isPresent() && Objects.equals(run.getProperty("java", "java"), "java")) {
 			run.setProperty("java", IO.absolutePath(unwrapFile(unwrap(getJavaLauncher()).getExecutablePath())));
 		}
+		if (getShards().isPresent()) {
+			run.setProperty(Constants.TESTSHARDS, unwrap(getShards()).toString());
+		}
 		getLogger().info("Running tests for {} in {}", run.getPropertiesFile(), run.getBase());
 		getLogger().debug("Run properties: {}", run.getProperties());
 		File resultsDir = unwrapFile(getResultsDirectory());
@@ -76,6 +76,7 @@ class TestBndPlugin extends Specification {
 		new File(testReports, "testOSGi/TEST-test.simple-0.0.0.xml").isFile()
 
 		result.output =~ Pattern.quote("### Project ${testProject} has BndWorkspacePlugin applied")
+		result.output =~ Pattern.quote("### Project ${testProject} has Bnd Workspace service")
 		result.output =~ Pattern.quote("### Project test.simple has BndPlugin applied")
 	}
 
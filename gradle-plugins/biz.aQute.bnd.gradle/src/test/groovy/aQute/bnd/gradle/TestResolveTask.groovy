@@ -52,6 +52,7 @@ class TestResolveTask extends Specification {
 		outputBndrun.isFile()
 		props.load(outputBndrun, reporter)
 		props.getProperty("-runbundles") =~ /org\.apache\.felix\.eventadmin\s*;\s*version\s*=\s*'\[1\.4\.6,1\.4\.7\)'/
+		props.getProperty("-include") == "\"../${taskname}.bndrun\""
 	}
 
 	def "Simple Bnd Resolve Task Same -runbundles Test"() {
@@ -50,6 +50,13 @@ public class LocalIndexerMojo extends AbstractMojo {
 	@Parameter(property = "bnd.indexer.absolute", defaultValue = "false")
 	private boolean				absolute;
 
+	/**
+	 * Reuse the entries of an existing output file for the files which did not
+	 * change.
+	 */
+	@Parameter(property = "bnd.indexer.incremental", defaultValue = "false")
+	private boolean				incremental;
+
 	/**
 	 * This configuration parameter is used to set the name of the repository in
 	 * the generated index
@@ -98,6 +105,9 @@ public class LocalIndexerMojo extends AbstractMojo {
 			if (!absolute) {
 				simpleIndexer.base(baseFile.toURI());
 			}
+			if (incremental) {
+				simpleIndexer.previous(outputFile);
+			}
 			simpleIndexer.name(indexName)
 				.index(outputFile);
 			reportErrorsAndWarnings(processor);